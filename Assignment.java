@@ -0,0 +1,302 @@
+package propositionalCalculatorV1_0;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A combination of truth values for the variables of a SymbolTable, stored as a bitmask. Bit i
+ *  is the value of the table's variable i. Assignments of up to 64 variables fit in a single
+ *  long, which is also the assignment's row in the expression's truth table (see getRow()).
+ *  Larger assignments use one long for every 64 variables.
+ * Assignments handed out by SatisfiablilityCalculator's streaming methods are views that are
+ *  reused for each satisfying row; use copy() or toMap() to keep one beyond the call that
+ *  received it. The asMap() adapter reads the bitmask lazily and never builds a HashMap.
+ * @author Kenneth Chin
+ *
+ */
+public final class Assignment {
+
+	private final SymbolTable symbols; //The variables, indexed by bit.
+	private final long[]      words;   //Bit i%64 of words[i/64] is the value of variable i.
+
+	/**
+	 * Creates an assignment that gives every variable of symbols the value false.
+	 * @param symbols The SymbolTable of the assignment's variables.
+	 */
+	public Assignment(SymbolTable symbols){
+		this.symbols = symbols;
+		this.words   = new long[Math.max(1, (symbols.size() + 63) >>> 6)];
+	}
+
+	/**
+	 * Creates an assignment of up to 64 variables from a truth table row.
+	 * @param symbols The SymbolTable of the assignment's variables. At most 64 variables.
+	 * @param row The bitmask. Bit i is the value of variable i.
+	 */
+	Assignment(SymbolTable symbols, long row){
+		this(symbols);
+		words[0] = row;
+	}
+
+	/**
+	 * Creates an assignment from the values of a map.
+	 * @param symbols The SymbolTable of the assignment's variables.
+	 * @param aMap A Map<String, Boolean> with a value for each variable of symbols.
+	 * @return A new Assignment holding aMap's values.
+	 * @throws IllegalArgumentException If aMap has no value for one of the variables.
+	 */
+	public static Assignment fromMap(SymbolTable symbols, Map<String, Boolean> aMap){
+		Assignment assignment = new Assignment(symbols);
+		for(int i=0; i<symbols.size(); i++){
+			Boolean value = aMap.get(symbols.getName(i));
+			if(value == null)
+				throw new IllegalArgumentException("The variable \"" + symbols.getName(i) + "\" was not given a value.");
+			assignment.set(i, value);
+		}
+		return assignment;
+	}
+
+	/**
+	 * Moves this view to another row.
+	 * @param row The new bitmask.
+	 */
+	void setRow(long row){
+		words[0] = row;
+	}
+
+	/**
+	 * Returns the words holding this assignment's bits. The array is shared, and must not be changed.
+	 * @return The long[] bitmask.
+	 */
+	long[] getWords(){
+		return words;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns this assignment's bitmask. Bit i is the value of the variable at index i of getVariables().
+	 * @return A long bitmask, which is also the assignment's truth table row.
+	 * @throws IllegalStateException If the assignment has more than 64 variables.
+	 */
+	public long getRow(){
+		if(symbols.size() > 64)
+			throw new IllegalStateException("An assignment of " + symbols.size() + " variables does not fit in a long.");
+		return words[0];
+	}
+
+	/**
+	 * Returns the SymbolTable of this assignment's variables.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the names of this assignment's variables, in bit order.
+	 * @return An unmodifiable List<String> of variable names.
+	 */
+	public List<String> getVariables(){
+		return symbols.getNames();
+	}
+
+	/**
+	 * Returns the number of variables in this assignment.
+	 * @return An int. The number of variables.
+	 */
+	public int getVariableCount(){
+		return symbols.size();
+	}
+
+	/**
+	 * Returns the value of the variable at the given index.
+	 * @param index The index of a variable in getVariables().
+	 * @return A boolean. The variable's truth value.
+	 */
+	public boolean get(int index){
+		checkIndex(index);
+		return ((words[index >>> 6] >>> index) & 1L) != 0;
+	}
+
+	/**
+	 * Returns the value of the named variable.
+	 * @param variable A variable name.
+	 * @return A boolean. The variable's truth value.
+	 * @throws IllegalArgumentException If this assignment has no such variable.
+	 */
+	public boolean get(String variable){
+		return get(requireIndex(variable));
+	}
+
+
+	//Setter operations.
+
+	/**
+	 * Sets the value of the variable at the given index.
+	 * @param index The index of a variable in getVariables().
+	 * @param value The variable's new truth value.
+	 */
+	public void set(int index, boolean value){
+		checkIndex(index);
+		if(value)
+			words[index >>> 6] |= 1L << index;
+		else
+			words[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Sets the value of the named variable.
+	 * @param variable A variable name.
+	 * @param value The variable's new truth value.
+	 * @throws IllegalArgumentException If this assignment has no such variable.
+	 */
+	public void set(String variable, boolean value){
+		set(requireIndex(variable), value);
+	}
+
+	/**
+	 * Ensures an index refers to a variable.
+	 * @param index An index.
+	 */
+	private void checkIndex(int index){
+		if(index < 0 || index >= symbols.size())
+			throw new IndexOutOfBoundsException("There is no variable at index " + index + ".");
+	}
+
+	/**
+	 * Returns the index of the named variable.
+	 * @param variable A variable name.
+	 * @return An int. The variable's index.
+	 * @throws IllegalArgumentException If this assignment has no such variable.
+	 */
+	private int requireIndex(String variable){
+		int index = symbols.indexOf(variable);
+		if(index == -1)
+			throw new IllegalArgumentException("The variable \"" + variable + "\" is not part of this assignment.");
+		return index;
+	}
+
+
+	//Conversions.
+
+	/**
+	 * Returns a copy of this assignment that is safe to keep.
+	 * @return A new Assignment with the same variables and values.
+	 */
+	public Assignment copy(){
+		Assignment copy = new Assignment(symbols);
+		System.arraycopy(words, 0, copy.words, 0, words.length);
+		return copy;
+	}
+
+	/**
+	 * Returns a read-only Map view of this assignment. The view reads this assignment's
+	 *  bitmask on each access, so it follows a reused view to its next row.
+	 * @return A Map<String, Boolean> view of each variable's value.
+	 */
+	public Map<String, Boolean> asMap(){
+		return new MapView();
+	}
+
+	/**
+	 * Builds a HashMap of this assignment, in the form used by ExpressionEvaluator and ConsoleUI.
+	 * @return A new HashMap<String, Boolean> of each variable's value.
+	 */
+	public HashMap<String, Boolean> toMap(){
+		HashMap<String, Boolean> map = new HashMap<String, Boolean>();
+		for(int i=0; i<symbols.size(); i++)
+			map.put(symbols.getName(i), get(i));
+		return map;
+	}
+
+	/**
+	 * Returns the assignment in the same format as a HashMap's toString().
+	 * @return A String listing each variable's value.
+	 */
+	@Override
+	public String toString(){
+		return asMap().toString();
+	}
+
+	/**
+	 * Two assignments are equal if they have equal SymbolTables and the same values.
+	 * @param other The Object to compare to.
+	 * @return A boolean. True if the assignments are equal.
+	 */
+	@Override
+	public boolean equals(Object other){
+		if(!(other instanceof Assignment))
+			return false;
+		Assignment assignment = (Assignment)other;
+		return Arrays.equals(words, assignment.words) && symbols.equals(assignment.symbols);
+	}
+
+	/**
+	 * Returns a hash code consistent with equals(Object).
+	 * @return An int hash code.
+	 */
+	@Override
+	public int hashCode(){
+		return Arrays.hashCode(words) * 31 + symbols.hashCode();
+	}
+
+
+	/**
+	 * The read-only Map adapter returned by asMap().
+	 * @author Kenneth Chin
+	 *
+	 */
+	private final class MapView extends AbstractMap<String, Boolean> {
+
+		@Override
+		public Boolean get(Object key){
+			int index = (key instanceof String) ? symbols.indexOf((String)key) : -1;
+			return index == -1 ? null : Boolean.valueOf(Assignment.this.get(index));
+		}
+
+		@Override
+		public boolean containsKey(Object key){
+			return (key instanceof String) && symbols.indexOf((String)key) != -1;
+		}
+
+		@Override
+		public int size(){
+			return symbols.size();
+		}
+
+		@Override
+		public Set<Entry<String, Boolean>> entrySet(){
+			return new AbstractSet<Entry<String, Boolean>>(){
+				public int size(){
+					return symbols.size();
+				}
+				public Iterator<Entry<String, Boolean>> iterator(){
+					return new Iterator<Entry<String, Boolean>>(){
+						private int index = 0;
+						public boolean hasNext(){
+							return index < symbols.size();
+						}
+						public Entry<String, Boolean> next(){
+							if(!hasNext())
+								throw new NoSuchElementException("All variables have been returned.");
+							int i = index++;
+							return new SimpleImmutableEntry<String, Boolean>(symbols.getName(i), Assignment.this.get(i));
+						}
+						public void remove(){
+							throw new UnsupportedOperationException("Assignments are read-only.");
+						}
+					};
+				}
+			};
+		}
+	}
+}
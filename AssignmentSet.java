@@ -0,0 +1,170 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of assignments over one SymbolTable, stored as packed bitmasks. Each assignment takes
+ *  one long for every 64 variables (a single long for most expressions), instead of a
+ *  HashMap<String, Boolean> per assignment.
+ * @author Kenneth Chin
+ *
+ */
+public final class AssignmentSet implements Iterable<Assignment> {
+
+	private final SymbolTable symbols; //The variables of every assignment.
+	private final int         stride;  //The number of longs per assignment.
+	private long[] data;               //The packed assignments.
+	private int    size;               //The number of assignments.
+
+	/**
+	 * Creates an empty set of assignments to the given variables.
+	 * @param symbols The SymbolTable of the assignments' variables.
+	 */
+	public AssignmentSet(SymbolTable symbols){
+		this.symbols = symbols;
+		this.stride  = Math.max(1, (symbols.size() + 63) >>> 6);
+		this.data    = new long[16 * stride];
+		this.size    = 0;
+	}
+
+	/**
+	 * Creates a set of assignments of up to 64 variables from an array of rows.
+	 * @param symbols The SymbolTable of the assignments' variables. At most 64 variables.
+	 * @param rows A long[] of rows, which is used without being copied.
+	 */
+	AssignmentSet(SymbolTable symbols, long[] rows){
+		this.symbols = symbols;
+		this.stride  = 1;
+		this.data    = rows;
+		this.size    = rows.length;
+	}
+
+	/**
+	 * Adds a copy of an assignment to the set.
+	 * @param assignment An Assignment over this set's SymbolTable.
+	 * @throws IllegalArgumentException If the assignment's SymbolTable differs from this set's.
+	 */
+	public void add(Assignment assignment){
+		if(!symbols.equals(assignment.getSymbolTable()))
+			throw new IllegalArgumentException("The assignment's variables do not match this set's variables.");
+		ensureCapacity(size + 1);
+		System.arraycopy(assignment.getWords(), 0, data, size * stride, stride);
+		size++;
+	}
+
+	/**
+	 * Adds a row to a set of up to 64 variables.
+	 * @param row A bitmask. Bit i is the value of variable i.
+	 */
+	void addRow(long row){
+		ensureCapacity(size + 1);
+		data[size++] = row;
+	}
+
+	/**
+	 * Grows the backing array to hold at least the given number of assignments.
+	 * @param capacity The number of assignments that must fit.
+	 */
+	private void ensureCapacity(int capacity){
+		if((long)capacity * stride > data.length)
+			data = Arrays.copyOf(data, (int)Math.min(Integer.MAX_VALUE - 8, Math.max((long)capacity * stride, 2L * data.length)));
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the SymbolTable of the assignments' variables.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the number of assignments in the set.
+	 * @return An int. The number of assignments.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Determines if the set has no assignments.
+	 * @return A boolean. True if the set is empty.
+	 */
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * Returns the row of an assignment in a set of up to 64 variables.
+	 * @param index An index less than size().
+	 * @return A long bitmask. Bit i is the value of variable i.
+	 * @throws IllegalStateException If the set's assignments have more than 64 variables.
+	 */
+	public long getRow(int index){
+		if(stride != 1)
+			throw new IllegalStateException("An assignment of " + symbols.size() + " variables does not fit in a long.");
+		checkIndex(index);
+		return data[index];
+	}
+
+	/**
+	 * Returns a copy of an assignment in the set.
+	 * @param index An index less than size().
+	 * @return A new Assignment.
+	 */
+	public Assignment get(int index){
+		checkIndex(index);
+		Assignment assignment = new Assignment(symbols);
+		System.arraycopy(data, index * stride, assignment.getWords(), 0, stride);
+		return assignment;
+	}
+
+	/**
+	 * Ensures an index refers to an assignment.
+	 * @param index An index.
+	 */
+	private void checkIndex(int index){
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("There is no assignment at index " + index + ".");
+	}
+
+	/**
+	 * Returns an iterator over copies of the set's assignments, in the order they were added.
+	 * @return An Iterator<Assignment>.
+	 */
+	public Iterator<Assignment> iterator(){
+		return new Iterator<Assignment>(){
+			private int index = 0;
+			public boolean hasNext(){
+				return index < size;
+			}
+			public Assignment next(){
+				if(!hasNext())
+					throw new NoSuchElementException("All assignments have been returned.");
+				return get(index++);
+			}
+			public void remove(){
+				throw new UnsupportedOperationException("Removing assignments is not allowed.");
+			}
+		};
+	}
+
+	/**
+	 * Builds a HashMap for each assignment, in the form returned by
+	 *  SatisfiablilityCalculator.findSatisfiablility(HashMap, ExpressionCard).
+	 * @return An ArrayList<HashMap<String, Boolean>> with one map per assignment, in order.
+	 */
+	public ArrayList<HashMap<String, Boolean>> toMaps(){
+		ArrayList<HashMap<String, Boolean>> maps = new ArrayList<HashMap<String, Boolean>>(size);
+		for(int i=0; i<size; i++)
+			maps.add(get(i).toMap());
+		return maps;
+	}
+}
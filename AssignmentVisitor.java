@@ -0,0 +1,18 @@
+package propositionalCalculatorV1_0;
+
+/**
+ * A callback that receives satisfying assignments as they are found. See
+ *  SatisfiablilityCalculator.forEachSatisfying(HashMap, ExpressionCard, AssignmentVisitor).
+ * @author Kenneth Chin
+ *
+ */
+public interface AssignmentVisitor {
+
+	/**
+	 * Receives one satisfying assignment. The Assignment is a view that is reused for the next
+	 *  assignment once this method returns; use Assignment.copy() to keep it.
+	 * @param assignment The satisfying Assignment.
+	 * @return A boolean. True to continue the search; false to stop it.
+	 */
+	boolean visit(Assignment assignment);
+}
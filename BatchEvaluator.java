@@ -0,0 +1,259 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class evaluates one expression over a batch of records held in columnar form: one bitset
+ *  column per variable, where bit j%64 of word j/64 of a column is the variable's truth value in
+ *  record j. The result is a bitset of the same shape holding the expression's truth value in
+ *  each record.
+ * Evaluation is operator-at-a-time: each instruction of the compiled program is applied to a
+ *  whole block of words before the next instruction runs, so the inner loops are simple loops
+ *  over long arrays. Blocks are small enough for the value stack to stay in cache, and large
+ *  batches are split across the threads of a ForkJoinPool, each filling its own range of the
+ *  result.
+ * This class is singleton, and it's public methods are the evaluate methods.
+ * @author Kenneth Chin
+ *
+ */
+public final class BatchEvaluator {
+
+	//The number of words each instruction is applied to at a time.
+	private static final int BLOCK_WORDS = 256;
+
+	//The number of words below which a batch is not split between threads.
+	private static final int CHUNK_WORDS = 4096;
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private BatchEvaluator(){}
+
+	/**
+	 * Returns the number of words a column of the given number of records needs.
+	 * @param numRecords The number of records.
+	 * @return An int. The number of longs in a column.
+	 */
+	public static int wordCount(int numRecords){
+		return (numRecords + 63) >>> 6;
+	}
+
+	/**
+	 * Evaluates an expression over a batch of records whose columns are named by variable, on
+	 *  the common ForkJoinPool.
+	 * @param expression The PropositionalExpression to evaluate.
+	 * @param columns A Map<String, long[]> holding the column of each of the expression's variables.
+	 * @param numRecords The number of records in the batch.
+	 * @return A long[] of wordCount(numRecords) words whose bit j is the expression's truth value
+	 *  in record j. Bits past numRecords are zero.
+	 * @throws IllegalArgumentException If a variable has no column, or a column is too short.
+	 */
+	public static long[] evaluate(PropositionalExpression expression, Map<String, long[]> columns, int numRecords){
+		return evaluate(expression.getCompiled(), columnsBySlot(expression.getSymbolTable(), columns), numRecords,
+		                ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates the expression expressed by root's iterator over a batch of records whose columns
+	 *  are named by variable, on the common ForkJoinPool. This is the batch form of
+	 *  ExpressionEvaluator.evaluateExpressionCards(HashMap<String, Boolean>, ExpressionCard),
+	 *  without a HashMap per record.
+	 * @param columns A Map<String, long[]> holding the column of each of the expression's variables.
+	 * @param numRecords The number of records in the batch.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be evaluated.
+	 * @return A long[] of wordCount(numRecords) words whose bit j is the expression's truth value
+	 *  in record j. Bits past numRecords are zero.
+	 * @throws IllegalArgumentException If a variable has no column, or a column is too short.
+	 */
+	public static long[] evaluate(Map<String, long[]> columns, int numRecords, ExpressionCard root){
+		CompiledExpression compiled = ExpressionCompiler.compile(root);
+		return evaluate(compiled, columnsBySlot(compiled.getSymbolTable(), columns), numRecords, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a compiled expression over a batch of records, on the common ForkJoinPool.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param columns A long[][] holding the column of each variable, indexed by slot.
+	 * @param numRecords The number of records in the batch.
+	 * @return A long[] of wordCount(numRecords) words whose bit j is the expression's truth value
+	 *  in record j. Bits past numRecords are zero.
+	 * @throws IllegalArgumentException If a column is missing or too short.
+	 */
+	public static long[] evaluate(CompiledExpression compiled, long[][] columns, int numRecords){
+		return evaluate(compiled, columns, numRecords, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a compiled expression over a batch of records, on the given ForkJoinPool.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param columns A long[][] holding the column of each variable, indexed by slot.
+	 * @param numRecords The number of records in the batch.
+	 * @param pool The ForkJoinPool to evaluate on.
+	 * @return A long[] of wordCount(numRecords) words whose bit j is the expression's truth value
+	 *  in record j. Bits past numRecords are zero.
+	 * @throws IllegalArgumentException If a column is missing or too short.
+	 */
+	public static long[] evaluate(CompiledExpression compiled, long[][] columns, int numRecords, ForkJoinPool pool){
+		if(numRecords < 0)
+			throw new IllegalArgumentException("The number of records cannot be negative.");
+		int words = wordCount(numRecords);
+		if(columns.length < compiled.getVariableCount())
+			throw new IllegalArgumentException("Expected " + compiled.getVariableCount() + " columns, but got " + columns.length + ".");
+		for(int slot=0; slot<compiled.getVariableCount(); slot++){
+			if(columns[slot] == null || columns[slot].length < words)
+				throw new IllegalArgumentException("The column of \"" + compiled.getSymbolTable().getName(slot) + "\" has fewer than " + words + " words.");
+		}
+		long[] results = new long[words];
+		if(words == 0)
+			return results;
+		if(words <= CHUNK_WORDS)
+			new BatchTask(compiled, columns, results, 0, words).compute();
+		else
+			pool.invoke(new BatchTask(compiled, columns, results, 0, words));
+		if((numRecords & 63) != 0)
+			results[words - 1] &= (1L << (numRecords & 63)) - 1;
+		return results;
+	}
+
+	/**
+	 * Arranges named columns by slot.
+	 * @param symbols The SymbolTable of the expression's variables.
+	 * @param columns A Map<String, long[]> holding the column of each variable.
+	 * @return A long[][] holding the column of each variable, indexed by slot.
+	 */
+	private static long[][] columnsBySlot(SymbolTable symbols, Map<String, long[]> columns){
+		long[][] bySlot = new long[symbols.size()][];
+		for(int slot=0; slot<bySlot.length; slot++){
+			bySlot[slot] = columns.get(symbols.getName(slot));
+			if(bySlot[slot] == null)
+				throw new IllegalArgumentException("The variable \"" + symbols.getName(slot) + "\" has no column.");
+		}
+		return bySlot;
+	}
+
+	/**
+	 * Evaluates a range of words, one block at a time.
+	 * @param code The postfix program.
+	 * @param stack The value stack: getMaxStackDepth() blocks of BLOCK_WORDS words.
+	 * @param columns The columns, indexed by slot.
+	 * @param results The result column.
+	 * @param fromWord The first word evaluated (inclusive).
+	 * @param toWord The last word evaluated (exclusive).
+	 */
+	private static void evaluateRange(int[] code, long[][] stack, long[][] columns, long[] results, int fromWord, int toWord){
+		for(int from=fromWord; from<toWord; from+=BLOCK_WORDS){
+			int length = Math.min(BLOCK_WORDS, toWord - from);
+			int top    = -1;
+			for(int instruction:code){
+				long[] column;
+				long[] a;
+				long[] b;
+				switch(CompiledExpression.opcode(instruction)){
+					case CompiledExpression.PUSH :
+						System.arraycopy(columns[CompiledExpression.operand(instruction)], from, stack[++top], 0, length);
+						break;
+					case CompiledExpression.PUSH_NOT :
+						column = columns[CompiledExpression.operand(instruction)];
+						a      = stack[++top];
+						for(int i=0; i<length; i++)
+							a[i] = ~column[from + i];
+						break;
+					case CompiledExpression.NOT :
+						a = stack[top];
+						for(int i=0; i<length; i++)
+							a[i] = ~a[i];
+						break;
+					case CompiledExpression.AND :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] &= b[i];
+						break;
+					case CompiledExpression.OR :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] |= b[i];
+						break;
+					case CompiledExpression.XOR :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] ^= b[i];
+						break;
+					case CompiledExpression.IMPLIES :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] = ~a[i] | b[i];
+						break;
+					case CompiledExpression.EQUIVALENT :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] = ~(a[i] ^ b[i]);
+						break;
+					case CompiledExpression.REV_IMPLIES :
+						a = stack[top - 1];
+						b = stack[top--];
+						for(int i=0; i<length; i++)
+							a[i] |= ~b[i];
+						break;
+					default : throw new IllegalStateException("Unknown opcode " + CompiledExpression.opcode(instruction) + ".");
+				}
+			}
+			System.arraycopy(stack[0], 0, results, from, length);
+		}
+	}
+
+
+	/**
+	 * A fork/join task that evaluates a range of words of a batch.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CompiledExpression compiled; //The expression being evaluated.
+		private final long[][] columns;            //The columns, indexed by slot.
+		private final long[]   results;            //The result column, shared by every task.
+		private final int      fromWord;           //The first word evaluated (inclusive).
+		private final int      toWord;             //The last word evaluated (exclusive).
+
+		/**
+		 * Creates a task that evaluates words fromWord through toWord-1.
+		 * @param compiled The expression being evaluated.
+		 * @param columns The columns, indexed by slot.
+		 * @param results The result column.
+		 * @param fromWord The first word evaluated (inclusive).
+		 * @param toWord The last word evaluated (exclusive).
+		 */
+		private BatchTask(CompiledExpression compiled, long[][] columns, long[] results, int fromWord, int toWord){
+			this.compiled = compiled;
+			this.columns  = columns;
+			this.results  = results;
+			this.fromWord = fromWord;
+			this.toWord   = toWord;
+		}
+
+		/**
+		 * Evaluates this task's words, splitting them if there are too many.
+		 */
+		@Override
+		protected void compute(){
+			if(toWord - fromWord > CHUNK_WORDS){
+				int middle = (fromWord + toWord) >>> 1;
+				invokeAll(new BatchTask(compiled, columns, results, fromWord, middle),
+				          new BatchTask(compiled, columns, results, middle, toWord));
+				return;
+			}
+			long[][] stack = new long[Math.max(1, compiled.getMaxStackDepth())][BLOCK_WORDS];
+			evaluateRange(compiled.getCode(), stack, columns, results, fromWord, toWord);
+		}
+	}
+}
@@ -0,0 +1,419 @@
+package propositionalCalculatorV1_0;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs (expression, assignment) jobs without a user: each job's expression is parsed, evaluated
+ *  at the job's assignment, and optionally checked for satisfiability, and one result is written
+ *  for each job, in the order the jobs were read.
+ * Jobs are read one per line, as "expression ; assignment". The assignment is a list of
+ *  name=value pairs separated by commas or spaces, where a value is T, F, true, false, 1 or 0;
+ *  every variable of the expression needs a value, and other names are ignored. A job without
+ *  "; assignment" is not evaluated. Blank lines and lines starting with '#' are skipped.
+ * The jobs are cut into chunks, and every chunk passes through four stages, parse, evaluate,
+ *  satisfiability and format, each run on a pool of worker threads as soon as the chunk's
+ *  previous stage is done. While one chunk is being evaluated, the next can be parsed and the
+ *  one before it checked for satisfiability. The calling thread reads the jobs and writes the
+ *  chunks in order; it stops reading while too many chunks are unwritten, so memory does not
+ *  grow with the input. Expressions are parsed through a shared ExpressionCache, so an
+ *  expression that repeats is parsed, and checked for satisfiability, once.
+ * Results are written in one of two formats:
+ *  text:   one line per job, "lineNumber TAB value TAB satisfiability", where value is T, F, or
+ *          - if the job was not evaluated, and satisfiability is SAT, UNSAT, or - if it was not
+ *          checked. A job that failed is written "lineNumber TAB ERROR TAB message".
+ *  binary: one byte per job, a combination of VALUE, EVALUATED, SATISFIABLE, SOLVED and FAILED.
+ *          The messages of failed jobs are written to a separate stream.
+ * @author Kenneth Chin
+ *
+ */
+public final class BatchPipeline {
+
+	//The bits of a job's result byte.
+	public static final int VALUE       = 0x01; //The expression is true at the assignment.
+	public static final int EVALUATED   = 0x02; //The expression was evaluated.
+	public static final int SATISFIABLE = 0x04; //The expression is satisfiable.
+	public static final int SOLVED      = 0x08; //The expression was checked for satisfiability.
+	public static final int FAILED      = 0x80; //The job could not be run.
+
+	public static final int DEFAULT_CHUNK_JOBS = 1024;
+
+	private final int             workers;        //The number of worker threads.
+	private final boolean         satisfiability; //Are expressions checked for satisfiability?
+	private final boolean         binary;         //Are results written in the binary format?
+	private final int             chunkJobs;      //The most jobs in a chunk.
+	private final ExpressionCache cache;          //The parsed expressions.
+
+	/**
+	 * Creates a pipeline with chunks of DEFAULT_CHUNK_JOBS jobs.
+	 * @param workers The number of worker threads.
+	 * @param satisfiability True to check every expression for satisfiability.
+	 * @param binary True to write results in the binary format, false for the text format.
+	 * @param cache The ExpressionCache to parse expressions through.
+	 * @throws IllegalArgumentException If workers is less than 1.
+	 */
+	public BatchPipeline(int workers, boolean satisfiability, boolean binary, ExpressionCache cache){
+		this(workers, satisfiability, binary, cache, DEFAULT_CHUNK_JOBS);
+	}
+
+	/**
+	 * Creates a pipeline.
+	 * @param workers The number of worker threads.
+	 * @param satisfiability True to check every expression for satisfiability.
+	 * @param binary True to write results in the binary format, false for the text format.
+	 * @param cache The ExpressionCache to parse expressions through.
+	 * @param chunkJobs The most jobs handed to a stage at once.
+	 * @throws IllegalArgumentException If workers or chunkJobs is less than 1.
+	 */
+	public BatchPipeline(int workers, boolean satisfiability, boolean binary, ExpressionCache cache, int chunkJobs){
+		if(workers < 1)
+			throw new IllegalArgumentException("A pipeline needs at least one worker.");
+		if(chunkJobs < 1)
+			throw new IllegalArgumentException("A chunk must hold at least one job.");
+		this.workers        = workers;
+		this.satisfiability = satisfiability;
+		this.binary         = binary;
+		this.cache          = cache;
+		this.chunkJobs      = chunkJobs;
+	}
+
+	/**
+	 * Runs every job read from in, and writes their results to out. Neither stream is closed.
+	 * @param in The BufferedReader to read jobs from.
+	 * @param out The OutputStream to write results to. It is flushed at the end.
+	 * @param errors The PrintStream to write the messages of failed jobs to in the binary format,
+	 *  as "line lineNumber: message", or null to drop them.
+	 * @return A long. The number of jobs run.
+	 * @throws IOException If in could not be read or out could not be written.
+	 */
+	public long run(BufferedReader in, OutputStream out, PrintStream errors) throws IOException{
+		ExecutorService                      pool       = Executors.newFixedThreadPool(workers, new WorkerFactory());
+		ArrayDeque<CompletableFuture<Chunk>> unwritten  = new ArrayDeque<CompletableFuture<Chunk>>();
+		int                                  maxPending = 4 * workers;
+		long                                 jobs       = 0;
+		long                                 lineNumber = 0;
+		try{
+			Chunk  chunk = new Chunk(chunkJobs);
+			String line;
+			while((line = in.readLine()) != null){
+				lineNumber++;
+				if(chunk.add(lineNumber, line)){
+					jobs++;
+					if(chunk.size == chunkJobs){
+						unwritten.add(submit(chunk, pool));
+						chunk = new Chunk(chunkJobs);
+						//Wait for the oldest chunk, rather than read ahead without bound.
+						while(unwritten.size() >= maxPending)
+							write(unwritten.poll(), out, errors);
+					}
+				}
+			}
+			if(chunk.size > 0)
+				unwritten.add(submit(chunk, pool));
+			while(!unwritten.isEmpty())
+				write(unwritten.poll(), out, errors);
+			out.flush();
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		return jobs;
+	}
+
+	/**
+	 * Starts a chunk through the stages.
+	 * @param chunk The Chunk of jobs.
+	 * @param pool The ExecutorService of the workers.
+	 * @return A CompletableFuture<Chunk> completed when the chunk is ready to be written.
+	 */
+	private CompletableFuture<Chunk> submit(Chunk chunk, ExecutorService pool){
+		CompletableFuture<Chunk> future = CompletableFuture.completedFuture(chunk)
+				.thenApplyAsync(this::parse, pool)
+				.thenApplyAsync(this::evaluate, pool);
+		if(satisfiability)
+			future = future.thenApplyAsync(this::satisfy, pool);
+		return future.thenApplyAsync(this::format, pool);
+	}
+
+	/**
+	 * Writes a chunk's results, once the chunk has been through every stage.
+	 * @param future The CompletableFuture<Chunk> of the chunk.
+	 * @param out The OutputStream to write results to.
+	 * @param errors The PrintStream to write the messages of failed jobs to, or null.
+	 * @throws IOException If out could not be written.
+	 */
+	private void write(CompletableFuture<Chunk> future, OutputStream out, PrintStream errors) throws IOException{
+		Chunk chunk;
+		try{
+			chunk = future.join();
+		}
+		catch(CompletionException e){
+			//A stage failed for a reason other than a bad job.
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			throw e;
+		}
+		out.write(chunk.output, 0, chunk.outputLength);
+		if(binary && errors != null){
+			for(int i=0; i<chunk.size; i++){
+				if(chunk.errors[i] != null)
+					errors.println("line " + chunk.lines[i] + ": " + chunk.errors[i]);
+			}
+		}
+	}
+
+
+	//Stages.
+
+	/**
+	 * The parse stage: parses each job's expression through the cache. A chunk's repeated
+	 *  expressions are looked up in the cache once.
+	 * @param chunk The Chunk of jobs.
+	 * @return The chunk.
+	 */
+	private Chunk parse(Chunk chunk){
+		HashMap<String, PropositionalExpression> seen = new HashMap<String, PropositionalExpression>();
+		for(int i=0; i<chunk.size; i++){
+			PropositionalExpression parsed = seen.get(chunk.expressions[i]);
+			if(parsed == null){
+				try{
+					parsed = cache.get(chunk.expressions[i]);
+					seen.put(chunk.expressions[i], parsed);
+				}
+				catch(IllegalArgumentException e){
+					chunk.fail(i, e.getMessage());
+					continue;
+				}
+			}
+			chunk.parsed[i] = parsed;
+		}
+		return chunk;
+	}
+
+	/**
+	 * The evaluate stage: evaluates each parsed expression at its job's assignment.
+	 * @param chunk The Chunk of jobs.
+	 * @return The chunk.
+	 */
+	private Chunk evaluate(Chunk chunk){
+		for(int i=0; i<chunk.size; i++){
+			PropositionalExpression parsed = chunk.parsed[i];
+			if(parsed == null || chunk.assignments[i] == null)
+				continue;
+			try{
+				Assignment assignment = readAssignment(parsed.getSymbolTable(), chunk.assignments[i]);
+				chunk.results[i] |= parsed.evaluate(assignment) ? (EVALUATED | VALUE) : EVALUATED;
+			}
+			catch(IllegalArgumentException e){
+				chunk.fail(i, e.getMessage());
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * The satisfiability stage: checks each parsed expression for satisfiability. A
+	 *  PropositionalExpression keeps its answer, so an expression still in the cache is solved once.
+	 * @param chunk The Chunk of jobs.
+	 * @return The chunk.
+	 */
+	private Chunk satisfy(Chunk chunk){
+		for(int i=0; i<chunk.size; i++){
+			PropositionalExpression parsed = chunk.parsed[i];
+			if(parsed == null || (chunk.results[i] & FAILED) != 0)
+				continue;
+			chunk.results[i] |= parsed.isSatisfiable() ? (SOLVED | SATISFIABLE) : SOLVED;
+		}
+		return chunk;
+	}
+
+	/**
+	 * The format stage: renders the chunk's results in the output format.
+	 * @param chunk The Chunk of jobs.
+	 * @return The chunk.
+	 */
+	private Chunk format(Chunk chunk){
+		if(binary){
+			chunk.output       = chunk.results;
+			chunk.outputLength = chunk.size;
+			return chunk;
+		}
+		StringBuilder builder = new StringBuilder(chunk.size * 16);
+		for(int i=0; i<chunk.size; i++){
+			int result = chunk.results[i];
+			builder.append(chunk.lines[i]).append('\t');
+			if((result & FAILED) != 0)
+				builder.append("ERROR\t").append(chunk.errors[i]);
+			else{
+				builder.append((result & EVALUATED) == 0 ? "-" : (result & VALUE) != 0 ? "T" : "F").append('\t');
+				builder.append((result & SOLVED) == 0 ? "-" : (result & SATISFIABLE) != 0 ? "SAT" : "UNSAT");
+			}
+			builder.append('\n');
+		}
+		chunk.output       = builder.toString().getBytes(StandardCharsets.UTF_8);
+		chunk.outputLength = chunk.output.length;
+		return chunk;
+	}
+
+
+	//Job parsing.
+
+	/**
+	 * Reads an assignment of the form "a=T, b=0 c=false".
+	 * @param symbols The SymbolTable of the expression the assignment is for.
+	 * @param text The name=value pairs, separated by commas or white space.
+	 * @return A new Assignment over symbols.
+	 * @throws IllegalArgumentException If a pair is malformed, or a variable of symbols is not
+	 *  given a value.
+	 */
+	static Assignment readAssignment(SymbolTable symbols, String text){
+		Assignment assignment = new Assignment(symbols);
+		boolean[]  assigned   = new boolean[symbols.size()];
+		int        count      = 0;
+		int        length     = text.length();
+		int        start      = 0;
+		while(start < length){
+			char currentChar = text.charAt(start);
+			if(currentChar == ',' || Character.isWhitespace(currentChar)){
+				start++;
+				continue;
+			}
+			int end = start;
+			while(end < length && text.charAt(end) != ',' && !Character.isWhitespace(text.charAt(end)))
+				end++;
+			int equals = text.indexOf('=', start);
+			if(equals <= start || equals >= end - 1)
+				throw new IllegalArgumentException("\"" + text.substring(start, end) + "\" is not a name=value pair.");
+			int index = symbols.indexOf(text.substring(start, equals));
+			if(index >= 0){
+				assignment.set(index, readValue(text.substring(equals + 1, end)));
+				if(!assigned[index]){
+					assigned[index] = true;
+					count++;
+				}
+			}
+			start = end;
+		}
+		if(count < symbols.size()){
+			for(int i=0; i<assigned.length; i++){
+				if(!assigned[i])
+					throw new IllegalArgumentException("The variable \"" + symbols.getName(i) + "\" was not given a value.");
+			}
+		}
+		return assignment;
+	}
+
+	/**
+	 * Reads a truth value.
+	 * @param value One of T, F, true, false, 1 or 0, in either case.
+	 * @return The boolean value.
+	 * @throws IllegalArgumentException If value is not a truth value.
+	 */
+	private static boolean readValue(String value){
+		if(value.equals("1") || value.equalsIgnoreCase("T") || value.equalsIgnoreCase("true"))
+			return true;
+		if(value.equals("0") || value.equalsIgnoreCase("F") || value.equalsIgnoreCase("false"))
+			return false;
+		throw new IllegalArgumentException("\"" + value + "\" is not a truth value.");
+	}
+
+
+	/**
+	 * A run of jobs that passes through the stages together. Each stage fills in its own arrays,
+	 *  and stages run one after another, so a Chunk needs no locking.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Chunk {
+
+		private final long[]                    lines;       //Each job's line number.
+		private final String[]                  expressions; //Each job's expression.
+		private final String[]                  assignments; //Each job's assignment, or null.
+		private final PropositionalExpression[] parsed;      //Each job's parsed expression, or null.
+		private final byte[]                    results;     //Each job's result bits.
+		private final String[]                  errors;      //Why each job failed, or null.
+		private int                             size;        //The number of jobs.
+		private byte[]                          output;      //The formatted results.
+		private int                             outputLength;//The number of bytes of output.
+
+		/**
+		 * Creates an empty chunk.
+		 * @param capacity The most jobs in the chunk.
+		 */
+		private Chunk(int capacity){
+			lines       = new long[capacity];
+			expressions = new String[capacity];
+			assignments = new String[capacity];
+			parsed      = new PropositionalExpression[capacity];
+			results     = new byte[capacity];
+			errors      = new String[capacity];
+		}
+
+		/**
+		 * Adds the job on a line, unless the line is blank or a comment.
+		 * @param lineNumber The line's number, from 1.
+		 * @param line The line.
+		 * @return A boolean. True if a job was added.
+		 */
+		private boolean add(long lineNumber, String line){
+			String job = line.trim();
+			if(job.isEmpty() || job.charAt(0) == '#')
+				return false;
+			int separator = job.indexOf(';');
+			lines[size]       = lineNumber;
+			expressions[size] = (separator < 0) ? job : job.substring(0, separator).trim();
+			assignments[size] = (separator < 0) ? null : job.substring(separator + 1);
+			size++;
+			return true;
+		}
+
+		/**
+		 * Marks a job as failed.
+		 * @param index The job's index in the chunk.
+		 * @param message Why the job failed.
+		 */
+		private void fail(int index, String message){
+			results[index] = (byte)FAILED;
+			errors[index]  = message;
+		}
+	}
+
+	/**
+	 * Creates the pipeline's worker threads: daemon threads, so that a pipeline that was not
+	 *  finished does not keep the program alive.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class WorkerFactory implements ThreadFactory {
+
+		private static final AtomicInteger POOLS = new AtomicInteger(); //The number of pools created.
+
+		private final int           pool    = POOLS.incrementAndGet(); //This pool's number.
+		private final AtomicInteger threads = new AtomicInteger();     //The number of threads created.
+
+		/**
+		 * Creates a worker thread.
+		 * @param task The Runnable the thread runs.
+		 * @return A new daemon Thread.
+		 */
+		@Override
+		public Thread newThread(Runnable task){
+			Thread thread = new Thread(task, "batch-pipeline-" + pool + "-worker-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
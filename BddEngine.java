@@ -0,0 +1,1110 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * A reduced ordered binary decision diagram (ROBDD) engine over the variables of a SymbolTable.
+ *  Every boolean function has exactly one BDD for a given variable order, so once expressions
+ *  are built, tautology and satisfiability checks are comparisons with TRUE and FALSE, two
+ *  expressions are equivalent exactly when they are the same node, and models are counted in
+ *  time proportional to the size of the BDD rather than to the size of its truth table.
+ * Nodes are numbered ints stored in primitive arrays: node 0 is FALSE, node 1 is TRUE, and every
+ *  other node is a variable with a low (false) and high (true) child. Nodes are hash-consed in
+ *  one unique table per variable, and ite() results are kept in a direct-mapped computed cache.
+ * Memory is managed by reference counting. Nodes returned by operations are unreferenced; call
+ *  ref(int) to keep a node across later operations, and deref(int) to release it. Unreferenced
+ *  nodes are reclaimed by gc(), which operations call on their own when the node table fills.
+ *  The node table never grows beyond the node limit given to the constructor; an operation that
+ *  needs more nodes than the limit allows throws an IllegalStateException.
+ * The variable order can be set with setOrder(int[]), chosen statically with
+ *  staticOrder(CompiledExpression, int), and improved dynamically by sift(), which moves each
+ *  variable to the level that minimizes the number of nodes. Nodes keep their numbers, and their
+ *  functions, when variables are reordered.
+ * A BddEngine is not thread-safe. Use one instance per thread.
+ * @author Kenneth Chin
+ *
+ */
+public final class BddEngine {
+
+	public static final int FALSE = 0;
+	public static final int TRUE  = 1;
+
+	//Static ordering heuristics of staticOrder(CompiledExpression, int).
+	public static final int ORDER_GIVEN     = 0; //The order of the SymbolTable.
+	public static final int ORDER_FIRST_USE = 1; //The order in which the expression first reads each variable.
+	public static final int ORDER_MOST_USED = 2; //The variables read most often first.
+
+	public static final int DEFAULT_MAX_NODES = 1 << 22;
+	//The bytes used per node: five ints in the node table, plus a unique table chain head and a
+	// computed cache entry when the tables are full.
+	public static final int BYTES_PER_NODE = 5 * 4 + 4 + 4 * 4;
+
+	private static final int    INITIAL_NODES   = 1 << 10;
+	private static final int    MIN_CACHE       = 1 << 12;
+	private static final double SIFT_MAX_GROWTH = 1.2;  //Sifting stops moving a variable past this growth.
+	private static final int    FREE            = -1;   //The variable of a node on the free list.
+
+	private final SymbolTable symbols;
+	private final int         numVars;
+	private final int         maxNodes;
+
+	//Per node: its variable (numVars for terminals, FREE if unused), children, reference count
+	// and the next node in its unique table chain (or on the free list).
+	private int[] var;
+	private int[] low;
+	private int[] high;
+	private int[] refs;
+	private int[] next;
+	private int   top       = 2;  //Nodes below top have been used.
+	private int   freeList  = 0;  //The first free node, or 0 if there is none.
+	private int   nodeCount = 2;  //Nodes in use, including the terminals.
+	private int   dead      = 0;  //Nodes in use with no references.
+
+	private final int[][] buckets;     //Per variable: the heads of its unique table chains.
+	private final int[]   tableCount;  //Per variable: the number of its nodes.
+	private final int[]   levelOf;     //Per variable: its level. Terminals are at level numVars.
+	private final int[]   varAt;       //Per level: its variable.
+
+	private int[] cacheF;
+	private int[] cacheG;
+	private int[] cacheH;
+	private int[] cacheResult;
+
+	private boolean autoReorder      = false;
+	private int     reorderThreshold = INITIAL_NODES * 4;
+	private long    gcCount          = 0;
+	private long    reorderCount     = 0;
+
+	/**
+	 * Creates an engine over the variables of symbols, in the table's order, with the default
+	 *  node limit.
+	 * @param symbols The SymbolTable of the variables.
+	 */
+	public BddEngine(SymbolTable symbols){
+		this(symbols, DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * Creates an engine over the variables of symbols, in the table's order.
+	 * @param symbols The SymbolTable of the variables.
+	 * @param maxNodes The most nodes the node table may hold, including the two terminals.
+	 *  See maxNodesFor(long) to derive the limit from a memory budget.
+	 * @throws IllegalArgumentException If maxNodes is less than 16.
+	 */
+	public BddEngine(SymbolTable symbols, int maxNodes){
+		if(maxNodes < 16)
+			throw new IllegalArgumentException("A BddEngine needs a node limit of at least 16 nodes.");
+		this.symbols    = symbols;
+		this.numVars    = symbols.size();
+		this.maxNodes   = maxNodes;
+		int capacity    = Math.min(INITIAL_NODES, maxNodes);
+		this.var        = new int[capacity];
+		this.low        = new int[capacity];
+		this.high       = new int[capacity];
+		this.refs       = new int[capacity];
+		this.next       = new int[capacity];
+		this.buckets    = new int[numVars][];
+		this.tableCount = new int[numVars];
+		this.levelOf    = new int[numVars + 1];
+		this.varAt      = new int[numVars + 1];
+		for(int v=0; v<=numVars; v++){
+			levelOf[v] = v;
+			varAt[v]   = v;
+			if(v < numVars)
+				buckets[v] = new int[16];
+		}
+		var[FALSE] = numVars;
+		var[TRUE]  = numVars;
+		resizeCache(capacity);
+	}
+
+
+	//Static operations.
+
+	/**
+	 * Returns the node limit that keeps an engine's tables within a memory budget.
+	 * @param bytes The memory budget, in bytes.
+	 * @return An int. The node limit to pass to BddEngine(SymbolTable, int).
+	 */
+	public static int maxNodesFor(long bytes){
+		return (int)Math.max(16, Math.min(Integer.MAX_VALUE - 8, bytes / BYTES_PER_NODE));
+	}
+
+	/**
+	 * Chooses a variable order for an expression.
+	 * @param compiled The CompiledExpression to be built.
+	 * @param heuristic One of ORDER_GIVEN, ORDER_FIRST_USE or ORDER_MOST_USED.
+	 * @return An int[] of the compiled expression's slots, from the top level of the BDD down.
+	 * @throws IllegalArgumentException If heuristic is not one of the ordering heuristics.
+	 */
+	public static int[] staticOrder(CompiledExpression compiled, int heuristic){
+		final int numVars = compiled.getVariableCount();
+		final int[] firstUse = new int[numVars];
+		final int[] uses     = new int[numVars];
+		Arrays.fill(firstUse, Integer.MAX_VALUE);
+		int[] code = compiled.getCode();
+		for(int i=0; i<code.length; i++){
+			int opcode = CompiledExpression.opcode(code[i]);
+			if(opcode == CompiledExpression.PUSH || opcode == CompiledExpression.PUSH_NOT){
+				int slot = CompiledExpression.operand(code[i]);
+				firstUse[slot] = Math.min(firstUse[slot], i);
+				uses[slot]++;
+			}
+		}
+		ArrayList<Integer> order = new ArrayList<Integer>(numVars);
+		for(int slot=0; slot<numVars; slot++)
+			order.add(slot);
+		switch(heuristic){
+			case ORDER_GIVEN :
+				break;
+			case ORDER_FIRST_USE :
+				Collections.sort(order, new Comparator<Integer>(){
+					public int compare(Integer a, Integer b){
+						return Integer.compare(firstUse[a], firstUse[b]);
+					}
+				});
+				break;
+			case ORDER_MOST_USED :
+				Collections.sort(order, new Comparator<Integer>(){
+					public int compare(Integer a, Integer b){
+						if(uses[a] != uses[b])
+							return Integer.compare(uses[b], uses[a]);
+						return Integer.compare(firstUse[a], firstUse[b]);
+					}
+				});
+				break;
+			default :
+				throw new IllegalArgumentException("Unknown ordering heuristic " + heuristic + ".");
+		}
+		int[] slots = new int[numVars];
+		for(int i=0; i<numVars; i++)
+			slots[i] = order.get(i);
+		return slots;
+	}
+
+	/**
+	 * Determines if aRoot's expression is true for every combination of its variables.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression.
+	 * @return A boolean. True if the expression is a tautology.
+	 */
+	public static boolean isTautology(ExpressionCard aRoot){
+		return buildAlone(aRoot) == TRUE;
+	}
+
+	/**
+	 * Determines if aRoot's expression is true for at least one combination of its variables.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression.
+	 * @return A boolean. True if the expression is satisfiable.
+	 */
+	public static boolean isSatisfiable(ExpressionCard aRoot){
+		return buildAlone(aRoot) != FALSE;
+	}
+
+	/**
+	 * Determines if two expressions have the same truth value for every combination of the
+	 *  variables of either expression.
+	 * @param root1 The ExpressionCard at the root of the first expression's binary tree.
+	 * @param root2 The ExpressionCard at the root of the second expression's binary tree.
+	 * @return A boolean. True if the expressions are equivalent.
+	 */
+	public static boolean areEquivalent(ExpressionCard root1, ExpressionCard root2){
+		CompiledExpression compiled1 = ExpressionCompiler.compile(root1);
+		CompiledExpression compiled2 = ExpressionCompiler.compile(root2);
+		ArrayList<String> variables = new ArrayList<String>(compiled1.getVariables());
+		for(String variable:compiled2.getVariables()){
+			if(compiled1.indexOf(variable) == -1)
+				variables.add(variable);
+		}
+		BddEngine engine = new BddEngine(new SymbolTable(variables));
+		engine.setOrder(staticOrder(ExpressionCompiler.compile(root1, engine.getSymbolTable()), ORDER_FIRST_USE));
+		int f = engine.ref(engine.build(compiled1));
+		int g = engine.build(compiled2);
+		return f == g;
+	}
+
+	/**
+	 * Builds an expression in an engine of its own, ordered by first use.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree.
+	 * @return An int. The expression's node.
+	 */
+	private static int buildAlone(ExpressionCard aRoot){
+		CompiledExpression compiled = ExpressionCompiler.compile(aRoot);
+		BddEngine engine = new BddEngine(compiled.getSymbolTable());
+		engine.setOrder(staticOrder(compiled, ORDER_FIRST_USE));
+		return engine.build(compiled);
+	}
+
+
+	//Building.
+
+	/**
+	 * Builds the BDD of aRoot's expression.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be built.
+	 * @return An int. The (unreferenced) node of the expression.
+	 * @throws IllegalArgumentException If the expression uses a variable that is not in this
+	 *  engine's SymbolTable.
+	 */
+	public int build(ExpressionCard aRoot){
+		return build(ExpressionCompiler.compile(aRoot, symbols));
+	}
+
+	/**
+	 * Builds the BDD of a compiled expression. Its variables are matched to this engine's by name.
+	 * @param compiled The CompiledExpression to be built.
+	 * @return An int. The (unreferenced) node of the expression.
+	 * @throws IllegalArgumentException If the expression has a variable that is not in this
+	 *  engine's SymbolTable.
+	 */
+	public int build(CompiledExpression compiled){
+		int[] slots = new int[compiled.getVariableCount()];
+		for(int i=0; i<slots.length; i++){
+			slots[i] = symbols.indexOf(compiled.getVariables().get(i));
+			if(slots[i] == -1)
+				throw new IllegalArgumentException("The variable \"" + compiled.getVariables().get(i) + "\" is not part of this BddEngine.");
+		}
+		//Every node on the stack is referenced, so collections between instructions keep it.
+		int[] stack = new int[Math.max(1, compiled.getMaxStackDepth())];
+		int   depth = 0;
+		try{
+			for(int instruction:compiled.getCode()){
+				int opcode = CompiledExpression.opcode(instruction);
+				switch(opcode){
+					case CompiledExpression.PUSH     : stack[depth++] = ref(variable(slots[CompiledExpression.operand(instruction)])); break;
+					case CompiledExpression.PUSH_NOT : stack[depth++] = ref(not(variable(slots[CompiledExpression.operand(instruction)]))); break;
+					case CompiledExpression.NOT      : stack[depth-1] = replace(stack[depth-1], not(stack[depth-1])); break;
+					default :
+						int b = stack[depth-1];
+						int a = stack[depth-2];
+						int result;
+						switch(opcode){
+							case CompiledExpression.AND         : result = and(a, b);        break;
+							case CompiledExpression.OR          : result = or(a, b);         break;
+							case CompiledExpression.XOR         : result = xor(a, b);        break;
+							case CompiledExpression.IMPLIES     : result = implies(a, b);    break;
+							case CompiledExpression.REV_IMPLIES : result = implies(b, a);    break;
+							case CompiledExpression.EQUIVALENT  : result = equivalent(a, b); break;
+							default : throw new IllegalStateException("Unknown opcode " + opcode + ".");
+						}
+						stack[depth-2] = replace(a, result);
+						deref(b);
+						depth--;
+				}
+			}
+			depth--;
+			decRef(stack[0]);
+			return stack[0];
+		}
+		finally{
+			for(int i=0; i<depth; i++)
+				deref(stack[i]);
+		}
+	}
+
+	/**
+	 * References a new node and releases an old one.
+	 * @param old A referenced node.
+	 * @param node The node replacing it.
+	 * @return An int. The node, now referenced.
+	 */
+	private int replace(int old, int node){
+		ref(node);
+		deref(old);
+		return node;
+	}
+
+
+	//Operations.
+
+	/**
+	 * Returns the node of a variable.
+	 * @param slot The variable's index in this engine's SymbolTable.
+	 * @return An int. The node that is true exactly when the variable is true.
+	 */
+	public int variable(int slot){
+		if(slot < 0 || slot >= numVars)
+			throw new IllegalArgumentException("There is no variable at index " + slot + ".");
+		beforeOperation();
+		return mk(slot, FALSE, TRUE);
+	}
+
+	/**
+	 * Returns the node of a named variable.
+	 * @param name A variable name.
+	 * @return An int. The node that is true exactly when the variable is true.
+	 * @throws IllegalArgumentException If the variable is not in this engine's SymbolTable.
+	 */
+	public int variable(String name){
+		int slot = symbols.indexOf(name);
+		if(slot == -1)
+			throw new IllegalArgumentException("The variable \"" + name + "\" is not part of this BddEngine.");
+		return variable(slot);
+	}
+
+	/**
+	 * Returns if f then g else h.
+	 * @param f A node.
+	 * @param g A node.
+	 * @param h A node.
+	 * @return An int. The node of (f & g) | (!f & h).
+	 */
+	public int ite(int f, int g, int h){
+		beforeOperation(f, g, h);
+		return iteRec(f, g, h);
+	}
+
+	/**
+	 * Returns !f.
+	 * @param f A node.
+	 * @return An int. The node of the negation of f.
+	 */
+	public int not(int f){
+		beforeOperation(f);
+		return iteRec(f, FALSE, TRUE);
+	}
+
+	/**
+	 * Returns f & g.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return An int. The node of the conjunction.
+	 */
+	public int and(int f, int g){
+		beforeOperation(f, g);
+		return iteRec(f, g, FALSE);
+	}
+
+	/**
+	 * Returns f | g.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return An int. The node of the disjunction.
+	 */
+	public int or(int f, int g){
+		beforeOperation(f, g);
+		return iteRec(f, TRUE, g);
+	}
+
+	/**
+	 * Returns f ^ g.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return An int. The node of the exclusive disjunction.
+	 */
+	public int xor(int f, int g){
+		beforeOperation(f, g);
+		return iteRec(f, iteRec(g, FALSE, TRUE), g);
+	}
+
+	/**
+	 * Returns f > g.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return An int. The node of the implication.
+	 */
+	public int implies(int f, int g){
+		beforeOperation(f, g);
+		return iteRec(f, g, TRUE);
+	}
+
+	/**
+	 * Returns f = g.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return An int. The node of the equivalence.
+	 */
+	public int equivalent(int f, int g){
+		beforeOperation(f, g);
+		return iteRec(f, g, iteRec(g, FALSE, TRUE));
+	}
+
+	/**
+	 * Computes if f then g else h. No collection or reordering happens during the recursion, so
+	 *  its unreferenced intermediate nodes are safe.
+	 * @param f A node.
+	 * @param g A node.
+	 * @param h A node.
+	 * @return An int. The node of (f & g) | (!f & h).
+	 */
+	private int iteRec(int f, int g, int h){
+		if(f == TRUE)
+			return g;
+		if(f == FALSE)
+			return h;
+		if(g == h)
+			return g;
+		if(g == TRUE && h == FALSE)
+			return f;
+		int slot = cacheSlot(f, g, h);
+		if(cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h)
+			return cacheResult[slot];
+		int level = Math.min(levelOf[var[f]], Math.min(levelOf[var[g]], levelOf[var[h]]));
+		int v     = varAt[level];
+		int t     = iteRec(var[f] == v ? high[f] : f, var[g] == v ? high[g] : g, var[h] == v ? high[h] : h);
+		int e     = iteRec(var[f] == v ? low[f]  : f, var[g] == v ? low[g]  : g, var[h] == v ? low[h]  : h);
+		int result = mk(v, e, t);
+		//The cache may have been resized while the children were built.
+		slot = cacheSlot(f, g, h);
+		cacheF[slot]      = f;
+		cacheG[slot]      = g;
+		cacheH[slot]      = h;
+		cacheResult[slot] = result;
+		return result;
+	}
+
+
+	//Queries.
+
+	/**
+	 * Determines if f is true for every combination of the variables.
+	 * @param f A node.
+	 * @return A boolean. True if f is TRUE.
+	 */
+	public boolean isTautology(int f){
+		checkNode(f);
+		return f == TRUE;
+	}
+
+	/**
+	 * Determines if f is true for at least one combination of the variables.
+	 * @param f A node.
+	 * @return A boolean. True if f is not FALSE.
+	 */
+	public boolean isSatisfiable(int f){
+		checkNode(f);
+		return f != FALSE;
+	}
+
+	/**
+	 * Determines if f and g have the same truth value for every combination of the variables.
+	 * @param f A node.
+	 * @param g A node.
+	 * @return A boolean. True if f and g are the same node.
+	 */
+	public boolean isEquivalent(int f, int g){
+		checkNode(f);
+		checkNode(g);
+		return f == g;
+	}
+
+	/**
+	 * Counts the combinations of truth values of all of this engine's variables for which f is true.
+	 * @param f A node.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 */
+	public BigInteger countModels(int f){
+		checkNode(f);
+		return countBelow(f, new HashMap<Integer, BigInteger>()).shiftLeft(levelOf[var[f]]);
+	}
+
+	/**
+	 * Counts the combinations of the variables at and below f's level for which f is true.
+	 * @param f A node.
+	 * @param memo A HashMap<Integer, BigInteger> of the counts of nodes already visited.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 */
+	private BigInteger countBelow(int f, HashMap<Integer, BigInteger> memo){
+		if(f == FALSE)
+			return BigInteger.ZERO;
+		if(f == TRUE)
+			return BigInteger.ONE;
+		BigInteger count = memo.get(f);
+		if(count != null)
+			return count;
+		int level = levelOf[var[f]];
+		//Variables skipped between a node and its child double the child's count.
+		BigInteger lowCount  = countBelow(low[f], memo).shiftLeft(levelOf[var[low[f]]] - level - 1);
+		BigInteger highCount = countBelow(high[f], memo).shiftLeft(levelOf[var[high[f]]] - level - 1);
+		count = lowCount.add(highCount);
+		memo.put(f, count);
+		return count;
+	}
+
+	/**
+	 * Finds a combination of truth values for which f is true. Variables f does not depend on are false.
+	 * @param f A node.
+	 * @return An Assignment satisfying f, or null if f is FALSE.
+	 */
+	public Assignment findModel(int f){
+		checkNode(f);
+		if(f == FALSE)
+			return null;
+		Assignment model = new Assignment(symbols);
+		while(f != TRUE){
+			//In a reduced BDD every non-terminal node has a path to TRUE.
+			if(low[f] != FALSE)
+				f = low[f];
+			else{
+				model.set(var[f], true);
+				f = high[f];
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Evaluates f at an assignment.
+	 * @param f A node.
+	 * @param assignment An Assignment over this engine's SymbolTable.
+	 * @return A boolean. The value of f.
+	 */
+	public boolean evaluate(int f, Assignment assignment){
+		checkNode(f);
+		if(!symbols.equals(assignment.getSymbolTable()))
+			throw new IllegalArgumentException("The assignment's variables do not match this BddEngine's variables.");
+		while(f > TRUE)
+			f = assignment.get(var[f]) ? high[f] : low[f];
+		return f == TRUE;
+	}
+
+	/**
+	 * Returns the number of nodes reachable from f, including terminals.
+	 * @param f A node.
+	 * @return An int. The size of f's BDD.
+	 */
+	public int size(int f){
+		checkNode(f);
+		boolean[] seen = new boolean[top];
+		int[]     todo = new int[top];
+		int       size = 0;
+		int       n    = 0;
+		todo[n++] = f;
+		seen[f]   = true;
+		while(n > 0){
+			int node = todo[--n];
+			size++;
+			if(node > TRUE){
+				for(int child : new int[]{low[node], high[node]}){
+					if(!seen[child]){
+						seen[child] = true;
+						todo[n++]   = child;
+					}
+				}
+			}
+		}
+		return size;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the SymbolTable of this engine's variables.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the current variable order.
+	 * @return An int[] of variable slots, from the top level down.
+	 */
+	public int[] getOrder(){
+		return Arrays.copyOf(varAt, numVars);
+	}
+
+	/**
+	 * Returns the number of nodes in the node table, including unreferenced nodes and the terminals.
+	 * @return An int. The number of nodes.
+	 */
+	public int getNodeCount(){
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the number of nodes that are referenced, or are reachable from a referenced node.
+	 * @return An int. The number of live nodes, including the terminals.
+	 */
+	public int getLiveNodeCount(){
+		return nodeCount - dead;
+	}
+
+	/**
+	 * Returns the most nodes the node table may hold.
+	 * @return An int. The node limit.
+	 */
+	public int getMaxNodes(){
+		return maxNodes;
+	}
+
+	/**
+	 * Returns the number of garbage collections run so far.
+	 * @return A long. The number of calls to gc(), including automatic ones.
+	 */
+	public long getGcCount(){
+		return gcCount;
+	}
+
+	/**
+	 * Returns the number of times the variables have been sifted.
+	 * @return A long. The number of calls to sift(), including automatic ones.
+	 */
+	public long getReorderCount(){
+		return reorderCount;
+	}
+
+
+	//Memory management.
+
+	/**
+	 * Adds a reference to a node, keeping it and its descendants through collections.
+	 * @param f A node.
+	 * @return An int. f.
+	 */
+	public int ref(int f){
+		checkNode(f);
+		incRef(f);
+		return f;
+	}
+
+	/**
+	 * Removes a reference added by ref(int). The node is reclaimed by the next collection if it
+	 *  has no other references.
+	 * @param f A referenced node.
+	 * @throws IllegalStateException If f has no references.
+	 */
+	public void deref(int f){
+		checkNode(f);
+		if(f > TRUE && refs[f] == 0)
+			throw new IllegalStateException("Node " + f + " is not referenced.");
+		decRef(f);
+	}
+
+	/**
+	 * Turns automatic sifting on or off. When on, operations sift the variables whenever the
+	 *  node table has doubled since the last sift.
+	 * @param on A boolean. True to sift automatically.
+	 */
+	public void setAutoReorder(boolean on){
+		autoReorder = on;
+	}
+
+	/**
+	 * Reclaims every unreferenced node, and empties the computed cache.
+	 */
+	public void gc(){
+		//Parents are above their children, so sweeping from the top level down reclaims whole
+		// unreferenced sub-graphs in one pass.
+		for(int level=0; level<numVars; level++){
+			int   v     = varAt[level];
+			int[] table = buckets[v];
+			for(int b=0; b<table.length; b++){
+				int prev = 0;
+				int node = table[b];
+				while(node != 0){
+					int following = next[node];
+					if(refs[node] == 0){
+						if(prev == 0)
+							table[b] = following;
+						else
+							next[prev] = following;
+						tableCount[v]--;
+						dead--;
+						decRef(low[node]);
+						decRef(high[node]);
+						freeNode(node);
+					}
+					else
+						prev = node;
+					node = following;
+				}
+			}
+		}
+		clearCache();
+		gcCount++;
+	}
+
+	/**
+	 * Prepares for an operation, collecting unreferenced nodes if the table is nearly full, and
+	 *  sifting if automatic reordering is on and the table has grown. The operands are
+	 *  protected while this happens.
+	 * @param operands The nodes the operation reads.
+	 */
+	private void beforeOperation(int... operands){
+		for(int f:operands)
+			checkNode(f);
+		boolean full    = nodeCount >= var.length - (var.length >>> 3) && (var.length == maxNodes || dead >= nodeCount >>> 2);
+		boolean reorder = autoReorder && nodeCount - dead > reorderThreshold;
+		if(!full && !reorder)
+			return;
+		for(int f:operands)
+			incRef(f);
+		if(reorder){
+			sift();
+			reorderThreshold = Math.max(reorderThreshold, 2 * nodeCount);
+		}
+		else
+			gc();
+		for(int f:operands)
+			decRef(f);
+	}
+
+
+	//Reordering.
+
+	/**
+	 * Moves the variables to the given order. Nodes keep their numbers and functions.
+	 * @param slots An int[] of every variable slot, from the top level down.
+	 * @throws IllegalArgumentException If slots is not a permutation of the variable slots.
+	 */
+	public void setOrder(int[] slots){
+		if(slots.length != numVars)
+			throw new IllegalArgumentException("An order must list all " + numVars + " variables.");
+		boolean[] listed = new boolean[numVars];
+		for(int slot:slots){
+			if(slot < 0 || slot >= numVars || listed[slot])
+				throw new IllegalArgumentException("An order must list each variable exactly once.");
+			listed[slot] = true;
+		}
+		gc();
+		for(int level=0; level<numVars; level++){
+			while(levelOf[slots[level]] > level){
+				if(!canSwap(levelOf[slots[level]] - 1))
+					throw new IllegalStateException("Reordering would pass the BDD node limit of " + maxNodes + " nodes.");
+				swapLevels(levelOf[slots[level]] - 1);
+			}
+		}
+		clearCache();
+	}
+
+	/**
+	 * Reorders the variables by sifting: each variable, largest level first, is moved through
+	 *  every level while the other variables keep their relative order, and is left at the level
+	 *  where the node table was smallest. A variable stops moving in a direction once the table
+	 *  has grown by SIFT_MAX_GROWTH, or if moving it further could pass the node limit.
+	 */
+	public void sift(){
+		gc();
+		Integer[] order = new Integer[numVars];
+		for(int v=0; v<numVars; v++)
+			order[v] = v;
+		Arrays.sort(order, new Comparator<Integer>(){
+			public int compare(Integer a, Integer b){
+				return Integer.compare(tableCount[b], tableCount[a]);
+			}
+		});
+		for(int v:order){
+			if(tableCount[v] > 0)
+				siftVariable(v);
+		}
+		clearCache();
+		reorderCount++;
+	}
+
+	/**
+	 * Moves a variable to the level that minimizes the number of nodes.
+	 * @param v A variable.
+	 */
+	private void siftVariable(int v){
+		int best      = nodeCount;
+		int bestLevel = levelOf[v];
+		int limit     = (int)Math.min(Integer.MAX_VALUE, (long)(best * SIFT_MAX_GROWTH));
+		//Go to the nearer end first, then to the other end.
+		boolean down = levelOf[v] >= numVars / 2;
+		for(int pass=0; pass<2; pass++, down = !down){
+			while(down ? levelOf[v] < numVars - 1 : levelOf[v] > 0){
+				int upper = down ? levelOf[v] : levelOf[v] - 1;
+				if(!canSwap(upper))
+					break;
+				swapLevels(upper);
+				if(nodeCount < best){
+					best      = nodeCount;
+					bestLevel = levelOf[v];
+				}
+				if(nodeCount > limit)
+					break;
+			}
+		}
+		while(levelOf[v] < bestLevel)
+			swapLevels(levelOf[v]);
+		while(levelOf[v] > bestLevel)
+			swapLevels(levelOf[v] - 1);
+	}
+
+	/**
+	 * Determines if swapping two levels cannot pass the node limit. A swap creates at most two
+	 *  nodes for each node of the upper level.
+	 * @param level The upper of the two levels.
+	 * @return A boolean. True if the swap is safe.
+	 */
+	private boolean canSwap(int level){
+		return (long)nodeCount + 2L * tableCount[varAt[level]] <= maxNodes;
+	}
+
+	/**
+	 * Swaps the variables of a level and the level below it. Each node of the upper variable x
+	 *  whose children depend on the lower variable y, x ? (y ? f11 : f10) : (y ? f01 : f00),
+	 *  becomes the y node y ? (x ? f11 : f01) : (x ? f10 : f00) in place, so its number and
+	 *  function are unchanged. Other x nodes are untouched. The table must have no
+	 *  unreferenced nodes.
+	 * @param level The upper of the two levels.
+	 */
+	private void swapLevels(int level){
+		int x = varAt[level];
+		int y = varAt[level + 1];
+		//Take every x node out of x's table.
+		int[] xNodes = new int[tableCount[x]];
+		int   count  = 0;
+		int[] table  = buckets[x];
+		for(int b=0; b<table.length; b++){
+			for(int node = table[b]; node != 0; node = next[node])
+				xNodes[count++] = node;
+			table[b] = 0;
+		}
+		tableCount[x] = 0;
+		varAt[level]     = y;
+		varAt[level + 1] = x;
+		levelOf[x]       = level + 1;
+		levelOf[y]       = level;
+		//Put back the x nodes that do not depend on y first, so the new x nodes can share them.
+		for(int i=0; i<count; i++){
+			int node = xNodes[i];
+			if(var[low[node]] != y && var[high[node]] != y)
+				insert(node);
+		}
+		for(int i=0; i<count; i++){
+			int node = xNodes[i];
+			int f1   = high[node];
+			int f0   = low[node];
+			if(var[f0] != y && var[f1] != y)
+				continue;
+			int f11 = (var[f1] == y) ? high[f1] : f1;
+			int f10 = (var[f1] == y) ? low[f1]  : f1;
+			int f01 = (var[f0] == y) ? high[f0] : f0;
+			int f00 = (var[f0] == y) ? low[f0]  : f0;
+			int newHigh = mk(x, f01, f11);
+			int newLow  = mk(x, f00, f10);
+			incRef(newHigh);
+			incRef(newLow);
+			var[node]  = y;
+			low[node]  = newLow;
+			high[node] = newHigh;
+			insert(node);
+			release(f1);
+			release(f0);
+		}
+	}
+
+	/**
+	 * Removes a reference held by a node being rewritten, reclaiming y nodes that lose their last
+	 *  reference (and, in turn, any of their descendants that do).
+	 * @param f A node.
+	 */
+	private void release(int f){
+		decRef(f);
+		if(f <= TRUE || refs[f] != 0)
+			return;
+		unlink(f);
+		dead--;
+		int f0 = low[f];
+		int f1 = high[f];
+		freeNode(f);
+		release(f0);
+		release(f1);
+	}
+
+
+	//The node table.
+
+	/**
+	 * Returns the node of v ? hi : lo, creating it if it does not exist.
+	 * @param v A variable above the variables of lo and hi.
+	 * @param lo The node of the variable's false branch.
+	 * @param hi The node of the variable's true branch.
+	 * @return An int. The node.
+	 * @throws IllegalStateException If a node is needed and the node limit has been reached.
+	 */
+	private int mk(int v, int lo, int hi){
+		if(lo == hi)
+			return lo;
+		int[] table = buckets[v];
+		for(int node = table[hash(lo, hi) & (table.length - 1)]; node != 0; node = next[node]){
+			if(low[node] == lo && high[node] == hi)
+				return node;
+		}
+		int node = allocate();
+		var[node]  = v;
+		low[node]  = lo;
+		high[node] = hi;
+		refs[node] = 0;
+		dead++;
+		incRef(lo);
+		incRef(hi);
+		insert(node);
+		return node;
+	}
+
+	/**
+	 * Adds a node to its variable's unique table, growing the table if it is crowded.
+	 * @param node A node that is not in any table.
+	 */
+	private void insert(int node){
+		int   v     = var[node];
+		int[] table = buckets[v];
+		if(tableCount[v] >= table.length * 2){
+			int[] larger = new int[table.length * 2];
+			for(int b=0; b<table.length; b++){
+				int n = table[b];
+				while(n != 0){
+					int following = next[n];
+					int slot = hash(low[n], high[n]) & (larger.length - 1);
+					next[n]      = larger[slot];
+					larger[slot] = n;
+					n = following;
+				}
+			}
+			buckets[v] = table = larger;
+		}
+		int slot = hash(low[node], high[node]) & (table.length - 1);
+		next[node]  = table[slot];
+		table[slot] = node;
+		tableCount[v]++;
+	}
+
+	/**
+	 * Removes a node from its variable's unique table.
+	 * @param node A node in a table.
+	 */
+	private void unlink(int node){
+		int   v     = var[node];
+		int[] table = buckets[v];
+		int   slot  = hash(low[node], high[node]) & (table.length - 1);
+		if(table[slot] == node)
+			table[slot] = next[node];
+		else{
+			int prev = table[slot];
+			while(next[prev] != node)
+				prev = next[prev];
+			next[prev] = next[node];
+		}
+		tableCount[v]--;
+	}
+
+	/**
+	 * Takes a node from the free list, or from the unused end of the table, growing the table
+	 *  up to the node limit if it is full.
+	 * @return An int. An unused node.
+	 * @throws IllegalStateException If the node limit has been reached.
+	 */
+	private int allocate(){
+		int node;
+		if(freeList != 0){
+			node     = freeList;
+			freeList = next[node];
+		}
+		else{
+			if(top == var.length){
+				if(var.length >= maxNodes)
+					throw new IllegalStateException("The BDD node limit of " + maxNodes + " nodes has been reached.");
+				int capacity = (int)Math.min(maxNodes, 2L * var.length);
+				var  = Arrays.copyOf(var, capacity);
+				low  = Arrays.copyOf(low, capacity);
+				high = Arrays.copyOf(high, capacity);
+				refs = Arrays.copyOf(refs, capacity);
+				next = Arrays.copyOf(next, capacity);
+				if(capacity > cacheF.length)
+					resizeCache(capacity);
+			}
+			node = top++;
+		}
+		nodeCount++;
+		return node;
+	}
+
+	/**
+	 * Puts a node on the free list.
+	 * @param node A node that is in no table and has no references.
+	 */
+	private void freeNode(int node){
+		var[node]  = FREE;
+		next[node] = freeList;
+		freeList   = node;
+		nodeCount--;
+	}
+
+	/**
+	 * Adds a reference to a node.
+	 * @param f A node.
+	 */
+	private void incRef(int f){
+		if(f <= TRUE)
+			return;
+		if(refs[f]++ == 0)
+			dead--;
+	}
+
+	/**
+	 * Removes a reference from a node.
+	 * @param f A node.
+	 */
+	private void decRef(int f){
+		if(f <= TRUE)
+			return;
+		if(--refs[f] == 0)
+			dead++;
+	}
+
+	/**
+	 * Ensures a number is a node in use.
+	 * @param f An int.
+	 * @throws IllegalArgumentException If f is not a node in use.
+	 */
+	private void checkNode(int f){
+		if(f < 0 || f >= top || var[f] == FREE)
+			throw new IllegalArgumentException(f + " is not a node of this BddEngine.");
+	}
+
+	/**
+	 * Hashes a node's children.
+	 * @param lo The low child.
+	 * @param hi The high child.
+	 * @return An int hash.
+	 */
+	private static int hash(int lo, int hi){
+		int h = lo * 0x9E3779B1 + hi;
+		return h ^ (h >>> 16);
+	}
+
+
+	//The computed cache.
+
+	/**
+	 * Returns the cache entry of an ite() call.
+	 * @param f A node.
+	 * @param g A node.
+	 * @param h A node.
+	 * @return An int. The index of the call's entry.
+	 */
+	private int cacheSlot(int f, int g, int h){
+		int hash = (f * 0x9E3779B1) ^ (g * 0x85EBCA77) ^ (h * 0xC2B2AE3D);
+		return (hash ^ (hash >>> 15)) & (cacheF.length - 1);
+	}
+
+	/**
+	 * Replaces the computed cache with an empty one sized for the node table.
+	 * @param capacity The size of the node table.
+	 */
+	private void resizeCache(int capacity){
+		int size = Math.max(MIN_CACHE, Integer.highestOneBit(capacity));
+		cacheF      = new int[size];
+		cacheG      = new int[size];
+		cacheH      = new int[size];
+		cacheResult = new int[size];
+		Arrays.fill(cacheF, FREE);
+	}
+
+	/**
+	 * Empties the computed cache. Entries may name nodes that have been reclaimed or rewritten.
+	 */
+	private void clearCache(){
+		Arrays.fill(cacheF, FREE);
+	}
+}
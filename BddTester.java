@@ -0,0 +1,149 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class BddTester {
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 8);
+
+		System.out.println("Testing the BDD engine...");
+
+		//Build, ref, sift and gc, checking each referenced node against the model counter and the
+		// compiled expression before and after every reordering.
+		for(int round=0; round<100; round++){
+			int                                variables   = 4 + random.nextInt(13);
+			ArrayList<String>                  names       = new ArrayList<String>();
+			for(int i=0; i<variables; i++)
+				names.add(RandomExpressions.variable(i));
+			SymbolTable                        symbols     = new SymbolTable(names);
+			BddEngine                          engine      = new BddEngine(symbols);
+			ArrayList<PropositionalExpression> expressions = new ArrayList<PropositionalExpression>();
+			ArrayList<Integer>                 nodes       = new ArrayList<Integer>();
+			for(int i=0; i<8; i++){
+				String expression = (i % 2 == 0)
+						? RandomExpressions.expression(random, variables, 1 + random.nextInt(30))
+						: RandomExpressions.cnf(random, variables, 1 + random.nextInt(3 * variables), Math.min(3, variables));
+				PropositionalExpression parsed = PropositionalExpression.parse(expression, symbols);
+				expressions.add(parsed);
+				nodes.add(engine.ref(engine.build(parsed.getCompiled())));
+				//Unreferenced garbage for the collections to reclaim.
+				engine.build(PropositionalExpression.parse(RandomExpressions.expression(random, variables, 20), symbols).getCompiled());
+			}
+			check(engine, expressions, nodes, random, "built");
+			engine.sift();
+			check(engine, expressions, nodes, random, "sifted");
+			engine.gc();
+			check(engine, expressions, nodes, random, "collected");
+			int[] order = engine.getOrder();
+			for(int i=order.length-1; i>0; i--){
+				int j = random.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+			engine.setOrder(order);
+			check(engine, expressions, nodes, random, "reordered");
+			//Releasing every node leaves only the terminals once collected.
+			for(int node:nodes)
+				engine.deref(node);
+			engine.gc();
+			if(engine.getLiveNodeCount() != 2)
+				fail("Round " + round, "kept " + engine.getLiveNodeCount() + " nodes after every node was released");
+		}
+		System.out.println("Build, ref, sift and gc: 100 rounds of 8 expressions checked.");
+
+		//A node that is not referenced is reclaimed by gc(), and its handle is then rejected.
+		PropositionalExpression parsed = PropositionalExpression.parse("(a&(b|(c^d)))");
+		BddEngine               engine = new BddEngine(parsed.getSymbolTable());
+		int                     node   = engine.build(parsed.getCompiled());
+		engine.gc();
+		try{
+			engine.countModels(node);
+			fail("(a&(b|(c^d)))", "was still a node after gc() without ref()");
+		}
+		catch(IllegalArgumentException e){
+			System.out.println("Unreferenced node after gc(): " + e.getMessage());
+		}
+
+		//Passing the node limit fails the operation, but leaves the engine and its referenced
+		// nodes usable.
+		ArrayList<String> names = new ArrayList<String>();
+		for(int i=0; i<30; i++)
+			names.add(RandomExpressions.variable(i));
+		SymbolTable symbols = new SymbolTable(names);
+		for(int round=0; round<20; round++){
+			PropositionalExpression small   = PropositionalExpression.parse(RandomExpressions.cnf(random, 30, 3, 3), symbols);
+			BddEngine               limited = new BddEngine(symbols, 256);
+			int                     kept    = limited.ref(limited.build(small.getCompiled()));
+			try{
+				for(int i=0; i<10; i++)
+					limited.build(PropositionalExpression.parse(RandomExpressions.cnf(random, 30, 120, 3), symbols).getCompiled());
+				fail("Round " + round, "never passed a limit of 256 nodes");
+			}
+			catch(IllegalStateException e){
+				//Expected.
+			}
+			ArrayList<PropositionalExpression> expressions = new ArrayList<PropositionalExpression>();
+			ArrayList<Integer>                 nodes       = new ArrayList<Integer>();
+			expressions.add(small);
+			nodes.add(kept);
+			check(limited, expressions, nodes, random, "limited");
+			limited.gc();
+			PropositionalExpression after = PropositionalExpression.parse(RandomExpressions.cnf(random, 30, 3, 3), symbols);
+			expressions.add(after);
+			nodes.add(limited.ref(limited.build(after.getCompiled())));
+			check(limited, expressions, nodes, random, "recovered");
+			//The failed builds released the nodes they had referenced.
+			for(int released:nodes)
+				limited.deref(released);
+			limited.gc();
+			if(limited.getLiveNodeCount() != 2)
+				fail("Round " + round, "kept " + limited.getLiveNodeCount() + " nodes after a failed build and every node was released");
+		}
+		System.out.println("Node limit recovery: 20 rounds checked.");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	//Checks each node's count against ModelCounter, its model and its value at random assignments
+	// against the expression.
+	private static void check(BddEngine engine, ArrayList<PropositionalExpression> expressions, ArrayList<Integer> nodes, Random random, String state){
+		SymbolTable symbols = engine.getSymbolTable();
+		for(int i=0; i<nodes.size(); i++){
+			PropositionalExpression expression = expressions.get(i);
+			int                     node       = nodes.get(i);
+			BigInteger              expected   = ModelCounter.countModels(expression.getCompiled()).shiftLeft(symbols.size() - expression.getVariables().size());
+			BigInteger              count      = engine.countModels(node);
+			if(!count.equals(expected))
+				fail(expression.getExpression(), state + ": has " + count + " models, not " + expected);
+			Assignment model = engine.findModel(node);
+			if((model == null) != (count.signum() == 0) || (model != null && !expression.evaluate(model)))
+				fail(expression.getExpression(), state + ": has the wrong model " + model);
+			for(int j=0; j<16; j++){
+				Assignment assignment = new Assignment(symbols);
+				for(int slot=0; slot<symbols.size(); slot++)
+					assignment.set(slot, random.nextBoolean());
+				if(engine.evaluate(node, assignment) != expression.evaluate(assignment))
+					fail(expression.getExpression(), state + ": evaluates wrongly at " + assignment);
+			}
+		}
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + expression + "\" " + message);
+	}
+
+}
@@ -0,0 +1,250 @@
+package propositionalCalculatorV1_0;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class evaluates one expression over a file of assignment rows, writing a file of results,
+ *  with both files memory-mapped so neither is copied through a stream buffer and the memory used
+ *  does not depend on the size of the files.
+ * The input file is a sequence of rows, each rowWords(n) little-endian longs for an expression of
+ *  n variables: bit i%64 of word i/64 of a row is the truth value of the variable in slot i of the
+ *  expression's SymbolTable. Unused bits are ignored. The output file is a bitmap of
+ *  BatchEvaluator.wordCount(rows) little-endian longs: bit j%64 of word j/64 is the expression's
+ *  truth value in row j, and bits past the last row are zero.
+ * The rows are evaluated 64 at a time: each group of 64 rows is transposed into one long per
+ *  variable, and the expression is evaluated on whole longs with
+ *  CompiledExpression.evaluateLanes(long[], long[]), giving one word of the output. The file is
+ *  split into chunks that are mapped and evaluated separately on the threads of a ForkJoinPool.
+ * This class is singleton, and it's public methods are rowWords and the evaluate methods.
+ * @author Kenneth Chin
+ *
+ */
+public final class BulkEvaluator {
+
+	//The most bytes of input mapped by one task.
+	private static final long CHUNK_BYTES = 16L << 20;
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private BulkEvaluator(){}
+
+	/**
+	 * Returns the number of longs a row of the given number of variables takes up in an input file.
+	 * @param variableCount The number of variables.
+	 * @return An int. The number of words per row, at least 1.
+	 */
+	public static int rowWords(int variableCount){
+		return Math.max(1, (variableCount + 63) >>> 6);
+	}
+
+	/**
+	 * Evaluates an expression over every row of an input file, on the common ForkJoinPool.
+	 * @param expression The PropositionalExpression to evaluate.
+	 * @param input The Path of the file of rows.
+	 * @param output The Path of the result bitmap. It is created, or overwritten.
+	 * @return A long. The number of rows evaluated.
+	 * @throws IOException If a file could not be read, written or mapped.
+	 * @throws IllegalArgumentException If the input's length is not a whole number of rows.
+	 */
+	public static long evaluate(PropositionalExpression expression, Path input, Path output) throws IOException{
+		return evaluate(expression.getCompiled(), input, output, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a compiled expression over every row of an input file, on the common ForkJoinPool.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param input The Path of the file of rows.
+	 * @param output The Path of the result bitmap. It is created, or overwritten.
+	 * @return A long. The number of rows evaluated.
+	 * @throws IOException If a file could not be read, written or mapped.
+	 * @throws IllegalArgumentException If the input's length is not a whole number of rows.
+	 */
+	public static long evaluate(CompiledExpression compiled, Path input, Path output) throws IOException{
+		return evaluate(compiled, input, output, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a compiled expression over every row of an input file, on the given ForkJoinPool.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param input The Path of the file of rows.
+	 * @param output The Path of the result bitmap. It is created, or overwritten.
+	 * @param pool The ForkJoinPool to evaluate on.
+	 * @return A long. The number of rows evaluated.
+	 * @throws IOException If a file could not be read, written or mapped.
+	 * @throws IllegalArgumentException If the input's length is not a whole number of rows.
+	 */
+	public static long evaluate(CompiledExpression compiled, Path input, Path output, ForkJoinPool pool) throws IOException{
+		int rowWords = rowWords(compiled.getVariableCount());
+		try(FileChannel in  = FileChannel.open(input, StandardOpenOption.READ);
+		    FileChannel out = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE,
+		                                       StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+			long length = in.size();
+			if(length % (8L * rowWords) != 0)
+				throw new IllegalArgumentException("The input's length, " + length + " bytes, is not a whole number of " + (8L * rowWords) + " byte rows.");
+			long rows      = length / (8L * rowWords);
+			long chunkRows = Math.max(64L, (CHUNK_BYTES / (8L * rowWords)) & ~63L);
+			if(rows == 0)
+				return 0;
+			BulkTask task = new BulkTask(compiled, rowWords, chunkRows, in, out, 0, (rows + chunkRows - 1) / chunkRows, rows);
+			try{
+				if(rows <= chunkRows)
+					task.compute();
+				else
+					pool.invoke(task);
+			}
+			catch(UncheckedIOException e){
+				throw e.getCause();
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * Evaluates one chunk of rows: maps its part of the input and of the output, and fills the
+	 *  output a word at a time.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param rowWords The number of longs per row.
+	 * @param in The input FileChannel.
+	 * @param out The output FileChannel.
+	 * @param firstRow The first row of the chunk, a multiple of 64.
+	 * @param numRows The number of rows in the chunk.
+	 * @throws IOException If a region could not be mapped.
+	 */
+	private static void evaluateChunk(CompiledExpression compiled, int rowWords, FileChannel in, FileChannel out,
+	                                  long firstRow, long numRows) throws IOException{
+		LongBuffer rows    = in.map(FileChannel.MapMode.READ_ONLY, firstRow * rowWords * 8L, numRows * rowWords * 8L)
+		                       .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		int        words   = (int)((numRows + 63) >>> 6);
+		LongBuffer results = out.map(FileChannel.MapMode.READ_WRITE, (firstRow >>> 6) * 8L, words * 8L)
+		                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		long[] block = new long[64];
+		long[] lanes = new long[64 * rowWords];
+		long[] stack = new long[Math.max(1, compiled.getMaxStackDepth())];
+		for(int word=0; word<words; word++){
+			int count = (int)Math.min(64, numRows - 64L * word);
+			for(int w=0; w<rowWords; w++){
+				//Gather word w of each row, then turn the 64 rows into 64 variable lanes.
+				int first = 64 * word * rowWords + w;
+				if(rowWords == 1)
+					rows.get(first, block, 0, count);
+				else{
+					for(int r=0; r<count; r++)
+						block[r] = rows.get(first + r * rowWords);
+				}
+				for(int r=count; r<64; r++)
+					block[r] = 0L;
+				transpose(block);
+				System.arraycopy(block, 0, lanes, 64 * w, 64);
+			}
+			long result = compiled.evaluateLanes(lanes, stack);
+			if(count < 64)
+				result &= (1L << count) - 1;
+			results.put(word, result);
+		}
+	}
+
+	/**
+	 * Transposes a 64 by 64 bit matrix in place, so that bit j of element i becomes bit i of
+	 *  element j. Blocks of half the size are swapped across the diagonal, then quarters, and so
+	 *  on, which takes 6 passes of 32 swaps rather than 4096 single bit moves.
+	 * @param a A long[] of 64 elements, the rows of the matrix.
+	 */
+	static void transpose(long[] a){
+		swapBlocks(a, 32, 0x00000000FFFFFFFFL);
+		swapBlocks(a, 16, 0x0000FFFF0000FFFFL);
+		swapBlocks(a,  8, 0x00FF00FF00FF00FFL);
+		swapBlocks(a,  4, 0x0F0F0F0F0F0F0F0FL);
+		swapBlocks(a,  2, 0x3333333333333333L);
+		swapBlocks(a,  1, 0x5555555555555555L);
+	}
+
+	/**
+	 * Performs one pass of transpose(long[]): in every square of 2*size rows and columns on the
+	 *  diagonal, swaps the block above the diagonal with the block below it.
+	 * @param a A long[] of 64 elements, the rows of the matrix.
+	 * @param size The size of the blocks swapped, a power of 2.
+	 * @param mask A long with the low size bits of every 2*size bits set.
+	 */
+	private static void swapBlocks(long[] a, int size, long mask){
+		for(int base=0; base<64; base+=2*size){
+			for(int k=base; k<base+size; k++){
+				long t = ((a[k] >>> size) ^ a[k + size]) & mask;
+				a[k]        ^= t << size;
+				a[k + size] ^= t;
+			}
+		}
+	}
+
+
+	/**
+	 * A fork/join task that evaluates a range of chunks of the input.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class BulkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CompiledExpression compiled;  //The expression being evaluated.
+		private final int                rowWords;  //The number of longs per row.
+		private final long               chunkRows; //The number of rows per chunk, a multiple of 64.
+		private final FileChannel        in;        //The input file.
+		private final FileChannel        out;       //The output file.
+		private final long               fromChunk; //The first chunk evaluated (inclusive).
+		private final long               toChunk;   //The last chunk evaluated (exclusive).
+		private final long               rows;      //The number of rows in the input.
+
+		/**
+		 * Creates a task that evaluates chunks fromChunk through toChunk-1.
+		 * @param compiled The expression being evaluated.
+		 * @param rowWords The number of longs per row.
+		 * @param chunkRows The number of rows per chunk.
+		 * @param in The input file.
+		 * @param out The output file.
+		 * @param fromChunk The first chunk evaluated (inclusive).
+		 * @param toChunk The last chunk evaluated (exclusive).
+		 * @param rows The number of rows in the input.
+		 */
+		private BulkTask(CompiledExpression compiled, int rowWords, long chunkRows, FileChannel in, FileChannel out,
+		                 long fromChunk, long toChunk, long rows){
+			this.compiled  = compiled;
+			this.rowWords  = rowWords;
+			this.chunkRows = chunkRows;
+			this.in        = in;
+			this.out       = out;
+			this.fromChunk = fromChunk;
+			this.toChunk   = toChunk;
+			this.rows      = rows;
+		}
+
+		/**
+		 * Evaluates this task's chunks, splitting them if there is more than one.
+		 * @throws UncheckedIOException If a region could not be mapped.
+		 */
+		@Override
+		protected void compute(){
+			if(toChunk - fromChunk > 1){
+				long middle = (fromChunk + toChunk) >>> 1;
+				invokeAll(new BulkTask(compiled, rowWords, chunkRows, in, out, fromChunk, middle, rows),
+				          new BulkTask(compiled, rowWords, chunkRows, in, out, middle, toChunk, rows));
+				return;
+			}
+			long firstRow = fromChunk * chunkRows;
+			try{
+				evaluateChunk(compiled, rowWords, in, out, firstRow, Math.min(chunkRows, rows - firstRow));
+			}
+			catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
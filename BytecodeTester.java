@@ -0,0 +1,123 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+public class BytecodeTester {
+
+	private static final String CONDITIONALS = "&|^>=";
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 15);
+
+		System.out.println("Testing the bytecode compiler...");
+
+		//Random expressions over their whole truth tables.
+		for(int i=0; i<500; i++)
+			checkAllRows(RandomExpressions.expression(random, 1 + random.nextInt(14), 1 + random.nextInt(60)));
+		System.out.println("Random expressions: 500 checked over their truth tables.");
+
+		//A right-nested chain keeps every operand on the stack, and a left-nested chain makes one
+		// long method; both are split into several methods.
+		for(int depth : new int[]{100, 1000, 5000}){
+			checkAllRows(rightNested(random, depth, 12));
+			checkAllRows(leftNested(random, depth, 12));
+		}
+		System.out.println("Nested chains of up to 5000 operators: 6 checked over their truth tables.");
+
+		//Expressions of 64 variables at sampled rows, and of 65, which cannot be compiled.
+		for(int depth : new int[]{64, 500, 3000}){
+			checkSampledRows(rightNested(random, depth, 64), random);
+			checkSampledRows(leftNested(random, depth, 64), random);
+		}
+		try{
+			ExpressionBytecodeCompiler.compile(PropositionalExpression.parse(rightNested(random, 65, 65)).getCompiled());
+			fail("A 65 variable expression", "was compiled");
+		}
+		catch(IllegalArgumentException e){
+			System.out.println("65 variables: " + e.getMessage());
+		}
+		System.out.println("Expressions of 64 variables: 6 checked at sampled rows.");
+
+		//A TieredPredicate interprets up to its threshold, then compiles, with the same values.
+		for(int threshold : new int[]{0, 1, 100, 5000}){
+			CompiledExpression compiled  = PropositionalExpression.parse(RandomExpressions.expression(random, 12, 40)).getCompiled();
+			TieredPredicate    predicate = new TieredPredicate(compiled, threshold);
+			for(long row=0; row<(1L << 12) + threshold; row++){
+				boolean compiledBefore = predicate.isCompiled();
+				long    masked         = row & ((1L << 12) - 1);
+				if(predicate.test(masked) != compiled.evaluate(masked))
+					fail(compiled.toString(), "has a tiered value that differs at row " + masked + " of threshold " + threshold);
+				if(compiledBefore != (row > threshold))
+					fail(compiled.toString(), "was " + (compiledBefore ? "" : "not ") + "compiled before evaluation " + row + " of threshold " + threshold);
+			}
+		}
+		System.out.println("Tiered predicates: 4 thresholds checked.");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	//Returns a chain like a&(!b|(c^(...))) of the given number of operators.
+	private static String rightNested(Random random, int depth, int variables){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<depth; i++){
+			builder.append(random.nextInt(4) == 0 ? "!" : "").append(RandomExpressions.variable(i % variables));
+			builder.append(CONDITIONALS.charAt(random.nextInt(CONDITIONALS.length()))).append('(');
+		}
+		builder.append(RandomExpressions.variable(depth % variables));
+		for(int i=0; i<depth; i++)
+			builder.append(')');
+		return builder.toString();
+	}
+
+	//Returns a chain like (((a&b)|!c)^...) of the given number of operators.
+	private static String leftNested(Random random, int depth, int variables){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<depth; i++)
+			builder.append('(');
+		builder.append(RandomExpressions.variable(0));
+		for(int i=1; i<=depth; i++){
+			builder.append(CONDITIONALS.charAt(random.nextInt(CONDITIONALS.length())));
+			builder.append(random.nextInt(4) == 0 ? "!" : "").append(RandomExpressions.variable(i % variables)).append(')');
+		}
+		return builder.toString();
+	}
+
+	private static void checkAllRows(String expression){
+		CompiledExpression compiled  = PropositionalExpression.parse(expression).getCompiled();
+		LongPredicate      predicate = ExpressionBytecodeCompiler.compile(compiled);
+		for(long row=0; row<(1L << compiled.getVariableCount()); row++){
+			if(predicate.test(row) != compiled.evaluate(row)){
+				fail(expression, "differs at row " + row);
+				return;
+			}
+		}
+	}
+
+	private static void checkSampledRows(String expression, Random random){
+		CompiledExpression compiled  = PropositionalExpression.parse(expression).getCompiled();
+		LongPredicate      predicate = ExpressionBytecodeCompiler.compile(compiled);
+		for(int i=0; i<100000; i++){
+			long row = (i == 0) ? 0L : (i == 1) ? -1L : random.nextLong();
+			if(predicate.test(row) != compiled.evaluate(row)){
+				fail(expression, "differs at row " + row);
+				return;
+			}
+		}
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + (expression.length() > 200 ? expression.substring(0, 200) + "..." : expression) + "\" " + message);
+	}
+
+}
@@ -0,0 +1,826 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * A conflict-driven clause-learning (CDCL) SAT solver for formulas in conjunctive normal form.
+ *  Variables are numbered from 1, and a literal is a variable (true) or its negation (false),
+ *  as in the DIMACS format: the clause (a | !b) over variables 1 and 2 is added as addClause(1, -2).
+ * The solver uses two watched literals per clause for unit propagation, first-UIP conflict
+ *  analysis, VSIDS-style variable activities with phase saving for branching, Luby restarts and
+ *  periodic deletion of the least active learnt clauses. Clauses may be added between calls to
+ *  solve(), which allows all models of a formula to be enumerated by blocking each model found.
+ * A CdclSolver is not thread-safe. Use one instance per thread.
+ * @author Kenneth Chin
+ *
+ */
+public final class CdclSolver {
+
+	//Truth values of variables and literals.
+	private static final byte TRUE  =  1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF =  0;
+
+	private static final int    RESTART_BASE  = 100;   //Conflicts in the first Luby restart interval.
+	private static final double VAR_DECAY     = 0.95;  //Variable activity decay per conflict.
+	private static final double CLAUSE_DECAY  = 0.999; //Learnt clause activity decay per conflict.
+	private static final double RESCALE_LIMIT = 1e100; //Activities are rescaled past this value.
+
+	//Internally, literal 2v is variable v+1 and literal 2v+1 is its negation.
+	private int         numVars   = 0;
+	private byte[]      assigns   = new byte[0];   //Per variable: TRUE, FALSE or UNDEF.
+	private boolean[]   polarity  = new boolean[0];//Per variable: the last value it was assigned.
+	private int[]       level     = new int[0];    //Per variable: the decision level it was assigned at.
+	private Clause[]    reason    = new Clause[0]; //Per variable: the clause that implied it, if any.
+	private double[]    activity  = new double[0]; //Per variable: its VSIDS activity.
+	private boolean[]   seen      = new boolean[0];//Per variable: scratch flags for conflict analysis.
+	private WatchList[] watches   = new WatchList[0]; //Per literal: the clauses watching it.
+	private int[]       trail     = new int[0];    //Assigned literals, in assignment order.
+	private int         trailSize = 0;
+	private int[]       trailLim  = new int[8];    //Per decision level: the trail size when it began.
+	private int         decisionLevel = 0;
+	private int         qhead     = 0;             //The next trail literal to propagate.
+	private final VariableHeap order  = new VariableHeap();
+
+	private final ArrayList<Clause> clauses = new ArrayList<Clause>(); //Problem clauses.
+	private final ArrayList<Clause> learnts = new ArrayList<Clause>(); //Learnt clauses.
+
+	private double    varInc      = 1.0;
+	private double    clauseInc   = 1.0;
+	private double    maxLearnts  = 0;
+	private boolean   ok          = true;  //False once a contradiction has been derived at level 0.
+	private boolean[] model       = null;  //The model found by the last successful solve().
+
+	private long conflicts    = 0;
+	private long decisions    = 0;
+	private long propagations = 0;
+	private long restarts     = 0;
+	private long deleted      = 0;
+
+	/**
+	 * Creates an empty solver.
+	 */
+	public CdclSolver(){}
+
+
+	//Problem construction.
+
+	/**
+	 * Adds a new variable to the solver.
+	 * @return An int. The new variable's number.
+	 */
+	public int newVariable(){
+		int v = numVars++;
+		if(v == assigns.length){
+			int capacity = Math.max(16, v * 2);
+			assigns  = Arrays.copyOf(assigns, capacity);
+			polarity = Arrays.copyOf(polarity, capacity);
+			level    = Arrays.copyOf(level, capacity);
+			reason   = Arrays.copyOf(reason, capacity);
+			activity = Arrays.copyOf(activity, capacity);
+			seen     = Arrays.copyOf(seen, capacity);
+			trail    = Arrays.copyOf(trail, capacity);
+			watches  = Arrays.copyOf(watches, capacity * 2);
+		}
+		watches[2*v]     = new WatchList();
+		watches[2*v + 1] = new WatchList();
+		order.insert(v);
+		return v + 1;
+	}
+
+	/**
+	 * Returns the number of variables in the solver.
+	 * @return An int. The highest variable number.
+	 */
+	public int getVariableCount(){
+		return numVars;
+	}
+
+	/**
+	 * Adds a clause to the solver. Any partial assignment from a previous search is discarded.
+	 * @param literals The clause's literals. Literal v is variable v, and -v is its negation.
+	 * @return A boolean. False if the solver's clauses are now known to be unsatisfiable; true otherwise.
+	 * @throws IllegalArgumentException If a literal is 0 or refers to a variable that does not exist.
+	 */
+	public boolean addClause(int... literals){
+		if(!ok)
+			return false;
+		cancelUntil(0);
+		int[] lits = new int[literals.length];
+		for(int i=0; i<literals.length; i++)
+			lits[i] = toInternal(literals[i]);
+		Arrays.sort(lits);
+		//Drop duplicate and false literals; ignore satisfied and tautological clauses.
+		int size = 0;
+		for(int i=0; i<lits.length; i++){
+			int lit = lits[i];
+			if(value(lit) == TRUE || (size > 0 && lits[size-1] == (lit ^ 1)))
+				return true;
+			if(value(lit) != FALSE && (size == 0 || lits[size-1] != lit))
+				lits[size++] = lit;
+		}
+		if(size == 0){
+			ok = false;
+			return false;
+		}
+		if(size == 1){
+			enqueue(lits[0], null);
+			ok = (propagate() == null);
+			return ok;
+		}
+		Clause clause = new Clause(Arrays.copyOf(lits, size), false);
+		clauses.add(clause);
+		attach(clause);
+		return true;
+	}
+
+
+	//Solving.
+
+	/**
+	 * Determines whether the clauses added so far can all be satisfied at once.
+	 * @return A boolean. True if they are satisfiable (see getModel()); false if they are not.
+	 */
+	public boolean solve(){
+		model = null;
+		if(!ok)
+			return false;
+		if(propagate() != null){
+			ok = false;
+			return false;
+		}
+		maxLearnts = Math.max(clauses.size() / 3.0, 1000);
+		for(int restart = 0; ; restart++){
+			int status = search(luby(restart) * RESTART_BASE);
+			if(status != 0)
+				return status > 0;
+			restarts++;
+		}
+	}
+
+	/**
+	 * Returns the value of a variable in the model found by the last call to solve().
+	 * @param variable A variable number.
+	 * @return A boolean. The variable's value in the model.
+	 * @throws IllegalStateException If the last call to solve() did not find a model.
+	 */
+	public boolean getValue(int variable){
+		if(model == null)
+			throw new IllegalStateException("No model is available. solve() must return true first.");
+		return model[variable - 1];
+	}
+
+	/**
+	 * Returns the model found by the last call to solve().
+	 * @return A boolean[] whose element v-1 is the value of variable v, or null if the last call to
+	 *  solve() did not find a model.
+	 */
+	public boolean[] getModel(){
+		return model == null ? null : model.clone();
+	}
+
+
+	//Statistics.
+
+	/**
+	 * Returns the number of conflicts found by all searches so far.
+	 * @return A long. The number of conflicts.
+	 */
+	public long getConflicts(){
+		return conflicts;
+	}
+
+	/**
+	 * Returns the number of branching decisions made by all searches so far.
+	 * @return A long. The number of decisions.
+	 */
+	public long getDecisions(){
+		return decisions;
+	}
+
+	/**
+	 * Returns the number of literals propagated by all searches so far.
+	 * @return A long. The number of propagations.
+	 */
+	public long getPropagations(){
+		return propagations;
+	}
+
+	/**
+	 * Returns the number of restarts made by all searches so far.
+	 * @return A long. The number of restarts.
+	 */
+	public long getRestarts(){
+		return restarts;
+	}
+
+	/**
+	 * Returns the number of learnt clauses currently kept by the solver.
+	 * @return An int. The number of learnt clauses.
+	 */
+	public int getLearntClauseCount(){
+		return learnts.size();
+	}
+
+	/**
+	 * Returns the number of learnt clauses deleted so far.
+	 * @return A long. The number of deleted clauses.
+	 */
+	public long getDeletedClauseCount(){
+		return deleted;
+	}
+
+
+	//Search.
+
+	/**
+	 * Searches for a model until one is found, the clauses are proven unsatisfiable, or the
+	 *  given number of conflicts has been reached.
+	 * @param conflictBudget The number of conflicts allowed before restarting.
+	 * @return An int. 1 if a model was found, -1 if there is none, or 0 to restart.
+	 */
+	private int search(long conflictBudget){
+		long conflictCount = 0;
+		while(true){
+			Clause conflict = propagate();
+			if(conflict != null){
+				conflicts++;
+				conflictCount++;
+				if(decisionLevel == 0){
+					ok = false;
+					return -1;
+				}
+				int[] learnt = analyze(conflict);
+				cancelUntil(backtrackLevel(learnt));
+				if(learnt.length == 1)
+					enqueue(learnt[0], null);
+				else{
+					Clause clause = new Clause(learnt, true);
+					learnts.add(clause);
+					attach(clause);
+					bumpClause(clause);
+					enqueue(learnt[0], clause);
+				}
+				varInc    /= VAR_DECAY;
+				clauseInc /= CLAUSE_DECAY;
+			}
+			else{
+				if(conflictCount >= conflictBudget){
+					cancelUntil(0);
+					return 0;
+				}
+				if(learnts.size() - trailSize >= maxLearnts){
+					reduceLearnts();
+					maxLearnts *= 1.1;
+				}
+				int next = pickBranchLiteral();
+				if(next == -1){
+					saveModel();
+					cancelUntil(0);
+					return 1;
+				}
+				decisions++;
+				newDecisionLevel();
+				enqueue(next, null);
+			}
+		}
+	}
+
+	/**
+	 * Propagates every enqueued literal. Each clause watches two of its literals (its first two),
+	 *  and is only visited when one of them becomes false.
+	 * @return The conflicting Clause, or null if there is no conflict.
+	 */
+	private Clause propagate(){
+		Clause conflict = null;
+		while(qhead < trailSize){
+			int       falseLit = trail[qhead++] ^ 1;
+			WatchList list     = watches[falseLit];
+			Clause[]  watching = list.clauses;
+			int       size     = list.size;
+			int i = 0;
+			int j = 0;
+			propagations++;
+			while(i < size){
+				Clause clause = watching[i++];
+				int[]  lits   = clause.lits;
+				//Make sure the false literal is lits[1].
+				if(lits[0] == falseLit){
+					lits[0] = lits[1];
+					lits[1] = falseLit;
+				}
+				//The clause is already satisfied by its other watch.
+				if(value(lits[0]) == TRUE){
+					watching[j++] = clause;
+					continue;
+				}
+				//Look for a new literal to watch.
+				boolean moved = false;
+				for(int k=2; k<lits.length; k++){
+					if(value(lits[k]) != FALSE){
+						lits[1] = lits[k];
+						lits[k] = falseLit;
+						watches[lits[1]].add(clause);
+						moved = true;
+						break;
+					}
+				}
+				if(moved)
+					continue;
+				//The clause is unit or conflicting.
+				watching[j++] = clause;
+				if(value(lits[0]) == FALSE){
+					conflict = clause;
+					qhead    = trailSize;
+					while(i < size)
+						watching[j++] = watching[i++];
+				}
+				else
+					enqueue(lits[0], clause);
+			}
+			list.size = j;
+		}
+		return conflict;
+	}
+
+	/**
+	 * Analyzes a conflict and derives a learnt clause at the first unique implication point.
+	 *  The learnt clause's first literal is the one it asserts after backtracking, and its
+	 *  second literal (if any) has the highest decision level of the rest.
+	 * @param conflict The conflicting Clause.
+	 * @return An int[] of the learnt clause's internal literals.
+	 */
+	private int[] analyze(Clause conflict){
+		IntList learnt = new IntList();
+		learnt.add(-1); //Reserved for the asserting literal.
+		int    pathCount = 0;
+		int    lit       = -1;
+		int    index     = trailSize - 1;
+		Clause clause    = conflict;
+		do{
+			if(clause.learnt)
+				bumpClause(clause);
+			for(int k = (lit == -1) ? 0 : 1; k < clause.lits.length; k++){
+				int q = clause.lits[k];
+				int v = q >> 1;
+				if(!seen[v] && level[v] > 0){
+					bumpVariable(v);
+					seen[v] = true;
+					if(level[v] >= decisionLevel)
+						pathCount++;
+					else
+						learnt.add(q);
+				}
+			}
+			//Find the next literal of the current level to resolve on.
+			while(!seen[trail[index] >> 1])
+				index--;
+			lit    = trail[index--];
+			clause = reason[lit >> 1];
+			seen[lit >> 1] = false;
+			pathCount--;
+		}while(pathCount > 0);
+		learnt.set(0, lit ^ 1);
+
+		//Remove literals implied by the rest of the clause.
+		int[] all  = learnt.toArray();
+		int   size = 1;
+		for(int i=1; i<all.length; i++){
+			Clause r = reason[all[i] >> 1];
+			boolean redundant = (r != null);
+			if(r != null){
+				for(int k=1; k<r.lits.length; k++){
+					int v = r.lits[k] >> 1;
+					if(!seen[v] && level[v] > 0){
+						redundant = false;
+						break;
+					}
+				}
+			}
+			if(!redundant)
+				all[size++] = all[i];
+		}
+		for(int i=1; i<learnt.size(); i++)
+			seen[learnt.get(i) >> 1] = false;
+		int[] lits = Arrays.copyOf(all, size);
+		//Move the literal with the highest level to the second watch.
+		int max = 1;
+		for(int i=2; i<lits.length; i++){
+			if(level[lits[i] >> 1] > level[lits[max] >> 1])
+				max = i;
+		}
+		if(lits.length > 1){
+			int temp  = lits[1];
+			lits[1]   = lits[max];
+			lits[max] = temp;
+		}
+		return lits;
+	}
+
+	/**
+	 * Returns the decision level to backtrack to after learning the given clause.
+	 * @param learnt A learnt clause, as returned by analyze(Clause).
+	 * @return An int. The second-highest decision level of the clause's literals.
+	 */
+	private int backtrackLevel(int[] learnt){
+		return learnt.length == 1 ? 0 : level[learnt[1] >> 1];
+	}
+
+	/**
+	 * Deletes about half of the learnt clauses, keeping the most active ones, binary clauses, and
+	 *  those that are the reason for a current assignment. Watch lists are rebuilt afterwards.
+	 */
+	private void reduceLearnts(){
+		Collections.sort(learnts, new Comparator<Clause>(){
+			public int compare(Clause c1, Clause c2){
+				return Double.compare(c1.activity, c2.activity);
+			}
+		});
+		int limit = learnts.size() / 2;
+		int kept  = 0;
+		for(int i=0; i<learnts.size(); i++){
+			Clause clause = learnts.get(i);
+			if(i < limit && clause.lits.length > 2 && !isLocked(clause))
+				deleted++;
+			else
+				learnts.set(kept++, clause);
+		}
+		learnts.subList(kept, learnts.size()).clear();
+		for(int lit=0; lit<2*numVars; lit++)
+			watches[lit].size = 0;
+		for(Clause clause:clauses)
+			attach(clause);
+		for(Clause clause:learnts)
+			attach(clause);
+	}
+
+	/**
+	 * Determines if a clause is the reason for a current assignment.
+	 * @param clause A Clause.
+	 * @return A boolean. True if the clause implied its first literal on the current trail.
+	 */
+	private boolean isLocked(Clause clause){
+		int v = clause.lits[0] >> 1;
+		return reason[v] == clause && value(clause.lits[0]) == TRUE;
+	}
+
+	/**
+	 * Picks the next decision literal: the unassigned variable with the highest activity, with the
+	 *  value it was last assigned.
+	 * @return An int. The internal literal to decide, or -1 if every variable is assigned.
+	 */
+	private int pickBranchLiteral(){
+		while(!order.isEmpty()){
+			int v = order.removeMax();
+			if(assigns[v] == UNDEF)
+				return 2*v + (polarity[v] ? 0 : 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies the current (complete) assignment into model.
+	 */
+	private void saveModel(){
+		model = new boolean[numVars];
+		for(int v=0; v<numVars; v++)
+			model[v] = assigns[v] == TRUE;
+	}
+
+
+	//Assignment.
+
+	/**
+	 * Returns the current value of an internal literal.
+	 * @param lit An internal literal.
+	 * @return A byte. TRUE, FALSE or UNDEF.
+	 */
+	private byte value(int lit){
+		byte assigned = assigns[lit >> 1];
+		return (lit & 1) == 0 ? assigned : (byte)-assigned;
+	}
+
+	/**
+	 * Assigns an internal literal true at the current decision level.
+	 * @param lit An internal literal.
+	 * @param from The clause that implied lit, or null if lit is a decision.
+	 */
+	private void enqueue(int lit, Clause from){
+		int v = lit >> 1;
+		assigns[v] = ((lit & 1) == 0) ? TRUE : FALSE;
+		level[v]   = decisionLevel;
+		reason[v]  = from;
+		trail[trailSize++] = lit;
+	}
+
+	/**
+	 * Starts a new decision level.
+	 */
+	private void newDecisionLevel(){
+		if(decisionLevel == trailLim.length)
+			trailLim = Arrays.copyOf(trailLim, decisionLevel * 2);
+		trailLim[decisionLevel++] = trailSize;
+	}
+
+	/**
+	 * Undoes every assignment above the given decision level, saving each variable's phase.
+	 * @param target The decision level to return to.
+	 */
+	private void cancelUntil(int target){
+		if(decisionLevel <= target)
+			return;
+		for(int i = trailSize - 1; i >= trailLim[target]; i--){
+			int v = trail[i] >> 1;
+			polarity[v] = assigns[v] == TRUE;
+			assigns[v]  = UNDEF;
+			reason[v]   = null;
+			if(!order.contains(v))
+				order.insert(v);
+		}
+		trailSize     = trailLim[target];
+		qhead         = trailSize;
+		decisionLevel = target;
+	}
+
+	/**
+	 * Starts watching a clause's first two literals.
+	 * @param clause A Clause of at least two literals.
+	 */
+	private void attach(Clause clause){
+		watches[clause.lits[0]].add(clause);
+		watches[clause.lits[1]].add(clause);
+	}
+
+	/**
+	 * Converts a DIMACS-style literal to an internal literal.
+	 * @param literal A literal. Variable v is v, and its negation is -v.
+	 * @return An int. The internal literal.
+	 */
+	private int toInternal(int literal){
+		int v = Math.abs(literal);
+		if(literal == 0 || v > numVars)
+			throw new IllegalArgumentException("The literal " + literal + " does not refer to a variable.");
+		return 2*(v-1) + (literal < 0 ? 1 : 0);
+	}
+
+
+	//Activities.
+
+	/**
+	 * Increases a variable's activity, rescaling all activities if they grow too large.
+	 * @param v A variable index.
+	 */
+	private void bumpVariable(int v){
+		activity[v] += varInc;
+		if(activity[v] > RESCALE_LIMIT){
+			for(int i=0; i<numVars; i++)
+				activity[i] /= RESCALE_LIMIT;
+			varInc /= RESCALE_LIMIT;
+		}
+		if(order.contains(v))
+			order.increased(v);
+	}
+
+	/**
+	 * Increases a learnt clause's activity, rescaling all clause activities if they grow too large.
+	 * @param clause A learnt Clause.
+	 */
+	private void bumpClause(Clause clause){
+		clause.activity += clauseInc;
+		if(clause.activity > RESCALE_LIMIT){
+			for(Clause learnt:learnts)
+				learnt.activity /= RESCALE_LIMIT;
+			clauseInc /= RESCALE_LIMIT;
+		}
+	}
+
+	/**
+	 * Returns element i of the Luby sequence (1, 1, 2, 1, 1, 2, 4, 1, ...).
+	 * @param i An index into the sequence.
+	 * @return A long. The Luby sequence's i-th element.
+	 */
+	private static long luby(int i){
+		int size = 1;
+		int seq  = 0;
+		while(size < i + 1){
+			seq++;
+			size = 2*size + 1;
+		}
+		while(size - 1 != i){
+			size = (size - 1) >> 1;
+			seq--;
+			i = i % size;
+		}
+		return 1L << seq;
+	}
+
+
+	/**
+	 * A clause of internal literals. The first two literals are the ones being watched.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Clause {
+
+		private final int[]   lits;     //The clause's literals.
+		private final boolean learnt;   //Was the clause learnt from a conflict?
+		private double        activity; //How recently the clause took part in conflicts.
+
+		/**
+		 * Creates a clause.
+		 * @param lits The clause's internal literals.
+		 * @param learnt Was the clause learnt from a conflict?
+		 */
+		private Clause(int[] lits, boolean learnt){
+			this.lits   = lits;
+			this.learnt = learnt;
+		}
+	}
+
+	/**
+	 * A growable array of the clauses watching a literal.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class WatchList {
+
+		private Clause[] clauses = new Clause[4];
+		private int      size    = 0;
+
+		/**
+		 * Adds a clause to the list.
+		 * @param clause The Clause to add.
+		 */
+		private void add(Clause clause){
+			if(size == clauses.length)
+				clauses = Arrays.copyOf(clauses, size * 2);
+			clauses[size++] = clause;
+		}
+	}
+
+	/**
+	 * A binary max-heap of variables ordered by activity, used to pick decision variables.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private final class VariableHeap {
+
+		private int[] heap    = new int[16]; //Variables, in heap order.
+		private int[] indices = new int[16]; //Per variable: its index in heap, or -1.
+		private int   size    = 0;
+
+		/**
+		 * Determines if the heap is empty.
+		 * @return A boolean. True if the heap holds no variables.
+		 */
+		private boolean isEmpty(){
+			return size == 0;
+		}
+
+		/**
+		 * Determines if the heap holds a variable.
+		 * @param v A variable index.
+		 * @return A boolean. True if v is in the heap.
+		 */
+		private boolean contains(int v){
+			return v < indices.length && indices[v] >= 0;
+		}
+
+		/**
+		 * Adds a variable to the heap.
+		 * @param v A variable index that is not in the heap.
+		 */
+		private void insert(int v){
+			if(v >= indices.length){
+				int old = indices.length;
+				indices = Arrays.copyOf(indices, Math.max(v + 1, old * 2));
+				Arrays.fill(indices, old, indices.length, -1);
+			}
+			if(size == heap.length)
+				heap = Arrays.copyOf(heap, size * 2);
+			heap[size]  = v;
+			indices[v]  = size;
+			siftUp(size++);
+		}
+
+		/**
+		 * Restores the heap order after a variable's activity has increased.
+		 * @param v A variable index in the heap.
+		 */
+		private void increased(int v){
+			siftUp(indices[v]);
+		}
+
+		/**
+		 * Removes the variable with the highest activity.
+		 * @return An int. The removed variable index.
+		 */
+		private int removeMax(){
+			int max = heap[0];
+			indices[max] = -1;
+			size--;
+			if(size > 0){
+				heap[0] = heap[size];
+				indices[heap[0]] = 0;
+				siftDown(0);
+			}
+			return max;
+		}
+
+		/**
+		 * Moves the variable at index i up until its parent is at least as active.
+		 * @param i An index into heap.
+		 */
+		private void siftUp(int i){
+			int v = heap[i];
+			while(i > 0){
+				int parent = (i - 1) >> 1;
+				if(activity[heap[parent]] >= activity[v])
+					break;
+				heap[i] = heap[parent];
+				indices[heap[i]] = i;
+				i = parent;
+			}
+			heap[i]    = v;
+			indices[v] = i;
+		}
+
+		/**
+		 * Moves the variable at index i down until its children are no more active.
+		 * @param i An index into heap.
+		 */
+		private void siftDown(int i){
+			int v = heap[i];
+			while(2*i + 1 < size){
+				int child = 2*i + 1;
+				if(child + 1 < size && activity[heap[child + 1]] > activity[heap[child]])
+					child++;
+				if(activity[heap[child]] <= activity[v])
+					break;
+				heap[i] = heap[child];
+				indices[heap[i]] = i;
+				i = child;
+			}
+			heap[i]    = v;
+			indices[v] = i;
+		}
+	}
+
+	/**
+	 * A minimal growable int array.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class IntList {
+
+		private int[] data = new int[16];
+		private int   size = 0;
+
+		/**
+		 * Appends a value.
+		 * @param value The int to append.
+		 */
+		private void add(int value){
+			if(size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		/**
+		 * Returns the value at an index.
+		 * @param index An index less than size().
+		 * @return The int at index.
+		 */
+		private int get(int index){
+			return data[index];
+		}
+
+		/**
+		 * Replaces the value at an index.
+		 * @param index An index less than size().
+		 * @param value The new int.
+		 */
+		private void set(int index, int value){
+			data[index] = value;
+		}
+
+		/**
+		 * Returns the number of values in the list.
+		 * @return An int. The list's size.
+		 */
+		private int size(){
+			return size;
+		}
+
+		/**
+		 * Copies the list into an array.
+		 * @return An int[] of the list's values.
+		 */
+		private int[] toArray(){
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
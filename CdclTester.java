@@ -0,0 +1,117 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+public class CdclTester {
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 4);
+
+		System.out.println("Testing the CDCL solver against the truth table...");
+
+		//Random expressions of every conditional.
+		int unsatisfiable = 0;
+		for(int i=0; i<2000; i++){
+			String expression = RandomExpressions.expression(random, 1 + random.nextInt(8), 1 + random.nextInt(12));
+			if(!check(expression))
+				unsatisfiable++;
+		}
+		System.out.println("Random expressions: 2000 checked, " + unsatisfiable + " unsatisfiable.");
+
+		//Random 3-CNF at five or six clauses a variable, mostly unsatisfiable.
+		unsatisfiable = 0;
+		for(int i=0; i<1000; i++){
+			int variables = 3 + random.nextInt(8);
+			String expression = RandomExpressions.cnf(random, variables, variables * (5 + random.nextInt(2)), 3);
+			if(!check(expression))
+				unsatisfiable++;
+		}
+		System.out.println("Random 3-CNF: 1000 checked, " + unsatisfiable + " unsatisfiable.");
+
+		if(check("(a|b)&(!a|b)&(a|!b)&(!a|!b)"))
+			fail("(a|b)&(!a|b)&(a|!b)&(!a|!b)", "was found satisfiable");
+		if(!check("(a|b|c)&(!a|!b)&(!c)"))
+			fail("(a|b|c)&(!a|!b)&(!c)", "was found unsatisfiable");
+
+		//Random 3-CNF of 60 variables at two clauses a variable, beyond the truth table.
+		for(int i=0; i<50; i++){
+			String                  expression = RandomExpressions.cnf(random, 60, 120, 3);
+			PropositionalExpression parsed     = PropositionalExpression.parse(expression);
+			Assignment              assignment = parsed.findSatisfyingAssignment();
+			if(assignment != null && !parsed.evaluate(assignment))
+				fail(expression, "has a CDCL assignment that does not satisfy it");
+		}
+		System.out.println("Random 3-CNF of 60 variables: 50 checked.");
+
+		//Pigeonhole formulas: n+1 pigeons never fit in n holes, but n pigeons do.
+		for(int holes=1; holes<=6; holes++){
+			if(pigeonhole(holes + 1, holes))
+				fail(holes + 1 + " pigeons in " + holes + " holes", "was found satisfiable");
+			if(!pigeonhole(holes, holes))
+				fail(holes + " pigeons in " + holes + " holes", "was found unsatisfiable");
+		}
+		System.out.println("Pigeonhole formulas: 12 checked.");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	//Checks every satisfiability search of an expression against its truth table, and returns if
+	// the expression is satisfiable.
+	private static boolean check(String expression){
+		PropositionalExpression  parsed = PropositionalExpression.parse(expression);
+		HashMap<String, Boolean> map    = new HashMap<String, Boolean>();
+		for(String variable : parsed.getVariables())
+			map.put(variable, Boolean.FALSE);
+
+		ArrayList<HashMap<String, Boolean>> truthTable = SatisfiablilityCalculator.findSatisfiablility(map, ExpressionDisAssembler.getCards(expression));
+		ArrayList<HashMap<String, Boolean>> cdcl       = SatisfiablilityCalculator.findSatisfiablilityCdcl(map, ExpressionDisAssembler.getCards(expression));
+		if(!truthTable.equals(cdcl))
+			fail(expression, "has " + cdcl.size() + " CDCL combinations, not the truth table's " + truthTable.size());
+
+		HashMap<String, Boolean> found = SatisfiablilityCalculator.findSatisfyingAssignment(map, ExpressionDisAssembler.getCards(expression));
+		if(found == null ? !truthTable.isEmpty() : !truthTable.contains(found))
+			fail(expression, "has the wrong satisfying assignment " + found);
+
+		Assignment assignment = parsed.findSatisfyingAssignment();
+		if(assignment == null ? !truthTable.isEmpty() : !parsed.evaluate(assignment))
+			fail(expression, "has the wrong parsed satisfying assignment " + assignment);
+		if(parsed.isSatisfiable() == truthTable.isEmpty())
+			fail(expression, "is wrongly satisfiable " + parsed.isSatisfiable());
+		return !truthTable.isEmpty();
+	}
+
+	//Solves the pigeonhole formula of the given numbers of pigeons and holes.
+	private static boolean pigeonhole(int pigeons, int holes){
+		CdclSolver solver = new CdclSolver();
+		int[][]    inHole = new int[pigeons][holes];
+		for(int pigeon=0; pigeon<pigeons; pigeon++)
+			for(int hole=0; hole<holes; hole++)
+				inHole[pigeon][hole] = solver.newVariable();
+		//Every pigeon is in a hole.
+		for(int pigeon=0; pigeon<pigeons; pigeon++)
+			solver.addClause(inHole[pigeon]);
+		//No two pigeons share a hole.
+		for(int hole=0; hole<holes; hole++)
+			for(int first=0; first<pigeons; first++)
+				for(int second=first+1; second<pigeons; second++)
+					solver.addClause(-inHole[first][hole], -inHole[second][hole]);
+		return solver.solve();
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + expression + "\" " + message);
+	}
+
+}
@@ -0,0 +1,390 @@
+package propositionalCalculatorV1_0;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, flat form of an ExpressionCard binary tree. The expression is stored as
+ *  a postfix program of int instructions, and each variable is referred to by a slot index
+ *  rather than by its String name. Programs are created by ExpressionCompiler, and evaluate
+ *  to exactly the same truth value as ExpressionEvaluator.evaluateExpressionCards(HashMap, ExpressionCard)
+ *  would for the tree they were compiled from.
+ * Each instruction holds an opcode in its low OPCODE_BITS bits and an operand (a variable slot)
+ *  in the remaining high bits. Binary opcodes pop two values and push one; the "reversed"
+ *  implication applies the operator with the top of the stack as its left operand.
+ * A CompiledExpression holds no mutable state, so one instance may be evaluated by any number
+ *  of threads at once.
+ * @author Kenneth Chin
+ *
+ */
+public final class CompiledExpression {
+
+	//Opcodes. PUSH and PUSH_NOT use the instruction's operand as a variable slot.
+	static final int PUSH        = 0; //Push the value of a variable.
+	static final int PUSH_NOT    = 1; //Push the negated value of a variable.
+	static final int NOT         = 2; //Negate the top of the stack.
+	static final int AND         = 3; //below & top
+	static final int OR          = 4; //below | top
+	static final int XOR         = 5; //below ^ top
+	static final int IMPLIES     = 6; //below > top
+	static final int EQUIVALENT  = 7; //below = top
+	static final int REV_IMPLIES = 8; //top > below
+
+	static final int OPCODE_BITS = 4;
+	static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+	//Programs no deeper than this evaluate on a single long used as a bit stack.
+	private static final int BIT_STACK_LIMIT = 64;
+
+	private final int[]    code;          //The postfix program.
+	private final SymbolTable symbols;    //Variable names, indexed by slot.
+	private final int      maxStackDepth; //The deepest the value stack gets while evaluating.
+
+	/**
+	 * Package-private constructor. Use ExpressionCompiler.compile(ExpressionCard) to obtain
+	 *  a CompiledExpression. The given arrays are not copied and must not be changed afterwards.
+	 * @param code The postfix program.
+	 * @param symbols The variable names, indexed by slot.
+	 * @param maxStackDepth The deepest the value stack gets while evaluating code.
+	 */
+	CompiledExpression(int[] code, SymbolTable symbols, int maxStackDepth){
+		this.code          = code;
+		this.symbols       = symbols;
+		this.maxStackDepth = maxStackDepth;
+	}
+
+	/**
+	 * Builds a single instruction.
+	 * @param opcode One of the opcode constants.
+	 * @param operand The instruction's operand (a variable slot), or 0 if it has none.
+	 * @return An int instruction.
+	 */
+	static int instruction(int opcode, int operand){
+		return (operand << OPCODE_BITS) | opcode;
+	}
+
+	/**
+	 * Returns the opcode of the given instruction.
+	 * @param instruction An instruction of a compiled program.
+	 * @return The instruction's opcode.
+	 */
+	static int opcode(int instruction){
+		return instruction & OPCODE_MASK;
+	}
+
+	/**
+	 * Returns the operand of the given instruction.
+	 * @param instruction An instruction of a compiled program.
+	 * @return The instruction's operand.
+	 */
+	static int operand(int instruction){
+		return instruction >>> OPCODE_BITS;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the names of this expression's variables, in slot order. The value of the
+	 *  variable at index i of this list is read from index i of the arrays given to evaluate.
+	 * @return An unmodifiable List<String> of variable names, indexed by slot.
+	 */
+	public List<String> getVariables(){
+		return symbols.getNames();
+	}
+
+	/**
+	 * Returns the SymbolTable giving this expression's variable slots.
+	 * @return The SymbolTable of this expression's variables.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the number of variable slots used by this expression.
+	 * @return An int. The number of variable slots.
+	 */
+	public int getVariableCount(){
+		return symbols.size();
+	}
+
+	/**
+	 * Returns the slot of the given variable.
+	 * @param variable A variable name.
+	 * @return An int. The slot of the given variable, or -1 if this expression has no such variable.
+	 */
+	public int indexOf(String variable){
+		return symbols.indexOf(variable);
+	}
+
+	/**
+	 * Returns the deepest the value stack gets while evaluating this expression.
+	 * @return An int. The size a stack given to evaluate(boolean[], boolean[]) must have.
+	 */
+	public int getMaxStackDepth(){
+		return maxStackDepth;
+	}
+
+	/**
+	 * Returns the number of instructions in this expression's program.
+	 * @return An int. The number of instructions.
+	 */
+	public int getCodeLength(){
+		return code.length;
+	}
+
+	/**
+	 * Returns this expression's program. The array is shared, and must not be changed.
+	 * @return The int[] postfix program.
+	 */
+	int[] getCode(){
+		return code;
+	}
+
+
+	//Evaluation operations.
+
+	/**
+	 * Creates a value stack large enough for evaluate(boolean[], boolean[]). A stack may be
+	 *  reused for any number of evaluations, but not by two threads at once.
+	 * @return A boolean[] whose length is getMaxStackDepth().
+	 */
+	public boolean[] newStack(){
+		return new boolean[maxStackDepth];
+	}
+
+	/**
+	 * Evaluates this expression. Expressions whose stack depth is 64 or less (nearly all of them)
+	 *  are evaluated on a single long, and no memory is allocated.
+	 * @param values A boolean[] holding the truth value of each variable, indexed by slot.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	public boolean evaluate(boolean[] values){
+		if(maxStackDepth > BIT_STACK_LIMIT)
+			return evaluate(values, newStack());
+		long stack = 0L; //The top of the stack is bit 0.
+		long top;
+		for(int instruction:code){
+			switch(instruction & OPCODE_MASK){
+				case PUSH        : stack = (stack << 1) | (values[instruction >>> OPCODE_BITS] ? 1L : 0L); break;
+				case PUSH_NOT    : stack = (stack << 1) | (values[instruction >>> OPCODE_BITS] ? 0L : 1L); break;
+				case NOT         : stack = stack ^ 1L; break;
+				case AND         : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | (stack & top);        break;
+				case OR          : top = stack & 1L; stack = stack >>> 1; stack = stack | top;                          break;
+				case XOR         : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top;                          break;
+				case IMPLIES     : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | ((~stack | top) & 1L); break;
+				case EQUIVALENT  : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top ^ 1L;                     break;
+				case REV_IMPLIES : top = stack & 1L; stack = stack >>> 1; stack = stack | (top ^ 1L);                   break;
+				default          : throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK) + ".");
+			}
+		}
+		return (stack & 1L) != 0L;
+	}
+
+	/**
+	 * Evaluates this expression using the given value stack. No memory is allocated.
+	 * @param values A boolean[] holding the truth value of each variable, indexed by slot.
+	 * @param stack A boolean[] of at least getMaxStackDepth() elements. Its contents are overwritten.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	public boolean evaluate(boolean[] values, boolean[] stack){
+		int top = -1;
+		for(int instruction:code){
+			switch(instruction & OPCODE_MASK){
+				case PUSH        : stack[++top] =  values[instruction >>> OPCODE_BITS];   break;
+				case PUSH_NOT    : stack[++top] = !values[instruction >>> OPCODE_BITS];   break;
+				case NOT         : stack[top]   = !stack[top];                            break;
+				case AND         : top--; stack[top] =   stack[top] &  stack[top+1];      break;
+				case OR          : top--; stack[top] =   stack[top] |  stack[top+1];      break;
+				case XOR         : top--; stack[top] =   stack[top] ^  stack[top+1];      break;
+				case IMPLIES     : top--; stack[top] =  !stack[top] |  stack[top+1];      break;
+				case EQUIVALENT  : top--; stack[top] = !(stack[top] ^  stack[top+1]);     break;
+				case REV_IMPLIES : top--; stack[top] =   stack[top] | !stack[top+1];      break;
+				default          : throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK) + ".");
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Creates a lane stack large enough for evaluateLanes(long[], long[]). A stack may be
+	 *  reused for any number of evaluations, but not by two threads at once.
+	 * @return A long[] whose length is getMaxStackDepth().
+	 */
+	public long[] newLaneStack(){
+		return new long[maxStackDepth];
+	}
+
+	/**
+	 * Evaluates this expression for 64 assignments at once. Bit j of each lane holds a
+	 *  variable's truth value in assignment j, and every operator is applied to whole
+	 *  longs, so a single pass over the program decides all 64 assignments.
+	 * @param lanes A long[] holding the truth values of each variable, indexed by slot.
+	 * @param stack A long[] of at least getMaxStackDepth() elements. Its contents are overwritten.
+	 * @return A long whose bit j is the expression's truth value in assignment j.
+	 */
+	public long evaluateLanes(long[] lanes, long[] stack){
+		int top = -1;
+		for(int instruction:code){
+			switch(instruction & OPCODE_MASK){
+				case PUSH        : stack[++top] =  lanes[instruction >>> OPCODE_BITS];  break;
+				case PUSH_NOT    : stack[++top] = ~lanes[instruction >>> OPCODE_BITS];  break;
+				case NOT         : stack[top]   = ~stack[top];                          break;
+				case AND         : top--; stack[top] =   stack[top] &  stack[top+1];    break;
+				case OR          : top--; stack[top] =   stack[top] |  stack[top+1];    break;
+				case XOR         : top--; stack[top] =   stack[top] ^  stack[top+1];    break;
+				case IMPLIES     : top--; stack[top] =  ~stack[top] |  stack[top+1];    break;
+				case EQUIVALENT  : top--; stack[top] = ~(stack[top] ^  stack[top+1]);   break;
+				case REV_IMPLIES : top--; stack[top] =   stack[top] | ~stack[top+1];    break;
+				default          : throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK) + ".");
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Evaluates this expression with the variable values given by a map. This convenience
+	 *  method allocates a value array on each call; callers evaluating the same expression
+	 *  many times should build a boolean[] once and use evaluate(boolean[]).
+	 * @param aMap A Map<String, Boolean> who's keys include every variable of this expression.
+	 * @return A boolean indicating the expression's truth value at the values given by aMap.
+	 * @throws IllegalArgumentException If aMap has no value for one of the variables.
+	 */
+	public boolean evaluate(Map<String, Boolean> aMap){
+		boolean[] values = new boolean[symbols.size()];
+		for(int i=0; i<values.length; i++){
+			Boolean value = aMap.get(symbols.getName(i));
+			if(value == null)
+				throw new IllegalArgumentException("The variable \"" + symbols.getName(i) + "\" was not given a value.");
+			values[i] = value;
+		}
+		return evaluate(values);
+	}
+
+	/**
+	 * Evaluates this expression for an assignment of up to 64 variables, packed into a long.
+	 *  No memory is allocated for expressions whose stack depth is 64 or less.
+	 * @param row A long whose bit i is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 * @throws IllegalStateException If the expression has more than 64 variables, whose values
+	 *  cannot all be given by a long. Use evaluate(long[]) instead.
+	 */
+	public boolean evaluate(long row){
+		checkRowFits(symbols.size());
+		if(maxStackDepth > BIT_STACK_LIMIT)
+			return evaluatePacked(new long[]{row});
+		long stack = 0L; //The top of the stack is bit 0.
+		long top;
+		for(int instruction:code){
+			switch(instruction & OPCODE_MASK){
+				case PUSH        : stack = (stack << 1) | ( (row >>> (instruction >>> OPCODE_BITS)) & 1L); break;
+				case PUSH_NOT    : stack = (stack << 1) | (~(row >>> (instruction >>> OPCODE_BITS)) & 1L); break;
+				case NOT         : stack = stack ^ 1L; break;
+				case AND         : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | (stack & top);        break;
+				case OR          : top = stack & 1L; stack = stack >>> 1; stack = stack | top;                          break;
+				case XOR         : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top;                          break;
+				case IMPLIES     : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | ((~stack | top) & 1L); break;
+				case EQUIVALENT  : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top ^ 1L;                     break;
+				case REV_IMPLIES : top = stack & 1L; stack = stack >>> 1; stack = stack | (top ^ 1L);                   break;
+				default          : throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK) + ".");
+			}
+		}
+		return (stack & 1L) != 0L;
+	}
+
+	/**
+	 * Ensures the values of an expression's variables fit in a long row, one bit per slot.
+	 * @param variableCount The number of variable slots.
+	 * @throws IllegalStateException If there are more than 64 slots.
+	 */
+	static void checkRowFits(int variableCount){
+		if(variableCount > 64)
+			throw new IllegalStateException("A row of " + variableCount + " variables does not fit in a long.");
+	}
+
+	/**
+	 * Evaluates this expression for an assignment packed into longs. No memory is allocated for
+	 *  expressions whose stack depth is 64 or less.
+	 * @param words A long[] whose bit i%64 of element i/64 is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	public boolean evaluate(long[] words){
+		return evaluatePacked(words);
+	}
+
+	/**
+	 * Evaluates this expression for an Assignment. If the assignment's SymbolTable is not this
+	 *  expression's, its values are looked up by name.
+	 * @param assignment An Assignment with a value for each of this expression's variables.
+	 * @return A boolean indicating the expression's truth value at the assignment's values.
+	 * @throws IllegalArgumentException If the assignment has no value for one of the variables.
+	 */
+	public boolean evaluate(Assignment assignment){
+		if(assignment.getSymbolTable().equals(symbols))
+			return evaluatePacked(assignment.getWords());
+		long[] words = new long[Math.max(1, (symbols.size() + 63) >>> 6)];
+		for(int i=0; i<symbols.size(); i++){
+			if(assignment.get(symbols.getName(i)))
+				words[i >>> 6] |= 1L << i;
+		}
+		return evaluatePacked(words);
+	}
+
+	/**
+	 * Evaluates this expression for an assignment packed into longs, using a long as a bit stack.
+	 * @param words A long[] whose bit i%64 of element i/64 is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	private boolean evaluatePacked(long[] words){
+		if(maxStackDepth > BIT_STACK_LIMIT){
+			boolean[] values = new boolean[symbols.size()];
+			for(int i=0; i<values.length; i++)
+				values[i] = ((words[i >>> 6] >>> i) & 1L) != 0;
+			return evaluate(values, newStack());
+		}
+		long stack = 0L; //The top of the stack is bit 0.
+		long top;
+		int  slot;
+		for(int instruction:code){
+			switch(instruction & OPCODE_MASK){
+				case PUSH        : slot = instruction >>> OPCODE_BITS; stack = (stack << 1) | ((words[slot >>> 6] >>> slot) & 1L);        break;
+				case PUSH_NOT    : slot = instruction >>> OPCODE_BITS; stack = (stack << 1) | (~(words[slot >>> 6] >>> slot) & 1L);     break;
+				case NOT         : stack = stack ^ 1L; break;
+				case AND         : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | (stack & top);        break;
+				case OR          : top = stack & 1L; stack = stack >>> 1; stack = stack | top;                          break;
+				case XOR         : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top;                          break;
+				case IMPLIES     : top = stack & 1L; stack = stack >>> 1; stack = (stack & ~1L) | ((~stack | top) & 1L); break;
+				case EQUIVALENT  : top = stack & 1L; stack = stack >>> 1; stack = stack ^ top ^ 1L;                     break;
+				case REV_IMPLIES : top = stack & 1L; stack = stack >>> 1; stack = stack | (top ^ 1L);                   break;
+				default          : throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK) + ".");
+			}
+		}
+		return (stack & 1L) != 0L;
+	}
+
+	/**
+	 * Returns a readable listing of this expression's program, one instruction per line.
+	 * @return A String listing of the program.
+	 */
+	@Override
+	public String toString(){
+		StringBuilder builder = new StringBuilder();
+		for(int instruction:code){
+			switch(opcode(instruction)){
+				case PUSH        : builder.append("PUSH ").append(symbols.getName(operand(instruction)));     break;
+				case PUSH_NOT    : builder.append("PUSH !").append(symbols.getName(operand(instruction)));    break;
+				case NOT         : builder.append("NOT");         break;
+				case AND         : builder.append("AND");         break;
+				case OR          : builder.append("OR");          break;
+				case XOR         : builder.append("XOR");         break;
+				case IMPLIES     : builder.append("IMPLIES");     break;
+				case EQUIVALENT  : builder.append("EQUIVALENT");  break;
+				case REV_IMPLIES : builder.append("REV_IMPLIES"); break;
+				default          : builder.append("?");
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
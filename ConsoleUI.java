@@ -62,6 +62,7 @@ public class ConsoleUI {
 		if(!isValidExpression(expression)){
 			System.out.println();
 			System.out.println("\"" + expression + "\" is not a valid expression!");
+			printParseError(expression);
 			expression = exPrompt();
 			if(expression == null || expression.charAt(0) == '2')
 				return null;
@@ -128,6 +129,46 @@ public class ConsoleUI {
 		return promptForSatisfiability();
 	}
 	
+	/**
+	 * Prompt the user to export the expression's whole truth table to a file, one bit per row.
+	 *  Prompt again if the answer is not valid.
+	 * @return The name of the file to write, or null if the user does not want an export.
+	 */
+	public String promptForExport(){
+		System.out.println();
+		System.out.println("Would you like to export the whole truth table to a packed binary file?");
+		System.out.print  ("  Enter \"n\" for no, or the name of the file: \n");
+		String answer = inStream.nextLine().trim();
+		if(answer.equalsIgnoreCase("n") || answer.equalsIgnoreCase("no"))
+			return null;
+		if(!answer.equals(""))
+			return answer;
+		System.out.println();
+		System.out.println("Please enter \"n\" for no, or the name of a file.");
+		return promptForExport();
+	}
+
+	/**
+	 * Prints a statement that a truth table was exported.
+	 * @param fileName The name of the file that was written.
+	 * @param rows The number of rows in the table.
+	 * @param bytes The length of the file in bytes.
+	 */
+	public void printExport(String fileName, long rows, long bytes){
+		System.out.println();
+		System.out.println("Wrote the " + rows + " row truth table to \"" + fileName + "\" (" + bytes + " bytes).");
+	}
+
+	/**
+	 * Prints a statement that a truth table could not be exported.
+	 * @param fileName The name of the file that could not be written.
+	 * @param reason The reason the export failed.
+	 */
+	public void printExportFailed(String fileName, String reason){
+		System.out.println();
+		System.out.println("Could not export the truth table to \"" + fileName + "\": " + reason);
+	}
+
 	/**
 	 * Prints all values for each variable in the given expression which make the expression true.
 	 *  The user is prompted to press enter after each set of values are given.
@@ -244,10 +285,32 @@ public class ConsoleUI {
 		}
 		if(numOpenParens != numClosedParens)
 			return false;
+		//The parentheses must also pair up in order; see ExpressionDisAssembler.validate(String).
+		try{
+			ExpressionDisAssembler.validate(expression);
+		}
+		catch(ExpressionParseException e){
+			return false;
+		}
 		return true;
 	}
 	
 	
+	/**
+	 * Prints where in the expression String the first error is, if ExpressionDisAssembler.validate(String)
+	 *  finds one, by marking the offending character beneath the expression.
+	 * @param expression The invalid expression String.
+	 */
+	private void printParseError(String expression){
+		try{
+			ExpressionDisAssembler.validate(expression);
+		}
+		catch(ExpressionParseException e){
+			System.out.println(" " + expression);
+			System.out.println(indent(e.getPosition()) + "^ " + e.getMessage());
+		}
+	}
+	
 	/**
 	 * Prints a statement that the result of expression's evaluation was result.
 	 * DOES NOT evaluate an expression.
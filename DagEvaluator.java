@@ -0,0 +1,222 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a set of expressions interned into one NodeFactory, computing every shared node once
+ *  per assignment instead of once for every expression that uses it. The nodes reachable from the
+ *  expressions are laid out in id order, which puts every operand before the nodes that use it,
+ *  so an evaluation is a single pass over primitive arrays.
+ * Evaluation is bit-sliced: evaluateLanes(long[], long[], long[]) decides 64 assignments at once.
+ *  A DagEvaluator is immutable; each thread evaluating it needs its own scratch array (see
+ *  newScratch()).
+ * @author Kenneth Chin
+ *
+ */
+public final class DagEvaluator {
+
+	private final SymbolTable symbols;  //The factory's variables when the evaluator was created.
+	private final int[]       ops;      //Per node: its kind.
+	private final int[]       lefts;    //Per node: its first operand's index, a variable's slot, or a constant's value.
+	private final int[]       rights;   //Per node: its second operand's index, or -1.
+	private final int[]       roots;    //Per expression: the index of its node.
+	private final int[]       used;     //The slots of the variables the expressions use.
+	private final long        treeSize; //The number of nodes the expressions would have as trees.
+
+	/**
+	 * Creates an evaluator of the given expressions.
+	 * @param expressions A List<ExpressionNode> of expressions, all created by one NodeFactory.
+	 * @throws IllegalArgumentException If the list is empty, or its nodes come from different factories.
+	 */
+	public DagEvaluator(List<ExpressionNode> expressions){
+		if(expressions.isEmpty())
+			throw new IllegalArgumentException("A DagEvaluator needs at least one expression.");
+		NodeFactory factory = expressions.get(0).getFactory();
+		for(ExpressionNode expression:expressions){
+			if(expression.getFactory() != factory)
+				throw new IllegalArgumentException("The expressions were created by different NodeFactories.");
+		}
+		this.symbols = factory.getSymbolTable();
+
+		//Mark every node reachable from the expressions.
+		boolean[] reachable = new boolean[factory.size()];
+		int[]     pending   = new int[Math.max(16, expressions.size())];
+		int       count     = 0;
+		int       top       = 0;
+		for(ExpressionNode expression:expressions)
+			pending[top++] = expression.getId();
+		while(top > 0){
+			int id = pending[--top];
+			if(reachable[id])
+				continue;
+			reachable[id] = true;
+			count++;
+			ExpressionNode node = factory.getNode(id);
+			if(top + 2 > pending.length)
+				pending = Arrays.copyOf(pending, 2 * pending.length);
+			if(node.getLeft() != null)
+				pending[top++] = node.getLeft().getId();
+			if(node.getRight() != null)
+				pending[top++] = node.getRight().getId();
+		}
+
+		//Lay the reachable nodes out in id order, and count their tree sizes.
+		int[]  indexOf = new int[factory.size()];
+		long[] sizes   = new long[count];
+		this.ops    = new int[count];
+		this.lefts  = new int[count];
+		this.rights = new int[count];
+		int[] usedSlots = new int[symbols.size()];
+		int   numUsed   = 0;
+		int   index     = 0;
+		for(int id=0; id<reachable.length; id++){
+			if(!reachable[id])
+				continue;
+			ExpressionNode node = factory.getNode(id);
+			indexOf[id]   = index;
+			ops[index]    = node.getOp();
+			lefts[index]  = (node.getLeft() == null) ? node.getSlot() : indexOf[node.getLeft().getId()];
+			rights[index] = (node.getRight() == null) ? -1 : indexOf[node.getRight().getId()];
+			sizes[index]  = 1;
+			if(node.isVariable())
+				usedSlots[numUsed++] = node.getSlot();
+			else if(node.getLeft() != null)
+				sizes[index] = saturatedAdd(sizes[index], sizes[lefts[index]]);
+			if(rights[index] != -1)
+				sizes[index] = saturatedAdd(sizes[index], sizes[rights[index]]);
+			index++;
+		}
+		this.used  = Arrays.copyOf(usedSlots, numUsed);
+		this.roots = new int[expressions.size()];
+		long total = 0;
+		for(int i=0; i<roots.length; i++){
+			roots[i] = indexOf[expressions.get(i).getId()];
+			total    = saturatedAdd(total, sizes[roots[i]]);
+		}
+		this.treeSize = total;
+	}
+
+	/**
+	 * Adds two sizes, without overflowing.
+	 * @param a A size.
+	 * @param b A size.
+	 * @return a + b, or Long.MAX_VALUE if the sum overflows.
+	 */
+	private static long saturatedAdd(long a, long b){
+		long sum = a + b;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the SymbolTable of the variables, which is the factory's table when this evaluator
+	 *  was created.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the number of expressions.
+	 * @return An int. The number of expressions.
+	 */
+	public int getExpressionCount(){
+		return roots.length;
+	}
+
+	/**
+	 * Returns the number of distinct nodes evaluated per assignment.
+	 * @return An int. The number of DAG nodes.
+	 */
+	public int getNodeCount(){
+		return ops.length;
+	}
+
+	/**
+	 * Returns the number of nodes the expressions would have if each were a separate tree, which
+	 *  is the work of evaluating them one at a time. Compare with getNodeCount().
+	 * @return A long. The total tree size, or Long.MAX_VALUE if it does not fit in a long.
+	 */
+	public long getTreeSize(){
+		return treeSize;
+	}
+
+
+	//Evaluation operations.
+
+	/**
+	 * Creates a scratch array large enough for evaluateLanes(long[], long[], long[]). A scratch
+	 *  array may be reused for any number of evaluations, but not by two threads at once.
+	 * @return A long[] whose length is getNodeCount().
+	 */
+	public long[] newScratch(){
+		return new long[ops.length];
+	}
+
+	/**
+	 * Evaluates every expression for 64 assignments at once. Bit j of each lane holds a variable's
+	 *  truth value in assignment j. Each node is computed exactly once.
+	 * @param lanes A long[] holding the truth values of each variable, indexed by slot.
+	 * @param scratch A long[] of at least getNodeCount() elements. Its contents are overwritten.
+	 * @param results A long[] of at least getExpressionCount() elements. Bit j of element i is set
+	 *  to the truth value of expression i in assignment j.
+	 */
+	public void evaluateLanes(long[] lanes, long[] scratch, long[] results){
+		for(int i=0; i<ops.length; i++){
+			switch(ops[i]){
+				case ExpressionNode.VARIABLE   : scratch[i] =  lanes[lefts[i]];                           break;
+				case ExpressionNode.CONSTANT   : scratch[i] = (lefts[i] == 0) ? 0L : -1L;                 break;
+				case ExpressionNode.NOT        : scratch[i] = ~scratch[lefts[i]];                         break;
+				case ExpressionNode.AND        : scratch[i] =   scratch[lefts[i]] &  scratch[rights[i]];  break;
+				case ExpressionNode.OR         : scratch[i] =   scratch[lefts[i]] |  scratch[rights[i]];  break;
+				case ExpressionNode.XOR        : scratch[i] =   scratch[lefts[i]] ^  scratch[rights[i]];  break;
+				case ExpressionNode.IMPLIES    : scratch[i] =  ~scratch[lefts[i]] |  scratch[rights[i]];  break;
+				case ExpressionNode.EQUIVALENT : scratch[i] = ~(scratch[lefts[i]] ^  scratch[rights[i]]); break;
+				default : throw new IllegalStateException("Unknown node kind " + ops[i] + ".");
+			}
+		}
+		for(int i=0; i<roots.length; i++)
+			results[i] = scratch[roots[i]];
+	}
+
+	/**
+	 * Evaluates every expression for one assignment.
+	 * @param values A boolean[] holding the truth value of each variable, indexed by slot.
+	 * @param scratch A long[] of at least getNodeCount() elements. Its contents are overwritten.
+	 * @param results A boolean[] of at least getExpressionCount() elements, set to the truth value
+	 *  of each expression.
+	 */
+	public void evaluate(boolean[] values, long[] scratch, boolean[] results){
+		long[] lanes = new long[values.length];
+		for(int i=0; i<values.length; i++)
+			lanes[i] = values[i] ? -1L : 0L;
+		long[] words = new long[roots.length];
+		evaluateLanes(lanes, scratch, words);
+		for(int i=0; i<roots.length; i++)
+			results[i] = words[i] != 0L;
+	}
+
+	/**
+	 * Evaluates every expression with the variable values given by a map.
+	 * @param aMap A Map<String, Boolean> who's keys include every variable the expressions use.
+	 * @return A boolean[] holding the truth value of each expression, in the order they were given.
+	 * @throws IllegalArgumentException If aMap has no value for one of the variables.
+	 */
+	public boolean[] evaluate(Map<String, Boolean> aMap){
+		boolean[] values = new boolean[symbols.size()];
+		for(int slot:used){
+			Boolean value = aMap.get(symbols.getName(slot));
+			if(value == null)
+				throw new IllegalArgumentException("The variable \"" + symbols.getName(slot) + "\" was not given a value.");
+			values[slot] = value;
+		}
+		boolean[] results = new boolean[roots.length];
+		evaluate(values, newScratch(), results);
+		return results;
+	}
+}
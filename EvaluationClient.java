@@ -0,0 +1,232 @@
+package propositionalCalculatorV1_0;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection to an EvaluationServer. Requests are buffered by the send methods and written
+ *  together by flush(), so many requests may be pipelined before any response is received. Each
+ *  send method returns the id of its request, which the matching Response carries. The number
+ *  of requests sent but not yet received should be kept bounded: a server does not read requests
+ *  while it cannot write their responses, so a client that only sends can fill both sockets'
+ *  buffers and wait forever.
+ * An EvaluationClient is not thread safe.
+ * @author Kenneth Chin
+ *
+ */
+public final class EvaluationClient implements Closeable {
+
+	private final SocketChannel                  channel; //The socket to the server.
+	private final EvaluationProtocol.FrameReader reader;  //Reads responses.
+	private final EvaluationProtocol.FrameWriter writer;  //Buffers requests.
+	private int                                  nextId;  //The id of the next request.
+
+	/**
+	 * Creates a client on a connected socket. Use connect(SocketAddress).
+	 * @param channel The connected SocketChannel.
+	 */
+	private EvaluationClient(SocketChannel channel){
+		this.channel = channel;
+		this.reader  = new EvaluationProtocol.FrameReader(channel);
+		this.writer  = new EvaluationProtocol.FrameWriter(channel);
+		this.nextId  = 1;
+	}
+
+	/**
+	 * Connects to a server.
+	 * @param address The server's InetSocketAddress or UnixDomainSocketAddress.
+	 * @return A new EvaluationClient.
+	 * @throws IOException If the connection could not be made.
+	 */
+	public static EvaluationClient connect(SocketAddress address) throws IOException{
+		SocketChannel channel = (address instanceof UnixDomainSocketAddress)
+		                        ? SocketChannel.open(StandardProtocolFamily.UNIX)
+		                        : SocketChannel.open();
+		try{
+			channel.connect(address);
+			return new EvaluationClient(channel);
+		}
+		catch(IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends a request to evaluate an expression. The request is buffered until flush() or receive().
+	 * @param expression A propositional logic expression String.
+	 * @param values A Map<String, Boolean> with a value for each of the expression's variables.
+	 * @return An int. The request's id.
+	 * @throws IOException If earlier requests had to be written to make room, and could not be.
+	 * @throws IllegalArgumentException If the expression or a variable's name is too long to send.
+	 */
+	public int sendEvaluate(String expression, Map<String, Boolean> values) throws IOException{
+		byte[]    bytes  = EvaluationProtocol.encode(expression);
+		byte[][]  names  = new byte[values.size()][];
+		boolean[] bits   = new boolean[names.length];
+		EvaluationProtocol.split(values, names, bits);
+		int        id     = nextId++;
+		ByteBuffer buffer = writer.begin(5 + 2 + bytes.length + EvaluationProtocol.assignmentLength(names));
+		buffer.putInt(id).put((byte)EvaluationProtocol.EVALUATE);
+		EvaluationProtocol.putString(buffer, bytes);
+		EvaluationProtocol.putAssignment(buffer, names, bits);
+		writer.end();
+		return id;
+	}
+
+	/**
+	 * Sends a request to find a satisfying assignment of an expression. The request is buffered
+	 *  until flush() or receive().
+	 * @param expression A propositional logic expression String.
+	 * @return An int. The request's id.
+	 * @throws IOException If earlier requests had to be written to make room, and could not be.
+	 * @throws IllegalArgumentException If the expression is too long to send.
+	 */
+	public int sendSatisfy(String expression) throws IOException{
+		byte[]     bytes  = EvaluationProtocol.encode(expression);
+		int        id     = nextId++;
+		ByteBuffer buffer = writer.begin(5 + 2 + bytes.length);
+		buffer.putInt(id).put((byte)EvaluationProtocol.SATISFY);
+		EvaluationProtocol.putString(buffer, bytes);
+		writer.end();
+		return id;
+	}
+
+	/**
+	 * Writes every buffered request to the server.
+	 * @throws IOException If the requests could not be written.
+	 */
+	public void flush() throws IOException{
+		writer.flush();
+	}
+
+	/**
+	 * Flushes the buffered requests, and waits for the next response. Evaluations are answered in
+	 *  the order they were sent, but satisfiability searches may be answered out of order.
+	 * @return The next Response.
+	 * @throws EOFException If the server closed the connection.
+	 * @throws ProtocolException If the response does not follow the protocol.
+	 * @throws IOException If the connection failed.
+	 */
+	public Response receive() throws IOException{
+		writer.flush();
+		ByteBuffer frame = reader.next();
+		if(frame == null)
+			throw new EOFException("The server closed the connection.");
+		try{
+			int id     = frame.getInt();
+			int status = frame.get();
+			if(status != EvaluationProtocol.OK)
+				return new Response(id, status, false, null, EvaluationProtocol.getString(frame));
+			boolean value = frame.get() != 0;
+			//Only a satisfiable search's response has more to it.
+			HashMap<String, Boolean> assignment = frame.hasRemaining() ? EvaluationProtocol.getAssignment(frame) : null;
+			return new Response(id, status, value, assignment, null);
+		}
+		catch(BufferUnderflowException e){
+			throw new ProtocolException("A response ended too soon.");
+		}
+	}
+
+	/**
+	 * Closes the connection. Requests that were not flushed are not sent.
+	 * @throws IOException If the socket could not be closed.
+	 */
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+
+
+	/**
+	 * The server's answer to one request.
+	 * @author Kenneth Chin
+	 *
+	 */
+	public static final class Response {
+
+		private final int                      id;         //The request's id.
+		private final int                      status;     //One of EvaluationProtocol's statuses.
+		private final boolean                  value;      //The truth value, or satisfiability.
+		private final HashMap<String, Boolean> assignment; //The satisfying assignment, or null.
+		private final String                   message;    //Why the request failed, or null.
+
+		/**
+		 * Creates a Response.
+		 * @param id The request's id.
+		 * @param status One of EvaluationProtocol's statuses.
+		 * @param value The truth value, or satisfiability.
+		 * @param assignment The satisfying assignment, or null.
+		 * @param message Why the request failed, or null.
+		 */
+		private Response(int id, int status, boolean value, HashMap<String, Boolean> assignment, String message){
+			this.id         = id;
+			this.status     = status;
+			this.value      = value;
+			this.assignment = assignment;
+			this.message    = message;
+		}
+
+		/**
+		 * Returns the id of the request answered.
+		 * @return An int. The id returned by the send method.
+		 */
+		public int getId(){
+			return id;
+		}
+
+		/**
+		 * Returns the response's status.
+		 * @return An int. EvaluationProtocol.OK, INVALID, BUSY or MALFORMED.
+		 */
+		public int getStatus(){
+			return status;
+		}
+
+		/**
+		 * Returns the answer to an evaluation or a satisfiability search.
+		 * @return A boolean. The expression's truth value, or true if it is satisfiable. False if the
+		 *  status is not OK.
+		 */
+		public boolean getValue(){
+			return value;
+		}
+
+		/**
+		 * Returns the satisfying assignment found by a search.
+		 * @return A HashMap<String, Boolean> of each variable's value, or null if there is none.
+		 */
+		public HashMap<String, Boolean> getAssignment(){
+			return assignment;
+		}
+
+		/**
+		 * Returns why the request was not answered.
+		 * @return The message String, or null if the status is OK.
+		 */
+		public String getMessage(){
+			return message;
+		}
+
+		/**
+		 * Returns the response as a String.
+		 * @return A String of the id, status and answer or message.
+		 */
+		@Override
+		public String toString(){
+			if(status != EvaluationProtocol.OK)
+				return "Response[id=" + id + ", status=" + status + ", message=" + message + "]";
+			return "Response[id=" + id + ", value=" + value + ((assignment == null) ? "" : ", assignment=" + assignment) + "]";
+		}
+	}
+}
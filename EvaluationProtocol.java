@@ -0,0 +1,359 @@
+package propositionalCalculatorV1_0;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The binary protocol spoken between an EvaluationServer and its EvaluationClients. Every message
+ *  is a frame: a 4 byte length, then that many bytes. All numbers are big-endian, and all strings
+ *  are UTF-8, preceded by their length as an unsigned short.
+ * A request frame holds an int id chosen by the client, a byte operation, and the operation's
+ *  arguments:
+ *  EVALUATE: the expression string, then the assignment: an unsigned short count, and count pairs
+ *            of a name string and a byte value, 1 for true.
+ *  SATISFY:  the expression string.
+ * A response frame holds the id of its request, a byte status, and the status's result:
+ *  OK:        for EVALUATE, a byte value; for SATISFY, a byte that is 1 if the expression is
+ *             satisfiable, followed by a satisfying assignment if it is.
+ *  INVALID, BUSY, MALFORMED: a message string.
+ * A client may send any number of requests without waiting for their responses. Evaluations are
+ *  answered in the order they were sent, but a satisfiability search is answered when it is done,
+ *  so responses are matched to requests by id. A frame longer than MAX_FRAME_BYTES ends the
+ *  connection.
+ * This class is singleton, and holds the protocol's constants, its encoding methods, and the
+ *  FrameReader and FrameWriter classes.
+ * @author Kenneth Chin
+ *
+ */
+public final class EvaluationProtocol {
+
+	//Operations.
+	public static final int EVALUATE  = 1;
+	public static final int SATISFY   = 2;
+
+	//Statuses.
+	public static final int OK        = 0; //The request was answered.
+	public static final int INVALID   = 1; //The expression or assignment is bad.
+	public static final int BUSY      = 2; //Too many satisfiability searches are running; try again later.
+	public static final int MALFORMED = 3; //The frame did not follow the protocol.
+
+	public static final int MAX_FRAME_BYTES = 1 << 20;
+
+	//The initial size of a FrameReader's or FrameWriter's buffer.
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private EvaluationProtocol(){}
+
+	/**
+	 * Returns a ThreadFactory of virtual threads if the running JDK has them (JDK 21 or later), or
+	 *  of daemon platform threads if it does not. Virtual threads are found by reflection, so the
+	 *  program still compiles and runs on JDK 17.
+	 * @param name The prefix of the threads' names.
+	 * @return A ThreadFactory.
+	 */
+	static ThreadFactory newThreadFactory(final String name){
+		try{
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object   builder      = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+		}
+		catch(ReflectiveOperationException | RuntimeException e){
+			//No virtual threads, or they are a preview feature that is not enabled.
+			return new ThreadFactory(){
+				private final AtomicInteger threads = new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable task){
+					Thread thread = new Thread(task, name + "-" + threads.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Determines if a ThreadFactory from newThreadFactory(String) makes virtual threads.
+	 * @param factory The ThreadFactory.
+	 * @return A boolean. True if the threads are virtual.
+	 */
+	static boolean isVirtual(ThreadFactory factory){
+		try{
+			Thread thread = factory.newThread(new Runnable(){
+				@Override
+				public void run(){}
+			});
+			return (Boolean)Thread.class.getMethod("isVirtual").invoke(thread);
+		}
+		catch(ReflectiveOperationException e){
+			return false;
+		}
+	}
+
+
+	//Encoding.
+
+	/**
+	 * Returns the UTF-8 bytes of a string, checking that their length fits an unsigned short.
+	 * @param string The String.
+	 * @return A byte[] of the string's UTF-8 encoding.
+	 * @throws IllegalArgumentException If the encoding is longer than 65535 bytes.
+	 */
+	static byte[] encode(String string){
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		if(bytes.length > 0xFFFF)
+			throw new IllegalArgumentException("A string of " + bytes.length + " bytes is too long to send.");
+		return bytes;
+	}
+
+	/**
+	 * Writes a string that was encoded with encode(String).
+	 * @param buffer The ByteBuffer to write to.
+	 * @param bytes The string's UTF-8 bytes.
+	 */
+	static void putString(ByteBuffer buffer, byte[] bytes){
+		buffer.putShort((short)bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Reads a string.
+	 * @param buffer The ByteBuffer to read from.
+	 * @return The String.
+	 * @throws java.nio.BufferUnderflowException If the buffer ends before the string does.
+	 */
+	static String getString(ByteBuffer buffer){
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of bytes an assignment takes up in a frame.
+	 * @param names The variables' names, each encoded with encode(String).
+	 * @return An int. The length of the encoded assignment.
+	 */
+	static int assignmentLength(byte[][] names){
+		int length = 2;
+		for(byte[] name:names)
+			length += 2 + name.length + 1;
+		return length;
+	}
+
+	/**
+	 * Writes an assignment.
+	 * @param buffer The ByteBuffer to write to.
+	 * @param names The variables' names, each encoded with encode(String).
+	 * @param values The variables' values.
+	 */
+	static void putAssignment(ByteBuffer buffer, byte[][] names, boolean[] values){
+		buffer.putShort((short)names.length);
+		for(int i=0; i<names.length; i++){
+			putString(buffer, names[i]);
+			buffer.put(values[i] ? (byte)1 : (byte)0);
+		}
+	}
+
+	/**
+	 * Splits a map of values into the encoded names and the values that putAssignment writes.
+	 * @param values A Map<String, Boolean> of each variable's value.
+	 * @param names The array to fill with the encoded names.
+	 * @param bits The array to fill with the values.
+	 * @throws IllegalArgumentException If a name is longer than 65535 bytes.
+	 */
+	static void split(Map<String, Boolean> values, byte[][] names, boolean[] bits){
+		int i = 0;
+		for(Map.Entry<String, Boolean> entry:values.entrySet()){
+			names[i] = encode(entry.getKey());
+			bits[i]  = entry.getValue();
+			i++;
+		}
+	}
+
+	/**
+	 * Reads an assignment into a map.
+	 * @param buffer The ByteBuffer to read from.
+	 * @return A new HashMap<String, Boolean> of each variable's value.
+	 * @throws java.nio.BufferUnderflowException If the buffer ends before the assignment does.
+	 */
+	static HashMap<String, Boolean> getAssignment(ByteBuffer buffer){
+		int                      count  = buffer.getShort() & 0xFFFF;
+		HashMap<String, Boolean> values = new HashMap<String, Boolean>(2 * count);
+		for(int i=0; i<count; i++)
+			values.put(getString(buffer), buffer.get() != 0);
+		return values;
+	}
+
+	/**
+	 * Reads an assignment for the variables of a SymbolTable. Names that are not in the table are
+	 *  ignored.
+	 * @param buffer The ByteBuffer to read from.
+	 * @param symbols The SymbolTable of the expression the assignment is for.
+	 * @return A new Assignment over symbols.
+	 * @throws IllegalArgumentException If a variable of symbols is not given a value.
+	 * @throws java.nio.BufferUnderflowException If the buffer ends before the assignment does.
+	 */
+	static Assignment getAssignment(ByteBuffer buffer, SymbolTable symbols){
+		Assignment assignment = new Assignment(symbols);
+		boolean[]  assigned   = new boolean[symbols.size()];
+		int        remaining  = symbols.size();
+		int        count      = buffer.getShort() & 0xFFFF;
+		for(int i=0; i<count; i++){
+			String  name  = getString(buffer);
+			boolean value = buffer.get() != 0;
+			int     index = symbols.indexOf(name);
+			if(index >= 0){
+				assignment.set(index, value);
+				if(!assigned[index]){
+					assigned[index] = true;
+					remaining--;
+				}
+			}
+		}
+		if(remaining > 0){
+			for(int i=0; i<assigned.length; i++){
+				if(!assigned[i])
+					throw new IllegalArgumentException("The variable \"" + symbols.getName(i) + "\" was not given a value.");
+			}
+		}
+		return assignment;
+	}
+
+
+	/**
+	 * Reads frames from a channel through a buffer that grows to hold the longest frame read.
+	 * @author Kenneth Chin
+	 *
+	 */
+	static final class FrameReader {
+
+		private final ReadableByteChannel channel; //The channel read from.
+		private ByteBuffer                buffer;  //The bytes read but not yet returned, between position and limit.
+
+		/**
+		 * Creates a FrameReader.
+		 * @param channel The ReadableByteChannel to read from, in blocking mode.
+		 */
+		FrameReader(ReadableByteChannel channel){
+			this.channel = channel;
+			this.buffer  = ByteBuffer.allocate(BUFFER_BYTES);
+			buffer.flip();
+		}
+
+		/**
+		 * Returns the next frame, reading from the channel if it is not already buffered.
+		 * @return A ByteBuffer of the frame's bytes, without its length, which is only valid until
+		 *  the next call; or null if the channel ended between frames.
+		 * @throws ProtocolException If a frame's length is negative or more than MAX_FRAME_BYTES.
+		 * @throws EOFException If the channel ended within a frame.
+		 * @throws IOException If the channel could not be read.
+		 */
+		ByteBuffer next() throws IOException{
+			while(true){
+				if(buffer.remaining() >= 4){
+					int length = buffer.getInt(buffer.position());
+					if(length < 0 || length > MAX_FRAME_BYTES)
+						throw new ProtocolException("A frame of " + length + " bytes is not allowed.");
+					if(buffer.remaining() >= 4 + length){
+						ByteBuffer frame = buffer.slice(buffer.position() + 4, length);
+						buffer.position(buffer.position() + 4 + length);
+						return frame;
+					}
+					if(buffer.capacity() < 4 + length){
+						ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), 4 + length));
+						larger.put(buffer);
+						larger.flip();
+						buffer = larger;
+					}
+				}
+				buffer.compact();
+				int read = channel.read(buffer);
+				buffer.flip();
+				if(read < 0){
+					if(buffer.hasRemaining())
+						throw new EOFException("The connection ended within a frame.");
+					return null;
+				}
+			}
+		}
+
+		/**
+		 * Determines if bytes of another frame have already been read.
+		 * @return A boolean. True if next() may return without reading from the channel.
+		 */
+		boolean hasBuffered(){
+			return buffer.hasRemaining();
+		}
+	}
+
+	/**
+	 * Collects frames in a buffer, and writes them to a channel when flushed. A FrameWriter is not
+	 *  thread safe; threads that share one synchronize on it.
+	 * @author Kenneth Chin
+	 *
+	 */
+	static final class FrameWriter {
+
+		private final WritableByteChannel channel;    //The channel written to.
+		private ByteBuffer                buffer;     //The frames not yet written.
+		private int                       frameStart; //The position of the length of the frame being built.
+
+		/**
+		 * Creates a FrameWriter.
+		 * @param channel The WritableByteChannel to write to, in blocking mode.
+		 */
+		FrameWriter(WritableByteChannel channel){
+			this.channel = channel;
+			this.buffer  = ByteBuffer.allocate(BUFFER_BYTES);
+		}
+
+		/**
+		 * Starts a frame, flushing the frames before it if there is not room for it.
+		 * @param length The length of the frame's bytes, without its length.
+		 * @return The ByteBuffer to put exactly length bytes into.
+		 * @throws IOException If the buffered frames could not be written.
+		 */
+		ByteBuffer begin(int length) throws IOException{
+			if(buffer.remaining() < 4 + length){
+				flush();
+				if(buffer.capacity() < 4 + length)
+					buffer = ByteBuffer.allocate(4 + length);
+			}
+			frameStart = buffer.position();
+			buffer.putInt(length);
+			return buffer;
+		}
+
+		/**
+		 * Ends the frame started by begin(int).
+		 * @throws IllegalStateException If the frame's bytes are not the length given to begin(int).
+		 */
+		void end(){
+			if(buffer.position() - frameStart - 4 != buffer.getInt(frameStart))
+				throw new IllegalStateException("A frame's length does not match its bytes.");
+		}
+
+		/**
+		 * Writes every buffered frame to the channel.
+		 * @throws IOException If the channel could not be written.
+		 */
+		void flush() throws IOException{
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+}
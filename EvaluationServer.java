@@ -0,0 +1,394 @@
+package propositionalCalculatorV1_0;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A server that evaluates expressions and searches for satisfying assignments for clients
+ *  connected over a local TCP or Unix domain socket, speaking the EvaluationProtocol. Every
+ *  connection shares the server's ExpressionCache, so an expression sent by many clients is
+ *  parsed and compiled once.
+ * Each connection is served by its own thread, which is virtual on JDKs that have virtual threads
+ *  and a daemon platform thread otherwise. The thread reads requests as fast as the client sends
+ *  them: evaluations are answered at once, and their responses are written together when no more
+ *  requests are waiting to be read. A satisfiability search is handed to a thread of its own, so
+ *  a slow search does not hold up the requests behind it.
+ * The server is protected from overload in two ways:
+ *  - At most satisfiabilityLimit searches run at once, across all connections. A search requested
+ *    while that many are running is answered with BUSY at once, rather than queued, so the client
+ *    decides whether to try again.
+ *  - A connection's thread only reads a request once it has answered or handed off the one before,
+ *    and responses are buffered only until the FrameWriter's buffer is full. A client that sends
+ *    faster than it is served, or does not read its responses, fills the socket's buffers and is
+ *    slowed down by the socket itself.
+ * @author Kenneth Chin
+ *
+ */
+public final class EvaluationServer implements Closeable {
+
+	private final ServerSocketChannel server;         //The listening socket.
+	private final SocketAddress       address;        //The address listened on.
+	private final ExpressionCache     cache;          //The expressions parsed so far.
+	private final Semaphore           searches;       //A permit for each satisfiability search that may run.
+	private final ThreadFactory       threads;        //Makes the connection and search threads.
+	private final boolean             virtual;        //Are the threads virtual?
+	private final Executor            searchExecutor; //Runs satisfiability searches.
+	private final Set<Connection>     connections;    //The open connections.
+	private final Thread              acceptor;       //Accepts connections.
+	private volatile boolean          closed;         //Has close() been called?
+
+	/**
+	 * Creates a server listening on a bound socket. Use start(SocketAddress, ExpressionCache, int).
+	 * @param server The bound ServerSocketChannel.
+	 * @param cache The ExpressionCache shared by all connections.
+	 * @param satisfiabilityLimit The most satisfiability searches run at once.
+	 * @throws IOException If the bound address could not be read.
+	 */
+	private EvaluationServer(ServerSocketChannel server, ExpressionCache cache, int satisfiabilityLimit) throws IOException{
+		this.server      = server;
+		this.address     = server.getLocalAddress();
+		this.cache       = cache;
+		this.searches    = new Semaphore(satisfiabilityLimit);
+		this.threads     = EvaluationProtocol.newThreadFactory("evaluation-server");
+		this.virtual     = EvaluationProtocol.isVirtual(threads);
+		this.connections = ConcurrentHashMap.newKeySet();
+		//Virtual threads are cheap enough to start one per search; platform threads are pooled.
+		if(virtual){
+			this.searchExecutor = new Executor(){
+				@Override
+				public void execute(Runnable task){
+					threads.newThread(task).start();
+				}
+			};
+		}
+		else
+			this.searchExecutor = Executors.newFixedThreadPool(satisfiabilityLimit, threads);
+		this.acceptor = threads.newThread(new Runnable(){
+			@Override
+			public void run(){
+				accept();
+			}
+		});
+	}
+
+	/**
+	 * Starts a server.
+	 * @param address The address to listen on: an InetSocketAddress (port 0 picks a free port), or
+	 *  a UnixDomainSocketAddress whose file does not exist yet.
+	 * @param cache The ExpressionCache shared by all connections.
+	 * @param satisfiabilityLimit The most satisfiability searches run at once.
+	 * @return A new, running EvaluationServer.
+	 * @throws IOException If the socket could not be opened or bound.
+	 * @throws IllegalArgumentException If satisfiabilityLimit is less than 1.
+	 */
+	public static EvaluationServer start(SocketAddress address, ExpressionCache cache, int satisfiabilityLimit) throws IOException{
+		if(satisfiabilityLimit < 1)
+			throw new IllegalArgumentException("At least one satisfiability search must be allowed.");
+		ServerSocketChannel server = (address instanceof UnixDomainSocketAddress)
+		                             ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+		                             : ServerSocketChannel.open();
+		try{
+			server.bind(address);
+			EvaluationServer evaluationServer = new EvaluationServer(server, cache, satisfiabilityLimit);
+			evaluationServer.acceptor.start();
+			return evaluationServer;
+		}
+		catch(IOException | RuntimeException e){
+			server.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the address the server listens on.
+	 * @return The SocketAddress, with the port that was picked if port 0 was asked for.
+	 */
+	public SocketAddress getAddress(){
+		return address;
+	}
+
+	/**
+	 * Determines if the server's connections and searches run on virtual threads.
+	 * @return A boolean. True on JDKs with virtual threads.
+	 */
+	public boolean isVirtual(){
+		return virtual;
+	}
+
+	/**
+	 * Waits until the server is closed.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	public void awaitClose() throws InterruptedException{
+		acceptor.join();
+	}
+
+	/**
+	 * Stops listening, and closes every connection. Searches that are running finish, but their
+	 *  responses are not sent. A Unix domain socket's file is deleted.
+	 * @throws IOException If the listening socket could not be closed.
+	 */
+	@Override
+	public void close() throws IOException{
+		closed = true;
+		server.close();
+		for(Connection connection:connections)
+			connection.close();
+		if(searchExecutor instanceof ExecutorService)
+			((ExecutorService)searchExecutor).shutdown();
+		if(address instanceof UnixDomainSocketAddress)
+			Files.deleteIfExists(((UnixDomainSocketAddress)address).getPath());
+	}
+
+	/**
+	 * Accepts connections until the server is closed, starting a thread for each one.
+	 */
+	private void accept(){
+		while(!closed){
+			try{
+				Connection connection = new Connection(server.accept());
+				connections.add(connection);
+				//A connection accepted while closing would be missed by close().
+				if(closed){
+					connection.close();
+					break;
+				}
+				threads.newThread(connection).start();
+			}
+			catch(IOException e){
+				//The server was closed, or a connection could not be accepted.
+				if(closed || !server.isOpen())
+					break;
+			}
+		}
+	}
+
+
+	/**
+	 * One client's connection: its socket, the thread that reads its requests, and the responses
+	 *  waiting to be written.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private final class Connection implements Runnable {
+
+		private final SocketChannel                  channel;  //The client's socket.
+		private final EvaluationProtocol.FrameReader reader;   //Reads requests.
+		private final EvaluationProtocol.FrameWriter writer;   //Buffers responses. Locked while used.
+
+		/**
+		 * Creates a Connection.
+		 * @param channel The accepted SocketChannel.
+		 */
+		private Connection(SocketChannel channel){
+			this.channel = channel;
+			this.reader  = new EvaluationProtocol.FrameReader(channel);
+			this.writer  = new EvaluationProtocol.FrameWriter(channel);
+		}
+
+		/**
+		 * Reads and answers requests until the client closes the connection, breaks the protocol,
+		 *  or the server is closed.
+		 */
+		@Override
+		public void run(){
+			try{
+				ByteBuffer frame;
+				while((frame = reader.next()) != null){
+					handle(frame);
+					//Responses are written together once the client's pipelined requests are read.
+					if(!reader.hasBuffered()){
+						synchronized(writer){
+							writer.flush();
+						}
+					}
+				}
+			}
+			catch(ProtocolException e){
+				try{
+					respond(0, EvaluationProtocol.MALFORMED, e.getMessage(), true);
+				}
+				catch(IOException ignored){
+					//The connection is being closed anyway.
+				}
+			}
+			catch(IOException e){
+				//The client went away, or the server is being closed.
+			}
+			finally{
+				close();
+			}
+		}
+
+		/**
+		 * Answers one request, or hands it to a search thread.
+		 * @param frame The ByteBuffer of the request frame.
+		 * @throws IOException If a response could not be written.
+		 */
+		private void handle(ByteBuffer frame) throws IOException{
+			int id = 0;
+			try{
+				id = frame.getInt();
+				int    operation  = frame.get();
+				String expression = EvaluationProtocol.getString(frame);
+				switch(operation){
+					case EvaluationProtocol.EVALUATE :
+						PropositionalExpression parsed = cache.get(expression);
+						boolean value = parsed.evaluate(EvaluationProtocol.getAssignment(frame, parsed.getSymbolTable()));
+						respond(id, value);
+						break;
+					case EvaluationProtocol.SATISFY :
+						if(!searches.tryAcquire()){
+							respond(id, EvaluationProtocol.BUSY, "Too many satisfiability searches are running.", false);
+							break;
+						}
+						try{
+							search(id, cache.get(expression));
+						}
+						catch(RuntimeException e){
+							searches.release();
+							throw e;
+						}
+						break;
+					default :
+						respond(id, EvaluationProtocol.MALFORMED, "Unknown operation " + operation + ".", false);
+				}
+			}
+			catch(BufferUnderflowException e){
+				respond(id, EvaluationProtocol.MALFORMED, "The request ended too soon.", false);
+			}
+			catch(IllegalArgumentException e){
+				respond(id, EvaluationProtocol.INVALID, e.getMessage(), false);
+			}
+			catch(RuntimeException e){
+				//One bad request must not end the connection.
+				respond(id, EvaluationProtocol.INVALID, "The request could not be answered: " + e, false);
+			}
+		}
+
+		/**
+		 * Searches for a satisfying assignment on a search thread, which gives back its permit as
+		 *  soon as the search is done, then answers the request. A search that fails is answered
+		 *  with INVALID, as handle(ByteBuffer) answers a request that fails.
+		 * @param id The request's id.
+		 * @param parsed The PropositionalExpression to search.
+		 */
+		private void search(final int id, final PropositionalExpression parsed){
+			searchExecutor.execute(new Runnable(){
+				@Override
+				public void run(){
+					Assignment       assignment = null;
+					RuntimeException failure    = null;
+					try{
+						assignment = parsed.findSatisfyingAssignment();
+					}
+					catch(RuntimeException e){
+						failure = e;
+					}
+					finally{
+						//A client that is slow to read its responses must not hold a permit.
+						searches.release();
+					}
+					try{
+						if(failure instanceof IllegalArgumentException)
+							respond(id, EvaluationProtocol.INVALID, failure.getMessage(), true);
+						else if(failure != null)
+							respond(id, EvaluationProtocol.INVALID, "The request could not be answered: " + failure, true);
+						else
+							respond(id, assignment);
+					}
+					catch(IOException e){
+						close();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Answers an evaluation. The response is written with the next flush.
+		 * @param id The request's id.
+		 * @param value The expression's truth value.
+		 * @throws IOException If buffered responses could not be written to make room.
+		 */
+		private void respond(int id, boolean value) throws IOException{
+			synchronized(writer){
+				ByteBuffer buffer = writer.begin(6);
+				buffer.putInt(id).put((byte)EvaluationProtocol.OK).put(value ? (byte)1 : (byte)0);
+				writer.end();
+			}
+		}
+
+		/**
+		 * Answers a satisfiability search, and writes the response at once.
+		 * @param id The request's id.
+		 * @param assignment A satisfying Assignment, or null if the expression is unsatisfiable.
+		 * @throws IOException If the response could not be written.
+		 */
+		private void respond(int id, Assignment assignment) throws IOException{
+			byte[][]  names  = new byte[(assignment == null) ? 0 : assignment.getVariableCount()][];
+			boolean[] values = new boolean[names.length];
+			for(int i=0; i<names.length; i++){
+				names[i]  = EvaluationProtocol.encode(assignment.getSymbolTable().getName(i));
+				values[i] = assignment.get(i);
+			}
+			synchronized(writer){
+				int        length = 6 + ((assignment == null) ? 0 : EvaluationProtocol.assignmentLength(names));
+				ByteBuffer buffer = writer.begin(length);
+				buffer.putInt(id).put((byte)EvaluationProtocol.OK).put((assignment == null) ? (byte)0 : (byte)1);
+				if(assignment != null)
+					EvaluationProtocol.putAssignment(buffer, names, values);
+				writer.end();
+				writer.flush();
+			}
+		}
+
+		/**
+		 * Answers a request with a status other than OK.
+		 * @param id The request's id.
+		 * @param status INVALID, BUSY or MALFORMED.
+		 * @param message Why the request was not answered.
+		 * @param flush True to write the response at once.
+		 * @throws IOException If the response could not be written.
+		 */
+		private void respond(int id, int status, String message, boolean flush) throws IOException{
+			byte[] bytes = EvaluationProtocol.encode(String.valueOf(message));
+			synchronized(writer){
+				ByteBuffer buffer = writer.begin(5 + 2 + bytes.length);
+				buffer.putInt(id).put((byte)status);
+				EvaluationProtocol.putString(buffer, bytes);
+				writer.end();
+				if(flush)
+					writer.flush();
+			}
+		}
+
+		/**
+		 * Closes the connection's socket, which ends its thread.
+		 */
+		private void close(){
+			connections.remove(this);
+			try{
+				channel.close();
+			}
+			catch(IOException e){
+				//Nothing more can be done with the socket.
+			}
+		}
+	}
+}
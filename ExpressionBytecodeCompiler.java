@@ -0,0 +1,420 @@
+package propositionalCalculatorV1_0;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * This class compiles a CompiledExpression into JVM bytecode: a hidden class implementing
+ *  LongPredicate, whose test(long) method evaluates the expression for a row of its truth table
+ *  (bit i of the row is the variable in slot i). The generated code has no loop, no array and
+ *  no branch; each variable is a shift and a mask of the row, and each conditional a single int
+ *  operation, so the JIT can compile the whole expression into register operations.
+ * HotSpot does not JIT methods longer than 8000 bytes of bytecode, so large expressions are split:
+ *  sub-expressions are moved into static helper methods of the same class until every method is
+ *  small enough to be compiled.
+ * The class file is written directly, without a bytecode library. Because the code never
+ *  branches, its methods need no stack map frames.
+ * This class is singleton, and it's only public method is compile(CompiledExpression).
+ * @author Kenneth Chin
+ *
+ */
+public final class ExpressionBytecodeCompiler {
+
+	//Bytecode sizes of the parts of a method.
+	private static final int PUSH_BYTES   = 7;    //lload, bipush, lushr, l2i, iconst_1, iand
+	private static final int CALL_BYTES   = 4;    //lload, invokestatic
+	private static final int METHOD_LIMIT = 3000; //The most bytes a method may have before a part of it is moved out.
+
+	//Opcodes of the JVM instruction set.
+	private static final int ICONST_1      = 0x04;
+	private static final int BIPUSH        = 0x10;
+	private static final int ALOAD_0       = 0x2a;
+	private static final int LLOAD_0       = 0x1e;
+	private static final int LLOAD_1       = 0x1f;
+	private static final int SWAP          = 0x5f;
+	private static final int IAND          = 0x7e;
+	private static final int IOR           = 0x80;
+	private static final int IXOR          = 0x82;
+	private static final int LUSHR         = 0x7d;
+	private static final int L2I           = 0x88;
+	private static final int IRETURN       = 0xac;
+	private static final int RETURN        = 0xb1;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC  = 0xb8;
+
+	//The binary name of every generated class. Hidden classes are given a unique suffix.
+	private static final String CLASS_NAME = "propositionalCalculatorV1_0/GeneratedPredicate";
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private ExpressionBytecodeCompiler(){}
+
+	/**
+	 * Compiles an expression into a hidden class.
+	 * @param compiled The CompiledExpression to compile.
+	 * @return A LongPredicate whose test(long) returns the same truth value as compiled.evaluate(long).
+	 * @throws IllegalArgumentException If the expression has more than 64 variables.
+	 * @throws IllegalStateException If the generated class could not be defined.
+	 */
+	public static LongPredicate compile(CompiledExpression compiled){
+		if(compiled.getVariableCount() > 64)
+			throw new IllegalArgumentException("Cannot compile an expression of " + compiled.getVariableCount() + " variables into a LongPredicate.");
+		byte[] bytes = new ClassWriter(compiled).write();
+		try{
+			MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			return (LongPredicate)hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+		}
+		catch(Throwable e){
+			throw new IllegalStateException("The generated class could not be defined.", e);
+		}
+	}
+
+
+	/**
+	 * Writes the class file of one expression.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class ClassWriter {
+
+		private final int[]                                code;     //The postfix program.
+		private final ArrayList<Integer>                   methods;  //The last instruction of each moved-out sub-expression, by method number.
+		private final HashMap<Integer, Integer>            numberOf; //The method number of each moved-out sub-expression, by its last instruction.
+		private final HashMap<Integer, Integer>            startOf;  //The first instruction of each moved-out sub-expression, by its last.
+		private final HashMap<Integer, ArrayList<Integer>> byStart;  //The last instructions of the moved-out sub-expressions starting at an index.
+		private final HashMap<Integer, Integer>            calls;    //The method constant of each method number.
+
+		//The constant pool.
+		private final ByteArrayOutputStream    pool      = new ByteArrayOutputStream();
+		private final DataOutputStream         poolOut   = new DataOutputStream(pool);
+		private final HashMap<String, Integer> utf8s     = new HashMap<String, Integer>();
+		private int                            poolCount = 1;
+
+		/**
+		 * Prepares the class file of an expression, deciding which sub-expressions to move out.
+		 * @param compiled The CompiledExpression.
+		 */
+		private ClassWriter(CompiledExpression compiled){
+			this.code     = compiled.getCode();
+			this.methods  = new ArrayList<Integer>();
+			this.numberOf = new HashMap<Integer, Integer>();
+			this.startOf  = new HashMap<Integer, Integer>();
+			this.byStart  = new HashMap<Integer, ArrayList<Integer>>();
+			this.calls    = new HashMap<Integer, Integer>();
+
+			//Walk the program as the evaluator would, keeping the start, end and bytecode size of
+			// each value on the stack. A value that grows too large moves its largest operands out.
+			int[] stackStart = new int[Math.max(1, compiled.getMaxStackDepth())];
+			int[] stackEnd   = new int[stackStart.length];
+			int[] stackSize  = new int[stackStart.length];
+			int   top        = -1;
+			for(int i=0; i<code.length; i++){
+				switch(CompiledExpression.opcode(code[i])){
+					case CompiledExpression.PUSH     :
+					case CompiledExpression.PUSH_NOT :
+						top++;
+						stackStart[top] = i;
+						stackEnd[top]   = i;
+						stackSize[top]  = PUSH_BYTES + 2;
+						break;
+					case CompiledExpression.NOT :
+						stackEnd[top]   = i;
+						stackSize[top] += 2;
+						break;
+					default :
+						top--;
+						int first  = top;
+						int second = top + 1;
+						int size   = stackSize[first] + stackSize[second] + 4;
+						while(size > METHOD_LIMIT){
+							int larger = (stackSize[first] >= stackSize[second]) ? first : second;
+							outline(stackStart[larger], stackEnd[larger]);
+							size              = size - stackSize[larger] + CALL_BYTES;
+							stackSize[larger] = CALL_BYTES;
+						}
+						stackEnd[top]  = i;
+						stackSize[top] = size;
+				}
+			}
+		}
+
+		/**
+		 * Moves a sub-expression into a method of its own.
+		 * @param start The index of its first instruction.
+		 * @param end The index of its last instruction.
+		 */
+		private void outline(int start, int end){
+			startOf.put(end, start);
+			numberOf.put(end, methods.size());
+			methods.add(end);
+			ArrayList<Integer> ends = byStart.get(start);
+			if(ends == null){
+				ends = new ArrayList<Integer>();
+				byStart.put(start, ends);
+			}
+			ends.add(end);
+		}
+
+		/**
+		 * Finds the largest moved-out sub-expression that starts at an index and lies strictly
+		 *  inside the sub-expression being written.
+		 * @param start The index the sub-expression starts at.
+		 * @param end The last instruction of the sub-expression being written.
+		 * @return The index of the moved-out sub-expression's last instruction, or -1 if there is none.
+		 */
+		private int outlinedAt(int start, int end){
+			ArrayList<Integer> ends = byStart.get(start);
+			int best = -1;
+			if(ends != null){
+				for(int candidate:ends){
+					if(candidate < end && candidate > best)
+						best = candidate;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Writes the class file.
+		 * @return The class file's bytes.
+		 */
+		private byte[] write(){
+			try{
+				int thisClass   = classConstant(CLASS_NAME);
+				int objectClass = classConstant("java/lang/Object");
+				int predicate   = classConstant("java/util/function/LongPredicate");
+				int init        = utf8("<init>");
+				int voidType    = utf8("()V");
+				int codeName    = utf8("Code");
+				int objectInit  = memberConstant(10, objectClass, init, voidType);
+
+				//Write the methods first, since they add to the constant pool.
+				ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+				DataOutputStream      methodOut   = new DataOutputStream(methodBytes);
+				ByteArrayOutputStream body        = new ByteArrayOutputStream();
+				body.write(ALOAD_0);
+				body.write(INVOKESPECIAL);
+				body.write(objectInit >>> 8);
+				body.write(objectInit);
+				body.write(RETURN);
+				writeMethod(methodOut, 0x0001, init, voidType, codeName, body.toByteArray(), 1, 1);
+				for(int m=0; m<methods.size(); m++){
+					int end = methods.get(m);
+					body = new ByteArrayOutputStream();
+					int maxStack = writeBody(body, thisClass, LLOAD_0, startOf.get(end), end);
+					body.write(IRETURN);
+					writeMethod(methodOut, 0x000A, utf8("m" + m), utf8("(J)I"), codeName, body.toByteArray(), maxStack, 2);
+				}
+				body = new ByteArrayOutputStream();
+				int maxStack = writeBody(body, thisClass, LLOAD_1, 0, code.length - 1);
+				body.write(IRETURN);
+				writeMethod(methodOut, 0x0001, utf8("test"), utf8("(J)Z"), codeName, body.toByteArray(), maxStack, 3);
+
+				ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+				DataOutputStream      out        = new DataOutputStream(classBytes);
+				out.writeInt(0xCAFEBABE);
+				out.writeShort(0);
+				out.writeShort(61);
+				out.writeShort(poolCount);
+				out.write(pool.toByteArray());
+				out.writeShort(0x0031); //public final super
+				out.writeShort(thisClass);
+				out.writeShort(objectClass);
+				out.writeShort(1);
+				out.writeShort(predicate);
+				out.writeShort(0);
+				out.writeShort(methods.size() + 2);
+				out.write(methodBytes.toByteArray());
+				out.writeShort(0);
+				return classBytes.toByteArray();
+			}
+			catch(IOException e){
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Writes the bytecode that leaves the int value of a sub-expression on the stack.
+		 * @param body The stream to write to.
+		 * @param thisClass The constant of the generated class.
+		 * @param loadRow The instruction that loads the row: lload_1 in test(long), and lload_0 in
+		 *  the static helper methods.
+		 * @param start The index of the sub-expression's first instruction.
+		 * @param end The index of its last instruction.
+		 * @return The most stack slots the bytecode uses.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private int writeBody(ByteArrayOutputStream body, int thisClass, int loadRow, int start, int end) throws IOException{
+			int depth    = 0;
+			int maxStack = 1;
+			for(int i=start; i<=end; i++){
+				//A moved-out sub-expression inside this one is a call.
+				int inner = outlinedAt(i, end);
+				if(inner != -1){
+					int method = methodConstant(thisClass, numberOf.get(inner));
+					body.write(loadRow);
+					body.write(INVOKESTATIC);
+					body.write(method >>> 8);
+					body.write(method);
+					maxStack = Math.max(maxStack, depth + 2);
+					depth++;
+					i = inner;
+					continue;
+				}
+				int instruction = code[i];
+				switch(CompiledExpression.opcode(instruction)){
+					case CompiledExpression.PUSH     :
+					case CompiledExpression.PUSH_NOT :
+						body.write(loadRow);
+						body.write(BIPUSH);
+						body.write(CompiledExpression.operand(instruction));
+						body.write(LUSHR);
+						body.write(L2I);
+						body.write(ICONST_1);
+						body.write(IAND);
+						if(CompiledExpression.opcode(instruction) == CompiledExpression.PUSH_NOT){
+							body.write(ICONST_1);
+							body.write(IXOR);
+						}
+						maxStack = Math.max(maxStack, depth + 3);
+						depth++;
+						break;
+					case CompiledExpression.NOT :
+						body.write(ICONST_1);
+						body.write(IXOR);
+						maxStack = Math.max(maxStack, depth + 1);
+						break;
+					case CompiledExpression.AND        : body.write(IAND); depth--; break;
+					case CompiledExpression.OR         : body.write(IOR);  depth--; break;
+					case CompiledExpression.XOR        : body.write(IXOR); depth--; break;
+					case CompiledExpression.EQUIVALENT :
+						body.write(IXOR);
+						body.write(ICONST_1);
+						body.write(IXOR);
+						depth--;
+						break;
+					//below > top is !below | top.
+					case CompiledExpression.IMPLIES :
+						body.write(SWAP);
+						body.write(ICONST_1);
+						body.write(IXOR);
+						body.write(IOR);
+						maxStack = Math.max(maxStack, depth + 1);
+						depth--;
+						break;
+					//top > below is below | !top.
+					case CompiledExpression.REV_IMPLIES :
+						body.write(ICONST_1);
+						body.write(IXOR);
+						body.write(IOR);
+						maxStack = Math.max(maxStack, depth + 1);
+						depth--;
+						break;
+					default : throw new IllegalStateException("Unknown opcode " + CompiledExpression.opcode(instruction) + ".");
+				}
+			}
+			return maxStack;
+		}
+
+		/**
+		 * Returns the constant of a moved-out method, adding it to the pool if needed.
+		 * @param thisClass The constant of the generated class.
+		 * @param number The method's number.
+		 * @return The constant's index.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private int methodConstant(int thisClass, int number) throws IOException{
+			Integer index = calls.get(number);
+			if(index == null){
+				index = memberConstant(10, thisClass, utf8("m" + number), utf8("(J)I"));
+				calls.put(number, index);
+			}
+			return index;
+		}
+
+		/**
+		 * Writes a method with a Code attribute.
+		 * @param out The stream of methods.
+		 * @param access The method's access flags.
+		 * @param name The constant of its name.
+		 * @param descriptor The constant of its descriptor.
+		 * @param codeName The constant of "Code".
+		 * @param body The method's bytecode.
+		 * @param maxStack The most stack slots the bytecode uses.
+		 * @param maxLocals The number of local variable slots.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeName,
+		                                byte[] body, int maxStack, int maxLocals) throws IOException{
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1);
+			out.writeShort(codeName);
+			out.writeInt(12 + body.length);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(body.length);
+			out.write(body);
+			out.writeShort(0);
+			out.writeShort(0);
+		}
+
+		/**
+		 * Returns the constant of a UTF-8 string, adding it to the pool if needed.
+		 * @param value The string.
+		 * @return The constant's index.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private int utf8(String value) throws IOException{
+			Integer index = utf8s.get(value);
+			if(index == null){
+				poolOut.writeByte(1);
+				poolOut.writeUTF(value);
+				index = poolCount++;
+				utf8s.put(value, index);
+			}
+			return index;
+		}
+
+		/**
+		 * Adds the constant of a class to the pool.
+		 * @param name The class's internal name.
+		 * @return The constant's index.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private int classConstant(String name) throws IOException{
+			int nameIndex = utf8(name);
+			poolOut.writeByte(7);
+			poolOut.writeShort(nameIndex);
+			return poolCount++;
+		}
+
+		/**
+		 * Adds the constant of a method to the pool, with its name and type.
+		 * @param tag The constant's tag (10 for a method of a class).
+		 * @param owner The constant of the method's class.
+		 * @param name The constant of its name.
+		 * @param descriptor The constant of its descriptor.
+		 * @return The constant's index.
+		 * @throws IOException Never, since the stream is in memory.
+		 */
+		private int memberConstant(int tag, int owner, int name, int descriptor) throws IOException{
+			poolOut.writeByte(12);
+			poolOut.writeShort(name);
+			poolOut.writeShort(descriptor);
+			int nameAndType = poolCount++;
+			poolOut.writeByte(tag);
+			poolOut.writeShort(owner);
+			poolOut.writeShort(nameAndType);
+			return poolCount++;
+		}
+	}
+}
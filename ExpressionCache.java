@@ -0,0 +1,493 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of parsed and compiled expressions. Expressions are looked
+ *  up first by their text with all white space removed, which costs no parsing at all. An
+ *  expression whose text is not cached is parsed and compiled, and then looked up by its
+ *  canonical form (see canonicalForm(CompiledExpression)), so that textually different but
+ *  structurally equal expressions share a single PropositionalExpression.
+ * A shared PropositionalExpression keeps the variable order and text of the first expression
+ *  that created it, so an expression found by its structure may number its variables, and order
+ *  its truth table, differently from the text that was looked up.
+ * At most maxEntries texts are kept, and the least recently used text is evicted to make room.
+ *  The texts own the structures they share: a structure is evicted with the last text that
+ *  shares it, so no structure is kept without a text, and no text loses its structure.
+ *  All methods are synchronized, except that expressions are parsed outside of the lock, so a
+ *  cache may be shared by any number of threads.
+ * The statistics can be published over JMX with Metrics.register(ExpressionCache, String).
+ * @author Kenneth Chin
+ *
+ */
+public final class ExpressionCache implements ExpressionCacheMBean {
+
+	public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+	private final int maxEntries; //The most texts kept.
+
+	private final LinkedHashMap<String, Shared> byText;      //Structures by text, in access order.
+	private final HashMap<String, Shared>       byStructure; //Structures by canonical form.
+	private long hits;               //Lookups answered by text.
+	private long structuralHits;     //Lookups parsed, then answered by canonical form.
+	private long misses;             //Lookups that created a new entry.
+	private long evictions;          //Texts removed to make room for others.
+	private long structureEvictions; //Structures removed with the last text that shared them.
+
+	/**
+	 * Creates a cache of at most DEFAULT_MAX_ENTRIES expressions.
+	 */
+	public ExpressionCache(){
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Creates a cache of at most maxEntries expressions.
+	 * @param maxEntries The most expression texts kept at once. Each structure is shared by at least
+	 *  one text, so no more structures are kept.
+	 * @throws IllegalArgumentException If maxEntries is less than 1.
+	 */
+	public ExpressionCache(int maxEntries){
+		if(maxEntries < 1)
+			throw new IllegalArgumentException("A cache must hold at least one expression.");
+		this.maxEntries  = maxEntries;
+		this.byText      = new LinkedHashMap<String, Shared>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Shared> eldest){
+				if(size() <= ExpressionCache.this.maxEntries)
+					return false;
+				evictions++;
+				release(eldest.getValue());
+				return true;
+			}
+		};
+		this.byStructure = new HashMap<String, Shared>();
+	}
+
+	/**
+	 * Returns the parsed and compiled expression, from the cache if possible.
+	 * @param expression A propositional logic expression String.
+	 * @return The PropositionalExpression of expression, or of a structurally equal expression,
+	 *  whose text and variable order are those of the first expression of its structure.
+	 * @throws ExpressionParseException If the expression breaks the rules checked by
+	 *  ExpressionDisAssembler.validate(String).
+	 * @throws IllegalArgumentException If the expression could not be compiled.
+	 */
+	public PropositionalExpression get(String expression){
+		if(expression == null)
+			throw new ExpressionParseException("The expression is empty.", 0);
+		String text = stripWhitespace(expression);
+		synchronized(this){
+			Shared cached = byText.get(text);
+			if(cached != null){
+				hits++;
+				return cached.expression;
+			}
+		}
+		//Parse outside of the lock, so other threads' hits are not held up.
+		PropositionalExpression parsed;
+		try{
+			parsed = PropositionalExpression.parse(text);
+		}
+		catch(ExpressionParseException e){
+			//Report the index in the expression as given, not in the stripped text.
+			throw e.at(originalIndex(expression, e.getPosition()));
+		}
+		String canonical = canonicalForm(parsed.getCompiled());
+		synchronized(this){
+			//Another thread may have cached the same text while this one parsed it.
+			Shared cached = byText.get(text);
+			if(cached != null){
+				hits++;
+				return cached.expression;
+			}
+			Shared shared = byStructure.get(canonical);
+			if(shared != null)
+				structuralHits++;
+			else{
+				misses++;
+				shared = new Shared(canonical, parsed);
+				byStructure.put(canonical, shared);
+			}
+			shared.texts++;
+			byText.put(text, shared);
+			return shared.expression;
+		}
+	}
+
+	/**
+	 * Lets go of a structure for a text that was evicted, evicting the structure too if no other
+	 *  text shares it.
+	 * @param shared The Shared structure of the evicted text.
+	 */
+	private void release(Shared shared){
+		if(--shared.texts == 0){
+			byStructure.remove(shared.canonical);
+			structureEvictions++;
+		}
+	}
+
+	/**
+	 * Removes every entry. The statistics are kept.
+	 */
+	@Override
+	public synchronized void clear(){
+		byText.clear();
+		byStructure.clear();
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the most expressions this cache keeps.
+	 * @return An int. The cache's capacity.
+	 */
+	@Override
+	public int getMaxEntries(){
+		return maxEntries;
+	}
+
+	/**
+	 * Returns the number of expression texts in the cache.
+	 * @return An int. The number of texts.
+	 */
+	public synchronized int size(){
+		return byText.size();
+	}
+
+	/**
+	 * Returns the number of expression texts in the cache, as size() does.
+	 * @return An int. The number of texts.
+	 */
+	@Override
+	public int getSize(){
+		return size();
+	}
+
+	/**
+	 * Returns the number of lookups whose text was found in the cache.
+	 * @return A long. The number of hits.
+	 */
+	@Override
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups whose text was not cached, but whose parsed structure was.
+	 * @return A long. The number of structural hits.
+	 */
+	@Override
+	public synchronized long getStructuralHits(){
+		return structuralHits;
+	}
+
+	/**
+	 * Returns the number of lookups that parsed a new structure.
+	 * @return A long. The number of misses.
+	 */
+	@Override
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Returns the number of distinct structures in the cache.
+	 * @return An int. The number of structures, at most size().
+	 */
+	@Override
+	public synchronized int getStructureCount(){
+		return byStructure.size();
+	}
+
+	/**
+	 * Returns the number of texts removed to make room for others.
+	 * @return A long. The number of evictions.
+	 */
+	@Override
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of structures removed with the last text that shared them.
+	 * @return A long. The number of structure evictions.
+	 */
+	@Override
+	public synchronized long getStructureEvictions(){
+		return structureEvictions;
+	}
+
+	/**
+	 * Returns the fraction of lookups that did not parse a new structure: hits and structural
+	 *  hits, out of all lookups.
+	 * @return A double from 0 to 1, or 0 if there were no lookups.
+	 */
+	@Override
+	public synchronized double getHitRate(){
+		long lookups = hits + structuralHits + misses;
+		return (lookups == 0) ? 0.0 : (double)(hits + structuralHits) / lookups;
+	}
+
+	/**
+	 * Returns the cache's statistics.
+	 * @return A String listing the size, structures, hits, structural hits, misses and both kinds
+	 *  of eviction.
+	 */
+	@Override
+	public synchronized String toString(){
+		return "ExpressionCache[size=" + byText.size() + "/" + maxEntries + ", structures=" + byStructure.size()
+				+ ", hits=" + hits + ", structuralHits=" + structuralHits + ", misses=" + misses
+				+ ", evictions=" + evictions + ", structureEvictions=" + structureEvictions + "]";
+	}
+
+
+	//Canonicalization.
+
+	/**
+	 * Removes all white space from an expression, as ExpressionEvaluator does before reading it.
+	 * @param expression An expression String.
+	 * @return The expression without white space.
+	 */
+	static String stripWhitespace(String expression){
+		int i = 0;
+		while(i < expression.length() && !Character.isWhitespace(expression.charAt(i)))
+			i++;
+		if(i == expression.length())
+			return expression;
+		StringBuilder builder = new StringBuilder(expression.length());
+		builder.append(expression, 0, i);
+		for(; i<expression.length(); i++){
+			char currentChar = expression.charAt(i);
+			if(!Character.isWhitespace(currentChar))
+				builder.append(currentChar);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the index in an expression of a character of its stripped form.
+	 * @param expression An expression String.
+	 * @param position An index in stripWhitespace(expression).
+	 * @return The index of the same character in expression.
+	 */
+	static int originalIndex(String expression, int position){
+		int stripped = 0;
+		for(int i=0; i<expression.length(); i++){
+			if(Character.isWhitespace(expression.charAt(i)))
+				continue;
+			if(stripped == position)
+				return i;
+			stripped++;
+		}
+		return expression.length();
+	}
+
+	/**
+	 * Returns the canonical form of a compiled expression. The form is read from the compiled
+	 *  program rather than from the text, so parentheses that do not change the order of evaluation
+	 *  leave no trace, and the operands of the commutative conditionals &, |, ^ and = are put in a
+	 *  fixed order. Two expressions with the same canonical form have the same truth value for every
+	 *  combination of values of their variables.
+	 * @param compiled A CompiledExpression.
+	 * @return A fully parenthesized expression String, such as "(!(a)&(b|c))".
+	 */
+	static String canonicalForm(CompiledExpression compiled){
+		SymbolTable symbols = compiled.getSymbolTable();
+		int[]       code    = compiled.getCode();
+		Term[]      stack   = new Term[Math.max(1, compiled.getMaxStackDepth())];
+		int         top     = -1;
+		for(int instruction:code){
+			int opcode = CompiledExpression.opcode(instruction);
+			switch(opcode){
+				case CompiledExpression.PUSH        : stack[++top] = new Term(symbols.getName(CompiledExpression.operand(instruction))); break;
+				case CompiledExpression.PUSH_NOT    : stack[++top] = new Term(CompiledExpression.NOT, new Term(symbols.getName(CompiledExpression.operand(instruction))), null); break;
+				case CompiledExpression.NOT         : stack[top]   = new Term(CompiledExpression.NOT, stack[top], null); break;
+				case CompiledExpression.IMPLIES     : top--; stack[top] = new Term(CompiledExpression.IMPLIES, stack[top], stack[top+1]); break;
+				case CompiledExpression.REV_IMPLIES : top--; stack[top] = new Term(CompiledExpression.IMPLIES, stack[top+1], stack[top]); break;
+				default :
+					//The commutative conditionals: the lesser operand goes on the left.
+					top--;
+					if(Term.compare(stack[top], stack[top+1]) <= 0)
+						stack[top] = new Term(opcode, stack[top], stack[top+1]);
+					else
+						stack[top] = new Term(opcode, stack[top+1], stack[top]);
+			}
+		}
+		return stack[0].toString();
+	}
+
+
+	/**
+	 * A cached structure: its canonical form, the PropositionalExpression every text of the
+	 *  structure shares, and the number of cached texts that share it.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Shared {
+
+		private final String                  canonical;  //The key of this structure in byStructure.
+		private final PropositionalExpression expression; //The expression shared by its texts.
+		private int                           texts;      //The cached texts that share it.
+
+		/**
+		 * Creates a Shared structure with no texts yet.
+		 * @param canonical The canonical form.
+		 * @param expression The PropositionalExpression of the first text of the structure.
+		 */
+		private Shared(String canonical, PropositionalExpression expression){
+			this.canonical  = canonical;
+			this.expression = expression;
+		}
+	}
+
+	/**
+	 * A node of the tree a canonical form is printed from. Each node carries a hash of its
+	 *  structure, so that most comparisons between operands are decided without walking them.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Term {
+
+		private static final int VARIABLE = -1; //The op of a variable.
+
+		private final int    op;       //VARIABLE, or one of CompiledExpression's opcodes.
+		private final String variable; //The variable's name, or null.
+		private final Term   left;     //The first operand, or null.
+		private final Term   right;    //The second operand, or null.
+		private final long   hash;     //A hash of the structure below this node.
+
+		/**
+		 * Creates a variable Term.
+		 * @param variable The variable's name.
+		 */
+		private Term(String variable){
+			this.op       = VARIABLE;
+			this.variable = variable;
+			this.left     = null;
+			this.right    = null;
+			this.hash     = mix(variable.hashCode());
+		}
+
+		/**
+		 * Creates an operator Term.
+		 * @param op One of CompiledExpression's opcodes.
+		 * @param left The first operand.
+		 * @param right The second operand, or null for NOT.
+		 */
+		private Term(int op, Term left, Term right){
+			this.op       = op;
+			this.variable = null;
+			this.left     = left;
+			this.right    = right;
+			this.hash     = mix(mix(op * 0x9E3779B97F4A7C15L + left.hash) + (right == null ? 0 : right.hash));
+		}
+
+		/**
+		 * Scrambles the bits of a hash (the finalizer of MurmurHash3).
+		 * @param value The value to scramble.
+		 * @return The scrambled value.
+		 */
+		private static long mix(long value){
+			value ^= value >>> 33;
+			value *= 0xFF51AFD7ED558CCDL;
+			value ^= value >>> 33;
+			value *= 0xC4CEB93C185EC53BL;
+			return value ^ (value >>> 33);
+		}
+
+		/**
+		 * Orders two Terms: by hash, and by structure when the hashes are equal. Terms compare
+		 *  as equal only if they are structurally equal. The walk uses its own stack, so deep
+		 *  expressions cannot overflow the thread's stack.
+		 * @param term1 A Term.
+		 * @param term2 A Term.
+		 * @return A negative number, zero or a positive number as term1 is less than, equal to or
+		 *  greater than term2.
+		 */
+		private static int compare(Term term1, Term term2){
+			ArrayDeque<Term> pending = new ArrayDeque<Term>();
+			pending.push(term2);
+			pending.push(term1);
+			while(!pending.isEmpty()){
+				Term a = pending.pop();
+				Term b = pending.pop();
+				if(a == b)
+					continue;
+				if(a.hash != b.hash)
+					return Long.compare(a.hash, b.hash);
+				if(a.op != b.op)
+					return Integer.compare(a.op, b.op);
+				if(a.op == VARIABLE){
+					int order = a.variable.compareTo(b.variable);
+					if(order != 0)
+						return order;
+					continue;
+				}
+				if(a.right != null){
+					pending.push(b.right);
+					pending.push(a.right);
+				}
+				pending.push(b.left);
+				pending.push(a.left);
+			}
+			return 0;
+		}
+
+		/**
+		 * Prints the Term, fully parenthesized. The walk uses its own stack, so deep expressions
+		 *  cannot overflow the thread's stack.
+		 * @return The Term's expression String.
+		 */
+		@Override
+		public String toString(){
+			StringBuilder      builder = new StringBuilder();
+			ArrayDeque<Object> pending = new ArrayDeque<Object>();
+			pending.push(this);
+			while(!pending.isEmpty()){
+				Object next = pending.pop();
+				if(next instanceof String){
+					builder.append((String)next);
+					continue;
+				}
+				Term term = (Term)next;
+				switch(term.op){
+					case VARIABLE : builder.append(term.variable); break;
+					case CompiledExpression.NOT :
+						builder.append("!(");
+						pending.push(")");
+						pending.push(term.left);
+						break;
+					default :
+						builder.append('(');
+						pending.push(")");
+						pending.push(term.right);
+						pending.push(symbolOf(term.op));
+						pending.push(term.left);
+				}
+			}
+			return builder.toString();
+		}
+
+		/**
+		 * Returns the symbol of a conditional.
+		 * @param op One of CompiledExpression's binary opcodes, other than REV_IMPLIES.
+		 * @return The conditional's symbol.
+		 */
+		private static String symbolOf(int op){
+			switch(op){
+				case CompiledExpression.AND        : return "&";
+				case CompiledExpression.OR         : return "|";
+				case CompiledExpression.XOR        : return "^";
+				case CompiledExpression.IMPLIES    : return ">";
+				case CompiledExpression.EQUIVALENT : return "=";
+				default : throw new IllegalStateException("Unknown opcode " + op + ".");
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package propositionalCalculatorV1_0;
+
+/**
+ * The JMX management interface of an ExpressionCache: its size and hit rates. See
+ *  Metrics.register(ExpressionCache, String).
+ * @author Kenneth Chin
+ *
+ */
+public interface ExpressionCacheMBean {
+
+	/**
+	 * Returns the most expressions the cache keeps.
+	 * @return An int. The cache's capacity.
+	 */
+	int getMaxEntries();
+
+	/**
+	 * Returns the number of expression texts in the cache.
+	 * @return An int. The number of texts.
+	 */
+	int getSize();
+
+	/**
+	 * Returns the number of lookups whose text was found in the cache.
+	 * @return A long. The number of hits.
+	 */
+	long getHits();
+
+	/**
+	 * Returns the number of lookups whose text was not cached, but whose parsed structure was.
+	 * @return A long. The number of structural hits.
+	 */
+	long getStructuralHits();
+
+	/**
+	 * Returns the number of lookups that parsed a new structure.
+	 * @return A long. The number of misses.
+	 */
+	long getMisses();
+
+	/**
+	 * Returns the number of distinct structures in the cache.
+	 * @return An int. The number of structures, at most getSize().
+	 */
+	int getStructureCount();
+
+	/**
+	 * Returns the number of texts removed to make room for others.
+	 * @return A long. The number of evictions.
+	 */
+	long getEvictions();
+
+	/**
+	 * Returns the number of structures removed with the last text that shared them.
+	 * @return A long. The number of structure evictions.
+	 */
+	long getStructureEvictions();
+
+	/**
+	 * Returns the fraction of lookups that did not parse a new structure.
+	 * @return A double from 0 to 1, or 0 if there were no lookups.
+	 */
+	double getHitRate();
+
+	/**
+	 * Removes every entry. The statistics are kept.
+	 */
+	void clear();
+}
@@ -1,6 +1,10 @@
 package propositionalCalculatorV1_0;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -11,6 +15,10 @@ import java.util.NoSuchElementException;
  *  is therefore separated by order of operations. Each sub-expression can be negated by the
  *  "not"(!) operator. The use of the not operator is also stored by the ExpressionCard, and
  *  assumed to be false (not negated).
+ * The evaluation (pre-order) order of the tree below a card, and the tree's CompiledExpression,
+ *  are computed the first time they are asked for, and cached until a card of the tree is changed
+ *  by one of the setters. A card's root must be the card whose child it is, as a change clears
+ *  the caches by walking up the roots.
  * @author Kenneth Chin
  *
  */
@@ -21,6 +29,11 @@ public class ExpressionCard implements Iterable<ExpressionCard>{
 	private ExpressionCard rightExpression; //The sub-expression's right sub-expression.
 	private String expression;              //The whole sub-expression.
 	private boolean not;                    //Is the whole sub-expression to be negated?
+	private volatile ExpressionCard[] order; //The cached evaluation order of this card's tree, or null.
+	private volatile CompiledExpression compiled; //The cached program of this card's tree, or null.
+	private volatile CompiledExpression bound;    //The cached program bound to a caller's SymbolTable, or null.
+	private volatile ShortCircuitExpression shortCircuit; //The cached short-circuit program of this card's tree, or null.
+	private boolean inOrder;                //Might a cached evaluation order include this card?
 	
 	/**
 	 * Default constructor. All Strings set to null. All booleans set to false.
@@ -97,58 +110,188 @@ public class ExpressionCard implements Iterable<ExpressionCard>{
 	//Setter operations.
 	
 	/**
-	 * Sets this ExpressionCard's parent ExpressionCard.
+	 * Sets this ExpressionCard's parent ExpressionCard. The caches of the trees that
+	 *  include this card are cleared.
 	 * @param card This ExpressionCard's parent ExpressionCard.
 	 */
 	public void setRoot(ExpressionCard card){
+		invalidateCaches();
 		this.root = card;
 	}
 	
 	/**
-	 * Sets this ExpressionCard's left child.
+	 * Sets this ExpressionCard's left child. The caches of the trees that include this
+	 *  card are cleared.
 	 * @param expression This ExpressionCard's left child.
 	 */
 	public void setLeftEx(ExpressionCard expression){
+		invalidateCaches();
 		this.leftExpression = expression;
 	}
 	
 	/**
-	 * Sets this ExpressionCard's right child.
+	 * Sets this ExpressionCard's right child. The caches of the trees that include this
+	 *  card are cleared.
 	 * @param expression This ExpressionCard's right child.
 	 */
 	public void setRightEx(ExpressionCard expression){
+		invalidateCaches();
 		this.rightExpression = expression;
 	}
 	
 	/**
-	 * Sets this ExpressionCard's sub-expression.
+	 * Sets this ExpressionCard's sub-expression. The caches of the trees that include this card
+	 *  are cleared.
 	 * @param expression This ExpressionCard's sub-expression.
 	 */
 	public void setEx(String expression){
+		invalidateCaches();
 		this.expression = expression;
 	}
 	
 	/**
 	 * Sets this ExpressionCard's "not" value. True indicates this ExpressionCard's
 	 *  sub-expression should be negated. False indicates the sub-expression should
-	 *  not be negated.
+	 *  not be negated. The caches of the trees that include this card are cleared.
 	 * @param value A boolean. True indicates this ExpressionCard's sub-expression
 	 *  should be negated. False indicates the sub-expression should not be negated.
 	 */
 	public void setNot(boolean value){
+		invalidateCaches();
 		this.not = value;
 	}
 	
 	
+	/**
+	 * Clears the cached evaluation order and programs of this card and of each card above it, as
+	 *  changing this card changes all of their trees. A program is only compiled from a cached
+	 *  order, so cards that no cached order includes stop the walk, and building a tree that has
+	 *  never been iterated costs nothing.
+	 */
+	private void invalidateCaches(){
+		for(ExpressionCard card = this; card != null && card.inOrder; card = card.root){
+			card.order        = null;
+			card.compiled     = null;
+			card.bound        = null;
+			card.shortCircuit = null;
+			card.inOrder      = false;
+		}
+	}
+	
+	
+	//Traversal operations.
+	
+	/**
+	 * Returns the cards of the tree below this ExpressionCard in evaluation (pre-order) order: each
+	 *  card, then its left tree, then its right tree. The order is computed once and cached until
+	 *  the tree is changed.
+	 * @return An unmodifiable List<ExpressionCard>, starting with this ExpressionCard.
+	 */
+	public List<ExpressionCard> getEvaluationOrder(){
+		return Collections.unmodifiableList(Arrays.asList(evaluationOrder()));
+	}
+	
+	/**
+	 * Returns the cached evaluation order, computing it if the tree has been changed since it
+	 *  was last computed.
+	 * @return An ExpressionCard[] in pre-order. It is shared, and must not be modified.
+	 */
+	ExpressionCard[] evaluationOrder(){
+		ExpressionCard[] cards = order;
+		if(cards == null){
+			cards = computeOrder();
+			order = cards;
+		}
+		return cards;
+	}
+	
+	/**
+	 * Returns the cached CompiledExpression of the tree below this ExpressionCard, compiling it if
+	 *  the tree has been changed since it was last compiled. Two threads may both compile it, but
+	 *  they compile equal programs.
+	 * @return The CompiledExpression, with variables given slots in the order they are first read.
+	 * @throws IllegalArgumentException If the tree does not describe an expression that can be
+	 *  evaluated.
+	 */
+	CompiledExpression compiled(){
+		CompiledExpression program = compiled;
+		if(program == null){
+			program  = ExpressionCompiler.compile(this);
+			compiled = program;
+		}
+		return program;
+	}
+	
+	/**
+	 * Returns the cached CompiledExpression of the tree below this ExpressionCard whose slots are
+	 *  those of a given SymbolTable. Only the program of the last table asked for is kept, so a
+	 *  tree evaluated with one table compiles once.
+	 * @param symbols A SymbolTable with a slot for each variable of the tree.
+	 * @return The CompiledExpression, with symbols' slots.
+	 * @throws IllegalArgumentException If the tree uses a variable that symbols does not have, or
+	 *  does not describe an expression that can be evaluated.
+	 */
+	CompiledExpression compiled(SymbolTable symbols){
+		CompiledExpression program = bound;
+		if(program == null || !program.getSymbolTable().equals(symbols)){
+			program = ExpressionCompiler.compile(this, symbols);
+			bound   = program;
+		}
+		return program;
+	}
+	
+	/**
+	 * Returns the cached ShortCircuitExpression of the tree below this ExpressionCard, building it
+	 *  from compiled() if the tree has been changed since it was last built.
+	 * @return The ShortCircuitExpression, with the slots of compiled().
+	 * @throws IllegalArgumentException If the tree does not describe an expression that can be
+	 *  evaluated.
+	 */
+	ShortCircuitExpression shortCircuit(){
+		ShortCircuitExpression program = shortCircuit;
+		if(program == null){
+			program      = ShortCircuitExpression.of(compiled());
+			shortCircuit = program;
+		}
+		return program;
+	}
+	
+	/**
+	 * Lists the cards of the tree below this ExpressionCard in pre-order, with an explicit stack
+	 *  so that the depth of the tree does not matter. Every card listed is marked as included in
+	 *  a cached order.
+	 * @return A new ExpressionCard[] in pre-order.
+	 */
+	private ExpressionCard[] computeOrder(){
+		ArrayList<ExpressionCard> cards = new ArrayList<ExpressionCard>();
+		ExpressionCard[]          stack = new ExpressionCard[16];
+		int                       size  = 0;
+		stack[size++] = this;
+		while(size > 0){
+			ExpressionCard card = stack[--size];
+			card.inOrder = true;
+			cards.add(card);
+			if(size + 2 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			//Push the right child first, so that the left tree is listed first.
+			if(card.rightExpression != null)
+				stack[size++] = card.rightExpression;
+			if(card.leftExpression != null)
+				stack[size++] = card.leftExpression;
+		}
+		return cards.toArray(new ExpressionCard[cards.size()]);
+	}
+	
 	/**
 	 * This returns the iterator for this ExpressionCard. It allows use of for:each loops, or allows
 	 *  a user to step through the expression tree manually. It complies with the Iterator interface,
 	 *  but does not allow for the removal of elements (.remove() throws an UnsupportedOperationException).
-	 *  NOTE: Iteration is returned in pre-order format.
+	 *  NOTE: Iteration is returned in pre-order format, and scans the cached evaluation order. An
+	 *  iterator keeps the order it started with if the tree is changed while it is in use.
 	 * @return An Iterator<ExpressionCard> that allows for expression tree traversal.
 	 */
 	public Iterator<ExpressionCard> iterator() {
-		return new CardIterator(this);
+		return new CardIterator(evaluationOrder());
 	}
 	
 	/**
@@ -159,67 +302,18 @@ public class ExpressionCard implements Iterable<ExpressionCard>{
 	 * @author Kenneth Chin
 	 *
 	 */
-	private class CardIterator implements Iterator<ExpressionCard> {
+	private static class CardIterator implements Iterator<ExpressionCard> {
 
-		ExpressionCard nextNode        = null;  //Track the next node.
-		ExpressionCard rightNodeOfRoot = null;  //Store the right node of the root.
-		boolean        inRightBranch   = false; //Determine if we are traversing the right branch of the root.
-		
-		/**
-		 * This private constructor allows the current instance of ExpressionCard to act as the root of
-		 *  the expression tree to be traversed.
-		 * @param root The ExpressionCard that is to be used as a root of the tree.
-		 */
-		private CardIterator(ExpressionCard root){
-			nextNode        = root;
-			rightNodeOfRoot = root.getRightEx();
-			inRightBranch   = false;
-		}
+		private final ExpressionCard[] cards; //The tree's cards in pre-order.
+		private int                    next;  //The index of the next card.
 		
 		/**
-		 * Looks for the next node in pre-order format. This is a helper function for .next() and .hasNext().
-		 * @return The next ExpressionCard in pre-order format, or null if no unexplored elements exist.
+		 * This private constructor steps through an evaluation order.
+		 * @param cards The ExpressionCard[] of the tree's cards in pre-order.
 		 */
-		private ExpressionCard getNextCard(){
-			if(nextNode==null)
-				return null;
-			ExpressionCard card = nextNode;
-			//This node is a root. Next node is left node.
-			if(!(card.getLeftEx()==null))
-				return card.getLeftEx();
-			//This node is a root. Next node is right node.
-			else if(!(card.getRightEx()==null)){
-				return card.getRightEx();
-			}
-			//If this node is the root, with no children, return null.
-			else if(card.getRoot()==null)
-				return null;
-			//If this node is an end node. Next node is the right node of next parent that has a right node.
-			else if(card.getLeftEx()==null && card.getRightEx()==null){
-				//Traverse the tree upward until there is a right node to give as next.
-				while(card.getRoot().getRightEx()==null || card.getRoot().getRightEx() == card){
-					card = card.getRoot();
-					//If were traversing up the root's right branch & there are no new right nodes, return null.
-					if((card.getRoot()==null) || (card.getRoot().getRoot()==null && inRightBranch))
-						return null;
-					//If were traversing the root's left branch & there are no right nodes, return null.
-					if(card.getRoot()==null && card.getRoot().getRightEx()==null)
-						return null;
-					//If we reach the root and there is a right node, it is the next node.
-					if(card.getRoot()==null)
-						return card.getRightEx();
-				}
-				//If we found a right node(or already had one before the loop), it is the next node.
-				if(!(card.getRoot().getRightEx()==null)){
-					//If we are moving from the root's left tree to its right tree, flag inRightBranch.
-					if(card.getRoot().getRightEx()==rightNodeOfRoot && card.getRoot().getRoot()==null)
-						inRightBranch = true;
-					return card.getRoot().getRightEx();
-				}
-			}
-			//We have checked left & right node of the given node. We have explored all right nodes of all roots.
-			// The whole tree has been traversed. Return null.
-			return null;
+		private CardIterator(ExpressionCard[] cards){
+			this.cards = cards;
+			this.next  = 0;
 		}
 		
 		/**
@@ -230,9 +324,7 @@ public class ExpressionCard implements Iterable<ExpressionCard>{
 		public ExpressionCard next(){
 			if (!hasNext())
 				throw new NoSuchElementException("Tree exhausted. Please use .hasNext() to ensure there are elements remaining.");
-			ExpressionCard temp = nextNode;
-			nextNode = getNextCard();
-			return temp;
+			return cards[next++];
 		}		
 		
 		/**
@@ -240,11 +332,7 @@ public class ExpressionCard implements Iterable<ExpressionCard>{
 		 * @return A boolean. True if there are more elements in the expression tree. False otherwise.
 		 */
 		public boolean hasNext() {
-			//The whole tree has been returned.
-			if(nextNode == null)
-				return false;
-			//There must be a nextNode queued, or this is the root with a left and/or right child.
-			return true;
+			return next < cards.length;
 		}
 
 		/**
@@ -0,0 +1,254 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class compiles an ExpressionCard binary tree into a CompiledExpression. Compilation
+ *  reads each card's sub-expression String, with ExpressionEvaluator's reading methods, and
+ *  records the stack operations that evaluate it as a postfix program. All String parsing
+ *  therefore happens once, when the expression is compiled, instead of on every evaluation.
+ * This class is singleton, and it's only public methods are compile(ExpressionCard),
+ *  compile(ExpressionCard, List<String>) and compile(ExpressionCard, SymbolTable).
+ * @author Kenneth Chin
+ *
+ */
+public final class ExpressionCompiler {
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private ExpressionCompiler(){}
+
+	/**
+	 * Compiles the expression expressed by root's iterator. Variables are given slots in the
+	 *  order in which the evaluator first reads them.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be compiled.
+	 * @return A CompiledExpression that evaluates to the same truth value as
+	 *  ExpressionEvaluator.evaluateExpressionCards(HashMap<String, Boolean>, root).
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate.
+	 */
+	public static CompiledExpression compile(ExpressionCard root){
+		return compile(root, (SymbolTable)null);
+	}
+
+	/**
+	 * Compiles the expression expressed by root's iterator, using the given variable order.
+	 *  The variable at index i of variables is given slot i, whether or not it appears in
+	 *  the expression.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be compiled.
+	 * @param variables A List<String> of variable names giving the slot order, or null to give
+	 *  variables slots in the order the evaluator first reads them.
+	 * @return A CompiledExpression that evaluates to the same truth value as
+	 *  ExpressionEvaluator.evaluateExpressionCards(HashMap<String, Boolean>, root).
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate, or if it uses a variable that is not in variables.
+	 */
+	public static CompiledExpression compile(ExpressionCard root, List<String> variables){
+		return compile(root, variables == null ? null : new SymbolTable(variables));
+	}
+
+	/**
+	 * Compiles the expression expressed by root's iterator, using the slots of the given
+	 *  SymbolTable. The compiled expression's getSymbolTable() is symbols, so Assignments over
+	 *  symbols are evaluated without any name lookups.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be compiled.
+	 * @param symbols The SymbolTable giving each variable's slot, or null to give variables slots
+	 *  in the order the evaluator first reads them.
+	 * @return A CompiledExpression that evaluates to the same truth value as
+	 *  ExpressionEvaluator.evaluateExpressionCards(HashMap<String, Boolean>, root).
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate, or if it uses a variable that is not in symbols.
+	 */
+	public static CompiledExpression compile(ExpressionCard root, SymbolTable symbols){
+		if(root == null)
+			throw new IllegalArgumentException("Cannot compile a null ExpressionCard tree.");
+		Emitter emitter = new Emitter(symbols);
+		Iterator<ExpressionCard> iter = root.iterator();
+		while(iter.hasNext())
+			compileCard(emitter, iter.next());
+		return emitter.finish();
+	}
+
+	/**
+	 * Compiles a single ExpressionCard. Cards are compiled in the pre-order of the tree, and each
+	 *  leaves its sub-expression's value on the stack, or combines it with the values before it.
+	 * @param emitter The Emitter collecting the program.
+	 * @param card The ExpressionCard to be compiled.
+	 */
+	private static void compileCard(Emitter emitter, ExpressionCard card){
+		String expression = ExpressionEvaluator.ensureFormat(card.getEx());
+		if(expression.length() > 0){
+			char firstChar = expression.charAt(0);
+			//A lone conditional combines the top two values of the stack.
+			if(expression.length() == 1 && ExpressionEvaluator.isConditional(firstChar))
+				emitter.emitConditional(firstChar, false);
+			//A lone negation negates the top of the stack (ie. (!(!(a&b)))).
+			else if(expression.length() == 1 && ExpressionEvaluator.isNegation(firstChar))
+				emitter.emit(CompiledExpression.NOT, 0);
+			//A leading conditional combines the previous value with this sub-expression.
+			else if(ExpressionEvaluator.isConditional(firstChar)){
+				compileSubExpression(emitter, expression.substring(1));
+				emitter.emitConditional(firstChar, false);
+			}
+			else
+				compileSubExpression(emitter, expression);
+		}
+		if(card.getNotVal())
+			emitter.emit(CompiledExpression.NOT, 0);
+	}
+
+	/**
+	 * Compiles a sub-expression. Its variables are combined left-to-right, and a trailing
+	 *  conditional combines the result with the value already on the stack (which becomes the
+	 *  conditional's right operand).
+	 * @param emitter The Emitter collecting the program.
+	 * @param expression A String of the sub-expression to be compiled. The expression should not
+	 *  begin with a conditional.
+	 */
+	private static void compileSubExpression(Emitter emitter, String expression){
+		int readIndex        = 0;
+		int conditionalIndex = ExpressionEvaluator.findConditional(expression);
+		emitVariable(emitter, expression, readIndex);
+		while(conditionalIndex != -1){
+			char conditional = expression.charAt(conditionalIndex);
+			//A conditional at the end of the expression takes the stacked value as its right operand.
+			if(conditionalIndex == expression.length() - 1){
+				emitter.emitConditional(conditional, true);
+				return;
+			}
+			readIndex = conditionalIndex + 1;
+			emitVariable(emitter, expression, readIndex);
+			emitter.emitConditional(conditional, false);
+			conditionalIndex = ExpressionEvaluator.findConditional(expression, readIndex);
+		}
+	}
+
+	/**
+	 * Emits the instruction that pushes the (possibly negated) variable starting at readIndex.
+	 * @param emitter The Emitter collecting the program.
+	 * @param expression The sub-expression String being compiled.
+	 * @param readIndex The index at which the variable, or its negation, begins.
+	 */
+	private static void emitVariable(Emitter emitter, String expression, int readIndex){
+		boolean not = ExpressionEvaluator.isNegation(expression.charAt(readIndex));
+		String  variable;
+		if(not)
+			variable = ExpressionEvaluator.readVariable(expression, readIndex + 1);
+		else
+			variable = ExpressionEvaluator.readVariable(expression, readIndex);
+		if(variable.equals(""))
+			throw new IllegalArgumentException("The expression, \"" + expression + "\", is missing a variable at index " + readIndex + ".");
+		emitter.emit(not ? CompiledExpression.PUSH_NOT : CompiledExpression.PUSH, emitter.slotOf(variable));
+	}
+
+
+	/**
+	 * Collects the instructions of a program being compiled, assigns variable slots, and tracks
+	 *  the depth of the value stack so that malformed trees are rejected at compile time.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Emitter {
+
+		private final SymbolTable              symbols;   //The caller's slots, or null.
+		private final ArrayList<String>        variables; //Variable names read so far, indexed by slot.
+		private final HashMap<String, Integer> slots;     //The slot of each name in variables.
+		private int[] code     = new int[16];
+		private int   length   = 0;
+		private int   depth    = 0;
+		private int   maxDepth = 0;
+
+		/**
+		 * Creates an Emitter.
+		 * @param symbols A SymbolTable giving the slot order, or null to assign slots as
+		 *  variables are read.
+		 */
+		private Emitter(SymbolTable symbols){
+			this.symbols   = symbols;
+			this.variables = new ArrayList<String>();
+			this.slots     = new HashMap<String, Integer>();
+		}
+
+		/**
+		 * Returns the slot of the given variable, assigning one if necessary.
+		 * @param variable A variable name.
+		 * @return An int. The variable's slot.
+		 */
+		private int slotOf(String variable){
+			if(symbols != null){
+				int slot = symbols.indexOf(variable);
+				if(slot == -1)
+					throw new IllegalArgumentException("The variable \"" + variable + "\" was not given a value.");
+				return slot;
+			}
+			Integer slot = slots.get(variable);
+			if(slot != null)
+				return slot;
+			variables.add(variable);
+			slots.put(variable, variables.size() - 1);
+			return variables.size() - 1;
+		}
+
+		/**
+		 * Emits the instruction for a conditional.
+		 * @param conditional A char. One of the conditionals &, |, ^, > or =.
+		 * @param reversed A boolean. True if the top of the stack is the conditional's left operand.
+		 */
+		private void emitConditional(char conditional, boolean reversed){
+			switch(conditional){
+				case '&' : emit(CompiledExpression.AND, 0);        break;
+				case '|' : emit(CompiledExpression.OR, 0);         break;
+				case '^' : emit(CompiledExpression.XOR, 0);        break;
+				case '=' : emit(CompiledExpression.EQUIVALENT, 0); break;
+				case '>' : emit(reversed ? CompiledExpression.REV_IMPLIES : CompiledExpression.IMPLIES, 0); break;
+				default  : throw new UnsupportedOperationException("The conditional \"" + conditional + "\" is not supported.");
+			}
+		}
+
+		/**
+		 * Appends an instruction to the program.
+		 * @param opcode One of CompiledExpression's opcodes.
+		 * @param operand The instruction's operand, or 0 if it has none.
+		 */
+		private void emit(int opcode, int operand){
+			switch(opcode){
+				case CompiledExpression.PUSH     :
+				case CompiledExpression.PUSH_NOT : depth++; break;
+				case CompiledExpression.NOT      : require(1); break;
+				default                          : require(2); depth--;
+			}
+			maxDepth = Math.max(maxDepth, depth);
+			if(length == code.length)
+				code = Arrays.copyOf(code, length * 2);
+			code[length++] = CompiledExpression.instruction(opcode, operand);
+		}
+
+		/**
+		 * Ensures the value stack will hold at least the given number of values.
+		 * @param values The number of values an instruction pops.
+		 */
+		private void require(int values){
+			if(depth < values)
+				throw new IllegalArgumentException("The expression tree could not be compiled: an operator has too few operands.");
+		}
+
+		/**
+		 * Completes the program.
+		 * @return The CompiledExpression.
+		 */
+		private CompiledExpression finish(){
+			if(depth != 1)
+				throw new IllegalArgumentException("The expression tree could not be compiled: it does not reduce to a single value.");
+			SymbolTable table = (symbols != null) ? symbols : new SymbolTable(variables);
+			return new CompiledExpression(Arrays.copyOf(code, length), table, maxDepth);
+		}
+	}
+}
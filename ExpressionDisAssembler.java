@@ -1,5 +1,7 @@
 package propositionalCalculatorV1_0;
 
+import java.util.Arrays;
+
 /**
  * This class is used to disassemble a propositional logic String into a form that
  *  can be read by the ExpressionEvaluator class. The binary tree created by
@@ -14,14 +16,10 @@ package propositionalCalculatorV1_0;
  */
 public final class ExpressionDisAssembler {
 
-	private static String expression; //The whole expression to be evaluated.
-	
 	/**
 	 * The private constructor which forces this class to be singleton.
 	 */
-	private ExpressionDisAssembler(){
-		expression = "";
-	}
+	private ExpressionDisAssembler(){}
 
 	/**
 	 * Creates a binary tree of ExpressionCard objects. The root of the binary tree
@@ -35,179 +33,406 @@ public final class ExpressionDisAssembler {
 	 *  as in (!(!(a&b))). A parent node's binary tree can be iterated through via
 	 *  ExpressionCard's iterator. This method returns the binary tree's absolute
 	 *  root, & its iterator returns the entire binary tree.
+	 * The tree is built in a single pass: each node works on a range of the expression
+	 *  rather than on a substring of it, and the parentheses and variables of a range are
+	 *  found through tables computed once for the whole expression, so the time taken
+	 *  grows linearly with the expression's length.
+	 *  This method keeps no state between calls, so it may be called by any number of
+	 *  threads at once. It does not check the expression; see validate(String).
 	 * @param expression A propositional logic expression String. Since the details
 	 *  of an expression's format are complex, please see ConsoleUI's explanation of
 	 *  expression rules (See the promptInstructions() method).
 	 * @return An ExpressionCard that represents the absolute root of a binary tree.
 	 *  The iterator of the returned ExpressionCard will express the complete expression
 	 *  String passed into this method as ExpressionCard tree nodes.
+	 * @throws ExpressionParseException If a negation inside a sub-expression is not followed
+	 *  by anything it could negate.
 	 */
 	public static ExpressionCard getCards(String expression){
 		if(expression==null)
 			return null;
-		ExpressionDisAssembler.expression = expression;
-		return findRoot();
+		long           start  = Metrics.PARSE.start();
+		Source         source = new Source(expression);
+		ExpressionCard root   = findRoot(source);
+		Metrics.PARSE.record(start, expression.length(), source.cards);
+		return root;
+	}
+
+	/**
+	 * Checks that an expression follows the rules given by ConsoleUI's instructions: it has at
+	 *  least one variable, every character is a letter, a conditional, a negation, a parenthesis or
+	 *  white space, no negation directly follows another, even across white space, its
+	 *  parentheses are balanced, and its operands and conditionals alternate.
+	 * @param expression A propositional logic expression String.
+	 * @throws ExpressionParseException At the index of the first error found.
+	 */
+	public static void validate(String expression){
+		if(expression == null || expression.length() == 0)
+			throw new ExpressionParseException("The expression is empty.", 0);
+		int     openParens  = 0;
+		boolean hasVariable = false;
+		int[]   opens       = new int[8]; //The index of each open parenthesis not yet closed.
+		char    lastChar    = ' ';        //The last character that was not white space.
+		for(int i=0; i<expression.length(); i++){
+			char currentChar = expression.charAt(i);
+			if(Character.isWhitespace(currentChar))
+				continue;
+			if(Character.isLetter(currentChar))
+				hasVariable = true;
+			else if(currentChar == '('){
+				if(openParens == opens.length)
+					opens = Arrays.copyOf(opens, 2 * opens.length);
+				opens[openParens++] = i;
+			}
+			else if(currentChar == ')'){
+				if(openParens == 0)
+					throw new ExpressionParseException("The closing parenthesis has no matching open parenthesis.", i);
+				openParens--;
+			}
+			else if(currentChar == '!'){
+				if(lastChar == '!')
+					throw new ExpressionParseException("A negation may not directly follow another; use (!(!a)) instead of !!a.", i);
+			}
+			else if(!ExpressionEvaluator.isConditional(currentChar))
+				throw new ExpressionParseException("The character '" + currentChar + "' is not allowed in an expression.", i);
+			lastChar = currentChar;
+		}
+		if(openParens > 0)
+			throw new ExpressionParseException("The open parenthesis is never closed.", opens[openParens - 1]);
+		if(!hasVariable)
+			throw new ExpressionParseException("The expression has no variables.", 0);
+		checkOrder(expression);
+	}
+
+	/**
+	 * Checks that the operands and conditionals of an expression alternate: every conditional has
+	 *  an operand on each side, every negation is followed by a variable or sub-expression, and no
+	 *  two operands are side by side. Letters separated only by white space are one variable, as
+	 *  they are once the white space is removed.
+	 * @param expression A propositional logic expression String whose characters and
+	 *  parentheses have been checked.
+	 * @throws ExpressionParseException At the index of the first error found.
+	 */
+	private static void checkOrder(String expression){
+		boolean expectOperand = true; //Is a variable, sub-expression or negation expected next?
+		char    lastChar      = '(';  //The last character that was not white space.
+		int     lastIndex     = 0;    //The index of lastChar.
+		for(int i=0; i<expression.length(); i++){
+			char currentChar = expression.charAt(i);
+			if(Character.isWhitespace(currentChar))
+				continue;
+			if(expectOperand){
+				if(Character.isLetter(currentChar))
+					expectOperand = false;
+				else if(currentChar != '(' && currentChar != '!')
+					missingOperand(lastChar, lastIndex, currentChar, i);
+			}
+			else if(Character.isLetter(currentChar)){
+				if(!Character.isLetter(lastChar))
+					throw new ExpressionParseException("A conditional is missing between two operands.", i);
+			}
+			else if(currentChar == '(' || currentChar == '!')
+				throw new ExpressionParseException("A conditional is missing between two operands.", i);
+			else if(currentChar != ')')
+				expectOperand = true;
+			lastChar  = currentChar;
+			lastIndex = i;
+		}
+		if(expectOperand)
+			missingOperand(lastChar, lastIndex, ')', expression.length());
+	}
+
+	/**
+	 * Reports a conditional or closing parenthesis found where an operand was expected.
+	 * @param lastChar The last character before it that was not white space.
+	 * @param lastIndex The index of lastChar.
+	 * @param currentChar The conditional, or ')' for a closing parenthesis or the end of the expression.
+	 * @param index The index of currentChar.
+	 * @throws ExpressionParseException Always.
+	 */
+	private static void missingOperand(char lastChar, int lastIndex, char currentChar, int index){
+		if(lastChar == '!')
+			throw new ExpressionParseException("The negation is not followed by a variable or sub-expression.", lastIndex);
+		if(lastChar == '(' && currentChar == ')')
+			throw new ExpressionParseException("The parentheses hold nothing.", lastIndex);
+		if(lastChar == '(')
+			throw new ExpressionParseException("The conditional '" + currentChar + "' is missing its left operand.", index);
+		if(currentChar == ')')
+			throw new ExpressionParseException("The conditional '" + lastChar + "' is missing its right operand.", lastIndex);
+		throw new ExpressionParseException("A conditional may not directly follow another.", index);
 	}
 	
 	/**
 	 * Used to build a binary tree of ExpressionCards. See getCards(String) for
 	 *  details regarding the binary tree. This method returns the absolute root
-	 *  of the binary tree. It is separated from makeTree(ExpressionCard, String)
+	 *  of the binary tree. It is separated from makeTree(ExpressionCard, boolean, Source, int, int, PendingTrees)
 	 *  for conceptual convenience.
+	 * The sub-trees are not built by recursion, which would need a stack frame for every level
+	 *  of nesting. Instead, each range still to be built is kept on a PendingTrees stack, so an
+	 *  expression nested any number of levels deep is built in memory proportional to its length.
+	 *  Left ranges are taken from the stack before right ranges, so the cards are built in the
+	 *  same pre-order as the recursion built them.
+	 * @param source The Source of the whole expression to be expressed by the binary tree.
 	 * @return The ExpressionCard at the absolute root of an expression's binary
 	 *  tree.
 	 */
-	private static ExpressionCard findRoot(){
-		String    expression  = ExpressionDisAssembler.expression;
+	private static ExpressionCard findRoot(Source source){
 		ExpressionCard root = new ExpressionCard();
+		source.cards++;
 		root.setRoot(null);
-		int closeIndex = findClosedParentheses(expression);
-		int openIndex  = findMatchingOpenParentheses(expression, closeIndex);
+		int start      = 0;
+		int end        = source.length();
+		int closeIndex = source.firstClose(start, end);
+		int openIndex  = (closeIndex <= start) ? start - 1 : source.lastOpen(start, closeIndex);
 		if(closeIndex == -1)
-			closeIndex = expression.length();
-		String subExpression = expression.substring(openIndex+1, closeIndex);
+			closeIndex = end;
+		String subExpression = source.substring(openIndex+1, closeIndex);
 		//Determine if this subExpression is negated.
-		if(openIndex>0 && expression.substring(openIndex-1, openIndex).equals("!")){
+		if(openIndex>start && source.charAt(openIndex-1) == '!'){
 			root.setNot(true);
 			openIndex--;
 		}
 		root.setEx(subExpression);
-		//If there's more expressions to the left, get the root of the left tree.
-		if((openIndex - 1) > -1){
-			root.setLeftEx(makeTree(root, expression.substring(0, openIndex)));
-		}
-		//If there's more expressions to the right, get the root of the right tree.
-		if((closeIndex+1) < (expression.length()-1) && hasMoreVars(expression.substring(closeIndex+1, expression.length()))){
-			root.setRightEx(makeTree(root, expression.substring(closeIndex + 1, expression.length())));
+		PendingTrees pending = new PendingTrees();
+		//If there's more expressions to the right, the right tree is built after the left tree.
+		if(closeIndex + 2 < end && source.hasLetter(closeIndex+1, end))
+			pending.push(root, false, closeIndex + 1, end);
+		//If there's more expressions to the left, the left tree is built first.
+		if(openIndex > start)
+			pending.push(root, true, start, openIndex);
+		while(!pending.isEmpty()){
+			int top = pending.pop();
+			makeTree(pending.parents[top], pending.lefts[top], source, pending.starts[top], pending.ends[top], pending);
 		}
 		return root;
 	}
 	
 	/**
-	 * Creates and assembles the sub-trees of expression's binary tree.
-	 * NOTE: This method is a recursive method. The ExpressionCard passed to this
-	 *  method is not necessarily the binary tree's absolute root.
+	 * Creates one node of an expression's binary tree, attaches it to its parent, and pushes the
+	 *  ranges of its own left and right sub-trees to be built.
 	 * @param root A parent ExpressionCard of an expression's binary tree.
-	 * @param expression The expression String to be expressed by a binary tree of
-	 *  ExpressionCards objects.
-	 * @return An ExpressionCard that is a left or right child of a parent ExpressionCard node.
+	 * @param left True if the node is root's left child, false if it is root's right child.
+	 * @param source The Source of the whole expression.
+	 * @param start The index of the first character of the range to be expressed by a binary
+	 *  tree of ExpressionCards objects.
+	 * @param end The index after the last character of the range.
+	 * @param pending The PendingTrees stack of ranges still to be built.
 	 */
-	private static ExpressionCard makeTree(ExpressionCard root, String expression){
+	private static void makeTree(ExpressionCard root, boolean left, Source source, int start, int end, PendingTrees pending){
 		ExpressionCard thisCard = new ExpressionCard();
+		source.cards++;
 		thisCard.setRoot(root);
-		String subExpression;
-		int closeIndex = findClosedParentheses(expression);
+		if(left)
+			root.setLeftEx(thisCard);
+		else
+			root.setRightEx(thisCard);
+		int closeIndex = source.firstClose(start, end);
 		int openIndex;
-		//If there's no closing parentheses, find the first open parentheses (right to left).
-		// Otherwise get the index of the open parentheses that matches the innermost closed parentheses.
+		//If there's no closing parentheses, find the first open parentheses (right to left),
+		// ignoring the range's last character. Otherwise get the index of the open parentheses
+		// that matches the innermost closed parentheses.
 		if(closeIndex == -1)
-			openIndex = findMatchingOpenParentheses(expression, expression.length()-1);
+			openIndex = (end - start < 2) ? start - 1 : source.lastOpen(start, end - 1);
 		else
-			openIndex = findMatchingOpenParentheses(expression, closeIndex);
-		if(openIndex == -1){
-			//Check if a set of parentheses encased another set. IE ((xyz)), previous expression would = ().
-			if(expression==null)
-				return null;
-			//If expression is contains ONLY "!", then there is a double negation (ie. (!(!(a&b)))).
-			else if(expression.equals("!")){
+			openIndex = (closeIndex == start) ? start - 1 : source.lastOpen(start, closeIndex);
+		if(openIndex < start){
+			//If the range is ONLY "!", then there is a double negation (ie. (!(!(a&b)))).
+			if(end - start == 1 && source.charAt(start) == '!'){
 				thisCard.setEx("");
-				thisCard.setLeftEx(null);
-				thisCard.setRightEx(null);
 				thisCard.setNot(true);
+				return;
 			}
-			else{
-				String newString = stripParentheses(expression);
-				thisCard.setEx(newString);
-				thisCard.setLeftEx(null);
-				thisCard.setRightEx(null);
-				thisCard.setNot(false);
-				return thisCard;
-			}
+			thisCard.setEx(source.stripParentheses(start, end));
+			thisCard.setLeftEx(null);
+			thisCard.setRightEx(null);
+			thisCard.setNot(false);
+			return;
 		}
-		//There are more expressions within this expression. Handle the current subExpression.
+		//There are more expressions within this range. Handle the current subExpression.
 		if(closeIndex == -1)
-			closeIndex = expression.length();
-		subExpression = expression.substring(openIndex+1, closeIndex);
-		//If the subExpression ends with "!" or contains only "!", strip it. The negation should be
-		// caught on a previous iteration.
-		if(subExpression.endsWith("!"))
-			subExpression = subExpression.substring(0, closeIndex-1);
-		String newString = stripParentheses(subExpression);
-		thisCard.setEx(newString);
+			closeIndex = end;
+		//A subExpression that ends with "!" is only allowed at the start of the range, where the
+		// negation is caught on a previous iteration.
+		if(closeIndex > openIndex + 1 && source.charAt(closeIndex-1) == '!' && openIndex > start)
+			throw new ExpressionParseException("The negation is not followed by a variable or sub-expression.", closeIndex-1);
+		thisCard.setEx(source.stripParentheses(openIndex+1, closeIndex));
 		//Determine if this subExpression is negated.
-		if(openIndex>0 && expression.substring(openIndex-1, openIndex).equals("!")){
+		if(openIndex>start && source.charAt(openIndex-1) == '!'){
 			thisCard.setNot(true);
 			openIndex--;
 		}
-		//If there's more expressions to the left, get the root of the left tree.
-		if((openIndex - 1) > -1){
-			thisCard.setLeftEx(makeTree(thisCard, expression.substring(0, openIndex)));
-		}
-		//If there's more expressions to the right, get the root of the right tree.
-		if((closeIndex+1) < (expression.length()-1) && hasMoreVars(expression.substring(closeIndex+1, expression.length()))){
-			thisCard.setRightEx(makeTree(thisCard, expression.substring(closeIndex + 1, expression.length())));
-		}
-		return thisCard;
+		//If there's more expressions to the right, the right tree is built after the left tree.
+		if(closeIndex + 2 < end && source.hasLetter(closeIndex+1, end))
+			pending.push(thisCard, false, closeIndex + 1, end);
+		//If there's more expressions to the left, the left tree is built first.
+		if(openIndex > start)
+			pending.push(thisCard, true, start, openIndex);
 	}
 
-	
+
 	/**
-	 * Finds the index of the innermost close parentheses.
-	 * @param expression A String to search.
-	 * @return An int. The index of the innermost close parentheses. -1 if none found.
+	 * The stack of ranges of an expression whose sub-trees are still to be built, kept in growing
+	 *  parallel arrays so that a pushed range costs no object of its own.
+	 * @author Kenneth Chin
+	 *
 	 */
-	private static int findClosedParentheses(String expression){
-		for(int i=0; i<expression.length(); i++){
-			String currChar = expression.substring(i, i+1);
-			if(currChar.equals(")"))
-				return i;
+	private static final class PendingTrees {
+
+		private ExpressionCard[] parents = new ExpressionCard[16]; //The card each sub-tree hangs from.
+		private boolean[]        lefts   = new boolean[16];        //Is each sub-tree its parent's left child?
+		private int[]            starts  = new int[16];            //The first index of each range.
+		private int[]            ends    = new int[16];            //The index after each range.
+		private int              size;                             //The number of ranges on the stack.
+
+		/**
+		 * Pushes a range to be built.
+		 * @param parent The card the range's sub-tree hangs from.
+		 * @param left True if the sub-tree is parent's left child.
+		 * @param start The first index of the range.
+		 * @param end The index after the range.
+		 */
+		private void push(ExpressionCard parent, boolean left, int start, int end){
+			if(size == parents.length){
+				parents = Arrays.copyOf(parents, 2 * size);
+				lefts   = Arrays.copyOf(lefts, 2 * size);
+				starts  = Arrays.copyOf(starts, 2 * size);
+				ends    = Arrays.copyOf(ends, 2 * size);
+			}
+			parents[size] = parent;
+			lefts[size]   = left;
+			starts[size]  = start;
+			ends[size]    = end;
+			size++;
+		}
+
+		/**
+		 * Pops the most recently pushed range. Its entries stay readable until the next push.
+		 * @return An int. The index of the range in the stack's arrays.
+		 */
+		private int pop(){
+			return --size;
+		}
+
+		/**
+		 * Determines if every range has been built.
+		 * @return A boolean. True if the stack is empty.
+		 */
+		private boolean isEmpty(){
+			return size == 0;
 		}
-		return -1;
-	}
-	
-	/**
-	 * Finds the index of the open parentheses that's paired with the specified closing parentheses.
-	 * @param expression A String to find the matching open parentheses.
-	 * @param indexOfClosed An int. The index of a closing parentheses that is to be matched.
-	 * @return An int. The index of the open parentheses that matches the specified closing parentheses,
-	 * 	or -1 if none found.
-	 */
-	private static int findMatchingOpenParentheses(String expression, int indexOfClosed){
-		if(indexOfClosed<1)
-			return -1;
-		String leftOfClosed = expression.substring(0, indexOfClosed);
-		for(int i=leftOfClosed.length()-1; i>=0; i--){
-			if(leftOfClosed.substring(i, i+1).equals("("))
-				return i;
-		}
-		return -1;
-	}
-	
-	/**
-	 * Removes any parentheses from the given String.
-	 * @param expression The String to have parentheses removed from.
-	 * @return The expression String, minus any parentheses.
-	 */
-	private static String stripParentheses(String expression){
-		String newString = expression;
-		newString = newString.replaceAll("\\)","");
-		newString = newString.replaceAll("\\(", "");
-		return newString;
 	}
-	
+
 	/**
-	 * Determines if the sub-expression has more variables in it.
-	 * @param subExpression The section of the expression String to be checked
-	 *  for more variables.
-	 * @return A boolean indicating true if there are more variables in the
-	 *  sub-expression; false otherwise.
+	 * An expression String, with tables that answer the questions asked while building its
+	 *  tree in constant time. Each table is filled by one pass over the expression.
+	 * @author Kenneth Chin
+	 *
 	 */
-	private static boolean hasMoreVars(String subExpression){
-		for(int i=0; i<subExpression.length(); i++){
-			char currentChar = subExpression.charAt(i);
-			if(Character.isLetter(currentChar))
-				return true;
+	private static final class Source {
+
+		private final String expression; //The whole expression.
+		private final int[]  nextClose;  //The index of the first ')' at or after each index, or length().
+		private final int[]  prevOpen;   //The index of the last '(' before each index, or -1.
+		private final int[]  nextLetter; //The index of the first letter at or after each index, or length().
+		private int          cards;      //The number of cards built from the expression so far.
+
+		/**
+		 * Creates the Source of an expression.
+		 * @param expression The whole expression String.
+		 */
+		private Source(String expression){
+			int length      = expression.length();
+			this.expression = expression;
+			this.nextClose  = new int[length + 1];
+			this.prevOpen   = new int[length + 1];
+			this.nextLetter = new int[length + 1];
+			nextClose[length]  = length;
+			nextLetter[length] = length;
+			for(int i=length-1; i>=0; i--){
+				char currentChar = expression.charAt(i);
+				nextClose[i]  = (currentChar == ')') ? i : nextClose[i+1];
+				nextLetter[i] = Character.isLetter(currentChar) ? i : nextLetter[i+1];
+			}
+			prevOpen[0] = -1;
+			for(int i=0; i<length; i++)
+				prevOpen[i+1] = (expression.charAt(i) == '(') ? i : prevOpen[i];
+		}
+
+		/**
+		 * Returns the length of the expression.
+		 * @return An int. The number of characters.
+		 */
+		private int length(){
+			return expression.length();
+		}
+
+		/**
+		 * Returns the character at an index.
+		 * @param index An index of the expression.
+		 * @return The char at index.
+		 */
+		private char charAt(int index){
+			return expression.charAt(index);
+		}
+
+		/**
+		 * Returns the characters between two indices.
+		 * @param start The index of the first character.
+		 * @param end The index after the last character.
+		 * @return The String of the characters from start to end.
+		 */
+		private String substring(int start, int end){
+			return expression.substring(start, end);
+		}
+
+		/**
+		 * Finds the index of the innermost close parentheses of a range.
+		 * @param start The index of the first character of the range.
+		 * @param end The index after the last character of the range.
+		 * @return An int. The index of the first ')' in the range, or -1 if there is none.
+		 */
+		private int firstClose(int start, int end){
+			int index = nextClose[start];
+			return index < end ? index : -1;
+		}
+
+		/**
+		 * Finds the index of the last open parentheses of a range.
+		 * @param start The index of the first character of the range.
+		 * @param end The index after the last character of the range.
+		 * @return An int. The index of the last '(' in the range, or start - 1 if there is none.
+		 */
+		private int lastOpen(int start, int end){
+			int index = prevOpen[end];
+			return index >= start ? index : start - 1;
+		}
+
+		/**
+		 * Determines if a range has any variables in it.
+		 * @param start The index of the first character of the range.
+		 * @param end The index after the last character of the range.
+		 * @return A boolean indicating true if there is a letter in the range; false otherwise.
+		 */
+		private boolean hasLetter(int start, int end){
+			return nextLetter[start] < end;
+		}
+
+		/**
+		 * Returns the characters of a range, minus any parentheses.
+		 * @param start The index of the first character of the range.
+		 * @param end The index after the last character of the range.
+		 * @return The String of the range's characters, minus any parentheses.
+		 */
+		private String stripParentheses(int start, int end){
+			if(nextClose[start] >= end && prevOpen[end] < start)
+				return expression.substring(start, end);
+			StringBuilder builder = new StringBuilder(end - start);
+			for(int i=start; i<end; i++){
+				char currentChar = expression.charAt(i);
+				if(currentChar != '(' && currentChar != ')')
+					builder.append(currentChar);
+			}
+			return builder.toString();
 		}
-		return false;
 	}
 }
@@ -0,0 +1,190 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayDeque;
+
+/**
+ * An immutable node of a hash-consed expression DAG. Nodes are only created by a NodeFactory,
+ *  which returns the existing node whenever a structurally identical one is asked for, so a
+ *  sub-expression that appears in many expressions is stored once, and two nodes of the same
+ *  factory are structurally equal exactly when they are the same object.
+ * A node is a variable, a constant, the negation of one node, or a conditional of two nodes. The
+ *  operands of the commutative conditionals &, |, ^ and = are stored in order of their ids.
+ *  Constants have no syntax of their own in an expression String; they are produced by
+ *  ExpressionSimplifier, and are printed by toString() as 1 and 0.
+ * @author Kenneth Chin
+ *
+ */
+public final class ExpressionNode {
+
+	//The kinds of node.
+	public static final int VARIABLE   = 0;
+	public static final int NOT        = 1;
+	public static final int AND        = 2;
+	public static final int OR         = 3;
+	public static final int XOR        = 4;
+	public static final int IMPLIES    = 5;
+	public static final int EQUIVALENT = 6;
+	public static final int CONSTANT   = 7;
+
+	private final NodeFactory    factory; //The factory that created this node.
+	private final int            id;      //The node's number in its factory. Operands have lower ids.
+	private final int            op;      //The kind of node.
+	private final int            slot;    //The factory slot of a variable, 1 or 0 for a constant, or -1.
+	private final ExpressionNode left;    //The first operand, or null.
+	private final ExpressionNode right;   //The second operand, or null.
+
+	/**
+	 * Creates a node. Use the methods of a NodeFactory to obtain nodes.
+	 * @param factory The NodeFactory creating the node.
+	 * @param id The node's number in factory.
+	 * @param op The kind of node.
+	 * @param slot The factory slot of a variable, 1 or 0 for a constant, or -1.
+	 * @param left The first operand, or null.
+	 * @param right The second operand, or null.
+	 */
+	ExpressionNode(NodeFactory factory, int id, int op, int slot, ExpressionNode left, ExpressionNode right){
+		this.factory = factory;
+		this.id      = id;
+		this.op      = op;
+		this.slot    = slot;
+		this.left    = left;
+		this.right   = right;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the factory that created this node.
+	 * @return The NodeFactory.
+	 */
+	public NodeFactory getFactory(){
+		return factory;
+	}
+
+	/**
+	 * Returns the node's number. Nodes are numbered in the order they were created, so the
+	 *  operands of a node always have lower ids than the node itself.
+	 * @return An int. The node's id.
+	 */
+	public int getId(){
+		return id;
+	}
+
+	/**
+	 * Returns the kind of node.
+	 * @return One of VARIABLE, CONSTANT, NOT, AND, OR, XOR, IMPLIES or EQUIVALENT.
+	 */
+	public int getOp(){
+		return op;
+	}
+
+	/**
+	 * Determines if this node is a variable.
+	 * @return A boolean. True if the node is a variable.
+	 */
+	public boolean isVariable(){
+		return op == VARIABLE;
+	}
+
+	/**
+	 * Determines if this node is the constant true.
+	 * @return A boolean. True if the node is the constant true.
+	 */
+	public boolean isTrue(){
+		return op == CONSTANT && slot == 1;
+	}
+
+	/**
+	 * Determines if this node is the constant false.
+	 * @return A boolean. True if the node is the constant false.
+	 */
+	public boolean isFalse(){
+		return op == CONSTANT && slot == 0;
+	}
+
+	/**
+	 * Returns the slot of a variable in its factory's SymbolTable.
+	 * @return An int. The variable's slot, or -1 if this node is not a variable.
+	 */
+	public int getSlot(){
+		return slot;
+	}
+
+	/**
+	 * Returns the name of a variable.
+	 * @return The variable's name, or null if this node is not a variable.
+	 */
+	public String getVariable(){
+		return op == VARIABLE ? factory.getVariableName(slot) : null;
+	}
+
+	/**
+	 * Returns the first operand.
+	 * @return The ExpressionNode, or null if this node is a variable or a constant.
+	 */
+	public ExpressionNode getLeft(){
+		return left;
+	}
+
+	/**
+	 * Returns the second operand.
+	 * @return The ExpressionNode, or null if this node is a variable, a constant or a negation.
+	 */
+	public ExpressionNode getRight(){
+		return right;
+	}
+
+	/**
+	 * Returns the expression of this node, fully parenthesized. Shared nodes are printed once for
+	 *  each place they are used. The walk uses its own stack, so deep expressions cannot overflow
+	 *  the thread's stack.
+	 * @return The expression String.
+	 */
+	@Override
+	public String toString(){
+		StringBuilder      builder = new StringBuilder();
+		ArrayDeque<Object> pending = new ArrayDeque<Object>();
+		pending.push(this);
+		while(!pending.isEmpty()){
+			Object next = pending.pop();
+			if(next instanceof String){
+				builder.append((String)next);
+				continue;
+			}
+			ExpressionNode node = (ExpressionNode)next;
+			switch(node.op){
+				case VARIABLE : builder.append(node.getVariable()); break;
+				case CONSTANT : builder.append(node.slot);          break;
+				case NOT      :
+					builder.append("!(");
+					pending.push(")");
+					pending.push(node.left);
+					break;
+				default :
+					builder.append('(');
+					pending.push(")");
+					pending.push(node.right);
+					pending.push(symbolOf(node.op));
+					pending.push(node.left);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the symbol of a conditional.
+	 * @param op One of AND, OR, XOR, IMPLIES or EQUIVALENT.
+	 * @return The conditional's symbol.
+	 */
+	static String symbolOf(int op){
+		switch(op){
+			case AND        : return "&";
+			case OR         : return "|";
+			case XOR        : return "^";
+			case IMPLIES    : return ">";
+			case EQUIVALENT : return "=";
+			default : throw new IllegalArgumentException("The op " + op + " is not a conditional.");
+		}
+	}
+}
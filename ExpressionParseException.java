@@ -0,0 +1,44 @@
+package propositionalCalculatorV1_0;
+
+/**
+ * Thrown when an expression String does not follow the rules of a propositional expression.
+ *  The exception records the index of the character at which the error was found.
+ * @author Kenneth Chin
+ *
+ */
+public class ExpressionParseException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String reason;   //The description of the error, without its index.
+	private final int    position; //The index of the offending character.
+
+	/**
+	 * Creates an ExpressionParseException.
+	 * @param message A description of the error.
+	 * @param position The index in the expression String at which the error was found.
+	 */
+	public ExpressionParseException(String message, int position){
+		super(message + " (at index " + position + ")");
+		this.reason   = message;
+		this.position = position;
+	}
+
+	/**
+	 * Returns the same error at another index, for when the expression was read from a copy of
+	 *  the String with different indices.
+	 * @param position The index in the original expression String.
+	 * @return A new ExpressionParseException.
+	 */
+	ExpressionParseException at(int position){
+		return new ExpressionParseException(reason, position);
+	}
+
+	/**
+	 * Returns the index in the expression String at which the error was found.
+	 * @return An int. The index of the offending character.
+	 */
+	public int getPosition(){
+		return position;
+	}
+}
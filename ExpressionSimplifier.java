@@ -0,0 +1,418 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * This class simplifies expressions before they are evaluated. The expression is interned into a
+ *  NodeFactory, which already removes double negations and shares repeated sub-expressions, and
+ *  each node is then rewritten bottom-up with the rules of idempotence (a&a = a), complement
+ *  (a|!a = true), absorption (a&(a|b) = a), and constant propagation through every conditional.
+ *  Variables may be fixed to a value, in which case they become constants and are propagated
+ *  away, so the simplified expression only reads the variables that are still free.
+ * The simplified ExpressionCard tree is built card by card rather than printed and re-parsed: each
+ *  card holds one step of the evaluation, and the cards are chained through their left
+ *  sub-expressions so that the iterator visits them in evaluation order. The language has no
+ *  constants, so a simplified expression that is always true is returned as (v|!v), and one that
+ *  is always false as (v&!v), where v is a variable of the original expression.
+ * This class is singleton, and it's public methods are simplify(ExpressionCard),
+ *  simplify(ExpressionCard, Map<String, Boolean>), simplify(ExpressionNode, Map<String, Boolean>)
+ *  and toCards(ExpressionNode).
+ * @author Kenneth Chin
+ *
+ */
+public final class ExpressionSimplifier {
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private ExpressionSimplifier(){}
+
+	/**
+	 * Simplifies the expression expressed by root's iterator.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be simplified.
+	 * @return The ExpressionCard at the root of a new tree that evaluates to the same truth value
+	 *  as root for every combination of values.
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate.
+	 */
+	public static ExpressionCard simplify(ExpressionCard root){
+		return simplify(root, null);
+	}
+
+	/**
+	 * Simplifies the expression expressed by root's iterator, with some variables fixed to a value.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree. The iterator
+	 *  of root should return the entire expression to be simplified.
+	 * @param fixed A Map<String, Boolean> of the variables to fix and their values, or null to fix
+	 *  none. Variables the expression does not use are ignored.
+	 * @return The ExpressionCard at the root of a new tree that evaluates to the same truth value
+	 *  as root for every combination of values that agrees with fixed. The new tree does not
+	 *  read the fixed variables, unless it is a constant.
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate.
+	 */
+	public static ExpressionCard simplify(ExpressionCard root, Map<String, Boolean> fixed){
+		NodeFactory factory = new NodeFactory();
+		return toCards(simplify(factory.intern(root), fixed));
+	}
+
+	/**
+	 * Simplifies an ExpressionNode. The simplified node is created by the same NodeFactory, so it
+	 *  shares every sub-expression the factory already holds.
+	 * @param node The ExpressionNode to simplify.
+	 * @param fixed A Map<String, Boolean> of the variables to fix and their values, or null to fix
+	 *  none.
+	 * @return An equivalent ExpressionNode, which may be a constant.
+	 */
+	public static ExpressionNode simplify(ExpressionNode node, Map<String, Boolean> fixed){
+		NodeFactory factory = node.getFactory();
+
+		//Mark the nodes node uses. Operands have lower ids, so visiting the marked nodes in id
+		// order simplifies every operand before the nodes that use it.
+		int       size      = node.getId() + 1;
+		boolean[] reachable = new boolean[size];
+		ArrayDeque<ExpressionNode> pending = new ArrayDeque<ExpressionNode>();
+		pending.push(node);
+		while(!pending.isEmpty()){
+			ExpressionNode next = pending.pop();
+			if(reachable[next.getId()])
+				continue;
+			reachable[next.getId()] = true;
+			if(next.getLeft() != null)
+				pending.push(next.getLeft());
+			if(next.getRight() != null)
+				pending.push(next.getRight());
+		}
+
+		ExpressionNode[] simplified = new ExpressionNode[size];
+		for(int id=0; id<size; id++){
+			if(!reachable[id])
+				continue;
+			ExpressionNode original = factory.getNode(id);
+			switch(original.getOp()){
+				case ExpressionNode.VARIABLE :
+					Boolean value = (fixed == null) ? null : fixed.get(original.getVariable());
+					simplified[id] = (value == null) ? original : factory.constant(value);
+					break;
+				case ExpressionNode.CONSTANT :
+					simplified[id] = original;
+					break;
+				case ExpressionNode.NOT :
+					simplified[id] = factory.not(simplified[original.getLeft().getId()]);
+					break;
+				default :
+					simplified[id] = combine(factory, original.getOp(),
+					                         simplified[original.getLeft().getId()], simplified[original.getRight().getId()]);
+			}
+		}
+		return simplified[node.getId()];
+	}
+
+	/**
+	 * Applies a conditional to two simplified operands, simplifying the result.
+	 * @param factory The NodeFactory of the operands.
+	 * @param op One of ExpressionNode's conditionals.
+	 * @param a The first operand.
+	 * @param b The second operand.
+	 * @return The simplified ExpressionNode of a op b.
+	 */
+	private static ExpressionNode combine(NodeFactory factory, int op, ExpressionNode a, ExpressionNode b){
+		boolean same       = (a == b);
+		boolean complement = isComplement(a, b);
+		switch(op){
+			case ExpressionNode.AND :
+				if(a.isFalse() || b.isFalse() || complement)
+					return factory.constant(false);
+				//a&(a|c) = a, and a&(a&c) = a&c.
+				if(a.isTrue() || absorbs(ExpressionNode.OR, a, b) || absorbs(ExpressionNode.AND, b, a))
+					return b;
+				if(b.isTrue() || same || absorbs(ExpressionNode.OR, b, a) || absorbs(ExpressionNode.AND, a, b))
+					return a;
+				return factory.and(a, b);
+			case ExpressionNode.OR :
+				if(a.isTrue() || b.isTrue() || complement)
+					return factory.constant(true);
+				//a|(a&c) = a, and a|(a|c) = a|c.
+				if(a.isFalse() || absorbs(ExpressionNode.AND, a, b) || absorbs(ExpressionNode.OR, b, a))
+					return b;
+				if(b.isFalse() || same || absorbs(ExpressionNode.AND, b, a) || absorbs(ExpressionNode.OR, a, b))
+					return a;
+				return factory.or(a, b);
+			case ExpressionNode.XOR :
+				if(same)
+					return factory.constant(false);
+				if(complement)
+					return factory.constant(true);
+				if(a.isFalse())
+					return b;
+				if(b.isFalse())
+					return a;
+				if(a.isTrue())
+					return factory.not(b);
+				if(b.isTrue())
+					return factory.not(a);
+				return factory.xor(a, b);
+			case ExpressionNode.IMPLIES :
+				//a>!a = !a, and !a>a = a.
+				if(a.isFalse() || b.isTrue() || same)
+					return factory.constant(true);
+				if(a.isTrue() || complement)
+					return b;
+				if(b.isFalse())
+					return factory.not(a);
+				return factory.implies(a, b);
+			case ExpressionNode.EQUIVALENT :
+				if(same)
+					return factory.constant(true);
+				if(complement)
+					return factory.constant(false);
+				if(a.isTrue())
+					return b;
+				if(b.isTrue())
+					return a;
+				if(a.isFalse())
+					return factory.not(b);
+				if(b.isFalse())
+					return factory.not(a);
+				return factory.equivalent(a, b);
+			default : throw new IllegalArgumentException("The op " + op + " is not a conditional.");
+		}
+	}
+
+	/**
+	 * Determines if one node is the negation of the other.
+	 * @param a An ExpressionNode.
+	 * @param b An ExpressionNode of the same factory.
+	 * @return A boolean. True if a is !b or b is !a.
+	 */
+	private static boolean isComplement(ExpressionNode a, ExpressionNode b){
+		return (a.getOp() == ExpressionNode.NOT && a.getLeft() == b)
+		    || (b.getOp() == ExpressionNode.NOT && b.getLeft() == a);
+	}
+
+	/**
+	 * Determines if a node is a conditional of the given kind with the other node as an operand.
+	 * @param op One of ExpressionNode's conditionals.
+	 * @param node An ExpressionNode.
+	 * @param operand An ExpressionNode of the same factory.
+	 * @return A boolean. True if node is (operand op x) or (x op operand).
+	 */
+	private static boolean absorbs(int op, ExpressionNode node, ExpressionNode operand){
+		return node.getOp() == op && (node.getLeft() == operand || node.getRight() == operand);
+	}
+
+
+	//ExpressionCard tree building.
+
+	/**
+	 * Builds an ExpressionCard tree of an ExpressionNode. Like the cards ExpressionDisAssembler
+	 *  makes, each card holds a run of variables read from left to right (a&b|c is (a&b)|c),
+	 *  possibly combined with the value of the cards before it: a run that starts with a
+	 *  conditional is combined with the previous value, and a run that ends with one is combined
+	 *  with the value after it. The cards are chained through their left sub-expressions, so
+	 *  root's iterator returns them in evaluation order. Shared nodes are written out once for
+	 *  each place they are used.
+	 * @param node The ExpressionNode to express. A constant is expressed as (v|!v) or (v&!v),
+	 *  where v is the first variable of node's factory.
+	 * @return The ExpressionCard at the root of the new tree.
+	 * @throws IllegalArgumentException If node is a constant and its factory has no variables, or
+	 *  if a constant appears inside node (see simplify(ExpressionNode, Map<String, Boolean>)).
+	 */
+	public static ExpressionCard toCards(ExpressionNode node){
+		if(node.getOp() == ExpressionNode.CONSTANT){
+			if(node.getFactory().getVariableCount() == 0)
+				throw new IllegalArgumentException("A constant cannot be expressed without a variable.");
+			String name = node.getFactory().getVariableName(0);
+			return new ExpressionCard(null, null, name + (node.isTrue() ? "|!" : "&!") + name, null, false);
+		}
+
+		//Walk the node in postfix order with an explicit stack. A compound node is pushed once to
+		// emit the operands that are not part of its own card, and again as a Step to emit its card.
+		CardChain          chain   = new CardChain(node.getFactory().size());
+		ArrayDeque<Object> pending = new ArrayDeque<Object>();
+		pending.push(node);
+		while(!pending.isEmpty()){
+			Object next = pending.pop();
+			if(next instanceof Step){
+				Step step = (Step)next;
+				if(step.card == null)
+					chain.negateLast();
+				else
+					chain.append(step.card);
+				continue;
+			}
+			ExpressionNode current = (ExpressionNode)next;
+			if(current.getOp() == ExpressionNode.CONSTANT)
+				throw new IllegalArgumentException("Only a whole expression can be a constant; simplify the node first.");
+			if(chain.isRun(current)){
+				chain.append(chain.run(current));
+				continue;
+			}
+			if(current.getOp() == ExpressionNode.NOT){
+				//The negation of a compound node negates its last card.
+				pending.push(new Step(null));
+				pending.push(current.getLeft());
+				continue;
+			}
+			ExpressionNode left   = current.getLeft();
+			ExpressionNode right  = current.getRight();
+			String         symbol = ExpressionNode.symbolOf(current.getOp());
+			if(chain.isRun(right)){
+				pending.push(new Step(symbol + chain.run(right)));
+				pending.push(left);
+			}
+			else if(chain.isRun(left)){
+				pending.push(new Step(chain.run(left) + symbol));
+				pending.push(right);
+			}
+			else{
+				pending.push(new Step(symbol));
+				pending.push(right);
+				pending.push(left);
+			}
+		}
+		return chain.root;
+	}
+
+	/**
+	 * Determines if a node can be written as a variable or a negated variable.
+	 * @param node An ExpressionNode.
+	 * @return A boolean. True if node is a variable, or the negation of one.
+	 */
+	private static boolean isLiteral(ExpressionNode node){
+		return node.isVariable() || (node.getOp() == ExpressionNode.NOT && node.getLeft().isVariable());
+	}
+
+	/**
+	 * Writes a variable or a negated variable.
+	 * @param node An ExpressionNode for which isLiteral(ExpressionNode) is true.
+	 * @return The variable's name, preceded by ! if it is negated.
+	 */
+	private static String literal(ExpressionNode node){
+		return node.isVariable() ? node.getVariable() : "!" + node.getLeft().getVariable();
+	}
+
+	/**
+	 * Returns the operand a run continues through: the operand of a conditional that is not a
+	 *  literal when the other one is. A run reads its literals from left to right, so only a
+	 *  commutative conditional may continue through its second operand.
+	 * @param node An ExpressionNode.
+	 * @return The operand the run continues through, or null if node is not a conditional with a
+	 *  literal operand.
+	 */
+	private static ExpressionNode runOperand(ExpressionNode node){
+		if(node.getRight() == null)
+			return null;
+		if(isLiteral(node.getRight()))
+			return node.getLeft();
+		if(node.getOp() != ExpressionNode.IMPLIES && isLiteral(node.getLeft()))
+			return node.getRight();
+		return null;
+	}
+
+
+	/**
+	 * The chain of ExpressionCards being built, and which nodes can be written as a single run.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class CardChain {
+
+		private static final byte UNKNOWN = 0;
+		private static final byte RUN     = 1;
+		private static final byte NOT_RUN = 2;
+
+		private final byte[]   runs; //Per node id: whether the node is a run.
+		private ExpressionCard root; //The first card.
+		private ExpressionCard last; //The last card.
+
+		/**
+		 * Creates an empty chain.
+		 * @param size The number of nodes of the factory.
+		 */
+		private CardChain(int size){
+			this.runs = new byte[size];
+		}
+
+		/**
+		 * Chains a new card after the last one.
+		 * @param expression The new card's sub-expression.
+		 */
+		private void append(String expression){
+			ExpressionCard card = new ExpressionCard(last, null, expression, null, false);
+			if(last == null)
+				root = card;
+			else
+				last.setLeftEx(card);
+			last = card;
+		}
+
+		/**
+		 * Negates the value of the last card.
+		 */
+		private void negateLast(){
+			last.setNot(true);
+		}
+
+		/**
+		 * Determines if a node can be written as a single run of literals. The nodes a run
+		 *  continues through are runs exactly when the node is, so they are all recorded at once
+		 *  and every node is walked at most once.
+		 * @param node An ExpressionNode.
+		 * @return A boolean. True if node is a literal, or a conditional of a run and a literal.
+		 */
+		private boolean isRun(ExpressionNode node){
+			ExpressionNode end = node;
+			while(runs[end.getId()] == UNKNOWN && !isLiteral(end) && runOperand(end) != null)
+				end = runOperand(end);
+			byte result = (runs[end.getId()] != UNKNOWN) ? runs[end.getId()] : (isLiteral(end) ? RUN : NOT_RUN);
+			for(ExpressionNode n=node; n != end; n=runOperand(n))
+				runs[n.getId()] = result;
+			runs[end.getId()] = result;
+			return result == RUN;
+		}
+
+		/**
+		 * Writes a run.
+		 * @param node An ExpressionNode for which isRun(ExpressionNode) is true.
+		 * @return The run's sub-expression String.
+		 */
+		private String run(ExpressionNode node){
+			ArrayDeque<ExpressionNode> spine = new ArrayDeque<ExpressionNode>();
+			ExpressionNode end = node;
+			while(!isLiteral(end)){
+				spine.push(end);
+				end = runOperand(end);
+			}
+			StringBuilder builder = new StringBuilder(literal(end));
+			while(!spine.isEmpty()){
+				ExpressionNode n = spine.pop();
+				builder.append(ExpressionNode.symbolOf(n.getOp()));
+				builder.append(literal(n.getLeft() == end ? n.getRight() : n.getLeft()));
+				end = n;
+			}
+			return builder.toString();
+		}
+	}
+
+
+	/**
+	 * A card to emit once the operands before it have been emitted.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Step {
+
+		private final String card; //The card's sub-expression, or null to negate the last card.
+
+		/**
+		 * Creates a Step.
+		 * @param card The card's sub-expression, or null to negate the last card.
+		 */
+		private Step(String card){
+			this.card = card;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package propositionalCalculatorV1_0;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Puts load on an EvaluationServer: a number of connections, each on its own thread, send a mix
+ *  of evaluation and satisfiability requests, keeping up to a set number of requests pipelined.
+ *  Every evaluation's answer is checked against a PropositionalExpression evaluated locally.
+ * The report gives the number of responses of each status, the throughput, and the median, 99th
+ *  percentile and largest latency from sending a request to receiving its response.
+ * This class is singleton, and it's public method is run.
+ * @author Kenneth Chin
+ *
+ */
+public final class LoadGenerator {
+
+	//The variables of the generated expressions.
+	private static final String VARIABLES = "ABCDEFGHIJKLMNOP";
+	//The conditionals of the generated expressions.
+	private static final String CONDITIONALS = "&|^>=";
+	//The number of distinct expressions each connection sends.
+	private static final int EXPRESSIONS = 64;
+
+	//Indexes into a connection's tallies.
+	private static final int OK        = 0;
+	private static final int INVALID   = 1;
+	private static final int BUSY      = 2;
+	private static final int MALFORMED = 3;
+	private static final int WRONG     = 4;
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private LoadGenerator(){}
+
+	/**
+	 * Runs the load, and prints a report.
+	 * @param address The server's SocketAddress.
+	 * @param connections The number of connections, each on its own thread.
+	 * @param requests The number of requests each connection sends.
+	 * @param pipeline The most requests a connection has unanswered at once.
+	 * @param satisfiabilityPercent The percentage of requests that are satisfiability searches.
+	 * @param report The PrintStream to print the report to.
+	 * @return A boolean. True if every request was answered, and every evaluation answered correctly.
+	 * @throws IOException If a connection failed.
+	 * @throws InterruptedException If the calling thread is interrupted while waiting for the load.
+	 * @throws IllegalArgumentException If connections, requests or pipeline is less than 1, or
+	 *  satisfiabilityPercent is not from 0 to 100.
+	 */
+	public static boolean run(final SocketAddress address, int connections, final int requests, final int pipeline,
+	                          final int satisfiabilityPercent, PrintStream report) throws IOException, InterruptedException{
+		if(connections < 1 || requests < 1 || pipeline < 1)
+			throw new IllegalArgumentException("There must be at least one connection, request and pipelined request.");
+		if(satisfiabilityPercent < 0 || satisfiabilityPercent > 100)
+			throw new IllegalArgumentException("The satisfiability percentage must be from 0 to 100.");
+		final AtomicLongArray tallies   = new AtomicLongArray(WRONG + 1);
+		final long[][]        latencies = new long[connections][];
+		final IOException[]   failures  = new IOException[connections];
+		Thread[]              threads   = new Thread[connections];
+		long                  started   = System.nanoTime();
+		for(int c=0; c<connections; c++){
+			final int connection = c;
+			threads[c] = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					try{
+						latencies[connection] = load(address, requests, pipeline, satisfiabilityPercent, connection, tallies);
+					}
+					catch(IOException e){
+						failures[connection] = e;
+					}
+				}
+			}, "load-generator-" + (c + 1));
+			threads[c].start();
+		}
+		for(Thread thread:threads)
+			thread.join();
+		long elapsed = System.nanoTime() - started;
+		for(IOException failure:failures){
+			if(failure != null)
+				throw failure;
+		}
+
+		long[] all = new long[connections * requests];
+		for(int c=0; c<connections; c++)
+			System.arraycopy(latencies[c], 0, all, c * requests, requests);
+		Arrays.sort(all);
+		report.println("Requests:    " + all.length + " over " + connections + " connections, " + pipeline + " pipelined, "
+		               + satisfiabilityPercent + "% satisfiability");
+		report.println("Responses:   " + tallies.get(OK) + " ok, " + tallies.get(INVALID) + " invalid, " + tallies.get(BUSY)
+		               + " busy, " + tallies.get(MALFORMED) + " malformed, " + tallies.get(WRONG) + " wrong");
+		report.printf("Throughput:  %.0f requests/s in %.3f s%n", all.length / (elapsed / 1e9), elapsed / 1e9);
+		report.printf("Latency:     median %.1f us, p99 %.1f us, max %.1f us%n",
+		              all[all.length / 2] / 1e3, all[Math.min(all.length - 1, (int)(all.length * 0.99))] / 1e3, all[all.length - 1] / 1e3);
+		return tallies.get(INVALID) + tallies.get(MALFORMED) + tallies.get(WRONG) == 0;
+	}
+
+	/**
+	 * Sends one connection's requests, and receives their responses.
+	 * @param address The server's SocketAddress.
+	 * @param requests The number of requests to send.
+	 * @param pipeline The most requests unanswered at once.
+	 * @param satisfiabilityPercent The percentage of requests that are satisfiability searches.
+	 * @param seed The seed of the connection's expressions and assignments.
+	 * @param tallies The AtomicLongArray of each kind of response, added to.
+	 * @return A long[] of each request's latency in nanoseconds.
+	 * @throws IOException If the connection failed.
+	 */
+	private static long[] load(SocketAddress address, int requests, int pipeline, int satisfiabilityPercent,
+	                           long seed, AtomicLongArray tallies) throws IOException{
+		Random                             random      = new Random(seed);
+		ArrayList<PropositionalExpression> expressions = new ArrayList<PropositionalExpression>(EXPRESSIONS);
+		for(int i=0; i<EXPRESSIONS; i++)
+			expressions.add(PropositionalExpression.parse(generate(random)));
+
+		long[]                             sentAt      = new long[requests + 1];
+		PropositionalExpression[]          sentWith    = new PropositionalExpression[requests + 1];
+		HashMap<String, Boolean>[]         sentValues  = newMaps(requests + 1);
+		long[]                             latencies   = new long[requests];
+		int[]                              tally       = new int[WRONG + 1];
+		int                                sent        = 0;
+		int                                received    = 0;
+		try(EvaluationClient client = EvaluationClient.connect(address)){
+			while(received < requests){
+				while(sent < requests && sent - received < pipeline){
+					PropositionalExpression expression = expressions.get(random.nextInt(EXPRESSIONS));
+					int                     id;
+					if(random.nextInt(100) < satisfiabilityPercent){
+						id = client.sendSatisfy(expression.getExpression());
+					}
+					else{
+						HashMap<String, Boolean> values = new HashMap<String, Boolean>();
+						for(String variable:expression.getVariables())
+							values.put(variable, random.nextBoolean());
+						id = client.sendEvaluate(expression.getExpression(), values);
+						sentValues[id] = values;
+					}
+					sentWith[id] = expression;
+					sentAt[id]   = System.nanoTime();
+					sent++;
+				}
+				EvaluationClient.Response response = client.receive();
+				int                       id       = response.getId();
+				latencies[received++] = System.nanoTime() - sentAt[id];
+				tally[response.getStatus()]++;
+				//Check evaluations, and that a satisfying assignment does satisfy.
+				if(response.getStatus() == EvaluationProtocol.OK){
+					if(sentValues[id] != null && response.getValue() != sentWith[id].evaluate(sentValues[id]))
+						tally[WRONG]++;
+					if(sentValues[id] == null && response.getValue() && !sentWith[id].evaluate(response.getAssignment()))
+						tally[WRONG]++;
+				}
+				sentValues[id] = null;
+				sentWith[id]   = null;
+			}
+		}
+		for(int i=0; i<tally.length; i++)
+			tallies.addAndGet(i, tally[i]);
+		return latencies;
+	}
+
+	/**
+	 * Generates a random expression of 2 to 12 variables, with some negated and some grouped.
+	 * @param random The Random to draw from.
+	 * @return An expression String.
+	 */
+	private static String generate(Random random){
+		int           operands = 2 + random.nextInt(11);
+		StringBuilder builder  = new StringBuilder();
+		for(int i=0; i<operands; i++){
+			if(i > 0)
+				builder.append(CONDITIONALS.charAt(random.nextInt(CONDITIONALS.length())));
+			if(random.nextInt(4) == 0)
+				builder.append('!');
+			builder.append(VARIABLES.charAt(random.nextInt(VARIABLES.length())));
+		}
+		//Group the first half, so that the expressions are not all flat.
+		if(operands > 3){
+			int split = builder.length() / 2;
+			while(VARIABLES.indexOf(builder.charAt(split)) < 0)
+				split++;
+			builder.insert(split + 1, ')').insert(0, '(');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Creates an array of maps.
+	 * @param length The array's length.
+	 * @return A new HashMap<String, Boolean>[] of nulls.
+	 */
+	@SuppressWarnings("unchecked")
+	private static HashMap<String, Boolean>[] newMaps(int length){
+		return (HashMap<String, Boolean>[])new HashMap<?, ?>[length];
+	}
+}
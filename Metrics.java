@@ -0,0 +1,100 @@
+package propositionalCalculatorV1_0;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * This class holds the OperationStats of the calculator's main operations, and publishes them,
+ *  along with any ExpressionCache registered with it, as MBeans of the platform MBeanServer:
+ * <pre>
+ *  propositionalCalculatorV1_0:type=Operation,name=Parse           ExpressionDisAssembler.getCards
+ *  propositionalCalculatorV1_0:type=Operation,name=Evaluation      ExpressionEvaluator.evaluateExpressionCards
+ *  propositionalCalculatorV1_0:type=Operation,name=Satisfiability  SatisfiablilityCalculator.findSatisfiablility
+ *  propositionalCalculatorV1_0:type=ExpressionCache,name=...       register(ExpressionCache, String)
+ * </pre>
+ * Evaluation also covers the Assignment and short-circuit evaluations of ExpressionEvaluator and
+ *  every evaluate method of PropositionalExpression, which count the compiled program's
+ *  instructions as the cards visited. Satisfiability covers every search of
+ *  SatisfiablilityCalculator and PropositionalExpression: the truth table searches,
+ *  parallel, forEach and stream, and the CDCL searches, which count the solver's decisions and
+ *  propagations as the assignments explored.
+ * Collection is on unless the system property "propositionalCalculatorV1_0.metrics" is "false".
+ *  Each operation can also be turned on or off while running, through its MBean's Enabled
+ *  attribute or setEnabled(boolean). Parses and evaluations are short, so one in 16 is sampled
+ *  for latency; every satisfiability search is. If the MBeans cannot be registered, statistics are still
+ *  collected and can be read from the fields.
+ * This class is singleton, and it's public methods are setEnabled(boolean) and
+ *  register(ExpressionCache, String).
+ * @author Kenneth Chin
+ *
+ */
+public final class Metrics {
+
+	//The system property that turns collection off when it is "false".
+	public static final String ENABLED_PROPERTY = "propositionalCalculatorV1_0.metrics";
+
+	//The domain of the MBeans' ObjectNames.
+	public static final String DOMAIN = "propositionalCalculatorV1_0";
+
+	private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+
+	public static final OperationStats PARSE =
+			new OperationStats(OperationStats.PARSE, "Parse", "characters parsed", "cards built", 16, ENABLED);
+	public static final OperationStats EVALUATION =
+			new OperationStats(OperationStats.EVALUATION, "Evaluation", "cards visited", "true evaluations", 16, ENABLED);
+	public static final OperationStats SATISFIABILITY =
+			new OperationStats(OperationStats.SATISFIABILITY, "Satisfiability", "assignments explored", "satisfying assignments", 1, ENABLED);
+
+	static{
+		for(OperationStats stats:new OperationStats[]{PARSE, EVALUATION, SATISFIABILITY})
+			register(new StandardMBean(stats, OperationStatsMBean.class, false), "type=Operation,name=" + stats.getName());
+	}
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private Metrics(){}
+
+	/**
+	 * Turns the collection of every operation's statistics on or off.
+	 * @param enabled True to collect statistics, false to stop.
+	 */
+	public static void setEnabled(boolean enabled){
+		PARSE.setEnabled(enabled);
+		EVALUATION.setEnabled(enabled);
+		SATISFIABILITY.setEnabled(enabled);
+	}
+
+	/**
+	 * Publishes an ExpressionCache's hit rates and size as an MBean.
+	 * @param cache The ExpressionCache.
+	 * @param name The name that tells the cache apart from others.
+	 * @return A boolean. True if the MBean was registered; false if the name is taken or the
+	 *  platform MBeanServer is not available.
+	 */
+	public static boolean register(ExpressionCache cache, String name){
+		return register(new StandardMBean(cache, ExpressionCacheMBean.class, false),
+		                "type=ExpressionCache,name=" + ObjectName.quote(name));
+	}
+
+	/**
+	 * Registers an MBean with the platform MBeanServer.
+	 * @param mbean The StandardMBean.
+	 * @param properties The key properties of its ObjectName.
+	 * @return A boolean. True if the MBean was registered.
+	 */
+	private static boolean register(StandardMBean mbean, String properties){
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(mbean, new ObjectName(DOMAIN + ":" + properties));
+			return true;
+		}
+		catch(JMException | SecurityException e){
+			return false;
+		}
+	}
+}
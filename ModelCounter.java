@@ -0,0 +1,1007 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class counts the combinations of truth values for which an expression is true (#SAT),
+ *  without enumerating the combinations. The compiled expression is rebuilt as a hash-consed
+ *  circuit of n-ary AND and XOR gates with negated edges, so a chain of one operator, such as the
+ *  clauses of a rule in conjunctive normal form, is a single gate. The circuit is counted by a
+ *  DPLL-style search over it that caches the count of every component:
+ *  - An AND gate with a variable among its operands is only true with that variable fixed, so
+ *    the variable is fixed without branching (unit propagation).
+ *  - The operands of a gate are split into components that share no variables. Each component
+ *    is a gate of its own, counted on its own, and the counts are combined (multiplied for AND,
+ *    mixed by parity for XOR).
+ *  - Otherwise the variable read by the most operands is branched on, and the gate is restricted
+ *    with that variable fixed to each value. Restricted gates are hash-consed, so an equal
+ *    component met on different branches is the same gate, and each gate's count is cached.
+ *  - A gate over at most LEAF_VARIABLES variables is counted bit-sliced, 64 rows at a time.
+ * Variables the expression does not use double the count instead of being branched on.
+ * The gates and cached counts of a count are kept within a memory budget. A count that needs more
+ *  throws an IllegalStateException instead of exhausting the heap.
+ * This class is singleton, and it's public methods are countModels(ExpressionCard),
+ *  countModels(HashMap<String, Boolean>, ExpressionCard), countModels(SymbolTable, ExpressionCard),
+ *  countModels(CompiledExpression) and countModels(CompiledExpression, long). No state is kept in
+ *  static fields, so any number of counts may run at once.
+ * @author Kenneth Chin
+ *
+ */
+public final class ModelCounter {
+
+	//Gates over at most this many variables are counted by evaluating their truth table.
+	private static final int LEAF_VARIABLES = 12;
+
+	//The memory budget of a count when none is given: a quarter of the largest heap.
+	private static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private ModelCounter(){}
+
+	/**
+	 * Counts the combinations of truth values of the expression's own variables for which
+	 *  aRoot's expression is true.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be counted.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 * @throws IllegalStateException If the count needs more than the default memory budget.
+	 */
+	public static BigInteger countModels(ExpressionCard aRoot){
+		return countModels(ExpressionCompiler.compile(aRoot));
+	}
+
+	/**
+	 * Counts the combinations of truth values for each variable given by aMap for which aRoot's
+	 *  expression is true. This is the size of the list that
+	 *  SatisfiablilityCalculator.findSatisfiablility(HashMap<String, Boolean>, ExpressionCard)
+	 *  returns, but no combination is ever built.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression. Its values are ignored.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be counted.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 * @throws IllegalStateException If the count needs more than the default memory budget.
+	 */
+	public static BigInteger countModels(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		return countModels(new SymbolTable(new ArrayList<String>(aMap.keySet())), aRoot);
+	}
+
+	/**
+	 * Counts the combinations of truth values for each variable of symbols for which aRoot's
+	 *  expression is true. Variables of symbols that the expression does not use double the count.
+	 * @param symbols The SymbolTable of the variables to be counted over.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be counted.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 * @throws IllegalArgumentException If the expression uses a variable that is not in symbols.
+	 * @throws IllegalStateException If the count needs more than the default memory budget.
+	 */
+	public static BigInteger countModels(SymbolTable symbols, ExpressionCard aRoot){
+		return countModels(ExpressionCompiler.compile(aRoot, symbols));
+	}
+
+	/**
+	 * Counts the combinations of truth values for each variable slot of a compiled expression for
+	 *  which the expression is true, within the default memory budget of a quarter of the heap.
+	 * @param compiled The CompiledExpression to be counted.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 * @throws IllegalStateException If the count needs more than the default memory budget.
+	 */
+	public static BigInteger countModels(CompiledExpression compiled){
+		return countModels(compiled, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Counts the combinations of truth values for each variable slot of a compiled expression for
+	 *  which the expression is true, keeping the count's gates and cached counts within a memory
+	 *  budget. The memory used is estimated, so the budget is approximate.
+	 * @param compiled The CompiledExpression to be counted.
+	 * @param memoryBudget The most memory the count may use, in bytes.
+	 * @return A BigInteger. The number of satisfying combinations.
+	 * @throws IllegalStateException If the count needs more than memoryBudget bytes.
+	 */
+	public static BigInteger countModels(CompiledExpression compiled, long memoryBudget){
+		Circuit circuit = new Circuit(compiled.getVariableCount(), memoryBudget);
+		int     root    = circuit.build(compiled);
+		return circuit.countLiteral(root).shiftLeft(compiled.getVariableCount() - circuit.supportSize(root));
+	}
+
+
+	/**
+	 * A hash-consed circuit of n-ary AND and XOR gates, and the state of a count over it. Gate 0 is
+	 *  the constant true. A literal is a gate number shifted left once, with the low bit set if the
+	 *  gate is negated, so literal 0 is true and literal 1 is false.
+	 * The operands of a gate are sorted, distinct literals, and never constants. An AND gate has no
+	 *  operand that is itself an AND gate and not negated, and an XOR gate has only operands that
+	 *  are not negated and are not XOR gates; their operands are merged in instead.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Circuit {
+
+		private static final int VARIABLE = 0;
+		private static final int AND      = 1;
+		private static final int XOR      = 2;
+		private static final int LITERAL  = 3;      //A Chain holding a single literal.
+		private static final int TRUE     = 0;
+		private static final int FALSE    = 1;
+
+		//Estimates of the bytes used by a gate besides its operands and support, and by a cached
+		// count besides its digits.
+		private static final long GATE_BYTES  = 160;
+		private static final long COUNT_BYTES = 96;
+
+		private final int    numVars;
+		private final int    supportWords;              //Longs per support bitmask.
+		private final long   memoryBudget;
+		private long         memoryUsed = 0;
+		private final int[]  variableGates;             //Per slot: the slot's VARIABLE gate, or 0.
+		private final int[]  slotIndex;                 //Per slot: scratch local indices.
+		private final int[]  parent;                    //Per slot: scratch union-find parents.
+		private final int[]  parentMark;                //Per slot: the split that set parent.
+		private final int[]  componentOf;               //Per slot: the component numbered at its root.
+		private final int[]  componentMark;             //Per slot: the split that set componentOf.
+		private final int[]  occurrences;               //Per slot: scratch operand counts.
+		private final int[]  occurrenceMark;            //Per slot: the stamp that set occurrences.
+		private int[]    kind         = new int[64];    //Per gate: VARIABLE, AND or XOR.
+		private int[]    slotOf       = new int[64];    //Per gate: a VARIABLE gate's slot.
+		private int[][]  operands     = new int[64][];  //Per gate: an AND or XOR gate's operand literals.
+		private long[][] support      = new long[64][]; //Per gate: a bitmask of the slots it depends on.
+		private int[]    supportSize  = new int[64];    //Per gate: the number of slots it depends on.
+		private int[]    mark         = new int[64];    //Per gate: scratch stamps for traversals.
+		private int[]    restrictMark = new int[64];    //Per gate: the restriction that restricted it.
+		private int[]    restricted   = new int[64];    //Per gate: its literal under that restriction.
+		private int      gates        = 1;
+		private int      stamp        = 0;
+		private int      split        = 0;
+		private int      restriction  = 0;
+		private final HashMap<GateKey, Integer>    unique = new HashMap<GateKey, Integer>();
+		private final HashMap<Integer, BigInteger> counts = new HashMap<Integer, BigInteger>();
+
+		/**
+		 * Creates a circuit holding only the constant true.
+		 * @param numVars The number of variable slots.
+		 * @param memoryBudget The most memory the circuit's gates and counts may use, in bytes.
+		 */
+		private Circuit(int numVars, long memoryBudget){
+			this.numVars        = numVars;
+			this.supportWords   = Math.max(1, (numVars + 63) >>> 6);
+			this.memoryBudget   = memoryBudget;
+			this.variableGates  = new int[numVars];
+			this.slotIndex      = new int[numVars];
+			this.parent         = new int[numVars];
+			this.parentMark     = new int[numVars];
+			this.componentOf    = new int[numVars];
+			this.componentMark  = new int[numVars];
+			this.occurrences    = new int[numVars];
+			this.occurrenceMark = new int[numVars];
+			support[0]          = new long[supportWords];
+		}
+
+		/**
+		 * Builds the circuit of a compiled expression. The stack holds open chains of one operator,
+		 *  which later operators of the same kind add to, so a chain of n operators is built in
+		 *  about n log n steps and becomes one gate when it is closed.
+		 * @param compiled The CompiledExpression.
+		 * @return An int. The literal of the whole expression.
+		 */
+		private int build(CompiledExpression compiled){
+			Chain[] stack = new Chain[Math.max(1, compiled.getMaxStackDepth())];
+			int     top   = -1;
+			for(int instruction:compiled.getCode()){
+				int opcode = CompiledExpression.opcode(instruction);
+				switch(opcode){
+					case CompiledExpression.PUSH     : stack[++top] = new Chain(variable(CompiledExpression.operand(instruction))); break;
+					case CompiledExpression.PUSH_NOT : stack[++top] = new Chain(variable(CompiledExpression.operand(instruction)) ^ 1); break;
+					case CompiledExpression.NOT      : stack[top].negate(); break;
+					default :
+						Chain b = stack[top--];
+						Chain a = stack[top];
+						stack[top] = combine(opcode, a, b);
+				}
+			}
+			return close(stack[0]);
+		}
+
+		/**
+		 * Applies a binary operator of CompiledExpression to two chains. Every operator is an AND or
+		 *  an XOR with negations: a | b is !(!a & !b), and a > b is !(a & !b).
+		 * @param opcode A binary opcode.
+		 * @param a The chain below the top of the stack. It may be changed.
+		 * @param b The chain at the top of the stack. It may be changed.
+		 * @return A Chain. The operator applied to a and b.
+		 */
+		private Chain combine(int opcode, Chain a, Chain b){
+			switch(opcode){
+				case CompiledExpression.AND         : return join(AND, a, b);
+				case CompiledExpression.OR          : return join(AND, a.negate(), b.negate()).negate();
+				case CompiledExpression.IMPLIES     : return join(AND, a, b.negate()).negate();
+				case CompiledExpression.REV_IMPLIES : return join(AND, a.negate(), b).negate();
+				case CompiledExpression.XOR         : return join(XOR, a, b);
+				case CompiledExpression.EQUIVALENT  : return join(XOR, a, b).negate();
+				default : throw new IllegalStateException("Unknown opcode " + opcode + ".");
+			}
+		}
+
+		/**
+		 * Joins two chains with AND or XOR. A chain of the same operator, which is not negated if
+		 *  the operator is AND, is open: the smaller open chain is added to the larger one. Any other
+		 *  chain is closed and added as one literal.
+		 * @param op AND or XOR.
+		 * @param a A Chain. It may be changed.
+		 * @param b A Chain. It may be changed.
+		 * @return A Chain of op over the operands of a and b.
+		 */
+		private Chain join(int op, Chain a, Chain b){
+			boolean aOpen = a.isOpen(op);
+			boolean bOpen = b.isOpen(op);
+			if(bOpen && (!aOpen || b.size > a.size)){
+				Chain t = a;
+				a       = b;
+				b       = t;
+				aOpen   = true;
+				bOpen   = b.isOpen(op);
+			}
+			if(!aOpen)
+				a = new Chain(op, close(a));
+			if(bOpen){
+				for(int i=0; i<b.size; i++)
+					a.add(b.items[i]);
+				a.negated ^= b.negated;
+			}
+			else
+				a.add(close(b));
+			return a;
+		}
+
+		/**
+		 * Returns the literal of a chain, creating its gate.
+		 * @param chain A Chain.
+		 * @return An int. The chain's literal.
+		 */
+		private int close(Chain chain){
+			switch(chain.kind){
+				case LITERAL : return chain.literal;
+				case AND     : return and(chain.items, chain.size) ^ (chain.negated ? 1 : 0);
+				default      : return xor(chain.items, chain.size) ^ (chain.negated ? 1 : 0);
+			}
+		}
+
+		/**
+		 * Returns the literal of a variable.
+		 * @param slot The variable's slot.
+		 * @return An int. The variable's (positive) literal.
+		 */
+		private int variable(int slot){
+			if(variableGates[slot] == 0){
+				int g = newGate(VARIABLE, null);
+				slotOf[g] = slot;
+				support[g][slot >>> 6] |= 1L << slot;
+				supportSize[g]      = 1;
+				variableGates[slot] = g;
+			}
+			return variableGates[slot] << 1;
+		}
+
+		/**
+		 * Returns the literal of the AND of some literals, simplifying constants, repeated operands
+		 *  and operands that are AND gates.
+		 * @param lits An int[] of literals. It is not changed.
+		 * @param n The number of literals of lits to use.
+		 * @return An int. The literal of the AND of the first n literals.
+		 */
+		private int and(int[] lits, int n){
+			int[] ops  = new int[Math.max(n, 2)];
+			int   size = 0;
+			for(int i=0; i<n; i++){
+				int lit = lits[i];
+				if(lit == TRUE)
+					continue;
+				if(lit == FALSE)
+					return FALSE;
+				int[] merged = ((lit & 1) == 0 && kind[lit >>> 1] == AND) ? operands[lit >>> 1] : null;
+				int   count  = (merged == null) ? 1 : merged.length;
+				if(size + count > ops.length)
+					ops = Arrays.copyOf(ops, Math.max(size + count, ops.length * 2));
+				if(merged == null)
+					ops[size++] = lit;
+				else{
+					System.arraycopy(merged, 0, ops, size, count);
+					size += count;
+				}
+			}
+			Arrays.sort(ops, 0, size);
+			int distinct = 0;
+			for(int i=0; i<size; i++){
+				if(distinct > 0 && ops[i] == ops[distinct - 1])
+					continue;
+				//A literal and its negation differ only in the low bit, so they are sorted together.
+				if(distinct > 0 && ops[i] == (ops[distinct - 1] ^ 1))
+					return FALSE;
+				ops[distinct++] = ops[i];
+			}
+			if(distinct == 0)
+				return TRUE;
+			if(distinct == 1)
+				return ops[0];
+			return hashCons(AND, Arrays.copyOf(ops, distinct)) << 1;
+		}
+
+		/**
+		 * Returns the literal of the XOR of some literals, simplifying constants, repeated operands
+		 *  and operands that are XOR gates. Negations are moved out of the gate, so a ^ b and !a ^ b
+		 *  share one gate.
+		 * @param lits An int[] of literals. It is not changed.
+		 * @param n The number of literals of lits to use.
+		 * @return An int. The literal of the XOR of the first n literals.
+		 */
+		private int xor(int[] lits, int n){
+			int[] ops     = new int[Math.max(n, 2)];
+			int   size    = 0;
+			int   negated = 0;
+			for(int i=0; i<n; i++){
+				int lit = lits[i];
+				int g   = lit >>> 1;
+				negated ^= lit & 1;
+				if(g == 0){
+					//True flips the parity.
+					negated ^= 1;
+					continue;
+				}
+				int[] merged = (kind[g] == XOR) ? operands[g] : null;
+				int   count  = (merged == null) ? 1 : merged.length;
+				if(size + count > ops.length)
+					ops = Arrays.copyOf(ops, Math.max(size + count, ops.length * 2));
+				if(merged == null)
+					ops[size++] = g << 1;
+				else{
+					System.arraycopy(merged, 0, ops, size, count);
+					size += count;
+				}
+			}
+			Arrays.sort(ops, 0, size);
+			//Equal operands cancel in pairs.
+			int distinct = 0;
+			for(int i=0; i<size; i++){
+				if(distinct > 0 && ops[i] == ops[distinct - 1])
+					distinct--;
+				else
+					ops[distinct++] = ops[i];
+			}
+			if(distinct == 0)
+				return FALSE ^ negated;
+			if(distinct == 1)
+				return ops[0] ^ negated;
+			return (hashCons(XOR, Arrays.copyOf(ops, distinct)) << 1) ^ negated;
+		}
+
+		/**
+		 * Returns the gate with the given operator and operands, creating it if it does not exist.
+		 * @param op AND or XOR.
+		 * @param ops An int[] of at least two sorted, distinct operand literals. It is kept.
+		 * @return An int. The gate's number.
+		 */
+		private int hashCons(int op, int[] ops){
+			GateKey key      = new GateKey(op, ops);
+			Integer existing = unique.get(key);
+			if(existing != null)
+				return existing;
+			int    g    = newGate(op, ops);
+			long[] bits = support[g];
+			for(int lit:ops){
+				long[] operandBits = support[lit >>> 1];
+				for(int i=0; i<supportWords; i++)
+					bits[i] |= operandBits[i];
+			}
+			int size = 0;
+			for(int i=0; i<supportWords; i++)
+				size += Long.bitCount(bits[i]);
+			supportSize[g] = size;
+			unique.put(key, g);
+			return g;
+		}
+
+		/**
+		 * Adds a gate, charging its memory to the budget.
+		 * @param op The gate's kind.
+		 * @param ops The gate's operand literals, or null for a VARIABLE gate.
+		 * @return An int. The new gate's number.
+		 * @throws IllegalStateException If the gate would pass the memory budget.
+		 */
+		private int newGate(int op, int[] ops){
+			charge(GATE_BYTES + 8L * supportWords + ((ops == null) ? 0 : 4L * ops.length));
+			if(gates == kind.length){
+				int capacity = gates * 2;
+				kind         = Arrays.copyOf(kind, capacity);
+				slotOf       = Arrays.copyOf(slotOf, capacity);
+				operands     = Arrays.copyOf(operands, capacity);
+				support      = Arrays.copyOf(support, capacity);
+				supportSize  = Arrays.copyOf(supportSize, capacity);
+				mark         = Arrays.copyOf(mark, capacity);
+				restrictMark = Arrays.copyOf(restrictMark, capacity);
+				restricted   = Arrays.copyOf(restricted, capacity);
+			}
+			kind[gates]     = op;
+			operands[gates] = ops;
+			support[gates]  = new long[supportWords];
+			return gates++;
+		}
+
+		/**
+		 * Adds to the memory used by the count.
+		 * @param bytes The bytes to add.
+		 * @throws IllegalStateException If the memory used would pass the memory budget.
+		 */
+		private void charge(long bytes){
+			memoryUsed += bytes;
+			if(memoryUsed > memoryBudget)
+				throw new IllegalStateException("Counting the models needs more than the memory budget of " + memoryBudget + " bytes.");
+		}
+
+		/**
+		 * Returns the number of variables a literal depends on.
+		 * @param lit A literal.
+		 * @return An int. The size of the literal's support.
+		 */
+		private int supportSize(int lit){
+			return supportSize[lit >>> 1];
+		}
+
+
+		//Counting.
+
+		/**
+		 * Counts the combinations of the variables of a literal's support for which it is true.
+		 * @param lit A literal.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger countLiteral(int lit){
+			BigInteger count = countGate(lit >>> 1);
+			if((lit & 1) == 0)
+				return count;
+			return BigInteger.ONE.shiftLeft(supportSize(lit)).subtract(count);
+		}
+
+		/**
+		 * Counts the combinations of the variables of a gate's support for which it is true. Every
+		 *  step below a gate counts gates of smaller support, so the recursion is no deeper than the
+		 *  number of variables.
+		 * @param g A gate.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger countGate(int g){
+			if(g == 0 || kind[g] == VARIABLE)
+				return BigInteger.ONE;
+			BigInteger count = counts.get(g);
+			if(count != null)
+				return count;
+			if(supportSize[g] <= LEAF_VARIABLES)
+				count = countTruthTable(g);
+			else if(kind[g] == AND)
+				count = countAnd(g);
+			else
+				count = countXor(g);
+			charge(COUNT_BYTES + count.bitLength() / 8);
+			counts.put(g, count);
+			return count;
+		}
+
+		/**
+		 * Counts an AND gate: by fixing the variables among its operands, or by multiplying the
+		 *  counts of its components, or by branching.
+		 * @param g An AND gate.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger countAnd(int g){
+			int[]  ops    = operands[g];
+			long[] fixed  = null;
+			long[] values = null;
+			for(int lit:ops){
+				if(kind[lit >>> 1] != VARIABLE)
+					continue;
+				if(fixed == null){
+					fixed  = new long[supportWords];
+					values = new long[supportWords];
+				}
+				int slot = slotOf[lit >>> 1];
+				fixed[slot >>> 6] |= 1L << slot;
+				if((lit & 1) == 0)
+					values[slot >>> 6] |= 1L << slot;
+			}
+			if(fixed != null){
+				int rest = propagate(g, fixed, values);
+				return countLiteral(rest).shiftLeft(supportSize[g] - bitCount(fixed) - supportSize(rest));
+			}
+			int[][] components = components(ops);
+			if(components == null)
+				return branch(g);
+			BigInteger count = BigInteger.ONE;
+			for(int[] component:components){
+				count = count.multiply(countLiteral(and(component, component.length)));
+				if(count.signum() == 0)
+					break;
+			}
+			return count;
+		}
+
+		/**
+		 * Counts an XOR gate: by mixing the counts of its components by parity, or by branching.
+		 * @param g An XOR gate.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger countXor(int g){
+			int[][] components = components(operands[g]);
+			if(components == null)
+				return branch(g);
+			//A component that is true for exactly half of its combinations makes the whole XOR so.
+			for(int[] component:components){
+				if(component.length == 1 && kind[component[0] >>> 1] == VARIABLE)
+					return BigInteger.ONE.shiftLeft(supportSize[g] - 1);
+			}
+			BigInteger odd  = BigInteger.ZERO;
+			BigInteger even = BigInteger.ONE;
+			for(int[] component:components){
+				int        lit     = xor(component, component.length);
+				BigInteger t       = countLiteral(lit);
+				BigInteger f       = BigInteger.ONE.shiftLeft(supportSize(lit)).subtract(t);
+				BigInteger nextOdd = odd.multiply(f).add(even.multiply(t));
+				even = even.multiply(f).add(odd.multiply(t));
+				odd  = nextOdd;
+			}
+			return odd;
+		}
+
+		/**
+		 * Counts a gate by branching on the variable read by the most of its operands. An AND gate's
+		 *  branches are propagated. Variables a branch no longer depends on are free, and double its
+		 *  count.
+		 * @param g An AND or XOR gate.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger branch(int g){
+			int        slot  = branchVariable(operands[g]);
+			BigInteger count = BigInteger.ZERO;
+			for(int value=0; value<2; value++){
+				long[] fixed  = new long[supportWords];
+				long[] values = new long[supportWords];
+				fixed[slot >>> 6] |= 1L << slot;
+				if(value == 1)
+					values[slot >>> 6] |= 1L << slot;
+				int rest = (kind[g] == AND) ? propagate(g, fixed, values) : restrict(g << 1, fixed, values);
+				count = count.add(countLiteral(rest).shiftLeft(supportSize[g] - bitCount(fixed) - supportSize(rest)));
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the number of slots in a bitmask.
+		 * @param slots A long[] bitmask of slots.
+		 * @return An int. The number of bits set.
+		 */
+		private int bitCount(long[] slots){
+			int count = 0;
+			for(long word:slots)
+				count += Long.bitCount(word);
+			return count;
+		}
+
+		/**
+		 * Splits the operands of a gate into components that share no variables, joining operands
+		 *  with a union-find over the variable slots.
+		 * @param ops An int[] of a gate's operand literals.
+		 * @return An int[][] of each component's operands, in the order of ops, or null if the
+		 *  operands are one component.
+		 */
+		private int[][] components(int[] ops){
+			split++;
+			int[] firstSlot = new int[ops.length];
+			for(int i=0; i<ops.length; i++){
+				long[] bits  = support[ops[i] >>> 1];
+				int    first = -1;
+				for(int w=0; w<supportWords; w++){
+					for(long word = bits[w]; word != 0; word &= word - 1){
+						int root = find((w << 6) | Long.numberOfTrailingZeros(word));
+						if(first == -1)
+							first = root;
+						else if(root != first)
+							parent[root] = first;
+					}
+				}
+				firstSlot[i] = first;
+			}
+			//Number the components by their roots.
+			int   numComponents = 0;
+			int[] component     = new int[ops.length];
+			for(int i=0; i<ops.length; i++){
+				int root = find(firstSlot[i]);
+				if(componentMark[root] != split){
+					componentMark[root] = split;
+					componentOf[root]   = numComponents++;
+				}
+				component[i] = componentOf[root];
+			}
+			if(numComponents == 1)
+				return null;
+			int[] sizes = new int[numComponents];
+			for(int c:component)
+				sizes[c]++;
+			int[][] components = new int[numComponents][];
+			for(int c=0; c<numComponents; c++)
+				components[c] = new int[sizes[c]];
+			Arrays.fill(sizes, 0);
+			for(int i=0; i<ops.length; i++)
+				components[component[i]][sizes[component[i]]++] = ops[i];
+			return components;
+		}
+
+		/**
+		 * Returns the root of a slot's set in the current split, with path halving.
+		 * @param slot A variable slot.
+		 * @return An int. The slot at the root of its set.
+		 */
+		private int find(int slot){
+			if(parentMark[slot] != split){
+				parentMark[slot] = split;
+				parent[slot]     = slot;
+				return slot;
+			}
+			while(parent[slot] != slot){
+				parent[slot] = parent[parent[slot]];
+				slot         = parent[slot];
+			}
+			return slot;
+		}
+
+		/**
+		 * Chooses the variable to branch on: the one in the supports of the most operands, and of
+		 *  those the lowest slot.
+		 * @param ops An int[] of a gate's operand literals.
+		 * @return An int. The slot of the variable.
+		 */
+		private int branchVariable(int[] ops){
+			stamp++;
+			int best = -1;
+			for(int lit:ops){
+				long[] bits = support[lit >>> 1];
+				for(int w=0; w<supportWords; w++){
+					for(long word = bits[w]; word != 0; word &= word - 1){
+						int slot = (w << 6) | Long.numberOfTrailingZeros(word);
+						if(occurrenceMark[slot] != stamp){
+							occurrenceMark[slot] = stamp;
+							occurrences[slot]    = 0;
+						}
+						occurrences[slot]++;
+						if(best == -1 || occurrences[slot] > occurrences[best] || (occurrences[slot] == occurrences[best] && slot < best))
+							best = slot;
+					}
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Returns a literal with some variables fixed.
+		 * @param lit A literal.
+		 * @param fixed A long[] bitmask of the slots of the variables to fix.
+		 * @param values A long[] bitmask of the slots of the fixed variables that are true.
+		 * @return An int. The simplified literal.
+		 */
+		private int restrict(int lit, long[] fixed, long[] values){
+			int[] lits = new int[1];
+			restrictAll(new int[]{lit}, lits, fixed, values);
+			return lits[0];
+		}
+
+		/**
+		 * Restricts an AND gate with some variables fixed, and then fixes each variable that has
+		 *  become an operand of the gate, until none do (unit propagation). The operands are
+		 *  restricted again each round, so only the final AND gate is created.
+		 * @param g An AND gate.
+		 * @param fixed A long[] bitmask of the slots of the variables to fix. The propagated
+		 *  variables are added to it.
+		 * @param values A long[] bitmask of the slots of the fixed variables that are true. The
+		 *  values of the propagated variables are added to it.
+		 * @return An int. The simplified literal.
+		 */
+		private int propagate(int g, long[] fixed, long[] values){
+			int[] ops  = operands[g];
+			int[] lits = new int[ops.length];
+			boolean found = true;
+			while(found){
+				restrictAll(ops, lits, fixed, values);
+				found = false;
+				for(int lit:lits){
+					if(lit == FALSE)
+						return FALSE;
+					if(lit == TRUE || kind[lit >>> 1] != VARIABLE)
+						continue;
+					int slot = slotOf[lit >>> 1];
+					if((fixed[slot >>> 6] & (1L << slot)) != 0)
+						continue;
+					//A variable and its negation may both be operands, and the next round finds
+					// the conflict.
+					fixed[slot >>> 6] |= 1L << slot;
+					if((lit & 1) == 0)
+						values[slot >>> 6] |= 1L << slot;
+					found = true;
+				}
+			}
+			return and(lits, lits.length);
+		}
+
+		/**
+		 * Restricts some literals with some variables fixed. The gates are restricted operands first,
+		 *  with an explicit stack of the gates waiting on their operands, and a gate below several
+		 *  of the literals is restricted once.
+		 * @param roots An int[] of literals.
+		 * @param lits An int[] as long as roots, which the simplified literals are written to.
+		 * @param fixed A long[] bitmask of the slots of the variables to fix.
+		 * @param values A long[] bitmask of the slots of the fixed variables that are true.
+		 */
+		private void restrictAll(int[] roots, int[] lits, long[] fixed, long[] values){
+			restriction++;
+			int[] stack = new int[Math.max(16, roots.length)];
+			int   size  = 0;
+			for(int lit:roots){
+				if(dependsOn(lit >>> 1, fixed))
+					stack[size++] = lit >>> 1;
+			}
+			while(size > 0){
+				int g = stack[size - 1];
+				if(restrictMark[g] == restriction){
+					//A gate below two waiting gates may be pushed twice.
+					size--;
+					continue;
+				}
+				if(kind[g] == VARIABLE){
+					int slot = slotOf[g];
+					restrictMark[g] = restriction;
+					restricted[g]   = ((values[slot >>> 6] & (1L << slot)) != 0) ? TRUE : FALSE;
+					size--;
+					continue;
+				}
+				int[]   ops   = operands[g];
+				boolean ready = true;
+				for(int op:ops){
+					int operand = op >>> 1;
+					if(restrictMark[operand] != restriction && dependsOn(operand, fixed)){
+						if(size == stack.length)
+							stack = Arrays.copyOf(stack, stack.length * 2);
+						stack[size++] = operand;
+						ready = false;
+					}
+				}
+				if(!ready)
+					continue;
+				int[] operandLits = new int[ops.length];
+				for(int i=0; i<ops.length; i++){
+					int operand = ops[i] >>> 1;
+					operandLits[i] = dependsOn(operand, fixed) ? restricted[operand] ^ (ops[i] & 1) : ops[i];
+				}
+				int result = (kind[g] == AND) ? and(operandLits, operandLits.length) : xor(operandLits, operandLits.length);
+				restrictMark[g] = restriction;
+				restricted[g]   = result;
+				size--;
+			}
+			for(int i=0; i<roots.length; i++){
+				int g = roots[i] >>> 1;
+				lits[i] = dependsOn(g, fixed) ? restricted[g] ^ (roots[i] & 1) : roots[i];
+			}
+		}
+
+		/**
+		 * Returns whether a gate depends on any of some variables.
+		 * @param g A gate.
+		 * @param slots A long[] bitmask of slots.
+		 * @return A boolean. True if one of the slots is in the gate's support.
+		 */
+		private boolean dependsOn(int g, long[] slots){
+			long[] bits = support[g];
+			for(int i=0; i<supportWords; i++){
+				if((bits[i] & slots[i]) != 0)
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Counts a gate over few variables by evaluating it bit-sliced over its whole truth table.
+		 * @param g A gate with at most LEAF_VARIABLES variables.
+		 * @return A BigInteger. The number of satisfying combinations.
+		 */
+		private BigInteger countTruthTable(int g){
+			//Give the gate's variables local indices, and list its gates operands first.
+			int size = 0;
+			for(int i=0; i<supportWords; i++){
+				for(long bits = support[g][i]; bits != 0; bits &= bits - 1)
+					slotIndex[(i << 6) | Long.numberOfTrailingZeros(bits)] = size++;
+			}
+			ArrayList<Integer> order = new ArrayList<Integer>();
+			stamp++;
+			listGates(g, order);
+			HashMap<Integer, Integer> positions = new HashMap<Integer, Integer>(order.size() * 2);
+			for(int i=0; i<order.size(); i++)
+				positions.put(order.get(i), i);
+			int[]   ops  = new int[order.size()];
+			int[]   slot = new int[order.size()];
+			int[][] args = new int[order.size()][];
+			for(int i=0; i<order.size(); i++){
+				int gate = order.get(i);
+				ops[i] = kind[gate];
+				if(ops[i] == VARIABLE)
+					slot[i] = slotIndex[slotOf[gate]];
+				else{
+					int[] operandLits = operands[gate];
+					args[i] = new int[operandLits.length];
+					for(int j=0; j<operandLits.length; j++)
+						args[i][j] = (positions.get(operandLits[j] >>> 1) << 1) | (operandLits[j] & 1);
+				}
+			}
+
+			long[] lanes  = new long[size];
+			long[] values = new long[order.size()];
+			long   words  = SatisfiablilityCalculator.wordCount(size);
+			long   mask   = SatisfiablilityCalculator.rowMask(size);
+			long   count  = 0;
+			for(long word = 0; word < words; word++){
+				SatisfiablilityCalculator.setLanes(lanes, word);
+				for(int i=0; i<ops.length; i++){
+					if(ops[i] == VARIABLE){
+						values[i] = lanes[slot[i]];
+						continue;
+					}
+					//A negated operand's lanes are flipped by xor with all ones.
+					long value = (ops[i] == AND) ? -1L : 0L;
+					for(int arg:args[i]){
+						long x = values[arg >>> 1] ^ -(long)(arg & 1);
+						value = (ops[i] == AND) ? (value & x) : (value ^ x);
+					}
+					values[i] = value;
+				}
+				count += Long.bitCount(values[ops.length - 1] & mask);
+			}
+			return BigInteger.valueOf(count);
+		}
+
+		/**
+		 * Lists the gates below g, each after its operands. Each gate is listed once. The gates are
+		 *  walked with an explicit stack, whose entries are a gate shifted left by one, and one if
+		 *  the gate's operands have been listed.
+		 * @param g A gate.
+		 * @param order The ArrayList<Integer> the gates are added to.
+		 */
+		private void listGates(int g, ArrayList<Integer> order){
+			int[] stack = new int[16];
+			int   size  = 0;
+			stack[size++] = g << 1;
+			while(size > 0){
+				int entry = stack[--size];
+				g = entry >>> 1;
+				if((entry & 1) == 1){
+					order.add(g);
+					continue;
+				}
+				if(mark[g] == stamp)
+					continue;
+				mark[g] = stamp;
+				int[] ops = operands[g];
+				int   n   = (ops == null) ? 0 : ops.length;
+				if(size + n + 1 > stack.length)
+					stack = Arrays.copyOf(stack, Math.max(size + n + 1, stack.length * 2));
+				stack[size++] = (g << 1) | 1;
+				for(int i=n-1; i>=0; i--)
+					stack[size++] = ops[i] & ~1;
+			}
+		}
+	}
+
+
+	/**
+	 * The operator and operands of a gate, as the key of the circuit's hash-consing table.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class GateKey {
+
+		private final int   op;
+		private final int[] operands;
+		private final int   hash;
+
+		/**
+		 * Creates a key.
+		 * @param op The gate's operator.
+		 * @param operands The gate's sorted operand literals. They are kept, not copied.
+		 */
+		private GateKey(int op, int[] operands){
+			this.op       = op;
+			this.operands = operands;
+			this.hash     = 31 * Arrays.hashCode(operands) + op;
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof GateKey))
+				return false;
+			GateKey key = (GateKey)other;
+			return op == key.op && Arrays.equals(operands, key.operands);
+		}
+	}
+
+
+	/**
+	 * An operand on the circuit's build stack: a single literal, or an open chain of the operands
+	 *  of one AND or XOR, possibly negated, whose gate has not been created yet.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Chain {
+
+		private int     kind;
+		private int     literal;
+		private int[]   items;
+		private int     size;
+		private boolean negated;
+
+		/**
+		 * Creates a chain of a single literal.
+		 * @param literal The literal.
+		 */
+		private Chain(int literal){
+			this.kind    = Circuit.LITERAL;
+			this.literal = literal;
+		}
+
+		/**
+		 * Creates an open chain of one operand.
+		 * @param op AND or XOR.
+		 * @param literal The first operand's literal.
+		 */
+		private Chain(int op, int literal){
+			this.kind     = op;
+			this.items    = new int[4];
+			this.items[0] = literal;
+			this.size     = 1;
+		}
+
+		/**
+		 * Determines if operands of an operator can be added to this chain.
+		 * @param op AND or XOR.
+		 * @return A boolean. True if this is a chain of op that is not a negated AND.
+		 */
+		private boolean isOpen(int op){
+			return kind == op && (op == Circuit.XOR || !negated);
+		}
+
+		/**
+		 * Negates this chain.
+		 * @return This Chain.
+		 */
+		private Chain negate(){
+			if(kind == Circuit.LITERAL)
+				literal ^= 1;
+			else
+				negated = !negated;
+			return this;
+		}
+
+		/**
+		 * Adds an operand to this open chain.
+		 * @param lit The operand's literal.
+		 */
+		private void add(int lit){
+			if(size == items.length)
+				items = Arrays.copyOf(items, size * 2);
+			items[size++] = lit;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Random;
+
+public class ModelCounterTester {
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 7);
+
+		System.out.println("Testing the model counter...");
+
+		//Expressions of up to 18 variables, past the counter's truth table leaves, against the
+		// truth table.
+		for(int i=0; i<1000; i++){
+			String expression = RandomExpressions.expression(random, 1 + random.nextInt(18), 1 + random.nextInt(40));
+			check(expression, PropositionalExpression.parse(expression).findSatisfyingRows().size());
+		}
+		for(int i=0; i<1000; i++){
+			String expression = RandomExpressions.cnf(random, 3 + random.nextInt(16), 1 + random.nextInt(70), 1 + random.nextInt(3));
+			check(expression, PropositionalExpression.parse(expression).findSatisfyingRows().size());
+		}
+		System.out.println("Expressions of up to 18 variables: 2000 checked.");
+
+		//Random 3-CNF of 40 variables near the satisfiability threshold, against the CDCL solver's
+		// enumeration of the few models.
+		for(int i=0; i<20; i++){
+			String                   expression = RandomExpressions.cnf(random, 40, 172, 3);
+			PropositionalExpression  parsed     = PropositionalExpression.parse(expression);
+			HashMap<String, Boolean> map        = new HashMap<String, Boolean>();
+			for(String variable : parsed.getVariables())
+				map.put(variable, Boolean.FALSE);
+			check(expression, SatisfiablilityCalculator.findSatisfiablilityCdcl(map, ExpressionDisAssembler.getCards(expression)).size());
+		}
+		System.out.println("Random 3-CNF of 40 variables: 20 checked.");
+
+		//Long chains of one operator, over 700 variables read two or three times each.
+		StringBuilder chain = new StringBuilder();
+		for(int i=0; i<2000; i++){
+			if(i > 0)
+				chain.append('&');
+			chain.append((i % 700 % 3 == 0) ? "!" : "").append(RandomExpressions.variable(i % 700));
+		}
+		check(chain.toString(), 1);
+		check(chain.toString().replace('&', '^'), BigInteger.ONE.shiftLeft(699));
+		System.out.println("Chains of 2000 operators: 2 checked.");
+
+		//A count past its memory budget fails cleanly, and the same count succeeds with more.
+		CompiledExpression compiled = PropositionalExpression.parse(RandomExpressions.cnf(random, 50, 100, 3)).getCompiled();
+		try{
+			ModelCounter.countModels(compiled, 100000);
+			fail("A 50 variable 3-CNF", "was counted within 100000 bytes");
+		}
+		catch(IllegalStateException e){
+			System.out.println("Memory budget: " + e.getMessage());
+		}
+		if(ModelCounter.countModels(compiled).signum() <= 0)
+			fail("A 50 variable 3-CNF", "has no models");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	private static void check(String expression, long expected){
+		check(expression, BigInteger.valueOf(expected));
+	}
+
+	private static void check(String expression, BigInteger expected){
+		BigInteger count = PropositionalExpression.parse(expression).countModels();
+		if(!count.equals(expected))
+			fail(expression, "has " + count + " models, not " + expected);
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + (expression.length() > 200 ? expression.substring(0, 200) + "..." : expression) + "\" " + message);
+	}
+
+}
@@ -0,0 +1,324 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Creates hash-consed ExpressionNodes. Every node is interned in a unique table keyed by its kind
+ *  and operands, so asking for a node that already exists returns the existing node: expressions
+ *  interned into the same factory share every sub-expression they have in common, and form a
+ *  single DAG rather than one tree per expression.
+ * Nodes are normalized as they are created: the operands of &, |, ^ and = are ordered by id, a
+ *  reversed implication is stored as an implication with its operands swapped, and a double
+ *  negation is removed. Variables are numbered in the order the factory first sees them.
+ *  Other simplifications are left to ExpressionSimplifier.
+ * A NodeFactory is not thread-safe while nodes are being created. Once a ruleset has been
+ *  interned, its nodes are immutable and may be shared, for example by a DagEvaluator.
+ * @author Kenneth Chin
+ *
+ */
+public final class NodeFactory {
+
+	private static final int INITIAL_TABLE = 1 << 10;
+
+	private final ArrayList<String>         variables; //Variable names, indexed by slot.
+	private final HashMap<String, Integer>  slots;     //The slot of each variable name.
+	private final ArrayList<ExpressionNode> nodes;     //Every node, indexed by id.
+	private ExpressionNode[] table;                    //The unique table, open-addressed.
+
+	/**
+	 * Creates an empty factory.
+	 */
+	public NodeFactory(){
+		this.variables = new ArrayList<String>();
+		this.slots     = new HashMap<String, Integer>();
+		this.nodes     = new ArrayList<ExpressionNode>();
+		this.table     = new ExpressionNode[INITIAL_TABLE];
+	}
+
+
+	//Node creation.
+
+	/**
+	 * Returns the node of a variable.
+	 * @param name The variable's name.
+	 * @return The variable's ExpressionNode.
+	 */
+	public ExpressionNode variable(String name){
+		Integer slot = slots.get(name);
+		if(slot == null){
+			slot = variables.size();
+			variables.add(name);
+			slots.put(name, slot);
+		}
+		return intern(ExpressionNode.VARIABLE, slot, null, null);
+	}
+
+	/**
+	 * Returns the node of a constant.
+	 * @param value The constant's truth value.
+	 * @return The ExpressionNode of the constant.
+	 */
+	public ExpressionNode constant(boolean value){
+		return intern(ExpressionNode.CONSTANT, value ? 1 : 0, null, null);
+	}
+
+	/**
+	 * Returns the negation of a node. The negation of a negation is its operand, and the negation
+	 *  of a constant is the other constant.
+	 * @param node An ExpressionNode of this factory.
+	 * @return The ExpressionNode of !node.
+	 */
+	public ExpressionNode not(ExpressionNode node){
+		checkOwner(node);
+		if(node.getOp() == ExpressionNode.NOT)
+			return node.getLeft();
+		if(node.getOp() == ExpressionNode.CONSTANT)
+			return constant(node.isFalse());
+		return intern(ExpressionNode.NOT, -1, node, null);
+	}
+
+	/**
+	 * Returns the conjunction of two nodes.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The ExpressionNode of left & right.
+	 */
+	public ExpressionNode and(ExpressionNode left, ExpressionNode right){
+		return conditional(ExpressionNode.AND, left, right);
+	}
+
+	/**
+	 * Returns the disjunction of two nodes.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The ExpressionNode of left | right.
+	 */
+	public ExpressionNode or(ExpressionNode left, ExpressionNode right){
+		return conditional(ExpressionNode.OR, left, right);
+	}
+
+	/**
+	 * Returns the exclusive disjunction of two nodes.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The ExpressionNode of left ^ right.
+	 */
+	public ExpressionNode xor(ExpressionNode left, ExpressionNode right){
+		return conditional(ExpressionNode.XOR, left, right);
+	}
+
+	/**
+	 * Returns the implication of two nodes.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The ExpressionNode of left > right.
+	 */
+	public ExpressionNode implies(ExpressionNode left, ExpressionNode right){
+		return conditional(ExpressionNode.IMPLIES, left, right);
+	}
+
+	/**
+	 * Returns the equivalence of two nodes.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The ExpressionNode of left = right.
+	 */
+	public ExpressionNode equivalent(ExpressionNode left, ExpressionNode right){
+		return conditional(ExpressionNode.EQUIVALENT, left, right);
+	}
+
+	/**
+	 * Returns the node of a conditional, ordering the operands of a commutative one by id.
+	 * @param op One of ExpressionNode's conditionals.
+	 * @param left An ExpressionNode of this factory.
+	 * @param right An ExpressionNode of this factory.
+	 * @return The interned ExpressionNode.
+	 */
+	private ExpressionNode conditional(int op, ExpressionNode left, ExpressionNode right){
+		checkOwner(left);
+		checkOwner(right);
+		if(op != ExpressionNode.IMPLIES && left.getId() > right.getId())
+			return intern(op, -1, right, left);
+		return intern(op, -1, left, right);
+	}
+
+	/**
+	 * Interns the expression of a CompiledExpression, sharing every sub-expression this factory
+	 *  already holds.
+	 * @param compiled A CompiledExpression.
+	 * @return The ExpressionNode of the whole expression.
+	 */
+	public ExpressionNode intern(CompiledExpression compiled){
+		SymbolTable      symbols  = compiled.getSymbolTable();
+		ExpressionNode[] varNodes = new ExpressionNode[symbols.size()];
+		ExpressionNode[] stack    = new ExpressionNode[Math.max(1, compiled.getMaxStackDepth())];
+		int              top      = -1;
+		for(int instruction:compiled.getCode()){
+			int operand = CompiledExpression.operand(instruction);
+			switch(CompiledExpression.opcode(instruction)){
+				case CompiledExpression.PUSH        :
+				case CompiledExpression.PUSH_NOT    :
+					if(varNodes[operand] == null)
+						varNodes[operand] = variable(symbols.getName(operand));
+					stack[++top] = varNodes[operand];
+					if(CompiledExpression.opcode(instruction) == CompiledExpression.PUSH_NOT)
+						stack[top] = not(stack[top]);
+					break;
+				case CompiledExpression.NOT         : stack[top] = not(stack[top]); break;
+				case CompiledExpression.AND         : top--; stack[top] = and(stack[top], stack[top+1]);        break;
+				case CompiledExpression.OR          : top--; stack[top] = or(stack[top], stack[top+1]);         break;
+				case CompiledExpression.XOR         : top--; stack[top] = xor(stack[top], stack[top+1]);        break;
+				case CompiledExpression.IMPLIES     : top--; stack[top] = implies(stack[top], stack[top+1]);    break;
+				case CompiledExpression.EQUIVALENT  : top--; stack[top] = equivalent(stack[top], stack[top+1]); break;
+				case CompiledExpression.REV_IMPLIES : top--; stack[top] = implies(stack[top+1], stack[top]);    break;
+				default : throw new IllegalStateException("Unknown opcode " + CompiledExpression.opcode(instruction) + ".");
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Interns the expression expressed by root's iterator.
+	 * @param root The ExpressionCard at the root of the ExpressionCard binary tree.
+	 * @return The ExpressionNode of the whole expression.
+	 * @throws IllegalArgumentException If the tree does not describe an expression the evaluator
+	 *  could evaluate.
+	 */
+	public ExpressionNode intern(ExpressionCard root){
+		return intern(ExpressionCompiler.compile(root));
+	}
+
+	/**
+	 * Parses and interns an expression String.
+	 * @param expression A propositional logic expression String.
+	 * @return The ExpressionNode of the whole expression.
+	 * @throws ExpressionParseException If the expression breaks the rules checked by
+	 *  ExpressionDisAssembler.validate(String).
+	 * @throws IllegalArgumentException If the expression could not be compiled.
+	 */
+	public ExpressionNode intern(String expression){
+		return intern(PropositionalExpression.parse(expression).getCompiled());
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the number of distinct nodes created so far.
+	 * @return An int. The number of nodes.
+	 */
+	public int size(){
+		return nodes.size();
+	}
+
+	/**
+	 * Returns a node by id.
+	 * @param id A node id less than size().
+	 * @return The ExpressionNode.
+	 */
+	public ExpressionNode getNode(int id){
+		return nodes.get(id);
+	}
+
+	/**
+	 * Returns the number of variables seen so far.
+	 * @return An int. The number of variables.
+	 */
+	public int getVariableCount(){
+		return variables.size();
+	}
+
+	/**
+	 * Returns the name of the variable in a slot.
+	 * @param slot A slot less than getVariableCount().
+	 * @return The variable's name.
+	 */
+	public String getVariableName(int slot){
+		return variables.get(slot);
+	}
+
+	/**
+	 * Returns a SymbolTable of the variables seen so far, in slot order. Slots never change, so
+	 *  the table stays valid as more variables are added.
+	 * @return A new SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return new SymbolTable(variables);
+	}
+
+
+	//Unique table.
+
+	/**
+	 * Returns the node with the given kind and operands, creating it if it does not exist.
+	 * @param op The kind of node.
+	 * @param slot The slot of a variable, the value of a constant, or -1.
+	 * @param left The first operand, or null.
+	 * @param right The second operand, or null.
+	 * @return The unique ExpressionNode.
+	 */
+	private ExpressionNode intern(int op, int slot, ExpressionNode left, ExpressionNode right){
+		int leftKey  = (left  == null) ? slot : left.getId();
+		int rightKey = (right == null) ? -1   : right.getId();
+		int mask     = table.length - 1;
+		int index    = hash(op, leftKey, rightKey) & mask;
+		ExpressionNode node;
+		while((node = table[index]) != null){
+			if(node.getOp() == op && keyOf(node.getLeft(), node.getSlot()) == leftKey && keyOf(node.getRight(), -1) == rightKey)
+				return node;
+			index = (index + 1) & mask;
+		}
+		node = new ExpressionNode(this, nodes.size(), op, slot, left, right);
+		nodes.add(node);
+		table[index] = node;
+		if(2 * nodes.size() > table.length)
+			grow();
+		return node;
+	}
+
+	/**
+	 * Returns the key of an operand.
+	 * @param operand An operand, or null.
+	 * @param absent The key of a missing operand.
+	 * @return The operand's id, or absent if operand is null.
+	 */
+	private static int keyOf(ExpressionNode operand, int absent){
+		return operand == null ? absent : operand.getId();
+	}
+
+	/**
+	 * Hashes the kind and operands of a node.
+	 * @param op The kind of node.
+	 * @param leftKey The first operand's id, a variable's slot, or a constant's value.
+	 * @param rightKey The second operand's id, or -1.
+	 * @return An int hash.
+	 */
+	private static int hash(int op, int leftKey, int rightKey){
+		long key = ((long)leftKey << 32 | (rightKey & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L + op;
+		return (int)(key ^ (key >>> 29));
+	}
+
+	/**
+	 * Doubles the unique table.
+	 */
+	private void grow(){
+		table = new ExpressionNode[table.length * 2];
+		int mask = table.length - 1;
+		for(ExpressionNode node:nodes){
+			int index = hash(node.getOp(), keyOf(node.getLeft(), node.getSlot()), keyOf(node.getRight(), -1)) & mask;
+			while(table[index] != null)
+				index = (index + 1) & mask;
+			table[index] = node;
+		}
+	}
+
+	/**
+	 * Ensures a node was created by this factory.
+	 * @param node An ExpressionNode.
+	 */
+	private void checkOwner(ExpressionNode node){
+		if(node.getFactory() != this)
+			throw new IllegalArgumentException("The node was created by a different NodeFactory.");
+	}
+}
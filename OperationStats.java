@@ -0,0 +1,466 @@
+package propositionalCalculatorV1_0;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The statistics of one kind of operation: how many there were, how long they took, and the
+ *  totals of their items and results. Every sampled operation is also reported to JDK Flight
+ *  Recorder as an event of the operation's kind, when a recording has that event enabled.
+ * An operation is timed by calling start() before it and record(long, long, long) after it.
+ *  Every operation is counted, but reading the clock costs more than a short operation, so only
+ *  one operation in getSampleInterval(), picked at random, is timed. Only sampled operations go
+ *  into the latencies, the Flight Recorder events and the totals of items and results; the
+ *  totals are scaled up by the ratio of operations to samples. Counters are LongAdders, so
+ *  threads recording at once do not contend, and nothing is allocated. While collection is
+ *  turned off, start() returns OFF and record does nothing.
+ * The instances are kept by Metrics, which registers them with the platform MBeanServer.
+ * @author Kenneth Chin
+ *
+ */
+public final class OperationStats implements OperationStatsMBean {
+
+	//Returned by start() while collection is turned off.
+	public static final long OFF       = Long.MIN_VALUE;
+	//Returned by start() for an operation that is counted but not sampled.
+	public static final long UNSAMPLED = Long.MIN_VALUE + 1;
+
+	//The kinds of operation, which pick the Flight Recorder event.
+	static final int PARSE          = 0;
+	static final int EVALUATION     = 1;
+	static final int SATISFIABILITY = 2;
+
+	//The number of latency buckets: 1ns up to about 2^47ns (39 hours).
+	private static final int BUCKETS = 48;
+
+	private final int             kind;       //PARSE, EVALUATION or SATISFIABILITY.
+	private final String          name;       //The name of the operation.
+	private final String          itemUnit;   //What an item is.
+	private final String          resultUnit; //What a result is.
+	private volatile boolean      enabled;    //Are statistics collected?
+	private volatile int          interval;   //One operation in interval is sampled.
+	private final LongAdder       count      = new LongAdder();
+	private final LongAdder       sampled    = new LongAdder();
+	private final LongAdder       totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos   = new LongAccumulator(Math::max, 0L);
+	private final LongAdder       items      = new LongAdder();
+	private final LongAdder       results    = new LongAdder();
+	private final LongAdder[]     histogram  = new LongAdder[BUCKETS];
+
+	//The count and time of the last rate reading.
+	private long rateCount;
+	private long rateTime;
+
+	/**
+	 * Creates the statistics of an operation.
+	 * @param kind PARSE, EVALUATION or SATISFIABILITY.
+	 * @param name The name of the operation.
+	 * @param itemUnit What an item is.
+	 * @param resultUnit What a result is.
+	 * @param interval One operation in interval is sampled.
+	 * @param enabled True to start collecting at once.
+	 */
+	OperationStats(int kind, String name, String itemUnit, String resultUnit, int interval, boolean enabled){
+		this.kind       = kind;
+		this.name       = name;
+		this.itemUnit   = itemUnit;
+		this.resultUnit = resultUnit;
+		this.enabled    = enabled;
+		this.interval   = interval;
+		for(int i=0; i<BUCKETS; i++)
+			histogram[i] = new LongAdder();
+		this.rateTime   = System.nanoTime();
+	}
+
+
+	//Recording operations.
+
+	/**
+	 * Marks the start of an operation.
+	 * @return A long to pass to record(long, long, long): the current System.nanoTime() if the
+	 *  operation is sampled, UNSAMPLED if it is not, or OFF if statistics are not being collected.
+	 */
+	public long start(){
+		if(!enabled)
+			return OFF;
+		int every = interval;
+		if(every > 1 && ThreadLocalRandom.current().nextInt(every) != 0)
+			return UNSAMPLED;
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records an operation that has finished.
+	 * @param start The value start() returned before the operation. If it is OFF, nothing is recorded.
+	 * @param itemCount The operation's items.
+	 * @param resultCount The operation's results.
+	 */
+	public void record(long start, long itemCount, long resultCount){
+		if(start == OFF)
+			return;
+		count.increment();
+		if(start == UNSAMPLED)
+			return;
+		long nanos = Math.max(0L, System.nanoTime() - start);
+		sampled.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		items.add(itemCount);
+		results.add(resultCount);
+		histogram[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1L))].increment();
+		commitEvent(nanos, itemCount, resultCount);
+	}
+
+	/**
+	 * Commits a Flight Recorder event for an operation, if a recording has its kind enabled. When
+	 *  no recording is running, the event is never committed and its allocation is optimized away.
+	 * @param nanos The operation's latency.
+	 * @param itemCount The operation's items.
+	 * @param resultCount The operation's results.
+	 */
+	private void commitEvent(long nanos, long itemCount, long resultCount){
+		switch(kind){
+			case PARSE :
+				ParseEvent parse = new ParseEvent();
+				if(parse.shouldCommit()){
+					parse.latency    = nanos;
+					parse.characters = itemCount;
+					parse.cards      = resultCount;
+					parse.commit();
+				}
+				break;
+			case EVALUATION :
+				EvaluationEvent evaluation = new EvaluationEvent();
+				if(evaluation.shouldCommit()){
+					evaluation.latency      = nanos;
+					evaluation.cardsVisited = itemCount;
+					evaluation.result       = resultCount != 0;
+					evaluation.commit();
+				}
+				break;
+			case SATISFIABILITY :
+				SatisfiabilityEvent satisfiability = new SatisfiabilityEvent();
+				if(satisfiability.shouldCommit()){
+					satisfiability.latency     = nanos;
+					satisfiability.assignments = itemCount;
+					satisfiability.satisfying  = resultCount;
+					satisfiability.commit();
+				}
+				break;
+			default : throw new IllegalStateException("Unknown operation kind " + kind + ".");
+		}
+	}
+
+
+	//OperationStatsMBean operations.
+
+	/**
+	 * Returns the name of the operation.
+	 * @return A String, such as "Parse".
+	 */
+	@Override
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Determines if statistics are being collected.
+	 * @return A boolean. True if operations are being timed and counted.
+	 */
+	@Override
+	public boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * Turns the collection of statistics on or off.
+	 * @param enabled True to collect statistics, false to stop.
+	 */
+	@Override
+	public void setEnabled(boolean enabled){
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the number of operations recorded.
+	 * @return A long. The number of operations.
+	 */
+	@Override
+	public long getCount(){
+		return count.sum();
+	}
+
+	/**
+	 * Returns the number of operations sampled.
+	 * @return A long. The number of operations timed.
+	 */
+	@Override
+	public long getSampledCount(){
+		return sampled.sum();
+	}
+
+	/**
+	 * Returns the number of operations for each one sampled.
+	 * @return An int. The sampling interval.
+	 */
+	@Override
+	public int getSampleInterval(){
+		return interval;
+	}
+
+	/**
+	 * Sets the number of operations for each one sampled.
+	 * @param interval The sampling interval. 1 samples every operation.
+	 * @throws IllegalArgumentException If interval is less than 1.
+	 */
+	@Override
+	public void setSampleInterval(int interval){
+		if(interval < 1)
+			throw new IllegalArgumentException("The sampling interval must be at least 1.");
+		this.interval = interval;
+	}
+
+	/**
+	 * Returns the mean time a sampled operation took.
+	 * @return A double. The mean latency in nanoseconds, or 0 if no operations were sampled.
+	 */
+	@Override
+	public double getMeanLatencyNanos(){
+		long samples = sampled.sum();
+		return (samples == 0) ? 0.0 : (double)totalNanos.sum() / samples;
+	}
+
+	/**
+	 * Returns the longest time an operation took.
+	 * @return A long. The largest latency in nanoseconds.
+	 */
+	@Override
+	public long getMaxLatencyNanos(){
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns an upper bound of the median latency.
+	 * @return A long. The upper bound, in nanoseconds, of the bucket holding the median.
+	 */
+	@Override
+	public long getMedianLatencyNanos(){
+		return percentile(0.5);
+	}
+
+	/**
+	 * Returns an upper bound of the 99th percentile latency.
+	 * @return A long. The upper bound, in nanoseconds, of the bucket holding the 99th percentile.
+	 */
+	@Override
+	public long getP99LatencyNanos(){
+		return percentile(0.99);
+	}
+
+	/**
+	 * Finds the histogram bucket holding a percentile of the latencies.
+	 * @param fraction The percentile, from 0 to 1.
+	 * @return A long. The upper bound, in nanoseconds, of the bucket, or 0 if there were no operations.
+	 */
+	private long percentile(double fraction){
+		long[] buckets = getLatencyHistogram();
+		long   total   = 0;
+		for(long bucket:buckets)
+			total += bucket;
+		if(total == 0)
+			return 0L;
+		long rank = (long)Math.ceil(fraction * total);
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++){
+			seen += buckets[i];
+			if(seen >= rank)
+				return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the latency histogram, whose element i counts the sampled operations that took
+	 *  from 2^i up to 2^(i+1) nanoseconds.
+	 * @return A new long[] of the bucket counts.
+	 */
+	@Override
+	public long[] getLatencyHistogram(){
+		long[] buckets = new long[BUCKETS];
+		for(int i=0; i<BUCKETS; i++)
+			buckets[i] = histogram[i].sum();
+		return buckets;
+	}
+
+	/**
+	 * Returns the number of operations per second since the last call of this method.
+	 * @return A double. The recent rate of operations.
+	 */
+	@Override
+	public synchronized double getOperationsPerSecond(){
+		long now        = System.nanoTime();
+		long operations = count.sum();
+		double rate     = (now == rateTime) ? 0.0 : (operations - rateCount) * 1e9 / (now - rateTime);
+		rateCount = operations;
+		rateTime  = now;
+		return rate;
+	}
+
+	/**
+	 * Returns the total of the operations' items, estimated from the sampled operations.
+	 * @return A long. The number of items.
+	 */
+	@Override
+	public long getItems(){
+		return scale(items.sum());
+	}
+
+	/**
+	 * Returns what the operation's items are.
+	 * @return A String describing an item.
+	 */
+	@Override
+	public String getItemUnit(){
+		return itemUnit;
+	}
+
+	/**
+	 * Returns the total of the operations' results, estimated from the sampled operations.
+	 * @return A long. The number of results.
+	 */
+	@Override
+	public long getResults(){
+		return scale(results.sum());
+	}
+
+	/**
+	 * Scales a total of the sampled operations up to all operations.
+	 * @param total The total of the sampled operations.
+	 * @return A long. The estimated total of all operations; total itself if every operation was sampled.
+	 */
+	private long scale(long total){
+		long samples    = sampled.sum();
+		long operations = count.sum();
+		if(samples == 0 || samples >= operations)
+			return total;
+		return Math.round((double)total * operations / samples);
+	}
+
+	/**
+	 * Returns what the operation's results are.
+	 * @return A String describing a result.
+	 */
+	@Override
+	public String getResultUnit(){
+		return resultUnit;
+	}
+
+	/**
+	 * Sets every statistic back to zero.
+	 */
+	@Override
+	public synchronized void reset(){
+		count.reset();
+		sampled.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+		items.reset();
+		results.reset();
+		for(LongAdder bucket:histogram)
+			bucket.reset();
+		rateCount = 0;
+		rateTime  = System.nanoTime();
+	}
+
+	/**
+	 * Returns the statistics as a String.
+	 * @return A String of the name, count, mean and maximum latency, items and results.
+	 */
+	@Override
+	public String toString(){
+		return name + "[count=" + getCount() + ", meanNanos=" + (long)getMeanLatencyNanos() + ", maxNanos=" + getMaxLatencyNanos()
+				+ ", " + itemUnit + "=" + getItems() + ", " + resultUnit + "=" + getResults() + "]";
+	}
+
+
+	/**
+	 * The Flight Recorder event of ExpressionDisAssembler.getCards(String).
+	 * @author Kenneth Chin
+	 *
+	 */
+	@Name("propositionalCalculatorV1_0.Parse")
+	@Label("Expression Parse")
+	@Category("Propositional Calculator")
+	@Description("An expression parsed into its ExpressionCard tree.")
+	@StackTrace(false)
+	static final class ParseEvent extends Event {
+
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+
+		@Label("Characters")
+		long characters;
+
+		@Label("Cards Built")
+		long cards;
+	}
+
+	/**
+	 * The Flight Recorder event of ExpressionEvaluator.evaluateExpressionCards(HashMap, ExpressionCard).
+	 *  Evaluations are frequent, so the event is off unless a recording's settings turn it on.
+	 * @author Kenneth Chin
+	 *
+	 */
+	@Name("propositionalCalculatorV1_0.Evaluation")
+	@Label("Expression Evaluation")
+	@Category("Propositional Calculator")
+	@Description("An expression's cards evaluated at one assignment.")
+	@StackTrace(false)
+	@Enabled(false)
+	static final class EvaluationEvent extends Event {
+
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+
+		@Label("Cards Visited")
+		long cardsVisited;
+
+		@Label("Result")
+		boolean result;
+	}
+
+	/**
+	 * The Flight Recorder event of SatisfiablilityCalculator.findSatisfiablility(HashMap, ExpressionCard).
+	 * @author Kenneth Chin
+	 *
+	 */
+	@Name("propositionalCalculatorV1_0.Satisfiability")
+	@Label("Satisfiability Search")
+	@Category("Propositional Calculator")
+	@Description("A search of an expression's whole truth table.")
+	@StackTrace(false)
+	static final class SatisfiabilityEvent extends Event {
+
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+
+		@Label("Assignments Explored")
+		long assignments;
+
+		@Label("Satisfying Assignments")
+		long satisfying;
+	}
+}
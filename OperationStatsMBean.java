@@ -0,0 +1,124 @@
+package propositionalCalculatorV1_0;
+
+/**
+ * The JMX management interface of an OperationStats: the statistics of one kind of operation, and
+ *  the switch that turns their collection on and off. Every operation is counted; latencies, items
+ *  and results come from the one operation in getSampleInterval() that is sampled.
+ * @author Kenneth Chin
+ *
+ */
+public interface OperationStatsMBean {
+
+	/**
+	 * Returns the name of the operation.
+	 * @return A String, such as "Parse".
+	 */
+	String getName();
+
+	/**
+	 * Determines if statistics are being collected.
+	 * @return A boolean. True if operations are being timed and counted.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Turns the collection of statistics on or off. Operations that are not collected cost one
+	 *  read of a volatile field.
+	 * @param enabled True to collect statistics, false to stop.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Returns the number of operations recorded.
+	 * @return A long. The number of operations.
+	 */
+	long getCount();
+
+	/**
+	 * Returns the number of operations sampled.
+	 * @return A long. The number of operations timed.
+	 */
+	long getSampledCount();
+
+	/**
+	 * Returns the number of operations for each one sampled.
+	 * @return An int. The sampling interval.
+	 */
+	int getSampleInterval();
+
+	/**
+	 * Sets the number of operations for each one sampled. Sampling every operation (1) gives
+	 *  exact totals, at the cost of reading the clock twice per operation.
+	 * @param interval The sampling interval, at least 1.
+	 */
+	void setSampleInterval(int interval);
+
+	/**
+	 * Returns the mean time a sampled operation took.
+	 * @return A double. The mean latency in nanoseconds, or 0 if no operations were sampled.
+	 */
+	double getMeanLatencyNanos();
+
+	/**
+	 * Returns the longest time an operation took.
+	 * @return A long. The largest latency in nanoseconds.
+	 */
+	long getMaxLatencyNanos();
+
+	/**
+	 * Returns an upper bound of the median latency, read from the latency histogram.
+	 * @return A long. The upper bound, in nanoseconds, of the bucket holding the median.
+	 */
+	long getMedianLatencyNanos();
+
+	/**
+	 * Returns an upper bound of the 99th percentile latency, read from the latency histogram.
+	 * @return A long. The upper bound, in nanoseconds, of the bucket holding the 99th percentile.
+	 */
+	long getP99LatencyNanos();
+
+	/**
+	 * Returns the latency histogram. Element i counts the sampled operations that took from 2^i
+	 *  up to 2^(i+1) nanoseconds; element 0 also counts those that took less.
+	 * @return A new long[] of the bucket counts.
+	 */
+	long[] getLatencyHistogram();
+
+	/**
+	 * Returns the number of operations per second since the last call of this method, or since
+	 *  the statistics were created or reset.
+	 * @return A double. The recent rate of operations.
+	 */
+	double getOperationsPerSecond();
+
+	/**
+	 * Returns the total of the operations' items: characters parsed, cards visited, or
+	 *  assignments explored. The total is estimated from the sampled operations.
+	 * @return A long. The number of items.
+	 */
+	long getItems();
+
+	/**
+	 * Returns what the operation's items are.
+	 * @return A String describing an item.
+	 */
+	String getItemUnit();
+
+	/**
+	 * Returns the total of the operations' results: cards built, true evaluations, or satisfying
+	 *  assignments found. The total is estimated from the sampled operations.
+	 * @return A long. The number of results.
+	 */
+	long getResults();
+
+	/**
+	 * Returns what the operation's results are.
+	 * @return A String describing a result.
+	 */
+	String getResultUnit();
+
+	/**
+	 * Sets every statistic back to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,213 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+public class ParserTester {
+
+	private static final String CONDITIONALS = "&|^>=";
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 24);
+
+		System.out.println("Testing the parser...");
+
+		//Each error of validate, at the index of the offending character.
+		checkError(null,               0,  "The expression is empty.");
+		checkError("",                 0,  "The expression is empty.");
+		checkError("a&b)",             3,  "The closing parenthesis has no matching open parenthesis.");
+		checkError("(a&b",             0,  "The open parenthesis is never closed.");
+		checkError("((a&b)",           0,  "The open parenthesis is never closed.");
+		checkError("(a&(b",            3,  "The open parenthesis is never closed.");
+		checkError("!!a",              1,  "A negation may not directly follow another");
+		checkError("a&!!b",            3,  "A negation may not directly follow another");
+		checkError("a&1",              2,  "The character '1' is not allowed in an expression.");
+		checkError("&|",               0,  "The expression has no variables.");
+		checkError("()",               0,  "The expression has no variables.");
+		checkError("!",                0,  "The expression has no variables.");
+		checkError("(!)",              0,  "The expression has no variables.");
+		checkError("a&",               1,  "The conditional '&' is missing its right operand.");
+		checkError("&a",               0,  "The conditional '&' is missing its left operand.");
+		checkError("a&(|b)",           3,  "The conditional '|' is missing its left operand.");
+		checkError("a&&b",             2,  "A conditional may not directly follow another.");
+		checkError("(a)(b)",           3,  "A conditional is missing between two operands.");
+		checkError("a!b",              1,  "A conditional is missing between two operands.");
+		checkError("a&b&!",            4,  "The negation is not followed by a variable or sub-expression.");
+		checkError("a&(b&!)",          5,  "The negation is not followed by a variable or sub-expression.");
+		checkError("(a&b)&(c|!)",      9,  "The negation is not followed by a variable or sub-expression.");
+		checkError("a&()",             2,  "The parentheses hold nothing.");
+		//The same errors with white space, which moves the index but not the error.
+		checkError("a & !!b",          5,  "A negation may not directly follow another");
+		checkError(" a&1",             3,  "The character '1' is not allowed in an expression.");
+		checkError("a & b )",          6,  "The closing parenthesis has no matching open parenthesis.");
+		checkError("( a & ( b",        6,  "The open parenthesis is never closed.");
+		checkError("a & ! !b",         6,  "A negation may not directly follow another");
+		checkError("(a&b) & (c | ! )", 13, "The negation is not followed by a variable or sub-expression.");
+		checkError("a & & b",          4,  "A conditional may not directly follow another.");
+		for(String expression : new String[]{"a&b)", "(a&(b", "!!a", "a&!!b", "a&1", "a^(b|!!c)", "(a)&b)|c", "a&(b%c)",
+				"a&", "&a", "a&&b", "(a)(b)", "a&b&!", "a&(b&!)", "a&()"}){
+			for(int i=0; i<20; i++)
+				checkSpaced(expression, random);
+		}
+		System.out.println("Errors: every error checked at its index, with and without white space.");
+
+		//Deeply nested expressions, each read, evaluated and counted without recursion.
+		int depth = 100000;
+		checkDeep("Right nested", rightNested(depth));
+		checkDeep("Left nested", leftNested(depth));
+		checkDeep("Negated", negated(depth));
+		System.out.println("Deep nesting: 3 shapes of depth " + depth + " checked.");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	//Checks that validate, parse and the cache each reject an expression at the given index.
+	private static void checkError(String expression, int position, String message){
+		try{
+			ExpressionDisAssembler.validate(expression);
+			fail(expression, "was valid");
+		}
+		catch(ExpressionParseException e){
+			check(expression, "validate", e, position, message);
+		}
+		checkParseError(expression, position, message);
+	}
+
+	//Checks that parse and the cache each reject an expression at the given index.
+	private static void checkParseError(String expression, int position, String message){
+		try{
+			PropositionalExpression.parse(expression);
+			fail(expression, "was parsed");
+		}
+		catch(ExpressionParseException e){
+			check(expression, "parse", e, position, message);
+		}
+		try{
+			new ExpressionCache().get(expression);
+			fail(expression, "was cached");
+		}
+		catch(ExpressionParseException e){
+			check(expression, "the cache", e, position, message);
+		}
+	}
+
+	//Checks an invalid expression with white space put between its characters, against the error
+	// of the expression without it.
+	private static void checkSpaced(String expression, Random random){
+		ExpressionParseException expected = null;
+		try{
+			ExpressionDisAssembler.validate(expression);
+		}
+		catch(ExpressionParseException e){
+			expected = e;
+		}
+		StringBuilder spaced = new StringBuilder();
+		int[]         moved  = new int[expression.length() + 1];
+		for(int i=0; i<expression.length(); i++){
+			while(random.nextInt(3) == 0)
+				spaced.append(random.nextBoolean() ? ' ' : '\t');
+			moved[i] = spaced.length();
+			spaced.append(expression.charAt(i));
+		}
+		String message = expected.getMessage().substring(0, expected.getMessage().lastIndexOf(" (at index "));
+		checkError(spaced.toString(), moved[expected.getPosition()], message);
+	}
+
+	private static void check(String expression, String reader, ExpressionParseException e, int position, String message){
+		if(e.getPosition() != position)
+			fail(expression, "was rejected by " + reader + " at " + e.getPosition() + ", not " + position + ": " + e.getMessage());
+		if(!e.getMessage().startsWith(message))
+			fail(expression, "was rejected by " + reader + " with \"" + e.getMessage() + "\", not \"" + message + "\"");
+	}
+
+	//Reads, evaluates and counts a deep expression, checking the cards and the short circuit
+	// program against the compiled expression, and the count against its truth table.
+	private static void checkDeep(String shape, String expression){
+		try{
+			ExpressionDisAssembler.validate(expression);
+			ExpressionCard cards = ExpressionDisAssembler.getCards(expression);
+			int            count = 0;
+			for(Iterator<ExpressionCard> iterator = cards.iterator(); iterator.hasNext(); iterator.next())
+				count++;
+			if(count == 0)
+				fail(shape, "has no cards");
+			PropositionalExpression parsed = PropositionalExpression.parse(expression);
+			if(new ExpressionCache().get(expression).getVariables().size() != parsed.getVariables().size())
+				fail(shape, "has other variables in the cache");
+			CompiledExpression compiled = parsed.getCompiled();
+			long               models   = 0;
+			for(long row=0; row<(1L << compiled.getVariableCount()); row++){
+				HashMap<String, Boolean> map = new HashMap<String, Boolean>();
+				for(int slot=0; slot<compiled.getVariableCount(); slot++)
+					map.put(compiled.getSymbolTable().getName(slot), ((row >> slot) & 1) == 1);
+				boolean value = compiled.evaluate(row);
+				if(ExpressionEvaluator.evaluateExpressionCards(map, cards) != value)
+					fail(shape, "has cards that differ at row " + row);
+				if(parsed.evaluateShortCircuit(map) != value)
+					fail(shape, "has a short circuit value that differs at row " + row);
+				if(value)
+					models++;
+			}
+			BigInteger counted = parsed.countModels();
+			if(!counted.equals(BigInteger.valueOf(models)))
+				fail(shape, "has " + counted + " models, not " + models);
+		}
+		catch(StackOverflowError e){
+			fail(shape, "overflowed the stack");
+		}
+	}
+
+	//Returns a chain like a&(b|!(c^(...))) of the given depth.
+	private static String rightNested(int depth){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<depth; i++){
+			builder.append(RandomExpressions.variable(i % 8)).append(CONDITIONALS.charAt(i % 5));
+			builder.append(i % 4 == 1 ? "!" : "").append('(');
+		}
+		builder.append(RandomExpressions.variable(depth % 8));
+		for(int i=0; i<depth; i++)
+			builder.append(')');
+		return builder.toString();
+	}
+
+	//Returns a chain like (((a&!b)|c)^...) of the given depth.
+	private static String leftNested(int depth){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<depth; i++)
+			builder.append('(');
+		builder.append(RandomExpressions.variable(0));
+		for(int i=0; i<depth; i++){
+			builder.append(CONDITIONALS.charAt(i % 5)).append(i % 3 == 0 ? "!" : "");
+			builder.append(RandomExpressions.variable(1 + i % 7)).append(')');
+		}
+		return builder.toString();
+	}
+
+	//Returns an expression like (!(!(...a&b...))) of the given depth.
+	private static String negated(int depth){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<depth; i++)
+			builder.append("(!");
+		builder.append("a&b");
+		for(int i=0; i<depth; i++)
+			builder.append(')');
+		return builder.toString();
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + (expression == null ? "null" : expression.length() > 200 ? expression.substring(0, 200) + "..." : expression) + "\" " + message);
+	}
+
+}
@@ -1,5 +1,18 @@
 package propositionalCalculatorV1_0;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -11,16 +24,45 @@ import java.util.HashMap;
  *  offers to determine the expression's satisfiability. If the expression is
  *  satisfiable, the program will print all variable value combination that
  *  make the expression true.
+ * Run with --export, the program also offers, after each expression, to export its whole truth
+ *  table to a packed binary file:
+ *  PropCalcMain [--export]
+ * Run with --batch, the program asks nothing, and instead runs the (expression, assignment)
+ *  jobs of a file or of standard input through a BatchPipeline:
+ *  PropCalcMain --batch [--workers n] [--no-sat] [--binary] [--output file] [file | -]
+ * Run with --serve, the program is an EvaluationServer on a local socket until it is killed, and
+ *  run with --load, it puts load on such a server with a LoadGenerator:
+ *  PropCalcMain --serve [--port n | --unix path] [--sat-limit n]
+ *  PropCalcMain --load [--port n | --unix path] [--connections n] [--requests n] [--pipeline n] [--sat-percent n]
  * @author Kenneth Chin
  *
  */
 public class PropCalcMain {
 
+	//The TCP port of --serve and --load, when neither --port nor --unix is given.
+	private static final int DEFAULT_PORT = 7420;
+
 	public static void main(String[] args) {
-		ConsoleUI      ui   = new ConsoleUI();
-		ExpressionCard root;
+		if(args.length > 0 && args[0].equals("--batch")){
+			System.exit(runBatch(args));
+			return;
+		}
+		if(args.length > 0 && args[0].equals("--serve")){
+			System.exit(runServer(args));
+			return;
+		}
+		if(args.length > 0 && args[0].equals("--load")){
+			System.exit(runLoad(args));
+			return;
+		}
+		//The export prompt is only offered to those who ask for it, so the usual questions are unchanged.
+		boolean         offerExport = args.length > 0 && args[0].equals("--export");
+		ConsoleUI       ui          = new ConsoleUI();
+		ExpressionCache cache       = new ExpressionCache();
+		PropositionalExpression parsed;
 		
 		String expression;
+		String exportFile;
 		HashMap<String, Boolean>            valueMap;
 		ArrayList<String>                   variables;
 		ArrayList<HashMap<String, Boolean>> satMap;
@@ -28,6 +70,8 @@ public class PropCalcMain {
 		boolean runAgain = true;
 
 		
+		//The cache's hit rates can be watched over JMX, next to the statistics kept by Metrics.
+		Metrics.register(cache, "PropCalcMain");
 		ui.printWelcome();
 		while(runAgain){
 			expression = ui.exPrompt();
@@ -37,16 +81,30 @@ public class PropCalcMain {
 				
 				ui.printWait();
 				
-				root       = ExpressionDisAssembler.getCards(expression);
-				exValue    = ExpressionEvaluator.evaluateExpressionCards(valueMap, root);
+				//Expressions that were entered before are not parsed again.
+				parsed     = cache.get(expression);
+				exValue    = parsed.evaluate(valueMap);
 		
 				ui.printResult(expression, exValue);
 		
 				if(ui.promptForSatisfiability()){
 					ui.printWait();
-					satMap = SatisfiablilityCalculator.findSatisfiablility(valueMap, root);
+					//The truth table is searched with the simplified tree, which has the same rows.
+					satMap = SatisfiablilityCalculator.findSatisfiablility(valueMap, ExpressionSimplifier.simplify(parsed.toCards()));
 					ui.printSatisfiability(satMap, expression);
 				}
+
+				exportFile = offerExport ? ui.promptForExport() : null;
+				if(exportFile != null){
+					ui.printWait();
+					try{
+						long bytes = TruthTableFile.write(parsed, Paths.get(exportFile), true);
+						ui.printExport(exportFile, 1L << parsed.getVariables().size(), bytes);
+					}
+					catch(IOException | IllegalArgumentException e){
+						ui.printExportFailed(exportFile, e.getMessage());
+					}
+				}
 			}
 			else
 				runAgain = false;
@@ -54,4 +112,175 @@ public class PropCalcMain {
 		ui.printGoodbye();
 	}
 
+	/**
+	 * Runs the jobs named by the --batch command line, writing the results to standard output or
+	 *  to the output file, and the reasons for bad usage or failed I/O to standard error.
+	 * @param args The command line, starting with "--batch".
+	 * @return An int. The exit status: 0 on success, 1 if the jobs could not be read or the
+	 *  results written, 2 if the command line is bad.
+	 */
+	private static int runBatch(String[] args){
+		int     workers        = Runtime.getRuntime().availableProcessors();
+		boolean satisfiability = true;
+		boolean binary         = false;
+		String  inputFile      = "-";
+		String  outputFile     = null;
+		try{
+			for(int i=1; i<args.length; i++){
+				String option = args[i];
+				if(option.equals("--workers") && i + 1 < args.length)
+					workers = Integer.parseInt(args[++i]);
+				else if(option.equals("--output") && i + 1 < args.length)
+					outputFile = args[++i];
+				else if(option.equals("--no-sat"))
+					satisfiability = false;
+				else if(option.equals("--binary"))
+					binary = true;
+				else if(i == args.length - 1 && (option.equals("-") || !option.startsWith("-")))
+					inputFile = option;
+				else
+					throw new IllegalArgumentException("Unknown option \"" + option + "\".");
+			}
+			if(workers < 1)
+				throw new IllegalArgumentException("There must be at least one worker.");
+		}
+		catch(IllegalArgumentException e){
+			//NumberFormatException is an IllegalArgumentException.
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PropCalcMain --batch [--workers n] [--no-sat] [--binary] [--output file] [file | -]");
+			return 2;
+		}
+
+		ExpressionCache cache = new ExpressionCache();
+		Metrics.register(cache, "PropCalcMain");
+		try(BufferedReader in  = inputFile.equals("-")
+		                         ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+		                         : Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8);
+		    OutputStream   out = new BufferedOutputStream(outputFile == null ? System.out : new FileOutputStream(outputFile), 1 << 16)){
+			new BatchPipeline(workers, satisfiability, binary, cache).run(in, out, System.err);
+			return 0;
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.err.println("The batch could not be run: " + e.getMessage());
+			return 1;
+		}
+	}
+
+	/**
+	 * Runs an EvaluationServer on the address named by the --serve command line, until the program
+	 *  is killed.
+	 * @param args The command line, starting with "--serve".
+	 * @return An int. The exit status: 1 if the server could not be started, 2 if the command line
+	 *  is bad.
+	 */
+	private static int runServer(String[] args){
+		String port     = null;
+		String unix     = null;
+		int    satLimit = Runtime.getRuntime().availableProcessors();
+		try{
+			for(int i=1; i<args.length; i++){
+				String option = args[i];
+				if(option.equals("--port") && i + 1 < args.length)
+					port = args[++i];
+				else if(option.equals("--unix") && i + 1 < args.length)
+					unix = args[++i];
+				else if(option.equals("--sat-limit") && i + 1 < args.length)
+					satLimit = Integer.parseInt(args[++i]);
+				else
+					throw new IllegalArgumentException("Unknown option \"" + option + "\".");
+			}
+			if(satLimit < 1)
+				throw new IllegalArgumentException("At least one satisfiability search must be allowed.");
+		}
+		catch(IllegalArgumentException e){
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PropCalcMain --serve [--port n | --unix path] [--sat-limit n]");
+			return 2;
+		}
+
+		ExpressionCache cache = new ExpressionCache();
+		Metrics.register(cache, "EvaluationServer");
+		try{
+			EvaluationServer server = EvaluationServer.start(address(port, unix), cache, satLimit);
+			System.out.println("Listening on " + server.getAddress() + " with " + (server.isVirtual() ? "virtual" : "platform")
+			                   + " threads, at most " + satLimit + " satisfiability searches at once.");
+			server.awaitClose();
+			return 0;
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.err.println("The server could not be started: " + e.getMessage());
+			return 1;
+		}
+		catch(InterruptedException e){
+			return 1;
+		}
+	}
+
+	/**
+	 * Runs a LoadGenerator against the server named by the --load command line, and prints its
+	 *  report.
+	 * @param args The command line, starting with "--load".
+	 * @return An int. The exit status: 0 if every request was answered correctly, 1 if not or if the
+	 *  server could not be reached, 2 if the command line is bad.
+	 */
+	private static int runLoad(String[] args){
+		String port        = null;
+		String unix        = null;
+		int    connections = 4;
+		int    requests    = 100000;
+		int    pipeline    = 32;
+		int    satPercent  = 5;
+		try{
+			for(int i=1; i<args.length; i++){
+				String option = args[i];
+				if(option.equals("--port") && i + 1 < args.length)
+					port = args[++i];
+				else if(option.equals("--unix") && i + 1 < args.length)
+					unix = args[++i];
+				else if(option.equals("--connections") && i + 1 < args.length)
+					connections = Integer.parseInt(args[++i]);
+				else if(option.equals("--requests") && i + 1 < args.length)
+					requests = Integer.parseInt(args[++i]);
+				else if(option.equals("--pipeline") && i + 1 < args.length)
+					pipeline = Integer.parseInt(args[++i]);
+				else if(option.equals("--sat-percent") && i + 1 < args.length)
+					satPercent = Integer.parseInt(args[++i]);
+				else
+					throw new IllegalArgumentException("Unknown option \"" + option + "\".");
+			}
+			if(connections < 1 || requests < 1 || pipeline < 1 || satPercent < 0 || satPercent > 100)
+				throw new IllegalArgumentException("The counts must be at least 1, and the percentage from 0 to 100.");
+		}
+		catch(IllegalArgumentException e){
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PropCalcMain --load [--port n | --unix path] [--connections n] [--requests n] [--pipeline n] [--sat-percent n]");
+			return 2;
+		}
+
+		try{
+			return LoadGenerator.run(address(port, unix), connections, requests, pipeline, satPercent, System.out) ? 0 : 1;
+		}
+		catch(IOException e){
+			System.err.println("The load could not be run: " + e.getMessage());
+			return 1;
+		}
+		catch(InterruptedException e){
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the local address named by --port or --unix.
+	 * @param port The TCP port on the loopback interface, or null.
+	 * @param unix The path of a Unix domain socket, or null.
+	 * @return A SocketAddress: the Unix domain socket if unix is given, otherwise the port, or
+	 *  DEFAULT_PORT if neither is given.
+	 * @throws IllegalArgumentException If port is not a number from 0 to 65535.
+	 */
+	private static SocketAddress address(String port, String unix){
+		if(unix != null)
+			return UnixDomainSocketAddress.of(unix);
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), (port == null) ? DEFAULT_PORT : Integer.parseInt(port));
+	}
+
 }
@@ -0,0 +1,365 @@
+package propositionalCalculatorV1_0;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, parsed and compiled propositional expression. An expression is parsed and
+ *  compiled once, and may then be shared by any number of threads: every evaluation and
+ *  satisfiability method keeps its state on the calling thread, and evaluations reuse a
+ *  per-thread scratch stack instead of allocating one per call.
+ * The static methods of ExpressionDisAssembler, ExpressionEvaluator and SatisfiablilityCalculator
+ *  keep working on ExpressionCard trees; this class is for callers that evaluate the same
+ *  expression many times, or from many threads.
+ * @author Kenneth Chin
+ *
+ */
+public final class PropositionalExpression {
+
+	//Each thread's scratch space for evaluate(Map<String, Boolean>).
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>(){
+		@Override
+		protected Scratch initialValue(){
+			return new Scratch();
+		}
+	};
+
+	private final String             expression; //The expression String that was parsed.
+	private final CompiledExpression compiled;   //The compiled program.
+	private volatile ShortCircuitExpression shortCircuit; //The short-circuit program, built when first needed.
+	private volatile Boolean                satisfiable;  //Is the expression satisfiable? Found when first asked.
+
+	/**
+	 * Creates a PropositionalExpression. Use parse(String) or parse(String, SymbolTable).
+	 * @param expression The expression String.
+	 * @param compiled The expression's CompiledExpression.
+	 */
+	private PropositionalExpression(String expression, CompiledExpression compiled){
+		this.expression = expression;
+		this.compiled   = compiled;
+	}
+
+	/**
+	 * Parses and compiles an expression. Variables are given slots in the order in which the
+	 *  expression is first evaluated to read them.
+	 * @param expression A propositional logic expression String, in the format described by
+	 *  ConsoleUI's promptInstructions() method.
+	 * @return A new PropositionalExpression.
+	 * @throws ExpressionParseException If the expression is null or breaks the rules checked by
+	 *  ExpressionDisAssembler.validate(String).
+	 * @throws IllegalArgumentException If the expression could not be compiled.
+	 */
+	public static PropositionalExpression parse(String expression){
+		return parse(expression, null);
+	}
+
+	/**
+	 * Parses and compiles an expression using the slots of the given SymbolTable. The order of
+	 *  symbols is the order of the expression's truth table.
+	 * @param expression A propositional logic expression String, in the format described by
+	 *  ConsoleUI's promptInstructions() method.
+	 * @param symbols The SymbolTable giving each variable's slot, or null to give variables slots
+	 *  in the order the expression first reads them.
+	 * @return A new PropositionalExpression.
+	 * @throws ExpressionParseException If the expression is null or breaks the rules checked by
+	 *  ExpressionDisAssembler.validate(String).
+	 * @throws IllegalArgumentException If the expression could not be compiled, or uses a
+	 *  variable that is not in symbols.
+	 */
+	public static PropositionalExpression parse(String expression, SymbolTable symbols){
+		ExpressionDisAssembler.validate(expression);
+		//The cards are read without white space, as ExpressionEvaluator reads them.
+		ExpressionCard cards;
+		try{
+			cards = ExpressionDisAssembler.getCards(ExpressionCache.stripWhitespace(expression));
+		}
+		catch(ExpressionParseException e){
+			throw e.at(ExpressionCache.originalIndex(expression, e.getPosition()));
+		}
+		return new PropositionalExpression(expression, ExpressionCompiler.compile(cards, symbols));
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the expression String that was parsed.
+	 * @return The expression String.
+	 */
+	public String getExpression(){
+		return expression;
+	}
+
+	/**
+	 * Returns the compiled expression. CompiledExpressions are immutable, so it may be shared.
+	 * @return The CompiledExpression.
+	 */
+	public CompiledExpression getCompiled(){
+		return compiled;
+	}
+
+	/**
+	 * Returns the short-circuit form of the compiled expression, building it the first time it is
+	 *  asked for. Two threads may both build it, but they build equal programs.
+	 * @return The ShortCircuitExpression.
+	 */
+	public ShortCircuitExpression getShortCircuit(){
+		ShortCircuitExpression result = shortCircuit;
+		if(result == null){
+			result       = ShortCircuitExpression.of(compiled);
+			shortCircuit = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a LongPredicate over the rows of the expression's truth table, which is compiled into
+	 *  bytecode once it has been evaluated more than threshold times.
+	 * @param threshold The number of evaluations after which the expression is compiled.
+	 * @return A new TieredPredicate.
+	 * @throws IllegalArgumentException If the expression has more than 64 variables, or the
+	 *  threshold is negative.
+	 */
+	public TieredPredicate toPredicate(int threshold){
+		return new TieredPredicate(compiled, threshold);
+	}
+
+	/**
+	 * Returns the SymbolTable of the expression's variables.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return compiled.getSymbolTable();
+	}
+
+	/**
+	 * Returns the expression's variables, in slot order.
+	 * @return An unmodifiable List<String> of variable names.
+	 */
+	public List<String> getVariables(){
+		return compiled.getVariables();
+	}
+
+	/**
+	 * Builds a new ExpressionCard tree of the expression. ExpressionCards can be changed, so
+	 *  each call returns a tree of its own.
+	 * @return The ExpressionCard at the root of the expression's binary tree.
+	 */
+	public ExpressionCard toCards(){
+		return ExpressionDisAssembler.getCards(expression);
+	}
+
+
+	//Evaluation operations.
+
+	/**
+	 * Evaluates the expression with the variable values given by a map. The values are copied
+	 *  into the calling thread's scratch space, so no memory is allocated.
+	 * @param aMap A Map<String, Boolean> who's keys include every variable of this expression.
+	 * @return A boolean indicating the expression's truth value at the values given by aMap.
+	 * @throws IllegalArgumentException If aMap has no value for one of the variables.
+	 */
+	public boolean evaluate(Map<String, Boolean> aMap){
+		long        start   = Metrics.EVALUATION.start();
+		SymbolTable symbols = compiled.getSymbolTable();
+		Scratch     scratch = SCRATCH.get();
+		boolean[]   values  = scratch.values(symbols.size());
+		for(int i=0; i<symbols.size(); i++){
+			Boolean value = aMap.get(symbols.getName(i));
+			if(value == null)
+				throw new IllegalArgumentException("The variable \"" + symbols.getName(i) + "\" was not given a value.");
+			values[i] = value;
+		}
+		return recordEvaluation(start, compiled.evaluate(values, scratch.stack(compiled.getMaxStackDepth())));
+	}
+
+	/**
+	 * Evaluates the expression with short-circuit semantics, skipping the second operand of &, |
+	 *  and > whenever the first decides the result. The truth value is the same as
+	 *  evaluate(Map<String, Boolean>) returns, and is usually reached sooner for large
+	 *  conjunctions and disjunctions.
+	 * @param aMap A Map<String, Boolean> who's keys include every variable of this expression.
+	 * @return A boolean indicating the expression's truth value at the values given by aMap.
+	 * @throws IllegalArgumentException If aMap has no value for a variable the evaluation reads.
+	 */
+	public boolean evaluateShortCircuit(Map<String, Boolean> aMap){
+		long start = Metrics.EVALUATION.start();
+		return recordEvaluation(start, getShortCircuit().evaluate(aMap));
+	}
+
+	/**
+	 * Evaluates the expression for an Assignment.
+	 * @param assignment An Assignment with a value for each of this expression's variables.
+	 * @return A boolean indicating the expression's truth value at the assignment's values.
+	 * @throws IllegalArgumentException If the assignment has no value for one of the variables.
+	 */
+	public boolean evaluate(Assignment assignment){
+		long start = Metrics.EVALUATION.start();
+		return recordEvaluation(start, compiled.evaluate(assignment));
+	}
+
+	/**
+	 * Evaluates the expression for a row of its truth table.
+	 * @param row A long whose bit i is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 * @throws IllegalStateException If the expression has more than 64 variables. Use
+	 *  evaluate(Assignment) instead.
+	 */
+	public boolean evaluate(long row){
+		long start = Metrics.EVALUATION.start();
+		return recordEvaluation(start, compiled.evaluate(row));
+	}
+
+	/**
+	 * Records an evaluation in Metrics.EVALUATION, counting the program's instructions as the
+	 *  cards visited.
+	 * @param start The value Metrics.EVALUATION.start() returned before the evaluation.
+	 * @param value The truth value found.
+	 * @return The boolean value, so the result can be returned directly.
+	 */
+	private boolean recordEvaluation(long start, boolean value){
+		Metrics.EVALUATION.record(start, compiled.getCodeLength(), value ? 1 : 0);
+		return value;
+	}
+
+
+	//Satisfiability operations.
+
+	/**
+	 * Finds every satisfying row of the expression's truth table, in truth table order.
+	 * @return An AssignmentSet of each satisfying combination over getSymbolTable().
+	 * @throws IllegalArgumentException If the expression has more than
+	 *  SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES variables.
+	 */
+	public AssignmentSet findSatisfyingRows(){
+		checkEnumerable();
+		long          start = Metrics.SATISFIABILITY.start();
+		AssignmentSet rows  = SatisfiablilityCalculator.findSatisfyingRows(compiled);
+		Metrics.SATISFIABILITY.record(start, 1L << compiled.getVariableCount(), rows.size());
+		return rows;
+	}
+
+	/**
+	 * Hands each satisfying row of the expression's truth table to a visitor, in truth table
+	 *  order, through a single reused Assignment.
+	 * @param visitor The AssignmentVisitor to receive each satisfying combination. The search stops
+	 *  early if it returns false.
+	 * @return A long. The number of combinations handed to visitor.
+	 * @throws IllegalArgumentException If the expression has more than
+	 *  SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES variables.
+	 */
+	public long forEachSatisfying(AssignmentVisitor visitor){
+		checkEnumerable();
+		return SatisfiablilityCalculator.forEachSatisfying(compiled, visitor);
+	}
+
+	/**
+	 * Returns a lazy Stream of each satisfying row of the expression's truth table. Elements are
+	 *  reused views, and must be copied (Assignment.copy()) if they are to be kept.
+	 * @return A sequential Stream<Assignment> of the satisfying combinations.
+	 * @throws IllegalArgumentException If the expression has more than
+	 *  SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES variables.
+	 */
+	public Stream<Assignment> streamSatisfying(){
+		checkEnumerable();
+		return SatisfiablilityCalculator.streamSatisfying(compiled);
+	}
+
+	/**
+	 * Finds a single satisfying combination with a CdclSolver, which handles far more variables
+	 *  than the truth table.
+	 * @return A new Assignment over getSymbolTable() for which the expression is true, or null
+	 *  if the expression is unsatisfiable.
+	 */
+	public Assignment findSatisfyingAssignment(){
+		long       start         = Metrics.SATISFIABILITY.start();
+		CdclSolver solver        = new CdclSolver();
+		int[]      slotVariables = TseitinEncoder.encode(compiled, solver);
+		if(!solver.solve()){
+			SatisfiablilityCalculator.recordSearch(start, solver, 0);
+			return null;
+		}
+		Assignment assignment = new Assignment(compiled.getSymbolTable());
+		for(int i=0; i<slotVariables.length; i++)
+			assignment.set(i, solver.getValue(slotVariables[i]));
+		SatisfiablilityCalculator.recordSearch(start, solver, 1);
+		return assignment;
+	}
+
+	/**
+	 * Determines if the expression is true for at least one combination of values. The answer is
+	 *  found the first time it is asked for, and kept; two threads may both find it.
+	 * @return A boolean. True if the expression is satisfiable.
+	 */
+	public boolean isSatisfiable(){
+		Boolean result = satisfiable;
+		if(result == null){
+			result      = findSatisfyingAssignment() != null;
+			satisfiable = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the combinations of values for which the expression is true, without enumerating them.
+	 * @return A BigInteger. The number of satisfying combinations over getSymbolTable().
+	 */
+	public BigInteger countModels(){
+		return ModelCounter.countModels(compiled);
+	}
+
+	/**
+	 * Ensures the expression's truth table can be enumerated.
+	 */
+	private void checkEnumerable(){
+		int numVars = compiled.getVariableCount();
+		if(numVars > SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES)
+			throw new IllegalArgumentException("Cannot enumerate the truth table of " + numVars + " variables.");
+	}
+
+	/**
+	 * Returns the expression String that was parsed.
+	 * @return The expression String.
+	 */
+	@Override
+	public String toString(){
+		return expression;
+	}
+
+
+	/**
+	 * A thread's scratch space. Arrays grow to the largest expression the thread has evaluated,
+	 *  and are reused for every evaluation after that.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class Scratch {
+
+		private boolean[] values = new boolean[16]; //Variable values, indexed by slot.
+		private boolean[] stack  = new boolean[16]; //The value stack.
+
+		/**
+		 * Returns the value array, grown to at least the given length.
+		 * @param length The number of variables.
+		 * @return A boolean[] of at least length elements.
+		 */
+		private boolean[] values(int length){
+			if(values.length < length)
+				values = new boolean[Math.max(length, 2 * values.length)];
+			return values;
+		}
+
+		/**
+		 * Returns the value stack, grown to at least the given depth.
+		 * @param depth The deepest the stack gets.
+		 * @return A boolean[] of at least depth elements.
+		 */
+		private boolean[] stack(int depth){
+			if(stack.length < depth)
+				stack = new boolean[Math.max(depth, 2 * stack.length)];
+			return stack;
+		}
+	}
+}
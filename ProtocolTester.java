@@ -0,0 +1,260 @@
+package propositionalCalculatorV1_0;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+public class ProtocolTester {
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException {
+
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 23);
+
+		System.out.println("Testing the evaluation protocol...");
+
+		EvaluationServer server = EvaluationServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new ExpressionCache(), 1);
+		try{
+			//Pipelined evaluations are answered in the order they were sent.
+			EvaluationClient                    client      = EvaluationClient.connect(server.getAddress());
+			ArrayList<String>                   expressions = new ArrayList<String>();
+			ArrayList<HashMap<String, Boolean>> maps        = new ArrayList<HashMap<String, Boolean>>();
+			ArrayList<Integer>                  ids         = new ArrayList<Integer>();
+			for(int i=0; i<500; i++){
+				String expression = RandomExpressions.expression(random, 1 + random.nextInt(8), 1 + random.nextInt(20));
+				expressions.add(expression);
+				maps.add(randomMap(PropositionalExpression.parse(expression), random));
+				ids.add(client.sendEvaluate(expression, maps.get(i)));
+			}
+			for(int i=0; i<500; i++){
+				EvaluationClient.Response response = client.receive();
+				boolean                   expected = PropositionalExpression.parse(expressions.get(i)).evaluate(maps.get(i));
+				if(response.getId() != ids.get(i) || response.getStatus() != EvaluationProtocol.OK || response.getValue() != expected)
+					fail(expressions.get(i), "was answered " + response + ", not request " + ids.get(i) + " with " + expected);
+			}
+			System.out.println("Pipelined evaluations: 500 checked.");
+
+			//Searches, one at a time, which each give their permit back.
+			for(int i=0; i<100; i++){
+				String expression = RandomExpressions.cnf(random, 3 + random.nextInt(8), 3 + random.nextInt(40), 3);
+				int    id         = client.sendSatisfy(expression);
+				EvaluationClient.Response response = client.receive();
+				PropositionalExpression   parsed   = PropositionalExpression.parse(expression);
+				if(response.getId() != id || response.getStatus() != EvaluationProtocol.OK)
+					fail(expression, "was answered " + response + " for request " + id);
+				else if(response.getValue() ? !parsed.evaluate(response.getAssignment()) : parsed.isSatisfiable())
+					fail(expression, "was answered with the wrong assignment " + response);
+			}
+			System.out.println("Searches: 100 checked.");
+
+			//A search asked for while the only permit is taken is answered with BUSY at once, by any
+			// connection, and the permit is given back when the search is done.
+			String                    hard   = pigeonhole(11, 10);
+			EvaluationClient          other  = EvaluationClient.connect(server.getAddress());
+			int                       hardId = client.sendSatisfy(hard);
+			int                       busyId = client.sendSatisfy("a&b");
+			EvaluationClient.Response busy   = client.receive();
+			if(busy.getId() != busyId || busy.getStatus() != EvaluationProtocol.BUSY)
+				fail("a&b", "was answered " + busy + ", not BUSY, during a search");
+			other.sendSatisfy("a|b");
+			EvaluationClient.Response otherBusy = other.receive();
+			if(otherBusy.getStatus() != EvaluationProtocol.BUSY)
+				fail("a|b", "was answered " + otherBusy + ", not BUSY, on another connection during a search");
+			EvaluationClient.Response hardResponse = client.receive();
+			if(hardResponse.getId() != hardId || hardResponse.getStatus() != EvaluationProtocol.OK || hardResponse.getValue())
+				fail("11 pigeons in 10 holes", "was answered " + hardResponse);
+			other.sendSatisfy("a|b");
+			EvaluationClient.Response after = other.receive();
+			if(after.getStatus() != EvaluationProtocol.OK || !after.getValue())
+				fail("a|b", "was answered " + after + " after the search was done");
+			other.close();
+			System.out.println("Back-pressure: BUSY checked on two connections.");
+
+			//Variable names longer than a byte can count are sent and answered whole.
+			StringBuilder longName = new StringBuilder();
+			for(int i=0; i<1000; i++)
+				longName.append((char)('a' + i % 26));
+			HashMap<String, Boolean> values = new HashMap<String, Boolean>();
+			values.put(longName.toString(), Boolean.TRUE);
+			values.put("b", Boolean.FALSE);
+			client.sendEvaluate(longName + "&!b", values);
+			EvaluationClient.Response evaluated = client.receive();
+			if(evaluated.getStatus() != EvaluationProtocol.OK || !evaluated.getValue())
+				fail(longName + "&!b", "was answered " + evaluated);
+			client.sendSatisfy(longName + "&!b");
+			EvaluationClient.Response satisfied = client.receive();
+			if(satisfied.getStatus() != EvaluationProtocol.OK || !values.equals(satisfied.getAssignment()))
+				fail(longName + "&!b", "was answered " + satisfied + " when searched");
+			//The stream is still in step.
+			client.sendEvaluate("a|b", values);
+			if(client.receive().getStatus() != EvaluationProtocol.INVALID)
+				fail("a|b", "was not answered INVALID after a long name");
+			client.close();
+			System.out.println("Long names: 1000 byte name checked.");
+
+			//Frames split into single bytes, and several frames in one write.
+			SocketChannel                  channel = SocketChannel.open(server.getAddress());
+			EvaluationProtocol.FrameReader reader  = new EvaluationProtocol.FrameReader(channel);
+			byte[]                         frames  = concat(evaluateFrame(1, "a&b", "a", "b"), evaluateFrame(2, "a|!b", "a", "b"), evaluateFrame(3, "a^b", "a", "b"));
+			for(byte b:frames)
+				channel.write(ByteBuffer.wrap(new byte[]{b}));
+			channel.write(ByteBuffer.wrap(frames));
+			for(int i=0; i<6; i++){
+				ByteBuffer response = reader.next();
+				int        id       = response.getInt();
+				int        status   = response.get();
+				boolean    expected = (id != 3);
+				if(id != 1 + i % 3 || status != EvaluationProtocol.OK || (response.get() != 0) != expected)
+					fail("Frame " + (1 + i % 3), "was answered with id " + id + " and status " + status);
+			}
+			System.out.println("Framing: 6 frames checked, split and joined.");
+
+			//Malformed requests and bad expressions are answered, and the connection goes on.
+			checkStatus(channel, reader, frame(4, EvaluationProtocol.EVALUATE, "a&1", new byte[]{0, 0}), 4, EvaluationProtocol.INVALID, "a&1");
+			checkStatus(channel, reader, evaluateFrame(5, "a&b", "a"), 5, EvaluationProtocol.INVALID, "A missing value");
+			checkStatus(channel, reader, frame(6, EvaluationProtocol.SATISFY, "(a|b", new byte[0]), 6, EvaluationProtocol.INVALID, "(a|b");
+			checkStatus(channel, reader, frame(7, 9, "a", new byte[0]), 7, EvaluationProtocol.MALFORMED, "Operation 9");
+			checkStatus(channel, reader, frame(8, EvaluationProtocol.EVALUATE, "a", new byte[]{0, 1, 1}), 8, EvaluationProtocol.MALFORMED, "A short assignment");
+			checkStatus(channel, reader, new byte[]{0, 0, 0, 0}, 0, EvaluationProtocol.MALFORMED, "An empty frame");
+			checkStatus(channel, reader, evaluateFrame(9, "a|b", "a", "b"), 9, EvaluationProtocol.OK, "a|b");
+			//A frame that is too long ends the connection, after it is answered.
+			for(int length : new int[]{EvaluationProtocol.MAX_FRAME_BYTES + 1, -1}){
+				if(length < 0){
+					channel = SocketChannel.open(server.getAddress());
+					reader  = new EvaluationProtocol.FrameReader(channel);
+				}
+				checkStatus(channel, reader, ByteBuffer.allocate(4).putInt(length).array(), 0, EvaluationProtocol.MALFORMED, "A frame of " + length + " bytes");
+				try{
+					if(reader.next() != null)
+						fail("A frame of " + length + " bytes", "did not end the connection");
+				}
+				catch(EOFException | ProtocolException e){
+					fail("A frame of " + length + " bytes", "ended the connection within a frame");
+				}
+				catch(IOException e){
+					//The connection was reset.
+				}
+				channel.close();
+			}
+			System.out.println("Malformed frames: 9 checked.");
+		}
+		finally{
+			server.close();
+		}
+
+		//The same protocol over a Unix domain socket.
+		Path             directory = Files.createTempDirectory("protocol-tester");
+		SocketAddress    address   = UnixDomainSocketAddress.of(directory.resolve("server.socket"));
+		EvaluationServer unix      = EvaluationServer.start(address, new ExpressionCache(), 1);
+		try{
+			SocketChannel                  channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+			channel.connect(address);
+			EvaluationProtocol.FrameReader reader  = new EvaluationProtocol.FrameReader(channel);
+			checkStatus(channel, reader, evaluateFrame(1, "a>b", "a", "b"), 1, EvaluationProtocol.OK, "a>b");
+			channel.close();
+		}
+		finally{
+			unix.close();
+			Files.deleteIfExists(directory);
+		}
+		System.out.println("Unix domain socket: checked.");
+
+		System.out.println();
+		if(failures > 0){
+			System.out.println("Test Failed! " + failures + " failures.");
+			System.exit(1);
+		}
+		System.out.println("Test Complete!");
+	}
+
+	//Writes a frame, and checks the id and status of its response.
+	private static void checkStatus(SocketChannel channel, EvaluationProtocol.FrameReader reader, byte[] frame, int id, int status, String request) throws IOException{
+		channel.write(ByteBuffer.wrap(frame));
+		ByteBuffer response = reader.next();
+		if(response == null){
+			fail(request, "ended the connection");
+			return;
+		}
+		int answeredId     = response.getInt();
+		int answeredStatus = response.get();
+		if(answeredId != id || answeredStatus != status)
+			fail(request, "was answered with id " + answeredId + " and status " + answeredStatus + ", not " + id + " and " + status);
+	}
+
+	//Returns a request frame: the id, the operation, the expression and the rest of the bytes.
+	private static byte[] frame(int id, int operation, String expression, byte[] rest){
+		byte[]     bytes  = expression.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 1 + 2 + bytes.length + rest.length);
+		buffer.putInt(buffer.capacity() - 4).putInt(id).put((byte)operation);
+		buffer.putShort((short)bytes.length).put(bytes).put(rest);
+		return buffer.array();
+	}
+
+	//Returns an evaluation frame that gives each of the named variables the value true.
+	private static byte[] evaluateFrame(int id, String expression, String... variables){
+		ByteBuffer assignment = ByteBuffer.allocate(2 + 4 * variables.length);
+		assignment.putShort((short)variables.length);
+		for(String variable:variables)
+			assignment.putShort((short)1).put((byte)variable.charAt(0)).put((byte)1);
+		return frame(id, EvaluationProtocol.EVALUATE, expression, assignment.array());
+	}
+
+	private static byte[] concat(byte[]... arrays){
+		int length = 0;
+		for(byte[] array:arrays)
+			length += array.length;
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		for(byte[] array:arrays)
+			buffer.put(array);
+		return buffer.array();
+	}
+
+	private static HashMap<String, Boolean> randomMap(PropositionalExpression expression, Random random){
+		HashMap<String, Boolean> map = new HashMap<String, Boolean>();
+		for(String variable : expression.getVariables())
+			map.put(variable, random.nextBoolean());
+		return map;
+	}
+
+	//Returns the pigeonhole formula of the given numbers of pigeons and holes, which takes the
+	// solver long enough to hold its permit while other searches are asked for.
+	private static String pigeonhole(int pigeons, int holes){
+		StringBuilder builder = new StringBuilder();
+		for(int pigeon=0; pigeon<pigeons; pigeon++){
+			builder.append(pigeon > 0 ? "&(" : "(");
+			for(int hole=0; hole<holes; hole++)
+				builder.append(hole > 0 ? "|" : "").append(RandomExpressions.variable(pigeon * holes + hole));
+			builder.append(')');
+		}
+		for(int hole=0; hole<holes; hole++){
+			for(int first=0; first<pigeons; first++){
+				for(int second=first+1; second<pigeons; second++){
+					builder.append("&(!").append(RandomExpressions.variable(first * holes + hole));
+					builder.append("|!").append(RandomExpressions.variable(second * holes + hole)).append(')');
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	private static void fail(String expression, String message){
+		failures++;
+		if(failures <= 20)
+			System.out.println("FAILED: \"" + (expression.length() > 200 ? expression.substring(0, 200) + "..." : expression) + "\" " + message);
+	}
+
+}
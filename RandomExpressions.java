@@ -0,0 +1,110 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Random;
+
+/**
+ * Generates random expressions for the tester classes. Expressions are chains of the five
+ *  conditionals, each grouping a variable with the rest of the chain, with some variables and
+ *  some groups negated, over the first variables of a fixed list of names (a to z, then aa, ab
+ *  and so on).
+ * This class is singleton, and it's package-private methods are expression(Random, int, int),
+ *  cnf(Random, int, int, int) and variable(int).
+ * @author Kenneth Chin
+ *
+ */
+final class RandomExpressions {
+
+	//The conditionals of the generated expressions.
+	private static final String CONDITIONALS = "&|^>=";
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private RandomExpressions(){}
+
+	/**
+	 * Generates a random expression.
+	 * @param random The Random to draw from.
+	 * @param variables The number of distinct variables to draw from, at most 26 * 27.
+	 * @param depth The greatest number of conditionals in the expression.
+	 * @return An expression String that ExpressionDisAssembler.validate(String) accepts.
+	 */
+	static String expression(Random random, int variables, int depth){
+		StringBuilder builder = new StringBuilder();
+		append(builder, random, variables, depth);
+		return builder.toString();
+	}
+
+	/**
+	 * Generates a random expression in conjunctive normal form: clauses of distinct, randomly
+	 *  negated variables joined by | and chained with &. With enough clauses per variable most of
+	 *  these are unsatisfiable.
+	 * @param random The Random to draw from.
+	 * @param variables The number of distinct variables to draw from, at most 26 * 27.
+	 * @param clauses The number of clauses, at least 1.
+	 * @param width The number of variables in each clause, at most variables.
+	 * @return An expression String that ExpressionDisAssembler.validate(String) accepts.
+	 */
+	static String cnf(Random random, int variables, int clauses, int width){
+		StringBuilder builder = new StringBuilder();
+		int[] chosen = new int[width];
+		for(int clause = 0; clause < clauses; clause++){
+			if(clause > 0)
+				builder.append('&');
+			builder.append('(');
+			for(int i = 0; i < width; i++){
+				//Draws until the variable is not already in the clause.
+				boolean repeated = true;
+				while(repeated){
+					chosen[i] = random.nextInt(variables);
+					repeated = false;
+					for(int j = 0; j < i; j++)
+						repeated |= chosen[j] == chosen[i];
+				}
+				if(i > 0)
+					builder.append('|');
+				if(random.nextBoolean())
+					builder.append('!');
+				builder.append(variable(chosen[i]));
+			}
+			builder.append(')');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the name of a variable.
+	 * @param index The variable's index.
+	 * @return A String of one letter for the first 26 variables, and two letters after them.
+	 */
+	static String variable(int index){
+		if(index < 26)
+			return String.valueOf((char)('a' + index));
+		return String.valueOf((char)('a' + index / 26 - 1)) + (char)('a' + index % 26);
+	}
+
+	/**
+	 * Appends a random sub-expression.
+	 * @param builder The StringBuilder to append to.
+	 * @param random The Random to draw from.
+	 * @param variables The number of distinct variables to draw from.
+	 * @param depth The greatest number of conditionals in the sub-expression.
+	 */
+	private static void append(StringBuilder builder, Random random, int variables, int depth){
+		if(depth == 0 || random.nextInt(4) == 0){
+			if(random.nextInt(4) == 0)
+				builder.append('!');
+			builder.append(variable(random.nextInt(variables)));
+			return;
+		}
+		//Every group starts with a variable. The card tree reads a group that starts with another
+		// group across the group's boundary: (a|((b&c)&d)) is read as ((a|(b&c))&d), and
+		// (!((a|b)&c)) as ((!(a|b))&c).
+		boolean negated = random.nextInt(5) == 0;
+		builder.append(negated ? "(!(" : "(");
+		append(builder, random, variables, 0);
+		builder.append(CONDITIONALS.charAt(random.nextInt(CONDITIONALS.length())));
+		append(builder, random, variables, depth - 1);
+		builder.append(negated ? "))" : ")");
+	}
+}
@@ -0,0 +1,438 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * A set of rules (expressions) that are evaluated together against one assignment. Every rule is
+ *  interned into one NodeFactory, so a sub-expression shared by many rules is stored, and
+ *  evaluated, once. The result of an evaluation is a BitSet of the ids of the rules that are true.
+ * The nodes are kept in flat arrays, grouped into runs of nodes of the same kind and the same
+ *  depth. Every operand is deeper down than the nodes that use it, so the runs can be evaluated
+ *  one after another, each by a tight loop with no switch on the kind of node. Adding a rule only
+ *  appends the nodes the set did not already have; they are evaluated after the runs, in id
+ *  order, until there are enough of them to be worth grouping again. Removing a rule leaves its
+ *  nodes in place until as many rules have been removed as are left, at which point the live
+ *  rules are copied into a fresh factory and the rest are dropped.
+ * A RuleSet is not thread-safe while rules are being added or removed. Between changes, any number
+ *  of threads may evaluate it at once; each thread keeps its own scratch array.
+ * @author Kenneth Chin
+ *
+ */
+public final class RuleSet {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private NodeFactory factory;     //The factory every rule is interned into.
+	private int[]       ops;         //Per node id: its kind.
+	private int[]       lefts;       //Per node id: its first operand's id, a variable's slot, or a constant's value.
+	private int[]       rights;      //Per node id: its second operand's id, or -1.
+	private int         nodeCount;   //The number of nodes in the arrays.
+	private int[]       roots;       //Per rule id: the id of its node, or -1 if it was removed.
+	private int         ruleCount;   //The number of rule ids handed out.
+	private int         liveRules;   //The number of rules not removed.
+	private int         deadRules;   //The number of rules removed since the last compaction.
+	private int[]       variableUses; //Per slot: the number of live rules that read the variable.
+	private int[]       levels;      //Per node id: its depth above the variables.
+
+	//The grouped layout of the first laidOut nodes. Run r covers positions runStarts[r] to
+	// runStarts[r+1]-1 of order, runLefts and runRights, and holds nodes of kind runOps[r].
+	private int         laidOut;     //The number of nodes in the layout.
+	private int[]       order;       //Per position: the id of the node.
+	private int[]       runLefts;    //Per position: the node's first operand, or variable slot, or constant value.
+	private int[]       runRights;   //Per position: the node's second operand, or -1.
+	private int[]       runOps;      //Per run: the kind of its nodes.
+	private int[]       runStarts;   //Per run, and one past the last: its first position.
+
+	//Each thread's scratch space for evaluate.
+	private final ThreadLocal<boolean[]> scratch = new ThreadLocal<boolean[]>();
+
+	/**
+	 * Creates an empty RuleSet.
+	 */
+	public RuleSet(){
+		this.factory      = new NodeFactory();
+		this.ops          = new int[INITIAL_CAPACITY];
+		this.lefts        = new int[INITIAL_CAPACITY];
+		this.rights       = new int[INITIAL_CAPACITY];
+		this.roots        = new int[INITIAL_CAPACITY];
+		this.variableUses = new int[INITIAL_CAPACITY];
+		this.levels       = new int[INITIAL_CAPACITY];
+		this.order        = new int[0];
+		this.runLefts     = new int[0];
+		this.runRights    = new int[0];
+		this.runOps       = new int[0];
+		this.runStarts    = new int[]{0};
+	}
+
+
+	//Rule operations.
+
+	/**
+	 * Parses and adds a rule.
+	 * @param expression A propositional logic expression String.
+	 * @return An int. The rule's id, which is its bit in the results of evaluate.
+	 * @throws ExpressionParseException If the expression breaks the rules checked by
+	 *  ExpressionDisAssembler.validate(String).
+	 * @throws IllegalArgumentException If the expression could not be compiled.
+	 */
+	public int addRule(String expression){
+		return addRule(factory.intern(expression));
+	}
+
+	/**
+	 * Adds a compiled rule.
+	 * @param compiled The rule's CompiledExpression.
+	 * @return An int. The rule's id, which is its bit in the results of evaluate.
+	 */
+	public int addRule(CompiledExpression compiled){
+		return addRule(factory.intern(compiled));
+	}
+
+	/**
+	 * Adds the rule of a node of this set's factory.
+	 * @param node The rule's ExpressionNode.
+	 * @return An int. The rule's id.
+	 */
+	private int addRule(ExpressionNode node){
+		sync();
+		if(ruleCount == roots.length)
+			roots = Arrays.copyOf(roots, 2 * roots.length);
+		roots[ruleCount] = node.getId();
+		countVariables(node.getId(), 1);
+		liveRules++;
+		if(nodeCount - laidOut > laidOut / 4 + INITIAL_CAPACITY)
+			layOut();
+		return ruleCount++;
+	}
+
+	/**
+	 * Removes a rule. Its id is not reused.
+	 * @param id The id addRule returned.
+	 * @return A boolean. True if the rule was in the set.
+	 */
+	public boolean removeRule(int id){
+		if(!contains(id))
+			return false;
+		countVariables(roots[id], -1);
+		roots[id] = -1;
+		liveRules--;
+		deadRules++;
+		if(deadRules > liveRules && deadRules >= INITIAL_CAPACITY)
+			compact();
+		return true;
+	}
+
+	/**
+	 * Determines if a rule is in the set.
+	 * @param id A rule id.
+	 * @return A boolean. True if id was returned by addRule and has not been removed.
+	 */
+	public boolean contains(int id){
+		return id >= 0 && id < ruleCount && roots[id] != -1;
+	}
+
+	/**
+	 * Returns a rule's expression.
+	 * @param id The id of a rule in the set.
+	 * @return The rule's ExpressionNode.
+	 * @throws IllegalArgumentException If the rule is not in the set.
+	 */
+	public ExpressionNode getRule(int id){
+		if(!contains(id))
+			throw new IllegalArgumentException("There is no rule " + id + ".");
+		return factory.getNode(roots[id]);
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the number of rules in the set.
+	 * @return An int. The number of live rules.
+	 */
+	public int size(){
+		return liveRules;
+	}
+
+	/**
+	 * Returns the number of nodes evaluated per assignment, including those of removed rules that
+	 *  have not been compacted away yet. Every node is evaluated once, however many rules share it.
+	 * @return An int. The number of nodes.
+	 */
+	public int getNodeCount(){
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the SymbolTable of the variables, which gives the slots used by
+	 *  evaluate(boolean[]). Slots stay the same until rules are compacted after removals.
+	 * @return A new SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return factory.getSymbolTable();
+	}
+
+
+	//Evaluation operations.
+
+	/**
+	 * Evaluates every rule with the variable values given by a map.
+	 * @param aMap A Map<String, Boolean> who's keys include every variable the rules use.
+	 * @return A new BitSet with the bit of each true rule set.
+	 * @throws IllegalArgumentException If aMap has no value for a variable a rule uses.
+	 */
+	public BitSet evaluate(Map<String, Boolean> aMap){
+		boolean[] values = new boolean[factory.getVariableCount()];
+		for(int slot=0; slot<values.length; slot++){
+			if(variableUses[slot] == 0)
+				continue;
+			Boolean value = aMap.get(factory.getVariableName(slot));
+			if(value == null)
+				throw new IllegalArgumentException("The variable \"" + factory.getVariableName(slot) + "\" was not given a value.");
+			values[slot] = value;
+		}
+		return evaluate(values);
+	}
+
+	/**
+	 * Evaluates every rule. Each node shared by several rules is computed once.
+	 * @param values A boolean[] holding the truth value of each variable, indexed by the slots of
+	 *  getSymbolTable().
+	 * @return A new BitSet with the bit of each true rule set.
+	 */
+	public BitSet evaluate(boolean[] values){
+		boolean[] nodes = scratch.get();
+		if(nodes == null || nodes.length < nodeCount){
+			nodes = new boolean[Math.max(nodeCount, INITIAL_CAPACITY)];
+			scratch.set(nodes);
+		}
+		//The grouped runs.
+		int[] order     = this.order;
+		int[] runLefts  = this.runLefts;
+		int[] runRights = this.runRights;
+		for(int r=0; r<runOps.length; r++){
+			int from = runStarts[r];
+			int to   = runStarts[r + 1];
+			switch(runOps[r]){
+				case ExpressionNode.VARIABLE :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = values[runLefts[k]];
+					break;
+				case ExpressionNode.CONSTANT :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = runLefts[k] != 0;
+					break;
+				case ExpressionNode.NOT :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = !nodes[runLefts[k]];
+					break;
+				case ExpressionNode.AND :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = nodes[runLefts[k]] & nodes[runRights[k]];
+					break;
+				case ExpressionNode.OR :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = nodes[runLefts[k]] | nodes[runRights[k]];
+					break;
+				case ExpressionNode.XOR :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = nodes[runLefts[k]] ^ nodes[runRights[k]];
+					break;
+				case ExpressionNode.IMPLIES :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = !nodes[runLefts[k]] | nodes[runRights[k]];
+					break;
+				case ExpressionNode.EQUIVALENT :
+					for(int k=from; k<to; k++)
+						nodes[order[k]] = !(nodes[runLefts[k]] ^ nodes[runRights[k]]);
+					break;
+				default : throw new IllegalStateException("Unknown node kind " + runOps[r] + ".");
+			}
+		}
+
+		//The nodes added since the last layout, in id order.
+		int[] ops    = this.ops;
+		int[] lefts  = this.lefts;
+		int[] rights = this.rights;
+		for(int i=laidOut; i<nodeCount; i++){
+			switch(ops[i]){
+				case ExpressionNode.VARIABLE   : nodes[i] =  values[lefts[i]];                  break;
+				case ExpressionNode.CONSTANT   : nodes[i] =  lefts[i] != 0;                     break;
+				case ExpressionNode.NOT        : nodes[i] = !nodes[lefts[i]];                   break;
+				case ExpressionNode.AND        : nodes[i] =   nodes[lefts[i]] & nodes[rights[i]];  break;
+				case ExpressionNode.OR         : nodes[i] =   nodes[lefts[i]] | nodes[rights[i]];  break;
+				case ExpressionNode.XOR        : nodes[i] =   nodes[lefts[i]] ^ nodes[rights[i]];  break;
+				case ExpressionNode.IMPLIES    : nodes[i] =  !nodes[lefts[i]] | nodes[rights[i]];  break;
+				case ExpressionNode.EQUIVALENT : nodes[i] = !(nodes[lefts[i]] ^ nodes[rights[i]]); break;
+				default : throw new IllegalStateException("Unknown node kind " + ops[i] + ".");
+			}
+		}
+		BitSet results = new BitSet(ruleCount);
+		for(int id=0; id<ruleCount; id++){
+			if(roots[id] != -1 && nodes[roots[id]])
+				results.set(id);
+		}
+		return results;
+	}
+
+
+	//Node bookkeeping.
+
+	/**
+	 * Copies the factory's new nodes into the arrays.
+	 */
+	private void sync(){
+		int size = factory.size();
+		if(size > ops.length){
+			int capacity = Math.max(size, 2 * ops.length);
+			ops    = Arrays.copyOf(ops, capacity);
+			lefts  = Arrays.copyOf(lefts, capacity);
+			rights = Arrays.copyOf(rights, capacity);
+			levels = Arrays.copyOf(levels, capacity);
+		}
+		for(int id=nodeCount; id<size; id++){
+			ExpressionNode node = factory.getNode(id);
+			ops[id]    = node.getOp();
+			lefts[id]  = (node.getLeft() == null) ? node.getSlot() : node.getLeft().getId();
+			rights[id] = (node.getRight() == null) ? -1 : node.getRight().getId();
+			levels[id] = 0;
+			if(node.getLeft() != null)
+				levels[id] = 1 + levels[lefts[id]];
+			if(rights[id] != -1)
+				levels[id] = Math.max(levels[id], 1 + levels[rights[id]]);
+		}
+		nodeCount = size;
+		if(factory.getVariableCount() > variableUses.length)
+			variableUses = Arrays.copyOf(variableUses, Math.max(factory.getVariableCount(), 2 * variableUses.length));
+	}
+
+	/**
+	 * Groups every node into runs of the same depth and kind, ordered by depth, so each node comes
+	 *  after its operands.
+	 */
+	private void layOut(){
+		int maxLevel = 0;
+		for(int id=0; id<nodeCount; id++)
+			maxLevel = Math.max(maxLevel, levels[id]);
+		int   kinds  = ExpressionNode.CONSTANT + 1;
+		int[] counts = new int[(maxLevel + 1) * kinds + 1];
+		for(int id=0; id<nodeCount; id++)
+			counts[levels[id] * kinds + ops[id] + 1]++;
+		int numRuns = 0;
+		for(int group=1; group<counts.length; group++){
+			if(counts[group] != 0)
+				numRuns++;
+			counts[group] += counts[group - 1];
+		}
+		runOps    = new int[numRuns];
+		runStarts = new int[numRuns + 1];
+		int run = 0;
+		for(int group=0; group<counts.length - 1; group++){
+			if(counts[group + 1] == counts[group])
+				continue;
+			runOps[run]    = group % kinds;
+			runStarts[run] = counts[group];
+			run++;
+		}
+		runStarts[numRuns] = nodeCount;
+		order     = new int[nodeCount];
+		runLefts  = new int[nodeCount];
+		runRights = new int[nodeCount];
+		for(int id=0; id<nodeCount; id++){
+			int position = counts[levels[id] * kinds + ops[id]]++;
+			order[position]     = id;
+			runLefts[position]  = lefts[id];
+			runRights[position] = rights[id];
+		}
+		laidOut = nodeCount;
+	}
+
+	/**
+	 * Adds to the use count of each variable a rule reads.
+	 * @param root The id of the rule's node.
+	 * @param delta 1 when the rule is added, -1 when it is removed.
+	 */
+	private void countVariables(int root, int delta){
+		HashSet<Integer>    seen    = new HashSet<Integer>();
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		pending.push(root);
+		while(!pending.isEmpty()){
+			int id = pending.pop();
+			if(!seen.add(id))
+				continue;
+			switch(ops[id]){
+				case ExpressionNode.VARIABLE : variableUses[lefts[id]] += delta; break;
+				case ExpressionNode.CONSTANT : break;
+				case ExpressionNode.NOT      : pending.push(lefts[id]); break;
+				default :
+					pending.push(lefts[id]);
+					pending.push(rights[id]);
+			}
+		}
+	}
+
+	/**
+	 * Copies the live rules into a fresh factory, dropping every node only removed rules used.
+	 *  Rule ids stay the same; variable slots may change.
+	 */
+	private void compact(){
+		boolean[] reachable = new boolean[nodeCount];
+		int[]     pending   = new int[INITIAL_CAPACITY];
+		int       top       = 0;
+		for(int id=0; id<ruleCount; id++){
+			if(roots[id] == -1)
+				continue;
+			if(top == pending.length)
+				pending = Arrays.copyOf(pending, 2 * pending.length);
+			pending[top++] = roots[id];
+		}
+		while(top > 0){
+			int id = pending[--top];
+			if(reachable[id])
+				continue;
+			reachable[id] = true;
+			if(top + 2 > pending.length)
+				pending = Arrays.copyOf(pending, 2 * pending.length);
+			if(ops[id] != ExpressionNode.VARIABLE && ops[id] != ExpressionNode.CONSTANT)
+				pending[top++] = lefts[id];
+			if(rights[id] != -1)
+				pending[top++] = rights[id];
+		}
+
+		NodeFactory      fresh  = new NodeFactory();
+		ExpressionNode[] copies = new ExpressionNode[nodeCount];
+		for(int id=0; id<nodeCount; id++){
+			if(!reachable[id])
+				continue;
+			ExpressionNode node = factory.getNode(id);
+			switch(node.getOp()){
+				case ExpressionNode.VARIABLE   : copies[id] = fresh.variable(node.getVariable());     break;
+				case ExpressionNode.CONSTANT   : copies[id] = fresh.constant(node.isTrue());          break;
+				case ExpressionNode.NOT        : copies[id] = fresh.not(copies[lefts[id]]);           break;
+				case ExpressionNode.AND        : copies[id] = fresh.and(copies[lefts[id]], copies[rights[id]]);        break;
+				case ExpressionNode.OR         : copies[id] = fresh.or(copies[lefts[id]], copies[rights[id]]);         break;
+				case ExpressionNode.XOR        : copies[id] = fresh.xor(copies[lefts[id]], copies[rights[id]]);        break;
+				case ExpressionNode.IMPLIES    : copies[id] = fresh.implies(copies[lefts[id]], copies[rights[id]]);    break;
+				case ExpressionNode.EQUIVALENT : copies[id] = fresh.equivalent(copies[lefts[id]], copies[rights[id]]); break;
+				default : throw new IllegalStateException("Unknown node kind " + node.getOp() + ".");
+			}
+		}
+
+		factory   = fresh;
+		nodeCount = 0;
+		sync();
+		layOut();
+		Arrays.fill(variableUses, 0);
+		for(int id=0; id<ruleCount; id++){
+			if(roots[id] == -1)
+				continue;
+			roots[id] = copies[roots[id]].getId();
+			countVariables(roots[id], 1);
+		}
+		deadRules = 0;
+	}
+}
@@ -1,26 +1,42 @@
 package propositionalCalculatorV1_0;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class tests the truth table of a given expression and returns an ArrayList
  *  of variable values for which the expression is evaluated to be true.
- * The class is singleton, and it's only public method is
- *  findSatisfiablility(HashMap<String, Boolean>, ExpressionCard).
+ * The class is singleton, and it's public methods are
+ *  findSatisfiablility(HashMap<String, Boolean>, ExpressionCard), which finds the
+ *  combinations 64 at a time, and findSatisfiablilityParallel(...), which also splits
+ *  the truth table across a ForkJoinPool. findSatisfyingRows(...) and findSatisfyingRowsParallel(...)
+ *  return the same combinations as an AssignmentSet of packed bitmasks instead of HashMaps. findSatisfyingAssignment(...) and findSatisfiablilityCdcl(...)
+ *  use a CdclSolver instead of the truth table, and can handle far more variables.
+ *  forEachSatisfying(...) and streamSatisfying(...) hand out satisfying rows as they are found,
+ *  instead of collecting them, so they run in constant memory.
  * @author Kenneth Chin
  *
  */
 public final class SatisfiablilityCalculator {
 
-	private static HashMap<String, Boolean> originalMap;
-	private static ArrayList<HashMap<String, Boolean>> mapList;
-	private static ArrayList<String> variableList;
-	private static int listSize;
-	private static ExpressionCard root;
+	//Lane patterns of the first six variables. Bit j of LANES[i] is bit i of j, so the 64 lanes
+	// of a word hold 64 consecutive rows of the truth table.
+	private static final long[] LANES = {0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+	                                     0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L};
+	//The most variables whose truth table can be indexed by a long.
+	static final int MAX_ENUMERATED_VARIABLES = 62;
+	//Parallel searches stop splitting at chunks of this many words (64 rows each).
+	private static final long CHUNK_WORDS = 1024;
 	
 	/**
 	 * The private constructor which forces this class to be singleton.
@@ -33,6 +49,9 @@ public final class SatisfiablilityCalculator {
 	 *  added to the returned ArrayList<HashMap<String, Boolean>>. A single combination is the
 	 *  key/value mapping of all keys in a single map. If the returned ArrayList.isEmpty, then
 	 *  the given expression is unsatisfiable.
+	 *  The truth table is evaluated bit-sliced: each variable is held as a long whose 64 bits
+	 *  are its values in 64 consecutive rows, so a single pass over the compiled expression
+	 *  decides 64 combinations.
 	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
 	 *  given expression, and who's mapped values are the truth value of the given key.
 	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
@@ -41,18 +60,392 @@ public final class SatisfiablilityCalculator {
 	 *  for each variable(key) value combination that evaluates as true for the expression given
 	 *  by aRoot. If there are no combinations that evaluate as true, then the returned ArrayList
 	 *  will be empty.
+	 * @throws IllegalArgumentException If aMap has more than MAX_ENUMERATED_VARIABLES keys.
 	 */
 	public static ArrayList<HashMap<String, Boolean>> findSatisfiablility(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
-		originalMap  = aMap;
-		root         = aRoot;
-		mapList      = new ArrayList<HashMap<String, Boolean>>();
-		variableList = getVariableList(originalMap);
-		listSize = variableList.size();
-		HashMap<String, Boolean> newMap = getNewTempMap();
-		evaluateMap(newMap, listSize);
-		return mapList;
+		long        start   = Metrics.SATISFIABILITY.start();
+		SymbolTable symbols = getSymbolTable(aMap);
+		//The rows are found as packed bitmasks; maps are only built for the rows returned.
+		ArrayList<HashMap<String, Boolean>> maps = findSatisfyingRows(symbols, aRoot).toMaps();
+		Metrics.SATISFIABILITY.record(start, 1L << symbols.size(), maps.size());
+		return maps;
+	}
+
+	/**
+	 * Finds the same combinations as findSatisfiablility(HashMap<String, Boolean>, ExpressionCard),
+	 *  in the same order, as an AssignmentSet. Each combination is stored as a single long whose
+	 *  bit i is the value of the variable at index i of symbols, rather than as a HashMap.
+	 * @param symbols The SymbolTable of the expression's variables. Its order is the order of the
+	 *  truth table: row r gives variable i the value of bit i of r.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @return An AssignmentSet of each satisfying combination, in truth table order. If there are
+	 *  none, then the returned AssignmentSet will be empty.
+	 * @throws IllegalArgumentException If symbols has more than MAX_ENUMERATED_VARIABLES variables.
+	 */
+	public static AssignmentSet findSatisfyingRows(SymbolTable symbols, ExpressionCard aRoot){
+		if(symbols.size() < 1)
+			return new AssignmentSet(symbols);
+		if(symbols.size() > MAX_ENUMERATED_VARIABLES)
+			throw new IllegalArgumentException("Cannot enumerate the truth table of " + symbols.size() + " variables.");
+		return findSatisfyingRows(ExpressionCompiler.compile(aRoot, symbols));
+	}
+
+	/**
+	 * Finds each satisfying row of a compiled expression's truth table, over the expression's
+	 *  own SymbolTable. All state is local to the call, so a shared CompiledExpression may be
+	 *  searched by any number of threads at once.
+	 * @param compiled The CompiledExpression. At most MAX_ENUMERATED_VARIABLES variables.
+	 * @return An AssignmentSet of each satisfying combination, in truth table order.
+	 */
+	static AssignmentSet findSatisfyingRows(CompiledExpression compiled){
+		AssignmentSet satisfying = new AssignmentSet(compiled.getSymbolTable());
+		int numVars = compiled.getVariableCount();
+		if(numVars < 1)
+			return satisfying;
+		long[] lanes     = new long[numVars];
+		long[] stack     = compiled.newLaneStack();
+		long   rowMask   = rowMask(numVars);
+		long   wordCount = wordCount(numVars);
+		for(long word = 0; word < wordCount; word++){
+			setLanes(lanes, word);
+			long hits = compiled.evaluateLanes(lanes, stack) & rowMask;
+			//Visit each satisfying row, lowest first.
+			while(hits != 0){
+				satisfying.addRow((word << 6) | Long.numberOfTrailingZeros(hits));
+				hits &= hits - 1;
+			}
+		}
+		return satisfying;
 	}
 	
+	/**
+	 * Finds the same combinations as findSatisfiablility(HashMap<String, Boolean>, ExpressionCard),
+	 *  in the same order, on the common ForkJoinPool. See
+	 *  findSatisfiablilityParallel(HashMap<String, Boolean>, ExpressionCard, ForkJoinPool).
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression, and who's mapped values are the truth value of the given key.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @return An ArrayList<HashMap<String, Boolean>> of each satisfying variable value combination.
+	 *  If there are none, then the returned ArrayList will be empty.
+	 */
+	public static ArrayList<HashMap<String, Boolean>> findSatisfiablilityParallel(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		return findSatisfiablilityParallel(aMap, aRoot, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds the same combinations as findSatisfiablility(HashMap<String, Boolean>, ExpressionCard),
+	 *  in the same order, using the given number of worker threads. A ForkJoinPool is created for
+	 *  this search and shut down once it completes.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression, and who's mapped values are the truth value of the given key.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @param parallelism The number of worker threads to search with.
+	 * @return An ArrayList<HashMap<String, Boolean>> of each satisfying variable value combination.
+	 *  If there are none, then the returned ArrayList will be empty.
+	 */
+	public static ArrayList<HashMap<String, Boolean>> findSatisfiablilityParallel(HashMap<String, Boolean> aMap, ExpressionCard aRoot,
+			int parallelism){
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try{
+			return findSatisfiablilityParallel(aMap, aRoot, pool);
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Finds the same combinations as findSatisfiablility(HashMap<String, Boolean>, ExpressionCard),
+	 *  in the same order, on the given ForkJoinPool. The truth table is split into chunks that each
+	 *  fix the values of the highest variables (a run of consecutive 64-row words), the chunks are
+	 *  searched bit-sliced in parallel, and their satisfying rows are concatenated in chunk order.
+	 *  Unlike findSatisfiablility, this method keeps no state in static fields, so any number of
+	 *  searches may run at once.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression, and who's mapped values are the truth value of the given key.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @param pool The ForkJoinPool to search on.
+	 * @return An ArrayList<HashMap<String, Boolean>> of each satisfying variable value combination.
+	 *  If there are none, then the returned ArrayList will be empty.
+	 * @throws IllegalArgumentException If aMap has more than MAX_ENUMERATED_VARIABLES keys.
+	 */
+	public static ArrayList<HashMap<String, Boolean>> findSatisfiablilityParallel(HashMap<String, Boolean> aMap, ExpressionCard aRoot,
+			ForkJoinPool pool){
+		long        start   = Metrics.SATISFIABILITY.start();
+		SymbolTable symbols = getSymbolTable(aMap);
+		ArrayList<HashMap<String, Boolean>> maps = findSatisfyingRowsParallel(symbols, aRoot, pool).toMaps();
+		Metrics.SATISFIABILITY.record(start, 1L << symbols.size(), maps.size());
+		return maps;
+	}
+
+	/**
+	 * Finds the same combinations as findSatisfyingRows(SymbolTable, ExpressionCard), in the same
+	 *  order, on the given ForkJoinPool. See
+	 *  findSatisfiablilityParallel(HashMap<String, Boolean>, ExpressionCard, ForkJoinPool).
+	 * @param symbols The SymbolTable of the expression's variables.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @param pool The ForkJoinPool to search on.
+	 * @return An AssignmentSet of each satisfying combination, in truth table order. If there are
+	 *  none, then the returned AssignmentSet will be empty.
+	 * @throws IllegalArgumentException If symbols has more than MAX_ENUMERATED_VARIABLES variables.
+	 */
+	public static AssignmentSet findSatisfyingRowsParallel(SymbolTable symbols, ExpressionCard aRoot, ForkJoinPool pool){
+		int numVars = symbols.size();
+		if(numVars < 1)
+			return new AssignmentSet(symbols);
+		if(numVars > MAX_ENUMERATED_VARIABLES)
+			throw new IllegalArgumentException("Cannot enumerate the truth table of " + numVars + " variables.");
+		CompiledExpression compiled = ExpressionCompiler.compile(aRoot, symbols);
+		return new AssignmentSet(symbols, pool.invoke(new RowSearch(compiled, numVars, 0, wordCount(numVars))));
+	}
+
+	/**
+	 * Hands each combination that findSatisfiablility(HashMap<String, Boolean>, ExpressionCard)
+	 *  would return to a visitor, in the same order, as soon as it is found. The combinations are
+	 *  found bit-sliced, and are handed out through a single reused Assignment, so no memory is
+	 *  allocated per combination.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression. Its values are ignored.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @param visitor The AssignmentVisitor to receive each satisfying combination. The search stops
+	 *  early if it returns false.
+	 * @return A long. The number of combinations handed to visitor.
+	 * @throws IllegalArgumentException If aMap has more than MAX_ENUMERATED_VARIABLES keys.
+	 */
+	public static long forEachSatisfying(HashMap<String, Boolean> aMap, ExpressionCard aRoot, AssignmentVisitor visitor){
+		CompiledExpression compiled = compileForEnumeration(aMap, aRoot);
+		if(compiled == null)
+			return 0;
+		return forEachSatisfying(compiled, visitor);
+	}
+
+	/**
+	 * Hands each satisfying row of a compiled expression's truth table to a visitor, in truth
+	 *  table order, through a single reused Assignment over the expression's SymbolTable.
+	 * @param compiled The CompiledExpression. At least one and at most MAX_ENUMERATED_VARIABLES
+	 *  variables.
+	 * @param visitor The AssignmentVisitor to receive each satisfying combination. The search stops
+	 *  early if it returns false.
+	 * @return A long. The number of combinations handed to visitor.
+	 */
+	static long forEachSatisfying(CompiledExpression compiled, AssignmentVisitor visitor){
+		long       start   = Metrics.SATISFIABILITY.start();
+		int        numVars = compiled.getVariableCount();
+		long[]     lanes   = new long[numVars];
+		long[]     stack   = compiled.newLaneStack();
+		long       rowMask = rowMask(numVars);
+		long       words   = wordCount(numVars);
+		long       count   = 0;
+		Assignment view    = new Assignment(compiled.getSymbolTable(), 0L);
+		for(long word = 0; word < words; word++){
+			setLanes(lanes, word);
+			long hits = compiled.evaluateLanes(lanes, stack) & rowMask;
+			while(hits != 0){
+				view.setRow((word << 6) | Long.numberOfTrailingZeros(hits));
+				hits &= hits - 1;
+				count++;
+				if(!visitor.visit(view)){
+					Metrics.SATISFIABILITY.record(start, Math.min(1L << numVars, (word + 1) << 6), count);
+					return count;
+				}
+			}
+		}
+		Metrics.SATISFIABILITY.record(start, 1L << numVars, count);
+		return count;
+	}
+
+	/**
+	 * Returns a lazy Stream of each combination that findSatisfiablility(HashMap<String, Boolean>,
+	 *  ExpressionCard) would return, in the same order. Nothing is evaluated until the stream is
+	 *  consumed. Each Spliterator of the stream hands out a single reused Assignment, so elements
+	 *  must be copied (Assignment.copy()) if they are to be kept. The stream may be made parallel,
+	 *  in which case the truth table is split between threads.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression. Its values are ignored.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @return A sequential Stream<Assignment> of the satisfying combinations.
+	 * @throws IllegalArgumentException If aMap has more than MAX_ENUMERATED_VARIABLES keys.
+	 */
+	public static Stream<Assignment> streamSatisfying(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		CompiledExpression compiled = compileForEnumeration(aMap, aRoot);
+		if(compiled == null)
+			return Stream.empty();
+		return streamSatisfying(compiled);
+	}
+
+	/**
+	 * Returns a lazy Stream of each satisfying row of a compiled expression's truth table, in
+	 *  truth table order. See streamSatisfying(HashMap<String, Boolean>, ExpressionCard).
+	 * @param compiled The CompiledExpression. At least one and at most MAX_ENUMERATED_VARIABLES
+	 *  variables.
+	 * @return A sequential Stream<Assignment> of the satisfying combinations.
+	 */
+	static Stream<Assignment> streamSatisfying(CompiledExpression compiled){
+		return StreamSupport.stream(new SatisfyingRowSpliterator(compiled, 0, wordCount(compiled.getVariableCount())), false);
+	}
+
+	/**
+	 * Compiles aRoot with aMap's keys as its variable slots, for enumerating the truth table.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree.
+	 * @return A CompiledExpression, or null if aMap has no keys (there is nothing to enumerate).
+	 * @throws IllegalArgumentException If aMap has more than MAX_ENUMERATED_VARIABLES keys.
+	 */
+	private static CompiledExpression compileForEnumeration(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		SymbolTable symbols = getSymbolTable(aMap);
+		if(symbols.size() == 0)
+			return null;
+		if(symbols.size() > MAX_ENUMERATED_VARIABLES)
+			throw new IllegalArgumentException("Cannot enumerate the truth table of " + symbols.size() + " variables.");
+		return ExpressionCompiler.compile(aRoot, symbols);
+	}
+
+	/**
+	 * Finds a single combination of truth values for which aRoot's expression is true, using a
+	 *  CDCL SAT solver on the expression's Tseitin encoding rather than its truth table.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression. Its values are ignored.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @return A HashMap<String, Boolean> of a satisfying value for each key of aMap, or null if the
+	 *  expression is unsatisfiable.
+	 */
+	public static HashMap<String, Boolean> findSatisfyingAssignment(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		long               start         = Metrics.SATISFIABILITY.start();
+		ArrayList<String>  variables     = getVariableList(aMap);
+		CdclSolver         solver        = new CdclSolver();
+		int[]              slotVariables = TseitinEncoder.encode(ExpressionCompiler.compile(aRoot, variables), solver);
+		if(!solver.solve()){
+			recordSearch(start, solver, 0);
+			return null;
+		}
+		recordSearch(start, solver, 1);
+		return modelToMap(variables, solver, slotVariables);
+	}
+
+	/**
+	 * Finds the same combinations as findSatisfiablility(HashMap<String, Boolean>, ExpressionCard)
+	 *  with a CDCL SAT solver. Each model found is blocked by a clause forbidding it, and the solver
+	 *  is run again until no models remain, so the work done grows with the number of satisfying
+	 *  combinations rather than with the size of the truth table. If aMap has at most
+	 *  MAX_ENUMERATED_VARIABLES keys, the combinations are sorted into truth table order.
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique String variables of the
+	 *  given expression. Its values are ignored.
+	 * @param aRoot The ExpressionCard at the root of an ExpressionCard's binary tree; who's
+	 *  iterator returns the entire expression to be evaluated.
+	 * @return An ArrayList<HashMap<String, Boolean>> of each satisfying variable value combination.
+	 *  If there are none, then the returned ArrayList will be empty.
+	 */
+	public static ArrayList<HashMap<String, Boolean>> findSatisfiablilityCdcl(HashMap<String, Boolean> aMap, ExpressionCard aRoot){
+		final ArrayList<String> variables = getVariableList(aMap);
+		ArrayList<HashMap<String, Boolean>> satisfying = new ArrayList<HashMap<String, Boolean>>();
+		if(variables.isEmpty())
+			return satisfying;
+		long       start         = Metrics.SATISFIABILITY.start();
+		CdclSolver solver        = new CdclSolver();
+		int[]      slotVariables = TseitinEncoder.encode(ExpressionCompiler.compile(aRoot, variables), solver);
+		int[]      blocking      = new int[slotVariables.length];
+		while(solver.solve()){
+			satisfying.add(modelToMap(variables, solver, slotVariables));
+			for(int i=0; i<slotVariables.length; i++)
+				blocking[i] = solver.getValue(slotVariables[i]) ? -slotVariables[i] : slotVariables[i];
+			if(!solver.addClause(blocking))
+				break;
+		}
+		recordSearch(start, solver, satisfying.size());
+		if(variables.size() <= MAX_ENUMERATED_VARIABLES){
+			Collections.sort(satisfying, new Comparator<HashMap<String, Boolean>>(){
+				public int compare(HashMap<String, Boolean> map1, HashMap<String, Boolean> map2){
+					return Long.compare(mapToRow(variables, map1), mapToRow(variables, map2));
+				}
+			});
+		}
+		return satisfying;
+	}
+
+	/**
+	 * Records a search by a CdclSolver in Metrics.SATISFIABILITY. The solver's decisions and
+	 *  propagations, each of which gives a variable a value, are counted as the assignments explored.
+	 * @param start The value Metrics.SATISFIABILITY.start() returned before the search.
+	 * @param solver The CdclSolver that searched.
+	 * @param found The number of satisfying combinations found.
+	 */
+	static void recordSearch(long start, CdclSolver solver, long found){
+		Metrics.SATISFIABILITY.record(start, solver.getDecisions() + solver.getPropagations(), found);
+	}
+
+	/**
+	 * Builds the map of a solver's model.
+	 * @param variables An ArrayList<String> of variables, in slot order.
+	 * @param solver A CdclSolver whose last call to solve() returned true.
+	 * @param slotVariables An int[] whose element i is the solver variable of slot i.
+	 * @return A HashMap<String, Boolean> of each variable's value in the model.
+	 */
+	private static HashMap<String, Boolean> modelToMap(ArrayList<String> variables, CdclSolver solver, int[] slotVariables){
+		HashMap<String, Boolean> map = new HashMap<String, Boolean>();
+		for(int i=0; i<slotVariables.length; i++)
+			map.put(variables.get(i), solver.getValue(slotVariables[i]));
+		return map;
+	}
+
+	/**
+	 * Returns the truth table row of a map.
+	 * @param variables An ArrayList<String> of variables, in slot order.
+	 * @param map A HashMap<String, Boolean> with a value for each variable.
+	 * @return A long whose bit i is the value of variable i.
+	 */
+	private static long mapToRow(ArrayList<String> variables, HashMap<String, Boolean> map){
+		long row = 0;
+		for(int i=0; i<variables.size(); i++){
+			if(map.get(variables.get(i)))
+				row |= 1L << i;
+		}
+		return row;
+	}
+
+	/**
+	 * Returns the number of 64-row words in the truth table of the given number of variables.
+	 * @param numVars The number of variables. At most MAX_ENUMERATED_VARIABLES.
+	 * @return A long. The number of words needed to hold every row.
+	 */
+	static long wordCount(int numVars){
+		return numVars <= 6 ? 1L : 1L << (numVars - 6);
+	}
+
+	/**
+	 * Returns a mask of the lanes of a word that hold real rows. Only tables of fewer than six
+	 *  variables leave lanes unused.
+	 * @param numVars The number of variables.
+	 * @return A long with one bit set for each lane that holds a row.
+	 */
+	static long rowMask(int numVars){
+		return numVars >= 6 ? -1L : (1L << (1 << numVars)) - 1;
+	}
+
+	/**
+	 * Fills lanes with each variable's values in the 64 rows of the given word. Row r of the
+	 *  truth table gives variable i the value of bit i of r, so that rows ascend in the order the
+	 *  original recursive search visited them (the first variable toggles fastest).
+	 * @param lanes A long[] with one element per variable.
+	 * @param word The index of the word; it holds rows word*64 through word*64+63.
+	 */
+	static void setLanes(long[] lanes, long word){
+		for(int i=0; i<lanes.length; i++){
+			if(i < LANES.length)
+				lanes[i] = LANES[i];
+			else
+				lanes[i] = ((word >>> (i - 6)) & 1L) == 0 ? 0L : -1L;
+		}
+	}
+
 	/**
 	 * A helper method creates an ArrayList<String> of all unique keys given by aMap.
 	 * @param aMap A HashMap<String, Boolean> who's keys are the unique variables of the
@@ -69,76 +462,80 @@ public final class SatisfiablilityCalculator {
 	}
 	
 	/**
-	 * A helper method that provides the method, evaluateMap(HashMap<String, Boolean>, int),
-	 *  with a "dummy" map for its initial call. This dummy map gives all keys an initial
-	 *  value of true.
-	 * @return A HashMap<String, Boolean> who's keys are the unique variables of the given
-	 *  expression. Each key is given an initial value of true.
+	 * A helper method that creates a SymbolTable of all unique keys given by aMap, in the order
+	 *  of getVariableList(HashMap<String, Boolean>).
+	 * @param aMap A HashMap<String, Boolean> who's keys are the unique variables of the
+	 *  given expression.
+	 * @return A SymbolTable of all unique keys given by aMap.
 	 */
-	private static HashMap<String, Boolean> getNewTempMap(){
-		HashMap<String, Boolean> map = new HashMap<String, Boolean>(listSize);
-		for(int i = 0; i<listSize; i++)
-			map.put(variableList.get(i), true);
-		return map;
+	private static SymbolTable getSymbolTable(HashMap<String, Boolean> aMap){
+		return new SymbolTable(getVariableList(aMap));
 	}
+
 	
 	/**
-	 * A helper method that produces a deep clone of a given HashMap<String, Boolean>. This is
-	 *  used to populate the mapList array with maps. Without cloning the HashMaps, the method
-	 *  "evaluateMap(HashMap<String, Boolean>, int)" would change the given map's values, but
-	 *  the mapList array would contain several references to the same map.
-	 * @param map The HashMap<String, Boolean> to be cloned.
-	 * @return A deep clone of the given HashMap<String, Boolean>.
+	 * A fork/join task that finds the satisfying rows of a run of consecutive truth table words.
+	 *  Runs longer than CHUNK_WORDS are split in half, and the halves' rows are concatenated, so
+	 *  rows are always returned in ascending order.
+	 * @author Kenneth Chin
+	 *
 	 */
-	private static HashMap<String, Boolean> cloneMap(HashMap<String, Boolean> map){
-		HashMap<String, Boolean> clonedMap = new HashMap<String, Boolean>();
-		Set<Entry<String, Boolean>> set = map.entrySet();
-		Iterator<Entry<String, Boolean>> iter = set.iterator();
-		while(iter.hasNext()){
-			Entry<String, Boolean> aMapping = iter.next();
-			clonedMap.put(aMapping.getKey(), aMapping.getValue());
-		}
-		return clonedMap;	
-	}
-	
-	/**
-	 * Recursively evaluates all combinations of variable values. Populates the mapList array with
-	 *  all value combinations which evaluate to be true given the expression provided by root.
-	 * NOTE: This method evaluates all combinations of a map of any given size. Each combination is
-	 *  evaluated at the last instance in a recursive thread. Since the first instance requires a map,
-	 *  a "dummy" map is given to initiate the recursion. The dummy map is never evaluated.
-	 * @param map A HashMap<String, Boolean> who's keys are all unique variables in the expression
-	 *  being evaluated. See method note for recursion details.
-	 * @param numVars An int indicating the number of remaining variables who's combinations are
-	 *  to be tested.
-	 */
-	private static void evaluateMap(HashMap<String, Boolean> map, int numVars){
-		//Base case. This map is already queued to be evaluated.
-		if(numVars < 1)
-			return;
-		
-		String key = variableList.get(numVars-1);
-		HashMap<String, Boolean> tempMap;
-		boolean isSatisfiable;
-		
-		tempMap = cloneMap(map);
-		tempMap.put(key, false);
-		evaluateMap(tempMap, numVars-1);
-		//After all variables in this recursive thread have been toggled evaluate (False, ..., ..., ...).
-		if(numVars == 1){
-			isSatisfiable =  ExpressionEvaluator.evaluateExpressionCards(tempMap, root);
-			if(isSatisfiable)
-				mapList.add(tempMap);
+	private static final class RowSearch extends RecursiveTask<long[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CompiledExpression compiled; //The expression being searched.
+		private final int  numVars;                //The number of variables in the truth table.
+		private final long fromWord;               //The first word searched (inclusive).
+		private final long toWord;                 //The last word searched (exclusive).
+
+		/**
+		 * Creates a task that searches words fromWord through toWord-1.
+		 * @param compiled The expression being searched.
+		 * @param numVars The number of variables in the truth table.
+		 * @param fromWord The first word searched (inclusive).
+		 * @param toWord The last word searched (exclusive).
+		 */
+		private RowSearch(CompiledExpression compiled, int numVars, long fromWord, long toWord){
+			this.compiled = compiled;
+			this.numVars  = numVars;
+			this.fromWord = fromWord;
+			this.toWord   = toWord;
 		}
-		
-		tempMap = cloneMap(map);
-		tempMap.put(key, true);
-		evaluateMap(tempMap, numVars-1);
-		//After all variables in this recursive thread have been toggled evaluate (True, ..., ..., ...).
-		if(numVars == 1){
-			isSatisfiable =  ExpressionEvaluator.evaluateExpressionCards(tempMap, root);
-			if(isSatisfiable)
-				mapList.add(tempMap);
+
+		/**
+		 * Searches this task's words, splitting them if there are too many.
+		 * @return A long[] of the satisfying rows, in ascending order.
+		 */
+		@Override
+		protected long[] compute(){
+			if(toWord - fromWord > CHUNK_WORDS){
+				long middle = (fromWord + toWord) >>> 1;
+				RowSearch left  = new RowSearch(compiled, numVars, fromWord, middle);
+				RowSearch right = new RowSearch(compiled, numVars, middle, toWord);
+				left.fork();
+				long[] rightRows = right.compute();
+				long[] leftRows  = left.join();
+				long[] rows = Arrays.copyOf(leftRows, leftRows.length + rightRows.length);
+				System.arraycopy(rightRows, 0, rows, leftRows.length, rightRows.length);
+				return rows;
+			}
+			long[] lanes   = new long[numVars];
+			long[] stack   = compiled.newLaneStack();
+			long   rowMask = rowMask(numVars);
+			long[] rows    = new long[64];
+			int    count   = 0;
+			for(long word = fromWord; word < toWord; word++){
+				setLanes(lanes, word);
+				long hits = compiled.evaluateLanes(lanes, stack) & rowMask;
+				while(hits != 0){
+					if(count == rows.length)
+						rows = Arrays.copyOf(rows, count * 2);
+					rows[count++] = (word << 6) | Long.numberOfTrailingZeros(hits);
+					hits &= hits - 1;
+				}
+			}
+			return Arrays.copyOf(rows, count);
 		}
 	}
 }
@@ -0,0 +1,124 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over the satisfying rows of an expression's truth table. Rows are found
+ *  bit-sliced, one 64-row word at a time, and each is handed out through a single reused
+ *  Assignment view, so memory use does not depend on the number of satisfying rows.
+ *  Splitting divides the remaining words in half, which allows parallel streams.
+ *  Each Spliterator records its search in Metrics.SATISFIABILITY when it runs out of words, so a
+ *  stream that is not consumed to its end is not recorded.
+ * @author Kenneth Chin
+ *
+ */
+final class SatisfyingRowSpliterator implements Spliterator<Assignment> {
+
+	//Do not split below this many words (64 rows each).
+	private static final long MIN_SPLIT_WORDS = 64;
+
+	private final CompiledExpression compiled;   //The expression being searched.
+	private final Assignment         view;       //The reused view handed to consumers.
+	private final long[]             lanes;
+	private final long[]             stack;
+	private final long               rowMask;
+	private long nextWord;                       //The next word to be evaluated.
+	private long toWord;                         //The last word searched (exclusive).
+	private long word;                           //The word of the pending hits.
+	private long hits;                           //Satisfying lanes of word not yet handed out.
+	private long start;                          //Metrics.SATISFIABILITY.start() at the first word.
+	private long evaluated;                      //The words this Spliterator evaluated.
+	private long handed;                         //The rows handed out.
+	private boolean started;                     //Has a word been evaluated?
+
+	/**
+	 * Creates a Spliterator over the satisfying rows in words fromWord through toWord-1.
+	 * @param compiled The expression being searched. Its slots are the truth table's variables.
+	 * @param fromWord The first word searched (inclusive).
+	 * @param toWord The last word searched (exclusive).
+	 */
+	SatisfyingRowSpliterator(CompiledExpression compiled, long fromWord, long toWord){
+		this.compiled  = compiled;
+		this.view      = new Assignment(compiled.getSymbolTable(), 0L);
+		this.lanes     = new long[compiled.getVariableCount()];
+		this.stack     = compiled.newLaneStack();
+		this.rowMask   = SatisfiablilityCalculator.rowMask(compiled.getVariableCount());
+		this.nextWord  = fromWord;
+		this.toWord    = toWord;
+		this.hits      = 0L;
+	}
+
+	/**
+	 * Hands the next satisfying row, if any, to action.
+	 * @param action The Consumer<Assignment> to receive the row.
+	 * @return A boolean. True if a row was handed out; false if none remain.
+	 */
+	public boolean tryAdvance(Consumer<? super Assignment> action){
+		while(hits == 0L){
+			if(nextWord >= toWord){
+				finish();
+				return false;
+			}
+			if(!started){
+				started = true;
+				start   = Metrics.SATISFIABILITY.start();
+			}
+			evaluated++;
+			word = nextWord++;
+			SatisfiablilityCalculator.setLanes(lanes, word);
+			hits = compiled.evaluateLanes(lanes, stack) & rowMask;
+		}
+		view.setRow((word << 6) | Long.numberOfTrailingZeros(hits));
+		hits &= hits - 1;
+		handed++;
+		action.accept(view);
+		return true;
+	}
+
+	/**
+	 * Records the search of this Spliterator's words in Metrics.SATISFIABILITY, once they have all
+	 *  been evaluated. A Spliterator that is split off records its own words.
+	 */
+	private void finish(){
+		if(!started)
+			return;
+		started = false;
+		Metrics.SATISFIABILITY.record(start, Math.min(1L << lanes.length, evaluated << 6), handed);
+	}
+
+	/**
+	 * Splits off the first half of the words that have not been evaluated yet.
+	 * @return A Spliterator<Assignment> over the earlier half, or null if too few words remain.
+	 */
+	public Spliterator<Assignment> trySplit(){
+		long remaining = toWord - nextWord;
+		if(remaining < 2 * MIN_SPLIT_WORDS)
+			return null;
+		long middle = nextWord + remaining / 2;
+		SatisfyingRowSpliterator prefix = new SatisfyingRowSpliterator(compiled, nextWord, middle);
+		//Rows already pending in this Spliterator come before the prefix's rows, so they move with it.
+		prefix.word = word;
+		prefix.hits = hits;
+		hits     = 0L;
+		nextWord = middle;
+		return prefix;
+	}
+
+	/**
+	 * Returns an upper bound on the number of rows remaining.
+	 * @return A long. The number of rows not yet evaluated, plus those pending.
+	 */
+	public long estimateSize(){
+		long words = toWord - nextWord;
+		return (words >= (Long.MAX_VALUE >>> 6)) ? Long.MAX_VALUE : (words << 6) + Long.bitCount(hits);
+	}
+
+	/**
+	 * Rows are handed out in ascending order, and are never null.
+	 * @return An int of this Spliterator's characteristics.
+	 */
+	public int characteristics(){
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+}
@@ -0,0 +1,331 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable short-circuit form of a CompiledExpression. A CompiledExpression evaluates both
+ *  operands of every conditional; here, once the first operand of &, | or > decides the result,
+ *  the whole second operand is skipped by a forward jump. A conjunction therefore stops at its
+ *  first false operand, and a disjunction at its first true one. ^ and = always need both
+ *  operands, and are evaluated as before.
+ * Jumps are threaded when the program is built: a jump that lands on another jump whose outcome
+ *  it already knows goes straight to that jump's destination, so a false operand deep inside a
+ *  chain of conjunctions leaves the whole chain in a single jump.
+ * Instructions use CompiledExpression's layout, with the jump destination in the operand bits.
+ *  A ShortCircuitExpression evaluates to exactly the same truth value as the CompiledExpression
+ *  it was built from, and may be evaluated by any number of threads at once.
+ * @author Kenneth Chin
+ *
+ */
+public final class ShortCircuitExpression {
+
+	//Opcodes. PUSH and PUSH_NOT use the operand as a variable slot; jumps use it as a destination.
+	static final int PUSH                   = CompiledExpression.PUSH;
+	static final int PUSH_NOT               = CompiledExpression.PUSH_NOT;
+	static final int NOT                    = CompiledExpression.NOT;
+	static final int XOR                    = CompiledExpression.XOR;
+	static final int EQUIVALENT             = CompiledExpression.EQUIVALENT;
+	static final int JUMP_IF_FALSE          = 9;  //If the top is false, jump and keep it; otherwise pop it.
+	static final int JUMP_IF_TRUE           = 10; //If the top is true, jump and keep it; otherwise pop it.
+	static final int JUMP_IF_FALSE_SET_TRUE = 11; //If the top is false, make it true and jump; otherwise pop it.
+	static final int POP_JUMP_IF_FALSE      = 12; //Pop the top, and jump if it was false.
+	static final int POP_JUMP_IF_TRUE       = 13; //Pop the top, and jump if it was true.
+
+	private final CompiledExpression compiled; //The program this one was built from.
+	private final int[]              code;     //The short-circuit program.
+
+	/**
+	 * Creates the short-circuit form of a CompiledExpression. Use of(CompiledExpression).
+	 * @param compiled The CompiledExpression.
+	 * @param code The short-circuit program.
+	 */
+	private ShortCircuitExpression(CompiledExpression compiled, int[] code){
+		this.compiled = compiled;
+		this.code     = code;
+	}
+
+	/**
+	 * Builds the short-circuit form of a CompiledExpression.
+	 * @param compiled The CompiledExpression.
+	 * @return A new ShortCircuitExpression with compiled's variable slots.
+	 */
+	public static ShortCircuitExpression of(CompiledExpression compiled){
+		int[] postfix = compiled.getCode();
+
+		//Find where the second operand of each conditional starts. A postfix program lists the
+		// first operand, then the second, then the conditional, so the second operand starts
+		// where the sub-expression ending just before the conditional starts.
+		int[] starts  = new int[Math.max(1, compiled.getMaxStackDepth())]; //Where each value on the stack starts.
+		int[] jumpFor = new int[postfix.length]; //Per instruction: the conditional whose second operand starts there, or -1.
+		int   top     = -1;
+		Arrays.fill(jumpFor, -1);
+		for(int i=0; i<postfix.length; i++){
+			switch(CompiledExpression.opcode(postfix[i])){
+				case CompiledExpression.PUSH     :
+				case CompiledExpression.PUSH_NOT : starts[++top] = i; break;
+				case CompiledExpression.NOT      : break;
+				default :
+					int second = starts[top--];
+					if(isShortCircuit(CompiledExpression.opcode(postfix[i])))
+						jumpFor[second] = i;
+			}
+		}
+
+		//Emit the program, placing a jump before the second operand of each short-circuit
+		// conditional. The conditional itself becomes the jump's destination.
+		int[] code   = new int[2 * postfix.length];
+		int[] jumpAt = new int[postfix.length]; //Per conditional: where its jump was emitted.
+		int   length = 0;
+		for(int i=0; i<postfix.length; i++){
+			if(jumpFor[i] != -1){
+				int conditional = jumpFor[i];
+				jumpAt[conditional] = length;
+				switch(CompiledExpression.opcode(postfix[conditional])){
+					case CompiledExpression.AND         : code[length++] = JUMP_IF_FALSE;          break;
+					case CompiledExpression.OR          : code[length++] = JUMP_IF_TRUE;           break;
+					case CompiledExpression.IMPLIES     : code[length++] = JUMP_IF_FALSE_SET_TRUE; break;
+					//top > below is below | !top.
+					case CompiledExpression.REV_IMPLIES : code[length++] = JUMP_IF_TRUE;           break;
+					default : throw new IllegalStateException("Unknown short-circuit opcode.");
+				}
+			}
+			int opcode = CompiledExpression.opcode(postfix[i]);
+			if(isShortCircuit(opcode)){
+				//The second operand's value is the result.
+				if(opcode == CompiledExpression.REV_IMPLIES)
+					code[length++] = CompiledExpression.instruction(NOT, 0);
+				code[jumpAt[i]] = CompiledExpression.instruction(code[jumpAt[i]], length);
+			}
+			else
+				code[length++] = postfix[i];
+		}
+		threadJumps(code, length);
+		return new ShortCircuitExpression(compiled, Arrays.copyOf(code, length));
+	}
+
+	/**
+	 * Determines if a conditional can be decided by its first operand.
+	 * @param opcode A CompiledExpression opcode.
+	 * @return A boolean. True for AND, OR, IMPLIES and REV_IMPLIES.
+	 */
+	private static boolean isShortCircuit(int opcode){
+		return opcode == CompiledExpression.AND     || opcode == CompiledExpression.OR
+		    || opcode == CompiledExpression.IMPLIES || opcode == CompiledExpression.REV_IMPLIES;
+	}
+
+	/**
+	 * Retargets every jump that lands on another jump. A jump knows the value it leaves on the
+	 *  stack, so it also knows what the jump it lands on will do: either jump again, or pop the
+	 *  value and carry on with the next instruction. Jumps only go forward, so this ends.
+	 * @param code The program.
+	 * @param length The number of instructions in code.
+	 */
+	private static void threadJumps(int[] code, int length){
+		for(int i=length-1; i>=0; i--){
+			int opcode = CompiledExpression.opcode(code[i]);
+			if(!keepsValue(opcode))
+				continue;
+			boolean jumpsOn = (opcode == JUMP_IF_TRUE);              //The value that makes it jump.
+			boolean leaves  = (opcode != JUMP_IF_FALSE);             //The value it leaves when it jumps.
+			int     target  = CompiledExpression.operand(code[i]);
+			//Later jumps are already threaded, so one step reaches the final destination.
+			if(target < length){
+				int     next     = code[target];
+				int     nextCode = CompiledExpression.opcode(next);
+				boolean nextOn   = (nextCode == JUMP_IF_TRUE || nextCode == POP_JUMP_IF_TRUE);
+				if(keepsValue(nextCode) && leaves == nextOn){
+					boolean nextLeaves = (nextCode != JUMP_IF_FALSE);
+					code[i] = CompiledExpression.instruction(keepJump(jumpsOn, nextLeaves), CompiledExpression.operand(next));
+				}
+				else if(keepsValue(nextCode) || isPopJump(nextCode)){
+					int destination = (leaves == nextOn) ? CompiledExpression.operand(next) : target + 1;
+					code[i] = CompiledExpression.instruction(jumpsOn ? POP_JUMP_IF_TRUE : POP_JUMP_IF_FALSE, destination);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines if an opcode is a jump that keeps a value on the stack when it jumps.
+	 * @param opcode An opcode.
+	 * @return A boolean. True for JUMP_IF_FALSE, JUMP_IF_TRUE and JUMP_IF_FALSE_SET_TRUE.
+	 */
+	private static boolean keepsValue(int opcode){
+		return opcode == JUMP_IF_FALSE || opcode == JUMP_IF_TRUE || opcode == JUMP_IF_FALSE_SET_TRUE;
+	}
+
+	/**
+	 * Determines if an opcode is a jump that pops its value.
+	 * @param opcode An opcode.
+	 * @return A boolean. True for POP_JUMP_IF_FALSE and POP_JUMP_IF_TRUE.
+	 */
+	private static boolean isPopJump(int opcode){
+		return opcode == POP_JUMP_IF_FALSE || opcode == POP_JUMP_IF_TRUE;
+	}
+
+	/**
+	 * Returns the jump that keeps a value on the stack for a combination of condition and result.
+	 * @param jumpsOn The value that makes it jump.
+	 * @param leaves The value it leaves when it jumps.
+	 * @return The opcode.
+	 */
+	private static int keepJump(boolean jumpsOn, boolean leaves){
+		if(jumpsOn)
+			return JUMP_IF_TRUE; //No conditional jumps on true and leaves false.
+		return leaves ? JUMP_IF_FALSE_SET_TRUE : JUMP_IF_FALSE;
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the CompiledExpression this program was built from.
+	 * @return The CompiledExpression.
+	 */
+	public CompiledExpression getCompiled(){
+		return compiled;
+	}
+
+	/**
+	 * Returns the SymbolTable giving this expression's variable slots.
+	 * @return The SymbolTable of this expression's variables.
+	 */
+	public SymbolTable getSymbolTable(){
+		return compiled.getSymbolTable();
+	}
+
+	/**
+	 * Returns the number of instructions in this expression's program.
+	 * @return An int. The number of instructions.
+	 */
+	public int getCodeLength(){
+		return code.length;
+	}
+
+
+	//Evaluation operations.
+
+	/**
+	 * Evaluates this expression. Variables in skipped operands are never read.
+	 * @param values A boolean[] holding the truth value of each variable, indexed by slot.
+	 * @param stack A boolean[] of at least getCompiled().getMaxStackDepth() elements. Its
+	 *  contents are overwritten.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	public boolean evaluate(boolean[] values, boolean[] stack){
+		int top = -1;
+		int pc  = 0;
+		while(pc < code.length){
+			int instruction = code[pc++];
+			switch(instruction & CompiledExpression.OPCODE_MASK){
+				case PUSH                   : stack[++top] =  values[instruction >>> CompiledExpression.OPCODE_BITS]; break;
+				case PUSH_NOT               : stack[++top] = !values[instruction >>> CompiledExpression.OPCODE_BITS]; break;
+				case NOT                    : stack[top]   = !stack[top];                                           break;
+				case XOR                    : top--; stack[top] =   stack[top] ^ stack[top+1];                      break;
+				case EQUIVALENT             : top--; stack[top] = !(stack[top] ^ stack[top+1]);                     break;
+				case JUMP_IF_FALSE          : if(!stack[top]) pc = instruction >>> CompiledExpression.OPCODE_BITS; else top--; break;
+				case JUMP_IF_TRUE           : if( stack[top]) pc = instruction >>> CompiledExpression.OPCODE_BITS; else top--; break;
+				case JUMP_IF_FALSE_SET_TRUE :
+					if(!stack[top]){
+						stack[top] = true;
+						pc = instruction >>> CompiledExpression.OPCODE_BITS;
+					}
+					else
+						top--;
+					break;
+				case POP_JUMP_IF_FALSE      : if(!stack[top--]) pc = instruction >>> CompiledExpression.OPCODE_BITS; break;
+				case POP_JUMP_IF_TRUE       : if( stack[top--]) pc = instruction >>> CompiledExpression.OPCODE_BITS; break;
+				default                     : throw new IllegalStateException("Unknown opcode " + (instruction & CompiledExpression.OPCODE_MASK) + ".");
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Evaluates this expression for an assignment of up to 64 variables, packed into a long.
+	 * @param row A long whose bit i is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 * @throws IllegalStateException If the expression has more than 64 variables.
+	 */
+	public boolean evaluate(long row){
+		CompiledExpression.checkRowFits(compiled.getVariableCount());
+		boolean[] values = new boolean[compiled.getVariableCount()];
+		for(int i=0; i<values.length; i++)
+			values[i] = ((row >>> i) & 1L) != 0L;
+		return evaluate(values, compiled.newStack());
+	}
+
+	/**
+	 * Evaluates this expression with the variable values given by a map. Only the variables the
+	 *  evaluation actually reaches are looked up.
+	 * @param aMap A Map<String, Boolean> who's keys include every variable of this expression.
+	 * @return A boolean indicating the expression's truth value at the values given by aMap.
+	 * @throws IllegalArgumentException If aMap has no value for a variable the evaluation reads.
+	 */
+	public boolean evaluate(Map<String, Boolean> aMap){
+		SymbolTable symbols = compiled.getSymbolTable();
+		boolean[]   stack   = compiled.newStack();
+		int top = -1;
+		int pc  = 0;
+		while(pc < code.length){
+			int instruction = code[pc++];
+			int operand     = instruction >>> CompiledExpression.OPCODE_BITS;
+			switch(instruction & CompiledExpression.OPCODE_MASK){
+				case PUSH     :
+				case PUSH_NOT :
+					Boolean value = aMap.get(symbols.getName(operand));
+					if(value == null)
+						throw new IllegalArgumentException("The variable \"" + symbols.getName(operand) + "\" was not given a value.");
+					stack[++top] = value ^ ((instruction & CompiledExpression.OPCODE_MASK) == PUSH_NOT);
+					break;
+				case NOT                    : stack[top] = !stack[top];                         break;
+				case XOR                    : top--; stack[top] =   stack[top] ^ stack[top+1];    break;
+				case EQUIVALENT             : top--; stack[top] = !(stack[top] ^ stack[top+1]);   break;
+				case JUMP_IF_FALSE          : if(!stack[top]) pc = operand; else top--;           break;
+				case JUMP_IF_TRUE           : if( stack[top]) pc = operand; else top--;           break;
+				case JUMP_IF_FALSE_SET_TRUE :
+					if(!stack[top]){
+						stack[top] = true;
+						pc = operand;
+					}
+					else
+						top--;
+					break;
+				case POP_JUMP_IF_FALSE      : if(!stack[top--]) pc = operand; break;
+				case POP_JUMP_IF_TRUE       : if( stack[top--]) pc = operand; break;
+				default                     : throw new IllegalStateException("Unknown opcode " + (instruction & CompiledExpression.OPCODE_MASK) + ".");
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Returns a readable listing of this expression's program, one numbered instruction per line.
+	 * @return A String listing of the program.
+	 */
+	@Override
+	public String toString(){
+		SymbolTable   symbols = compiled.getSymbolTable();
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<code.length; i++){
+			int operand = CompiledExpression.operand(code[i]);
+			builder.append(i).append(": ");
+			switch(CompiledExpression.opcode(code[i])){
+				case PUSH                   : builder.append("PUSH ").append(symbols.getName(operand));  break;
+				case PUSH_NOT               : builder.append("PUSH !").append(symbols.getName(operand)); break;
+				case NOT                    : builder.append("NOT");                                    break;
+				case XOR                    : builder.append("XOR");                                    break;
+				case EQUIVALENT             : builder.append("EQUIVALENT");                             break;
+				case JUMP_IF_FALSE          : builder.append("JUMP_IF_FALSE ").append(operand);          break;
+				case JUMP_IF_TRUE           : builder.append("JUMP_IF_TRUE ").append(operand);           break;
+				case JUMP_IF_FALSE_SET_TRUE : builder.append("JUMP_IF_FALSE_SET_TRUE ").append(operand); break;
+				case POP_JUMP_IF_FALSE      : builder.append("POP_JUMP_IF_FALSE ").append(operand);      break;
+				case POP_JUMP_IF_TRUE       : builder.append("POP_JUMP_IF_TRUE ").append(operand);       break;
+				default                     : builder.append("?");
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,111 @@
+package propositionalCalculatorV1_0;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An immutable table of variable names, each given a dense index starting at 0. The index of a
+ *  variable is its slot in a CompiledExpression and its bit in an Assignment, so a SymbolTable
+ *  is all that is needed to translate between variable names and bitmasks.
+ * @author Kenneth Chin
+ *
+ */
+public final class SymbolTable {
+
+	private final String[]                 names;   //Variable names, indexed by slot.
+	private final HashMap<String, Integer> indices; //The slot of each variable name.
+
+	/**
+	 * Creates a table of the given variables. Variable i of the list is given index i.
+	 * @param names A List<String> of distinct variable names.
+	 * @throws IllegalArgumentException If a name is null or appears more than once.
+	 */
+	public SymbolTable(List<String> names){
+		this.names   = names.toArray(new String[names.size()]);
+		this.indices = new HashMap<String, Integer>(this.names.length * 2);
+		for(int i=0; i<this.names.length; i++){
+			if(this.names[i] == null)
+				throw new IllegalArgumentException("A variable name cannot be null.");
+			if(indices.put(this.names[i], i) != null)
+				throw new IllegalArgumentException("The variable \"" + this.names[i] + "\" appears more than once.");
+		}
+	}
+
+	/**
+	 * Creates a table of the given variables. Variable i is given index i.
+	 * @param names Distinct variable names.
+	 * @return A new SymbolTable.
+	 */
+	public static SymbolTable of(String... names){
+		return new SymbolTable(Arrays.asList(names));
+	}
+
+	/**
+	 * Returns the number of variables in the table.
+	 * @return An int. The number of variables.
+	 */
+	public int size(){
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of the variable at an index.
+	 * @param index An index less than size().
+	 * @return The variable's name.
+	 */
+	public String getName(int index){
+		return names[index];
+	}
+
+	/**
+	 * Returns the index of a variable.
+	 * @param name A variable name.
+	 * @return An int. The variable's index, or -1 if it is not in the table.
+	 */
+	public int indexOf(String name){
+		Integer index = indices.get(name);
+		return index == null ? -1 : index.intValue();
+	}
+
+	/**
+	 * Returns the table's variable names, in index order.
+	 * @return An unmodifiable List<String> of variable names.
+	 */
+	public List<String> getNames(){
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+
+	/**
+	 * Two tables are equal if they hold the same names at the same indices.
+	 * @param other The Object to compare to.
+	 * @return A boolean. True if the tables are equal.
+	 */
+	@Override
+	public boolean equals(Object other){
+		if(this == other)
+			return true;
+		if(!(other instanceof SymbolTable))
+			return false;
+		return Arrays.equals(names, ((SymbolTable)other).names);
+	}
+
+	/**
+	 * Returns a hash code consistent with equals(Object).
+	 * @return An int hash code.
+	 */
+	@Override
+	public int hashCode(){
+		return Arrays.hashCode(names);
+	}
+
+	/**
+	 * Returns the table's variable names.
+	 * @return A String listing the names in index order.
+	 */
+	@Override
+	public String toString(){
+		return Arrays.toString(names);
+	}
+}
@@ -0,0 +1,110 @@
+package propositionalCalculatorV1_0;
+
+import java.util.function.LongPredicate;
+
+/**
+ * A LongPredicate over the rows of an expression's truth table that starts out interpreting the
+ *  CompiledExpression, and compiles it into bytecode with ExpressionBytecodeCompiler once it has
+ *  been evaluated more than a threshold number of times. Expressions that are only evaluated a
+ *  few times never pay for class generation; the hot ones get the JIT.
+ * The evaluation count is not synchronized, so under contention a few evaluations may be missed
+ *  and compilation may happen slightly later than the threshold, or more than once; every
+ *  compiled predicate is equivalent, so the result never changes. If compilation fails, the
+ *  expression stays interpreted.
+ * @author Kenneth Chin
+ *
+ */
+public final class TieredPredicate implements LongPredicate {
+
+	public static final int DEFAULT_THRESHOLD = 10000;
+
+	private final CompiledExpression compiled;  //The interpreted program.
+	private final int                threshold; //The number of evaluations before compiling.
+	private int                      count;     //The number of interpreted evaluations so far.
+	private volatile LongPredicate   bytecode;  //The compiled predicate, once there is one.
+	private volatile boolean         failed;    //Did compilation fail?
+
+	/**
+	 * Creates a predicate that compiles after DEFAULT_THRESHOLD evaluations.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @throws IllegalArgumentException If the expression has more than 64 variables.
+	 */
+	public TieredPredicate(CompiledExpression compiled){
+		this(compiled, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a predicate that compiles after the given number of evaluations.
+	 * @param compiled The CompiledExpression to evaluate.
+	 * @param threshold The number of evaluations after which the expression is compiled. 0
+	 *  compiles it on the first evaluation.
+	 * @throws IllegalArgumentException If the expression has more than 64 variables, or the
+	 *  threshold is negative.
+	 */
+	public TieredPredicate(CompiledExpression compiled, int threshold){
+		if(compiled.getVariableCount() > 64)
+			throw new IllegalArgumentException("A row of " + compiled.getVariableCount() + " variables does not fit in a long.");
+		if(threshold < 0)
+			throw new IllegalArgumentException("The compilation threshold cannot be negative.");
+		this.compiled  = compiled;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Evaluates the expression for a row of its truth table.
+	 * @param row A long whose bit i is the truth value of the variable in slot i.
+	 * @return A boolean indicating the expression's truth value at the given variable values.
+	 */
+	@Override
+	public boolean test(long row){
+		LongPredicate predicate = bytecode;
+		if(predicate != null)
+			return predicate.test(row);
+		if(!failed && count++ >= threshold)
+			return compile().test(row);
+		return compiled.evaluate(row);
+	}
+
+	/**
+	 * Compiles the expression, or returns the interpreter if compilation fails.
+	 * @return The LongPredicate to evaluate with from now on.
+	 */
+	private LongPredicate compile(){
+		try{
+			LongPredicate predicate = ExpressionBytecodeCompiler.compile(compiled);
+			bytecode = predicate;
+			return predicate;
+		}
+		catch(IllegalStateException e){
+			failed = true;
+			return compiled::evaluate;
+		}
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the CompiledExpression this predicate evaluates.
+	 * @return The CompiledExpression.
+	 */
+	public CompiledExpression getCompiled(){
+		return compiled;
+	}
+
+	/**
+	 * Returns the number of evaluations after which the expression is compiled.
+	 * @return An int. The threshold.
+	 */
+	public int getThreshold(){
+		return threshold;
+	}
+
+	/**
+	 * Determines if the expression has been compiled into bytecode.
+	 * @return A boolean. True once evaluations run the generated class.
+	 */
+	public boolean isCompiled(){
+		return bytecode != null;
+	}
+}
@@ -0,0 +1,406 @@
+package propositionalCalculatorV1_0;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * A truth table stored in a file as a bitmap of one bit per row, which can be looked up at any
+ *  row without reading the rest of the file. Row r gives the variable in slot i the value of bit
+ *  i of r (the order of SatisfiablilityCalculator), and its bit is bit r%64 of word r/64.
+ * The file is written by write(...) and read by open(Path). All numbers are little-endian:
+ * <pre>
+ *  int    MAGIC
+ *  byte   VERSION
+ *  byte   RAW or RUNS
+ *  short  the number of variables
+ *  per variable, in slot order: a short length, then its name in UTF-8
+ *  zeros up to a multiple of 8 bytes
+ *  long   RUNS: the position of the block index; RAW: 0
+ *  the words of the table
+ * </pre>
+ * RAW tables hold every word, so the table of 32 variables takes 512MB. RUNS tables are split into
+ *  blocks of BLOCK_WORDS words, each written as an int count of runs followed by that many (int
+ *  end, long word) pairs, where a run holds the same word up to (but not including) word end of
+ *  the block. A block that would not get smaller is written as a count of 0 followed by its words.
+ *  The index after the blocks holds the position of each block as a long.
+ * @author Kenneth Chin
+ *
+ */
+public final class TruthTableFile implements Closeable {
+
+	public static final int  MAGIC   = 0x50435454; //"PCTT"
+	public static final byte VERSION = 1;
+	public static final byte RAW     = 0;          //Every word is stored.
+	public static final byte RUNS    = 1;          //Blocks of run-length encoded words.
+
+	//The number of words in each block of a RUNS table.
+	static final int BLOCK_WORDS = 1024;
+
+	//The bytes of a run: an int end and a long word.
+	private static final int RUN_BYTES = 12;
+
+	//The most bytes of a RAW table held by one mapping.
+	private static final long SEGMENT_BYTES = 1L << 30;
+
+	//The size of the write buffer.
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileChannel        channel;   //The open file.
+	private final SymbolTable        symbols;   //The variables, in slot order.
+	private final byte               encoding;  //RAW or RUNS.
+	private final long               words;     //The number of words in the table.
+	private final MappedByteBuffer[] segments;  //RAW: the table, SEGMENT_BYTES at a time.
+	private final long[]             index;     //RUNS: the position of each block.
+
+	//Each thread's buffer for reading the blocks of a RUNS table.
+	private final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>();
+
+	/**
+	 * Opens a truth table file. Use open(Path).
+	 * @param channel The open file.
+	 * @param symbols The variables, in slot order.
+	 * @param encoding RAW or RUNS.
+	 * @param dataStart The position of the first word or block.
+	 * @param indexStart RUNS: the position of the block index.
+	 * @throws IOException If the file could not be read or mapped.
+	 */
+	private TruthTableFile(FileChannel channel, SymbolTable symbols, byte encoding, long dataStart, long indexStart) throws IOException{
+		this.channel  = channel;
+		this.symbols  = symbols;
+		this.encoding = encoding;
+		this.words    = SatisfiablilityCalculator.wordCount(symbols.size());
+		if(encoding == RAW){
+			if(channel.size() < dataStart + 8 * words)
+				throw new IllegalArgumentException("The file is shorter than its table.");
+			this.segments = new MappedByteBuffer[(int)((8 * words + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+			for(int i=0; i<segments.length; i++){
+				long offset = i * SEGMENT_BYTES;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offset, Math.min(SEGMENT_BYTES, 8 * words - offset));
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			this.index = null;
+		}
+		else{
+			int blocks = (int)((words + BLOCK_WORDS - 1) / BLOCK_WORDS);
+			ByteBuffer buffer = read(channel, indexStart, 8 * blocks);
+			this.index    = new long[blocks];
+			for(int i=0; i<blocks; i++)
+				index[i] = buffer.getLong();
+			this.segments = null;
+		}
+	}
+
+
+	//Writing operations.
+
+	/**
+	 * Writes the truth table of an expression.
+	 * @param expression The PropositionalExpression whose table is written.
+	 * @param path The Path of the file. It is created, or overwritten.
+	 * @param compress True to write a RUNS table, false to write a RAW table.
+	 * @return A long. The length of the file in bytes.
+	 * @throws IOException If the file could not be written.
+	 * @throws IllegalArgumentException If the expression has more than 62 variables.
+	 */
+	public static long write(PropositionalExpression expression, Path path, boolean compress) throws IOException{
+		return write(expression.getCompiled(), path, compress);
+	}
+
+	/**
+	 * Writes the truth table of a compiled expression. The rows are evaluated 64 at a time and
+	 *  written as they are found, so memory use does not depend on the size of the table.
+	 * @param compiled The CompiledExpression whose table is written.
+	 * @param path The Path of the file. It is created, or overwritten.
+	 * @param compress True to write a RUNS table, false to write a RAW table.
+	 * @return A long. The length of the file in bytes.
+	 * @throws IOException If the file could not be written.
+	 * @throws IllegalArgumentException If the expression has more than 62 variables.
+	 */
+	public static long write(CompiledExpression compiled, Path path, boolean compress) throws IOException{
+		int numVars = compiled.getVariableCount();
+		if(numVars > SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES)
+			throw new IllegalArgumentException("A truth table of " + numVars + " variables is too large to write.");
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+		                                           StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.put(VERSION);
+			buffer.put(compress ? RUNS : RAW);
+			buffer.putShort((short)numVars);
+			for(int i=0; i<numVars; i++){
+				byte[] name = compiled.getSymbolTable().getName(i).getBytes(StandardCharsets.UTF_8);
+				if(name.length > Short.MAX_VALUE)
+					throw new IllegalArgumentException("The variable name \"" + compiled.getSymbolTable().getName(i) + "\" is too long.");
+				if(buffer.remaining() < 2 + name.length)
+					flush(channel, buffer);
+				buffer.putShort((short)name.length);
+				buffer.put(name);
+			}
+			if(buffer.remaining() < 16)
+				flush(channel, buffer);
+			long indexField = channel.position() + buffer.position();
+			indexField = (indexField + 7) & ~7L;
+			while(channel.position() + buffer.position() < indexField + 8)
+				buffer.put((byte)0);
+
+			long   words = SatisfiablilityCalculator.wordCount(numVars);
+			long   mask  = SatisfiablilityCalculator.rowMask(numVars);
+			long[] lanes = new long[numVars];
+			long[] stack = compiled.newLaneStack();
+			long[] block = new long[BLOCK_WORDS];
+			if(!compress){
+				for(long word=0; word<words; word++){
+					SatisfiablilityCalculator.setLanes(lanes, word);
+					if(buffer.remaining() < 8)
+						flush(channel, buffer);
+					buffer.putLong(compiled.evaluateLanes(lanes, stack) & mask);
+				}
+				flush(channel, buffer);
+				return channel.size();
+			}
+
+			long[] index = new long[(int)((words + BLOCK_WORDS - 1) / BLOCK_WORDS)];
+			for(int b=0; b<index.length; b++){
+				int length = (int)Math.min(BLOCK_WORDS, words - (long)b * BLOCK_WORDS);
+				int runs   = 0;
+				for(int w=0; w<length; w++){
+					SatisfiablilityCalculator.setLanes(lanes, (long)b * BLOCK_WORDS + w);
+					block[w] = compiled.evaluateLanes(lanes, stack) & mask;
+					if(w == 0 || block[w] != block[w - 1])
+						runs++;
+				}
+				index[b] = channel.position() + buffer.position();
+				if((long)runs * RUN_BYTES >= 8L * length)
+					runs = 0;
+				if(buffer.remaining() < 4)
+					flush(channel, buffer);
+				buffer.putInt(runs);
+				for(int w=0; w<length; w++){
+					if(runs == 0){
+						if(buffer.remaining() < 8)
+							flush(channel, buffer);
+						buffer.putLong(block[w]);
+					}
+					else if(w + 1 == length || block[w + 1] != block[w]){
+						if(buffer.remaining() < RUN_BYTES)
+							flush(channel, buffer);
+						buffer.putInt(w + 1);
+						buffer.putLong(block[w]);
+					}
+				}
+			}
+			long indexStart = channel.position() + buffer.position();
+			for(long position:index){
+				if(buffer.remaining() < 8)
+					flush(channel, buffer);
+				buffer.putLong(position);
+			}
+			flush(channel, buffer);
+			//Fill in the position of the index.
+			buffer.putLong(indexStart);
+			buffer.flip();
+			channel.write(buffer, indexField);
+			return channel.size();
+		}
+	}
+
+	/**
+	 * Writes the contents of a buffer and clears it.
+	 * @param channel The FileChannel written to.
+	 * @param buffer The ByteBuffer to write.
+	 * @throws IOException If the file could not be written.
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+
+	//Reading operations.
+
+	/**
+	 * Opens a truth table file for lookups. The file stays open until close() is called.
+	 * @param path The Path of a file written by write(...).
+	 * @return A new TruthTableFile.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the file is not a truth table file of this version.
+	 */
+	public static TruthTableFile open(Path path) throws IOException{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			ByteBuffer header = read(channel, 0, 8);
+			if(header.getInt() != MAGIC)
+				throw new IllegalArgumentException("The file is not a truth table file.");
+			if(header.get() != VERSION)
+				throw new IllegalArgumentException("The file's version is not " + VERSION + ".");
+			byte encoding = header.get();
+			if(encoding != RAW && encoding != RUNS)
+				throw new IllegalArgumentException("Unknown encoding " + encoding + ".");
+			int numVars = header.getShort();
+			if(numVars < 0 || numVars > SatisfiablilityCalculator.MAX_ENUMERATED_VARIABLES)
+				throw new IllegalArgumentException("Bad variable count " + numVars + ".");
+			ArrayList<String> names = new ArrayList<String>();
+			long position = 8;
+			for(int i=0; i<numVars; i++){
+				int length = read(channel, position, 2).getShort();
+				names.add(new String(read(channel, position + 2, length).array(), StandardCharsets.UTF_8));
+				position += 2 + length;
+			}
+			position = (position + 7) & ~7L;
+			long indexStart = read(channel, position, 8).getLong();
+			return new TruthTableFile(channel, new SymbolTable(names), encoding, position + 8, indexStart);
+		}
+		catch(IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads part of a file.
+	 * @param channel The FileChannel to read.
+	 * @param position The position of the first byte.
+	 * @param length The number of bytes.
+	 * @return A new little-endian ByteBuffer holding the bytes, positioned at the first.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the file ends first.
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, position, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Fills the rest of a buffer from a file, and flips it.
+	 * @param channel The FileChannel to read.
+	 * @param position The position of the first byte.
+	 * @param buffer The ByteBuffer to fill.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the file ends first.
+	 */
+	private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException{
+		while(buffer.hasRemaining()){
+			int count = channel.read(buffer, position);
+			if(count < 0)
+				throw new IllegalArgumentException("The file ended unexpectedly.");
+			position += count;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Looks up a row of the table.
+	 * @param row The row, whose bit i is the value of the variable in slot i.
+	 * @return A boolean. The expression's truth value in the row.
+	 * @throws IOException If the file could not be read.
+	 * @throws IndexOutOfBoundsException If the row is not in the table.
+	 */
+	public boolean get(long row) throws IOException{
+		if(row < 0 || row >= getRowCount())
+			throw new IndexOutOfBoundsException("There is no row " + row + ".");
+		return ((getWord(row >>> 6) >>> row) & 1L) != 0;
+	}
+
+	/**
+	 * Looks up the row of an Assignment.
+	 * @param assignment An Assignment with a value for every variable of the table.
+	 * @return A boolean. The expression's truth value at the assignment.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the assignment has no value for a variable.
+	 */
+	public boolean get(Assignment assignment) throws IOException{
+		long row = 0;
+		for(int i=0; i<symbols.size(); i++){
+			if(assignment.get(symbols.getName(i)))
+				row |= 1L << i;
+		}
+		return get(row);
+	}
+
+	/**
+	 * Looks up a word of 64 rows.
+	 * @param word The index of the word; it holds rows word*64 through word*64+63.
+	 * @return A long whose bit j is the truth value of row word*64+j. Bits past the last row are zero.
+	 * @throws IOException If the file could not be read.
+	 * @throws IndexOutOfBoundsException If the word is not in the table.
+	 */
+	public long getWord(long word) throws IOException{
+		if(word < 0 || word >= words)
+			throw new IndexOutOfBoundsException("There is no word " + word + ".");
+		if(encoding == RAW)
+			return segments[(int)(8 * word / SEGMENT_BYTES)].getLong((int)(8 * word % SEGMENT_BYTES));
+
+		int        block    = (int)(word / BLOCK_WORDS);
+		int        offset   = (int)(word % BLOCK_WORDS);
+		long       position = index[block];
+		int        runs     = read(channel, position, 4).getInt();
+		if(runs == 0)
+			return read(channel, position + 4 + 8L * offset, 8).getLong();
+		ByteBuffer buffer = scratch.get();
+		if(buffer == null){
+			buffer = ByteBuffer.allocate(BLOCK_WORDS * RUN_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			scratch.set(buffer);
+		}
+		buffer.clear().limit(runs * RUN_BYTES);
+		readFully(channel, position + 4, buffer);
+		//Find the first run that ends after the word.
+		int low  = 0;
+		int high = runs - 1;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(buffer.getInt(middle * RUN_BYTES) > offset)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return buffer.getLong(low * RUN_BYTES + 4);
+	}
+
+
+	//Getter operations.
+
+	/**
+	 * Returns the SymbolTable of the table's variables, in slot order.
+	 * @return The SymbolTable.
+	 */
+	public SymbolTable getSymbolTable(){
+		return symbols;
+	}
+
+	/**
+	 * Returns the number of rows in the table.
+	 * @return A long. 2 to the power of the number of variables.
+	 */
+	public long getRowCount(){
+		return 1L << symbols.size();
+	}
+
+	/**
+	 * Determines if the table is run-length encoded.
+	 * @return A boolean. True for a RUNS table, false for a RAW table.
+	 */
+	public boolean isCompressed(){
+		return encoding == RUNS;
+	}
+
+	/**
+	 * Closes the file. Lookups of a RAW table may still work until its mappings are collected,
+	 *  but should not be made.
+	 * @throws IOException If the file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+}
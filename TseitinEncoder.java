@@ -0,0 +1,173 @@
+package propositionalCalculatorV1_0;
+
+import java.util.HashMap;
+
+/**
+ * This class converts a CompiledExpression into clauses of a CdclSolver using the Tseitin
+ *  transformation. Every operator of the expression is given a new solver variable that is
+ *  constrained to be equivalent to the operator applied to its operands, so the clauses grow
+ *  linearly with the expression rather than exponentially. Because each new variable is fully
+ *  determined by the expression's own variables, the clauses have exactly one model for each
+ *  satisfying combination of the expression's variables.
+ * This class is singleton, and it's public methods are encode(CompiledExpression, CdclSolver)
+ *  and encodeLiteral(CompiledExpression, CdclSolver, int[]).
+ * @author Kenneth Chin
+ *
+ */
+public final class TseitinEncoder {
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private TseitinEncoder(){}
+
+	/**
+	 * Adds a new solver variable for each of the expression's variable slots, encodes the
+	 *  expression, and requires it to be true.
+	 * @param compiled The CompiledExpression to be encoded.
+	 * @param solver The CdclSolver the clauses are added to.
+	 * @return An int[] whose element i is the solver variable of the expression's slot i.
+	 */
+	public static int[] encode(CompiledExpression compiled, CdclSolver solver){
+		int[] slotVariables = new int[compiled.getVariableCount()];
+		for(int i=0; i<slotVariables.length; i++)
+			slotVariables[i] = solver.newVariable();
+		solver.addClause(encodeLiteral(compiled, solver, slotVariables));
+		return slotVariables;
+	}
+
+	/**
+	 * Encodes the expression without constraining its value.
+	 * @param compiled The CompiledExpression to be encoded.
+	 * @param solver The CdclSolver the clauses are added to.
+	 * @param slotVariables An int[] whose element i is the solver variable of the expression's slot i.
+	 * @return An int. A solver literal that is true exactly when the expression is true.
+	 */
+	public static int encodeLiteral(CompiledExpression compiled, CdclSolver solver, int[] slotVariables){
+		int[] stack = new int[Math.max(1, compiled.getMaxStackDepth())];
+		int   top   = -1;
+		//Gates already encoded, keyed by operator and operands, so repeated sub-expressions share a variable.
+		HashMap<GateKey, Integer> gates = new HashMap<GateKey, Integer>();
+		for(int instruction:compiled.getCode()){
+			int opcode = CompiledExpression.opcode(instruction);
+			switch(opcode){
+				case CompiledExpression.PUSH     : stack[++top] =  slotVariables[CompiledExpression.operand(instruction)]; break;
+				case CompiledExpression.PUSH_NOT : stack[++top] = -slotVariables[CompiledExpression.operand(instruction)]; break;
+				case CompiledExpression.NOT      : stack[top]   = -stack[top]; break;
+				default :
+					int right = stack[top--];
+					int left  = stack[top];
+					stack[top] = encodeGate(solver, gates, opcode, left, right);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Encodes a single binary operator.
+	 * @param solver The CdclSolver the clauses are added to.
+	 * @param gates The gates encoded so far.
+	 * @param opcode A binary opcode of CompiledExpression.
+	 * @param left The literal of the value below the top of the stack.
+	 * @param right The literal of the value at the top of the stack.
+	 * @return An int. A literal equivalent to the operator applied to left and right.
+	 */
+	private static int encodeGate(CdclSolver solver, HashMap<GateKey, Integer> gates, int opcode, int left, int right){
+		switch(opcode){
+			case CompiledExpression.AND         : return andGate(solver, gates, left, right);
+			case CompiledExpression.OR          : return -andGate(solver, gates, -left, -right);
+			case CompiledExpression.IMPLIES     : return -andGate(solver, gates, left, -right);
+			case CompiledExpression.REV_IMPLIES : return -andGate(solver, gates, right, -left);
+			case CompiledExpression.XOR         : return xorGate(solver, gates, left, right);
+			case CompiledExpression.EQUIVALENT  : return -xorGate(solver, gates, left, right);
+			default : throw new IllegalStateException("Unknown opcode " + opcode + ".");
+		}
+	}
+
+	/**
+	 * Encodes x = a & b.
+	 * @param solver The CdclSolver the clauses are added to.
+	 * @param gates The gates encoded so far.
+	 * @param a A literal.
+	 * @param b A literal.
+	 * @return An int. The literal x.
+	 */
+	private static int andGate(CdclSolver solver, HashMap<GateKey, Integer> gates, int a, int b){
+		if(a == b)
+			return a;
+		GateKey key = new GateKey(CompiledExpression.AND, Math.min(a, b), Math.max(a, b));
+		Integer existing = gates.get(key);
+		if(existing != null)
+			return existing;
+		int x = solver.newVariable();
+		solver.addClause(-x, a);
+		solver.addClause(-x, b);
+		solver.addClause(x, -a, -b);
+		gates.put(key, x);
+		return x;
+	}
+
+	/**
+	 * Encodes x = a ^ b.
+	 * @param solver The CdclSolver the clauses are added to.
+	 * @param gates The gates encoded so far.
+	 * @param a A literal.
+	 * @param b A literal.
+	 * @return An int. The literal x.
+	 */
+	private static int xorGate(CdclSolver solver, HashMap<GateKey, Integer> gates, int a, int b){
+		//Gates are keyed on positive operands; negating an operand negates the result.
+		int sign = ((a < 0) != (b < 0)) ? -1 : 1;
+		a = Math.abs(a);
+		b = Math.abs(b);
+		GateKey key = new GateKey(CompiledExpression.XOR, Math.min(a, b), Math.max(a, b));
+		Integer existing = gates.get(key);
+		if(existing != null)
+			return sign * existing;
+		int x = solver.newVariable();
+		solver.addClause(-x, a, b);
+		solver.addClause(-x, -a, -b);
+		solver.addClause(x, -a, b);
+		solver.addClause(x, a, -b);
+		gates.put(key, x);
+		return sign * x;
+	}
+
+
+	/**
+	 * The operator and (ordered) operand literals of an encoded gate.
+	 * @author Kenneth Chin
+	 *
+	 */
+	private static final class GateKey {
+
+		private final int opcode;
+		private final int first;
+		private final int second;
+
+		/**
+		 * Creates a key.
+		 * @param opcode The gate's opcode.
+		 * @param first The smaller operand literal.
+		 * @param second The larger operand literal.
+		 */
+		private GateKey(int opcode, int first, int second){
+			this.opcode = opcode;
+			this.first  = first;
+			this.second = second;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof GateKey))
+				return false;
+			GateKey key = (GateKey)other;
+			return opcode == key.opcode && first == key.first && second == key.second;
+		}
+
+		@Override
+		public int hashCode(){
+			return (opcode * 31 + first) * 31 + second;
+		}
+	}
+}
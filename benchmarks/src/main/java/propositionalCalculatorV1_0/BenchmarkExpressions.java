@@ -0,0 +1,131 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * This class generates the expressions measured by the benchmarks. An expression is described by
+ *  its number of variables, its length (the number of operands), its nesting depth (the number of
+ *  parentheses around its innermost group) and its operator mix. Expressions are generated from a
+ *  fixed seed, so every run measures the same strings.
+ * Variables are used in turn, so every variable appears once the length reaches the number of
+ *  variables, and a quarter of the operands are negated.
+ * This class is singleton, and it's public methods are generate(...), variables(int) and
+ *  assignments(...).
+ * @author Kenneth Chin
+ *
+ */
+public final class BenchmarkExpressions {
+
+	//The operators of each operator mix.
+	public static final String AND_OR = "AND_OR"; //Only & and |.
+	public static final String ALL    = "ALL";    //Every conditional: & | ^ > =.
+
+	/**
+	 * The private constructor which forces this class to be singleton.
+	 */
+	private BenchmarkExpressions(){}
+
+	/**
+	 * Generates an expression.
+	 * @param variables The number of variables.
+	 * @param length The number of operands.
+	 * @param depth The nesting depth. Each level holds half of the operands of the level around it.
+	 * @param mix AND_OR or ALL.
+	 * @param seed The seed of the random choices.
+	 * @return A propositional logic expression String.
+	 * @throws IllegalArgumentException If the mix is unknown, or the length is less than depth+1.
+	 */
+	public static String generate(int variables, int length, int depth, String mix, long seed){
+		String operators;
+		if(AND_OR.equals(mix))
+			operators = "&|";
+		else if(ALL.equals(mix))
+			operators = "&|^>=";
+		else
+			throw new IllegalArgumentException("Unknown operator mix \"" + mix + "\".");
+		if(length < depth + 1)
+			throw new IllegalArgumentException("An expression of depth " + depth + " needs at least " + (depth + 1) + " operands.");
+		StringBuilder builder = new StringBuilder();
+		appendGroup(builder, new Random(seed), operators, variables, length, depth, new int[1]);
+		return builder.toString();
+	}
+
+	/**
+	 * Appends a run of operands joined by random operators, one of which is a parenthesized group
+	 *  of the next depth down.
+	 * @param builder The StringBuilder appended to.
+	 * @param random The source of the random choices.
+	 * @param operators The operators to choose from.
+	 * @param variables The number of variables.
+	 * @param length The number of operands, including those of the nested groups.
+	 * @param depth The number of groups to nest inside this one.
+	 * @param next An int[] holding the index of the next variable to use.
+	 */
+	private static void appendGroup(StringBuilder builder, Random random, String operators, int variables,
+	                                int length, int depth, int[] next){
+		int inner   = (depth > 0) ? Math.max(depth, length / 2) : 0;
+		int items   = length - inner + ((depth > 0) ? 1 : 0);
+		int groupAt = (depth > 0) ? random.nextInt(items) : -1;
+		for(int i=0; i<items; i++){
+			if(i > 0)
+				builder.append(operators.charAt(random.nextInt(operators.length())));
+			if(random.nextInt(4) == 0)
+				builder.append('!');
+			if(i == groupAt){
+				builder.append('(');
+				appendGroup(builder, random, operators, variables, inner, depth - 1, next);
+				builder.append(')');
+			}
+			else
+				builder.append(name(next[0]++ % variables));
+		}
+	}
+
+	/**
+	 * Returns the name of a variable: "a" through "z", then "ba", "bb" and so on.
+	 * @param index The index of the variable.
+	 * @return A String of letters.
+	 */
+	static String name(int index){
+		String name = "";
+		do{
+			name  = (char)('a' + index % 26) + name;
+			index = index / 26;
+		}while(index > 0);
+		return name;
+	}
+
+	/**
+	 * Returns the names of the variables of generated expressions.
+	 * @param variables The number of variables.
+	 * @return A new ArrayList<String> of the names, in index order.
+	 */
+	public static ArrayList<String> variables(int variables){
+		ArrayList<String> names = new ArrayList<String>();
+		for(int i=0; i<variables; i++)
+			names.add(name(i));
+		return names;
+	}
+
+	/**
+	 * Returns random assignments of the variables.
+	 * @param variables The number of variables.
+	 * @param count The number of assignments.
+	 * @param seed The seed of the random values.
+	 * @return A new HashMap<String, Boolean>[] of count assignments.
+	 */
+	@SuppressWarnings("unchecked")
+	public static HashMap<String, Boolean>[] assignments(int variables, int count, long seed){
+		Random                     random = new Random(seed);
+		ArrayList<String>          names  = variables(variables);
+		HashMap<String, Boolean>[] maps   = new HashMap[count];
+		for(int i=0; i<count; i++){
+			maps[i] = new HashMap<String, Boolean>();
+			for(String name:names)
+				maps[i].put(name, random.nextBoolean());
+		}
+		return maps;
+	}
+}
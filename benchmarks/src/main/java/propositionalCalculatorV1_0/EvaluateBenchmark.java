@@ -0,0 +1,40 @@
+package propositionalCalculatorV1_0;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures ExpressionEvaluator.evaluateExpressionCards(HashMap<String, Boolean>, ExpressionCard):
+ *  evaluating parsed cards at an assignment. Each invocation evaluates ExpressionState.ASSIGNMENTS
+ *  different assignments, so results are per evaluation and cannot be folded into a constant.
+ * @author Kenneth Chin
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+	/**
+	 * Evaluates the expression at every assignment.
+	 * @param state The expression and its assignments.
+	 * @param blackhole Consumes the results.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(ExpressionState.ASSIGNMENTS)
+	public void evaluateExpressionCards(ExpressionState state, Blackhole blackhole){
+		for(int i=0; i<ExpressionState.ASSIGNMENTS; i++)
+			blackhole.consume(ExpressionEvaluator.evaluateExpressionCards(state.assignments[i], state.root));
+	}
+}
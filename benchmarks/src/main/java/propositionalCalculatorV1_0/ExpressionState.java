@@ -0,0 +1,50 @@
+package propositionalCalculatorV1_0;
+
+import java.util.HashMap;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The expression shared by the benchmarks, described by JMH parameters, with its parsed cards and
+ *  a set of assignments to evaluate it at.
+ * @author Kenneth Chin
+ *
+ */
+@State(Scope.Benchmark)
+public class ExpressionState {
+
+	//The number of assignments cycled through by the evaluation benchmarks.
+	public static final int ASSIGNMENTS = 64;
+
+	@Param({"4", "10"})
+	public int variables;  //The number of variables.
+
+	@Param({"16", "64"})
+	public int length;     //The number of operands.
+
+	@Param({"0", "3"})
+	public int depth;      //The nesting depth.
+
+	@Param({BenchmarkExpressions.AND_OR, BenchmarkExpressions.ALL})
+	public String mix;     //The operator mix.
+
+	public String                     expression;  //The generated expression.
+	public ExpressionCard             root;        //The expression's parsed cards.
+	public HashMap<String, Boolean>   valueMap;    //A map holding every variable, for satisfiability.
+	public HashMap<String, Boolean>[] assignments; //The assignments evaluated.
+
+	/**
+	 * Generates and parses the expression.
+	 */
+	@Setup(Level.Trial)
+	public void setUp(){
+		expression  = BenchmarkExpressions.generate(variables, length, depth, mix, 42L);
+		root        = ExpressionDisAssembler.getCards(expression);
+		assignments = BenchmarkExpressions.assignments(variables, ASSIGNMENTS, 7L);
+		valueMap    = new HashMap<String, Boolean>(assignments[0]);
+	}
+}
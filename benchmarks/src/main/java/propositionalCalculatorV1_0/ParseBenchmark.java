@@ -0,0 +1,35 @@
+package propositionalCalculatorV1_0;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ExpressionDisAssembler.getCards(String): parsing an expression into its ExpressionCard
+ *  binary tree.
+ * @author Kenneth Chin
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	/**
+	 * Parses the expression.
+	 * @param state The expression.
+	 * @return The ExpressionCard at the root of the tree.
+	 */
+	@Benchmark
+	public ExpressionCard getCards(ExpressionState state){
+		return ExpressionDisAssembler.getCards(state.expression);
+	}
+}
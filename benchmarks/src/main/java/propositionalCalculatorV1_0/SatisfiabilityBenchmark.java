@@ -0,0 +1,37 @@
+package propositionalCalculatorV1_0;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures SatisfiablilityCalculator.findSatisfiablility(HashMap<String, Boolean>, ExpressionCard):
+ *  searching the whole truth table and collecting the satisfying combinations.
+ * @author Kenneth Chin
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SatisfiabilityBenchmark {
+
+	/**
+	 * Finds every satisfying combination of the expression.
+	 * @param state The expression.
+	 * @return The satisfying combinations.
+	 */
+	@Benchmark
+	public ArrayList<HashMap<String, Boolean>> findSatisfiablility(ExpressionState state){
+		return SatisfiablilityCalculator.findSatisfiablility(state.valueMap, state.root);
+	}
+}